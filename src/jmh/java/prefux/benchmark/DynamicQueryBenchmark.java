@@ -0,0 +1,114 @@
+package prefux.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.CascadedTable;
+import prefux.data.Table;
+import prefux.data.expression.AndPredicate;
+import prefux.data.expression.ColumnExpression;
+import prefux.data.expression.NumericLiteral;
+import prefux.data.expression.RangePredicate;
+
+/**
+ * A CascadedTable filtered by two range clauses over indexed columns, as
+ * driven by dynamic query sliders. The slide benchmark moves the upper
+ * bound of one range by 1% of the values and back. The update benchmarks
+ * write a column the filter does not refer to, in random rows or in a
+ * block of consecutive rows, with the block also written within a batch
+ * of changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicQueryBenchmark {
+
+    private static final int BLOCK = 1024;
+
+    @Param({ "100000", "1000000" })
+    public int rows;
+
+    private Table m_table;
+    private RangePredicate m_range;
+    private CascadedTable m_view;
+    private int m_hi, m_step;
+    private int[] m_rows;
+    private int m_value;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        m_table = new Table();
+        m_table.addColumn("x", int.class);
+        m_table.addColumn("y", double.class);
+        m_table.addColumn("w", int.class);
+        m_table.addRows(rows);
+        for (int i = 0; i < rows; ++i) {
+            m_table.setInt(i, "x", rand.nextInt(rows));
+            m_table.setDouble(i, "y", rand.nextDouble());
+        }
+        m_table.index("x");
+        m_table.index("y");
+
+        m_hi = rows / 2;
+        m_step = rows / 100;
+        m_range = new RangePredicate(new ColumnExpression("x"),
+                new NumericLiteral(0), new NumericLiteral(m_hi));
+        m_view = new CascadedTable(m_table, new AndPredicate(m_range,
+                new RangePredicate(new ColumnExpression("y"),
+                        new NumericLiteral(0.25), new NumericLiteral(0.75))));
+
+        m_rows = new int[1024];
+        for (int i = 0; i < m_rows.length; ++i)
+            m_rows[i] = rand.nextInt(rows);
+    }
+
+    @Benchmark
+    public int slide() {
+        m_range.setRightExpression(new NumericLiteral(m_hi - m_step));
+        m_range.setRightExpression(new NumericLiteral(m_hi));
+        return m_view.getRowCount();
+    }
+
+    @Benchmark
+    public int update() {
+        int v = ++m_value;
+        for (int i = 0; i < m_rows.length; ++i)
+            m_table.setInt(m_rows[i], "w", v);
+        return m_view.getRowCount();
+    }
+
+    @Benchmark
+    public int updateBlock() {
+        int v = ++m_value;
+        for (int i = 0; i < BLOCK; ++i)
+            m_table.setInt(i, "w", v);
+        return m_view.getRowCount();
+    }
+
+    @Benchmark
+    public int updateBlockBatch() {
+        int v = ++m_value;
+        m_table.beginBatch();
+        for (int i = 0; i < BLOCK; ++i)
+            m_table.setInt(i, "w", v);
+        m_table.endBatch();
+        return m_view.getRowCount();
+    }
+
+}
@@ -0,0 +1,56 @@
+package prefux.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.expression.Expression;
+import prefux.data.expression.parser.ExpressionParser;
+
+/**
+ * Parsing of expression strings, from a simple comparison to nested
+ * arithmetic with function calls. The parser logs every expression at
+ * INFO level, which is turned off so that console output is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    @Param({
+        "x > 10",
+        "x >= 10 AND y < 0.5 OR label = 'foo'",
+        "IF (x > 10) THEN SQRT(x * x + y * y) ELSE MAX(x, y) / 2 + 1"
+    })
+    public String expr;
+
+    private Logger m_logger;
+
+    @Setup
+    public void setup() {
+        // keep a reference, so the level is not lost with the logger
+        m_logger = Logger.getLogger(ExpressionParser.class.getName());
+        m_logger.setLevel(Level.WARNING);
+    }
+
+    @Benchmark
+    public Expression parse() {
+        return ExpressionParser.parse(expr, true);
+    }
+
+}
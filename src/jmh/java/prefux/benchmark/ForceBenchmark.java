@@ -0,0 +1,93 @@
+package prefux.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.Graph;
+import prefux.util.GraphLib;
+import prefux.util.force.DragForce;
+import prefux.util.force.EulerIntegrator;
+import prefux.util.force.ForceItem;
+import prefux.util.force.ForceSimulator;
+import prefux.util.force.NBodyForce;
+import prefux.util.force.SpringForce;
+
+/**
+ * Force simulation steps on a square grid graph, with one spring per edge.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForceBenchmark {
+
+    /** The number of rows and columns of the grid. */
+    @Param({ "32", "100" })
+    public int size;
+
+    private ForceSimulator m_sim;
+    private NBodyForce m_nbody;
+    private ForceItem[] m_items;
+
+    @Setup
+    public void setup() {
+        Graph g = GraphLib.getGrid(size, size);
+        Random rand = new Random(42);
+
+        m_nbody = new NBodyForce();
+        m_sim = new ForceSimulator(new EulerIntegrator());
+        m_sim.addForce(m_nbody);
+        m_sim.addForce(new SpringForce());
+        m_sim.addForce(new DragForce());
+
+        m_items = new ForceItem[g.getNodeCount()];
+        for (int i = 0; i < m_items.length; ++i) {
+            ForceItem item = new ForceItem();
+            item.location[0] = 1000 * rand.nextDouble();
+            item.location[1] = 1000 * rand.nextDouble();
+            m_items[i] = item;
+            m_sim.addItem(item);
+        }
+        for (int e = 0; e < g.getEdgeCount(); ++e) {
+            m_sim.addSpring(m_items[g.getSourceNode(e)],
+                            m_items[g.getTargetNode(e)]);
+        }
+    }
+
+    /**
+     * Builds the Barnes-Hut quadtree and computes the n-body force of every
+     * item.
+     */
+    @Benchmark
+    public ForceItem[] nbody() {
+        m_nbody.init(m_sim);
+        for (ForceItem item : m_items)
+            m_nbody.getForce(item);
+        return m_items;
+    }
+
+    /**
+     * One full simulation step: n-body, spring and drag forces followed by
+     * Euler integration.
+     */
+    @Benchmark
+    public ForceItem[] step() {
+        m_sim.runSimulator(50);
+        return m_items;
+    }
+
+}
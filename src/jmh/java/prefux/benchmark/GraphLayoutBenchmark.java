@@ -0,0 +1,77 @@
+package prefux.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javafx.geometry.Rectangle2D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.Visualization;
+import prefux.action.layout.Layout;
+import prefux.action.layout.graph.MultilevelForceLayout;
+import prefux.action.layout.graph.PivotMDSLayout;
+import prefux.data.util.Point2D;
+import prefux.util.GraphLib;
+
+/**
+ * Complete layouts of large grid graphs. Each run is a single, long
+ * invocation, so these use single shot timing. Pass -p size=1000 for the
+ * one million node case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphLayoutBenchmark {
+
+    private static final String GRAPH = "graph";
+
+    /** The number of rows and columns of the grid. */
+    @Param({ "32", "100" })
+    public int size;
+
+    private Visualization m_vis;
+    private MultilevelForceLayout m_multilevel;
+    private PivotMDSLayout m_pivotMDS;
+
+    @Setup
+    public void setup() {
+        Headless.start();
+        m_vis = new Visualization();
+        m_vis.addGraph(GRAPH, GraphLib.getGrid(size, size));
+        m_multilevel = init(new MultilevelForceLayout(GRAPH));
+        m_pivotMDS = init(new PivotMDSLayout(GRAPH));
+    }
+
+    private <T extends Layout> T init(T layout) {
+        layout.setVisualization(m_vis);
+        layout.setLayoutBounds(new Rectangle2D(0, 0, 1000, 1000));
+        layout.setLayoutAnchor(new Point2D(500, 500));
+        return layout;
+    }
+
+    @Benchmark
+    public Visualization multilevel() {
+        m_multilevel.run(0);
+        return m_vis;
+    }
+
+    @Benchmark
+    public Visualization pivotMDS() {
+        m_pivotMDS.run(0);
+        return m_vis;
+    }
+
+}
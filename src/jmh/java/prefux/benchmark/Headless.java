@@ -0,0 +1,30 @@
+package prefux.benchmark;
+
+import com.sun.javafx.application.PlatformImpl;
+
+/**
+ * Starts the JavaFX toolkit once per benchmark JVM. Visual items push table
+ * updates to their JavaFX properties through Platform.runLater, which fails
+ * until the toolkit is running. The gradle jmh task selects the headless
+ * Monocle platform, so this works without a display.
+ */
+final class Headless {
+
+    private static boolean s_started = false;
+
+    private Headless() {
+    }
+
+    static synchronized void start() {
+        if (s_started)
+            return;
+        try {
+            PlatformImpl.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            // toolkit already running
+        }
+        s_started = true;
+    }
+
+}
@@ -0,0 +1,84 @@
+package prefux.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.Graph;
+import prefux.data.Table;
+import prefux.data.io.CSVTableReader;
+import prefux.data.io.CSVTableWriter;
+import prefux.data.io.DataIOException;
+import prefux.data.io.GraphMLReader;
+import prefux.data.io.GraphMLWriter;
+import prefux.util.GraphLib;
+
+/**
+ * Parsing of CSV tables and GraphML graphs from memory. The inputs are
+ * written by the matching writers during setup, so disk access is not
+ * measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBenchmark {
+
+    /** The number of table rows, and of grid graph nodes. */
+    @Param({ "10000" })
+    public int rows;
+
+    private byte[] m_csv;
+    private byte[] m_graphml;
+
+    @Setup
+    public void setup() throws DataIOException {
+        Random rand = new Random(42);
+        Table t = new Table();
+        t.addColumn("id", int.class);
+        t.addColumn("value", double.class);
+        t.addColumn("name", String.class);
+        t.addRows(rows);
+        for (int i = 0; i < rows; ++i) {
+            t.setInt(i, "id", i);
+            t.setDouble(i, "value", rand.nextDouble());
+            t.setString(i, "name", "name" + rand.nextInt(1000));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CSVTableWriter().writeTable(t, out);
+        m_csv = out.toByteArray();
+
+        int side = (int) Math.sqrt(rows);
+        Graph g = GraphLib.getGrid(side, side);
+        out = new ByteArrayOutputStream();
+        new GraphMLWriter().writeGraph(g, out);
+        m_graphml = out.toByteArray();
+    }
+
+    @Benchmark
+    public Table readCSV() throws DataIOException {
+        return new CSVTableReader().readTable(new ByteArrayInputStream(m_csv));
+    }
+
+    @Benchmark
+    public Graph readGraphML() throws DataIOException {
+        return new GraphMLReader().readGraph(
+                new ByteArrayInputStream(m_graphml));
+    }
+
+}
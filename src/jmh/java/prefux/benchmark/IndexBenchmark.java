@@ -0,0 +1,84 @@
+package prefux.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.Table;
+import prefux.data.util.Index;
+import prefux.util.collections.IntIterator;
+
+/**
+ * Building, range scans and updates of an index over a double column,
+ * stored in a red-black tree or in sorted arrays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexBenchmark {
+
+    @Param({ "100000", "1000000" })
+    public int rows;
+
+    @Param({ "false", "true" })
+    public boolean sortedArray;
+
+    private final Random m_rand = new Random(42);
+    private Table m_table;
+    private Index m_index;
+
+    @Setup
+    public void setup() {
+        m_table = new Table();
+        m_table.addColumn("y", double.class);
+        m_table.addRows(rows);
+        for (int i = 0; i < rows; ++i)
+            m_table.setDouble(i, "y", m_rand.nextDouble());
+        m_index = m_table.index("y", sortedArray);
+    }
+
+    @Benchmark
+    public Index build() {
+        m_table.removeIndex("y");
+        m_index = m_table.index("y", sortedArray);
+        return m_index;
+    }
+
+    /**
+     * Range query covering about 1% of the rows.
+     */
+    @Benchmark
+    public int rangeScan() {
+        double lo = m_rand.nextDouble() * 0.99;
+        IntIterator iter = m_index.rows(lo, lo + 0.01, Index.TYPE_AIE);
+        int n = 0;
+        while (iter.hasNext()) {
+            iter.nextInt();
+            ++n;
+        }
+        return n;
+    }
+
+    /**
+     * Changes the value of a single row, which moves its index entry.
+     */
+    @Benchmark
+    public void update() {
+        m_table.setDouble(m_rand.nextInt(rows), "y", m_rand.nextDouble());
+    }
+
+}
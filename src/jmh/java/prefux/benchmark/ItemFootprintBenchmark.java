@@ -0,0 +1,71 @@
+package prefux.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.Visualization;
+import prefux.data.Table;
+import prefux.data.tuple.TupleManager;
+import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
+import prefux.visual.tuple.TableVisualItem;
+
+/**
+ * Creates the visual items of a large VisualTable from scratch. Run with
+ * -prof gc: gc.alloc.rate.norm divided by the number of items gives the
+ * heap footprint of an item that no renderer has bound yet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsPrepend = "-Xmx4g")
+public class ItemFootprintBenchmark {
+
+    @Param({ "1000000" })
+    public int items;
+
+    private VisualTable m_table;
+    private VisualItem[] m_items;
+
+    @Setup
+    public void setup() {
+        Headless.start();
+        Table t = new Table();
+        t.addColumn("id", int.class);
+        t.addRows(items);
+        m_table = new Visualization().addTable("table", t);
+        m_items = new VisualItem[items];
+    }
+
+    /**
+     * Drops all previously created items, so that each invocation creates
+     * them again.
+     */
+    @Setup(Level.Invocation)
+    public void reset() {
+        m_table.setTupleManager(new TupleManager(m_table, null,
+                TableVisualItem.class));
+    }
+
+    @Benchmark
+    public VisualItem[] createItems() {
+        for (int i = 0; i < items; ++i)
+            m_items[i] = m_table.getItem(i);
+        return m_items;
+    }
+
+}
@@ -0,0 +1,164 @@
+package prefux.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.data.Table;
+import prefux.data.column.ColumnFactory;
+import prefux.data.expression.Predicate;
+import prefux.data.expression.parser.ExpressionParser;
+import prefux.data.util.Index;
+import prefux.util.collections.IntIterator;
+
+/**
+ * Column access, predicate scans and index range queries on a Table with
+ * an int, a double and a String column. The numeric columns are stored
+ * either in Java arrays or off the heap. Column access is measured row by
+ * row and with the bulk accessors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int rows;
+
+    @Param({ "false", "true" })
+    public boolean offHeap;
+
+    private Table m_table;
+    private int m_ycol;
+    private double m_value;
+    private Predicate m_filter;
+    private Index m_index;
+    private int[] m_lo;
+    private int m_query;
+    private int[] m_rows;
+    private double[] m_values;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(42);
+        m_table = new Table();
+        if (offHeap) {
+            m_table.addColumn("x",
+                    ColumnFactory.getOffHeapColumn(int.class, 0, null, null));
+            m_table.addColumn("y",
+                    ColumnFactory.getOffHeapColumn(double.class, 0, null, null));
+        } else {
+            m_table.addColumn("x", int.class);
+            m_table.addColumn("y", double.class);
+        }
+        m_table.addColumn("label", String.class);
+        m_table.addRows(rows);
+        for (int i = 0; i < rows; ++i) {
+            m_table.setInt(i, "x", rand.nextInt(rows));
+            m_table.setDouble(i, "y", rand.nextDouble());
+            m_table.setString(i, "label", "row" + i);
+        }
+        m_ycol = m_table.getColumnNumber("y");
+        m_filter = ExpressionParser.predicate("x < " + rows / 10
+                + " AND y > 0.5");
+        m_index = m_table.index("x");
+
+        m_lo = new int[1024];
+        for (int i = 0; i < m_lo.length; ++i)
+            m_lo[i] = rand.nextInt(rows);
+
+        m_rows = new int[rows];
+        for (int i = 0; i < rows; ++i)
+            m_rows[i] = i;
+        m_values = new double[rows];
+    }
+
+    @Benchmark
+    public double getByName() {
+        double sum = 0;
+        for (int i = 0; i < rows; ++i)
+            sum += m_table.getDouble(i, "y");
+        return sum;
+    }
+
+    @Benchmark
+    public double getByIndex() {
+        double sum = 0;
+        for (int i = 0; i < rows; ++i)
+            sum += m_table.getDouble(i, m_ycol);
+        return sum;
+    }
+
+    /**
+     * Writes a new value to every row of the (unindexed) double column.
+     * The value changes on each call, as writes of an unchanged value are
+     * dropped without firing events.
+     */
+    @Benchmark
+    public void setByName() {
+        double v = ++m_value;
+        for (int i = 0; i < rows; ++i)
+            m_table.setDouble(i, "y", v);
+    }
+
+    @Benchmark
+    public void setByIndex() {
+        double v = ++m_value;
+        for (int i = 0; i < rows; ++i)
+            m_table.setDouble(i, m_ycol, v);
+    }
+
+    @Benchmark
+    public double getBulk() {
+        m_table.getDoubles(m_rows, m_ycol, m_values, rows);
+        double sum = 0;
+        for (int i = 0; i < rows; ++i)
+            sum += m_values[i];
+        return sum;
+    }
+
+    @Benchmark
+    public void setBulk() {
+        Arrays.fill(m_values, ++m_value);
+        m_table.setDoubles(m_rows, m_ycol, m_values, rows);
+    }
+
+    @Benchmark
+    public int rowsPredicate() {
+        return count(m_table.rows(m_filter));
+    }
+
+    /**
+     * Range query covering about 1% of the rows.
+     */
+    @Benchmark
+    public int indexRange() {
+        int lo = m_lo[m_query++ & (m_lo.length - 1)];
+        return count(m_index.rows(lo, lo + rows / 100, Index.TYPE_AIE));
+    }
+
+    private static int count(IntIterator rows) {
+        int n = 0;
+        while (rows.hasNext()) {
+            rows.nextInt();
+            ++n;
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,128 @@
+package prefux.benchmark;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javafx.geometry.Rectangle2D;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.Visualization;
+import prefux.action.layout.Layout;
+import prefux.action.layout.graph.BalloonTreeLayout;
+import prefux.action.layout.graph.NodeLinkTreeLayout;
+import prefux.action.layout.graph.RadialTreeLayout;
+import prefux.action.layout.graph.SquarifiedTreeMapLayout;
+import prefux.data.Tree;
+import prefux.data.util.Point2D;
+import prefux.util.GraphLib;
+import prefux.visual.NodeItem;
+import prefux.visual.VisualTree;
+
+/**
+ * Tree layouts on a balanced tree. The treemap benchmarks compare a full
+ * relayout with an incremental one after a single leaf changed size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeLayoutBenchmark {
+
+    private static final String TREE = "tree";
+
+    /** The breadth of each level of the tree. */
+    @Param({ "4" })
+    public int breadth;
+
+    /** The depth of the tree; a depth of 6 gives about 5k nodes. */
+    @Param({ "5", "6" })
+    public int depth;
+
+    private Visualization m_vis;
+    private NodeLinkTreeLayout m_nodeLink;
+    private RadialTreeLayout m_radial;
+    private BalloonTreeLayout m_balloon;
+    private SquarifiedTreeMapLayout m_treemap;
+    private SquarifiedTreeMapLayout m_incremental;
+    private List<NodeItem> m_leaves = new ArrayList<NodeItem>();
+    private int m_leaf;
+
+    @Setup
+    public void setup() {
+        Headless.start();
+        Tree t = GraphLib.getBalancedTree(breadth, depth);
+        m_vis = new Visualization();
+        VisualTree vt = m_vis.addTree(TREE, t);
+        for (Iterator<?> it = vt.nodes(); it.hasNext();) {
+            NodeItem n = (NodeItem) it.next();
+            if (n.getChildCount() == 0) {
+                n.setSize(1 + m_leaves.size() % 10);
+                m_leaves.add(n);
+            }
+        }
+
+        m_nodeLink = init(new NodeLinkTreeLayout(TREE));
+        m_radial = init(new RadialTreeLayout(TREE));
+        m_balloon = init(new BalloonTreeLayout(TREE));
+        m_treemap = init(new SquarifiedTreeMapLayout(TREE));
+        m_incremental = init(new SquarifiedTreeMapLayout(TREE));
+        m_incremental.setIncremental(true);
+        m_incremental.setTolerance(0.5);
+        m_incremental.run(0);
+    }
+
+    private <T extends Layout> T init(T layout) {
+        layout.setVisualization(m_vis);
+        layout.setLayoutBounds(new Rectangle2D(0, 0, 1000, 800));
+        layout.setLayoutAnchor(new Point2D(500, 400));
+        return layout;
+    }
+
+    @Benchmark
+    public Visualization nodeLink() {
+        m_nodeLink.run(0);
+        return m_vis;
+    }
+
+    @Benchmark
+    public Visualization radial() {
+        m_radial.run(0);
+        return m_vis;
+    }
+
+    @Benchmark
+    public Visualization balloon() {
+        m_balloon.run(0);
+        return m_vis;
+    }
+
+    @Benchmark
+    public Visualization treemap() {
+        m_treemap.run(0);
+        return m_vis;
+    }
+
+    @Benchmark
+    public Visualization treemapIncremental() {
+        NodeItem leaf = m_leaves.get(m_leaf++ % m_leaves.size());
+        leaf.setSize(leaf.getSize() == 1 ? 2 : leaf.getSize() - 1);
+        m_incremental.run(0);
+        return m_vis;
+    }
+
+}
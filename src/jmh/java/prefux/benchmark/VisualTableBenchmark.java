@@ -0,0 +1,72 @@
+package prefux.benchmark;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import prefux.Visualization;
+import prefux.data.Table;
+import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
+
+/**
+ * Writes to a VisualTable whose items have all been created, which is the
+ * state a table is in once it has been rendered. The layout pass moves
+ * every item, as a layout does on each step, and the single update moves
+ * one item; both should scale with the number of updated rows only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisualTableBenchmark {
+
+    @Param({ "10000", "50000" })
+    public int items;
+
+    private VisualTable m_table;
+    private double m_value;
+    private int m_row;
+
+    @Setup
+    public void setup() {
+        Headless.start();
+        Table t = new Table();
+        t.addColumn("id", int.class);
+        t.addRows(items);
+        for (int i = 0; i < items; ++i)
+            t.setInt(i, "id", i);
+        m_table = new Visualization().addTable("table", t);
+        for (Iterator<?> it = m_table.tuples(); it.hasNext();)
+            it.next();
+    }
+
+    @Benchmark
+    public VisualTable layoutPass() {
+        double v = ++m_value;
+        for (int i = 0; i < items; ++i)
+            m_table.setX(i, v);
+        return m_table;
+    }
+
+    @Benchmark
+    public VisualItem singleUpdate() {
+        int row = m_row++ % items;
+        m_table.setX(row, ++m_value);
+        return m_table.getItem(row);
+    }
+
+}
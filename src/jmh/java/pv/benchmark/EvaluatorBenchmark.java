@@ -0,0 +1,78 @@
+package pv.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pv.mark.Scene;
+import pv.mark.constants.MarkType;
+import pv.mark.eval.EvaluatorBuilder;
+import pv.scene.Item;
+
+/**
+ * First update of a new scene, which is dominated by building the mark
+ * evaluator, with the javac and the bytecode backend. The mark only uses
+ * properties both backends support, and the javac class cache is off so
+ * that every scene is compiled again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 20)
+@Fork(1)
+public class EvaluatorBenchmark {
+
+	@Param({ "javac", "bytecode" })
+	public String backend;
+
+	private final List<Double> _data = new ArrayList<Double>();
+	private boolean _bytecode, _cache;
+
+	@Setup
+	public void setup() {
+		EvaluatorBuilder eb = EvaluatorBuilder.instance();
+		_bytecode = eb.bytecode();
+		_cache = eb.cache();
+		eb.bytecode("bytecode".equals(backend));
+		eb.cache(false);
+		for (int i=0; i<100; ++i) {
+			_data.add(Double.valueOf(i));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		EvaluatorBuilder eb = EvaluatorBuilder.instance();
+		eb.bytecode(_bytecode);
+		eb.cache(_cache);
+	}
+
+	@Benchmark
+	public Item firstUpdate() {
+		Scene scene = Scenes.scene();
+		scene.add(MarkType.Bar)
+			.data(_data)
+			.datatype(Double.class)
+			.left("{{index}}")
+			.height("{{data}}")
+			.bottom(0)
+			.width(1);
+		scene.updateNow();
+		return scene.items();
+	}
+
+}
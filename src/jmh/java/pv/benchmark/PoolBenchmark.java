@@ -0,0 +1,67 @@
+package pv.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pv.mark.Scene;
+import pv.scene.PanelItem;
+
+/**
+ * Updates alternating between all and half of the points, so that every
+ * other update discards half of the items and the next one creates them
+ * again, with item pooling on and off. Run with -prof gc to compare the
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PoolBenchmark {
+
+	@Param({ "100000" })
+	public int items;
+
+	@Param({ "true", "false" })
+	public boolean pooled;
+
+	private List<double[]> _data;
+	private List<double[]> _half;
+	private Scene _scene;
+
+	@Setup
+	public void setup() {
+		_data = Scenes.points(items, 42);
+		_half = new ArrayList<double[]>(_data.subList(items/2, items));
+		_scene = Scenes.scatter(_data);
+		_scene.itemPool().setCapacity(pooled ? items : 0);
+		_scene.updateNow();
+	}
+
+	@Benchmark
+	public PanelItem shrinkGrow() {
+		List<double[]> tail = _data.subList(items/2, _data.size());
+		if (tail.isEmpty()) {
+			tail.addAll(_half);
+		} else {
+			tail.clear();
+		}
+		_scene.updateNow();
+		return (PanelItem) _scene.items();
+	}
+
+}
@@ -0,0 +1,110 @@
+package pv.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pv.mark.Scene;
+import pv.render.SceneExporter;
+import pv.render.awt.java2D.Java2DTileRenderer;
+import pv.scene.PanelItem;
+
+/**
+ * Offscreen rendering of scatter plots. The tile renderer draws either a
+ * full frame or a frame after a handful of points moved, which only
+ * repaints the affected tiles; scores are frames per second. The export
+ * benchmark pushes a batch of scenes through the PNG exporter and reports
+ * scenes per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+	private static final int BATCH = 16;
+
+	@Param({ "10000" })
+	public int items;
+
+	private final Random _rand = new Random(42);
+	private List<double[]> _data;
+	private Scene _scene;
+	private PanelItem _root;
+	private Java2DTileRenderer _renderer;
+
+	private SceneExporter _exporter;
+	private final List<Scene> _batch = new ArrayList<Scene>();
+	private final List<Future<byte[]>> _results = new ArrayList<Future<byte[]>>();
+
+	@Setup
+	public void setup() {
+		_data = Scenes.points(items, 42);
+		_scene = Scenes.scene();
+		Scenes.scatter(_scene, _data).incremental(true);
+		_scene.updateNow();
+		_root = (PanelItem) _scene.items();
+		_renderer = new Java2DTileRenderer(Scenes.SIZE+20, Scenes.SIZE+20);
+		_renderer.render(_root);
+
+		_exporter = new SceneExporter();
+		for (int i=0; i<BATCH; ++i) {
+			_batch.add(Scenes.scatter(Scenes.points(items/10, i)));
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		_exporter.shutdown();
+	}
+
+	@Benchmark
+	public BufferedImage fullFrame() {
+		_renderer.invalidate();
+		return _renderer.render(_root);
+	}
+
+	@Benchmark
+	public BufferedImage dirtyFrame() {
+		for (int i=0; i<5; ++i) {
+			_data.set(_rand.nextInt(items), Scenes.point(_rand));
+		}
+		_scene.updateNow();
+		return _renderer.render(_root);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int export() throws InterruptedException, ExecutionException {
+		int bytes = 0;
+		for (Scene scene : _batch) {
+			_results.add(_exporter.export(scene));
+		}
+		for (Future<byte[]> f : _results) {
+			bytes += f.get().length;
+		}
+		_results.clear();
+		return bytes;
+	}
+
+}
@@ -0,0 +1,69 @@
+package pv.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pv.mark.Mark;
+import pv.mark.Scene;
+import pv.mark.constants.MarkType;
+
+/**
+ * Scatter plot scenes shared by the pv benchmarks.
+ */
+final class Scenes {
+
+	public static final int SIZE = 1000;
+
+	private Scenes() {
+	}
+
+	/**
+	 * Returns n random points within a SIZE by SIZE square.
+	 */
+	static List<double[]> points(int n, long seed) {
+		Random rand = new Random(seed);
+		List<double[]> data = new ArrayList<double[]>(n);
+		for (int i=0; i<n; ++i) {
+			data.add(point(rand));
+		}
+		return data;
+	}
+
+	static double[] point(Random rand) {
+		return new double[] { SIZE*rand.nextDouble(), SIZE*rand.nextDouble() };
+	}
+
+	/**
+	 * Creates an empty SIZE by SIZE scene.
+	 */
+	static Scene scene() {
+		return new Scene()
+			.left(10).top(10).right(10).bottom(10)
+			.width(SIZE).height(SIZE)
+			.scene();
+	}
+
+	/**
+	 * Creates a scene drawing the given points as dots. The scene has not
+	 * been updated yet.
+	 */
+	static Scene scatter(List<double[]> data) {
+		Scene scene = scene();
+		scatter(scene, data);
+		return scene;
+	}
+
+	/**
+	 * Adds a dot mark for the given points to the scene.
+	 */
+	static Mark scatter(Scene scene, List<double[]> data) {
+		return scene.add(MarkType.Dot)
+			.data(data)
+			.datatype(double[].class)
+			.left("{{data[0]}}")
+			.bottom("{{data[1]}}")
+			.size(9);
+	}
+
+}
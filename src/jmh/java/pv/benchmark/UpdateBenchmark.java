@@ -0,0 +1,93 @@
+package pv.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pv.mark.Scene;
+import pv.mark.update.MarkUpdater;
+import pv.mark.update.ParallelUpdater;
+import pv.mark.update.SerialUpdater;
+import pv.scene.PanelItem;
+
+/**
+ * Scene updates of a scatter plot with either updater. The touch benchmarks
+ * replace 1% of the points before each update. With incremental evaluation
+ * on, only those items are evaluated again, and updates without changes
+ * skip evaluation altogether.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int items;
+
+	@Param({ "false", "true" })
+	public boolean incremental;
+
+	private final MarkUpdater _serial = new SerialUpdater();
+	private final MarkUpdater _parallel = new ParallelUpdater();
+	private final Random _rand = new Random(42);
+	private List<double[]> _data;
+	private Scene _scene;
+	private PanelItem _root;
+
+	@Setup
+	public void setup() {
+		_data = Scenes.points(items, 42);
+		_scene = Scenes.scene();
+		Scenes.scatter(_scene, _data).incremental(incremental);
+		_scene.updateNow();
+		_root = (PanelItem) _scene.items();
+	}
+
+	@Benchmark
+	public PanelItem serial() {
+		_serial.update(_scene, null, _root, null);
+		return _root;
+	}
+
+	@Benchmark
+	public PanelItem parallel() {
+		_parallel.update(_scene, null, _root, null);
+		return _root;
+	}
+
+	@Benchmark
+	public PanelItem touchSerial() {
+		touch();
+		_serial.update(_scene, null, _root, null);
+		return _root;
+	}
+
+	@Benchmark
+	public PanelItem touchParallel() {
+		touch();
+		_parallel.update(_scene, null, _root, null);
+		return _root;
+	}
+
+	private void touch() {
+		for (int i=items/100; --i>=0;) {
+			_data.set(_rand.nextInt(items), Scenes.point(_rand));
+		}
+	}
+
+}
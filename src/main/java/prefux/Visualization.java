@@ -856,6 +856,25 @@ public class Visualization {
         return ts;
     }
     
+    /**
+     * Returns a snapshot of the table of the given data group. As actions
+     * run while holding the lock of their Visualization, the snapshot is
+     * taken between two action steps. It can then be read without locking,
+     * see {@link prefux.data.Table#snapshot()}.
+     * @param group a data group name, e.g. "graph.nodes"
+     * @return a snapshot of the group's table
+     * @throws IllegalArgumentException if the group is not backed by a
+     * table
+     */
+    public synchronized TableSnapshot snapshot(String group) {
+        TupleSet ts = getGroup(group);
+        if ( !(ts instanceof Table) ) {
+            throw new IllegalArgumentException(
+                "Group is not backed by a table: "+group);
+        }
+        return ((Table)ts).snapshot();
+    }
+    
     /**
      * Indicates if a given VisualItem is contained in the given visual
      * data group.
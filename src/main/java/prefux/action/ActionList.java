@@ -34,6 +34,7 @@ import java.util.logging.Logger;
 
 import prefux.Visualization;
 import prefux.activity.Activity;
+import prefux.activity.ActivityMonitor;
 import prefux.util.StringLib;
 
 
@@ -102,11 +103,21 @@ public class ActionList extends CompositeAction {
      * @see prefux.action.Action#run(double)
      */
     public void run(double frac) {
+        ActivityMonitor monitor = ActivityMonitor.getInstance();
         Object[] actions = m_actions.getArray();
         for ( int i=0; i<actions.length; ++i ) {
             Action a = (Action)actions[i];
             try {
-                if ( a.isEnabled() ) a.run(frac);
+                if ( !a.isEnabled() ) {
+                    continue;
+                } else if ( monitor.isEnabled() ) {
+                    long start = System.nanoTime();
+                    long bytes = monitor.allocatedBytes();
+                    a.run(frac);
+                    monitor.record(a, start, bytes);
+                } else {
+                    a.run(frac);
+                }
             } catch ( Exception e ) {
                 s_logger.warning(e.getMessage() + '\n'
                         + StringLib.getStackTrace(e));
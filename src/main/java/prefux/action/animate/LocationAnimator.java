@@ -30,18 +30,36 @@
  */
 package prefux.action.animate;
 
+import java.util.Iterator;
+
 import prefux.action.ItemAction;
+import prefux.visual.ItemRowBuffer;
 import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
 
 
 /**
  * Animator that linearly interpolates between two positions. This
- * is useful for performing animated transitions.
+ * is useful for performing animated transitions. Items stored in a
+ * VisualTable are interpolated in bulk, column by column; other items are
+ * passed to {@link #process(VisualItem, double)}.
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class LocationAnimator extends ItemAction {
 
+    private double m_frac;
+    private final ItemRowBuffer m_buffer = new ItemRowBuffer() {
+        protected void process(VisualTable table, int[] rows,
+                               double[] a, double[] b, int n)
+        {
+            interpolate(table, rows, a, b, n, VisualItem.STARTX,
+                        VisualItem.ENDX, VisualItem.X, m_frac);
+            interpolate(table, rows, a, b, n, VisualItem.STARTY,
+                        VisualItem.ENDY, VisualItem.Y, m_frac);
+        }
+    };
+    
     /**
      * Create a new LocationAnimator that processes all data groups.
      */
@@ -57,6 +75,21 @@ public class LocationAnimator extends ItemAction {
         super(group);
     }
 
+    /**
+     * @see prefux.action.ItemAction#run(double)
+     */
+    public void run(double frac) {
+        m_frac = frac;
+        Iterator<VisualItem> items =
+            getVisualization().items(m_group, m_predicate);
+        while ( items.hasNext() ) {
+            VisualItem item = items.next();
+            if ( !m_buffer.add(item) )
+                process(item, frac);
+        }
+        m_buffer.flush();
+    }
+    
     /**
      * @see prefux.action.ItemAction#process(prefux.visual.VisualItem, double)
      */
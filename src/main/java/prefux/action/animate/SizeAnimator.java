@@ -30,16 +30,32 @@
  */
 package prefux.action.animate;
 
+import java.util.Iterator;
+
 import prefux.action.ItemAction;
+import prefux.visual.ItemRowBuffer;
 import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
 
 /**
- * Animator that linearly interpolates the size of a VisualItems.
+ * Animator that linearly interpolates the size of a VisualItems. Items
+ * stored in a VisualTable are interpolated in bulk; other items are passed
+ * to {@link #process(VisualItem, double)}.
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class SizeAnimator extends ItemAction {
 
+    private double m_frac;
+    private final ItemRowBuffer m_buffer = new ItemRowBuffer() {
+        protected void process(VisualTable table, int[] rows,
+                               double[] a, double[] b, int n)
+        {
+            interpolate(table, rows, a, b, n, VisualItem.STARTSIZE,
+                        VisualItem.ENDSIZE, VisualItem.SIZE, m_frac);
+        }
+    };
+    
     /**
      * Create a new SizeAnimator that processes all data groups.
      */
@@ -55,6 +71,21 @@ public class SizeAnimator extends ItemAction {
         super(group);
     }
 
+    /**
+     * @see prefux.action.ItemAction#run(double)
+     */
+    public void run(double frac) {
+        m_frac = frac;
+        Iterator<VisualItem> items =
+            getVisualization().items(m_group, m_predicate);
+        while ( items.hasNext() ) {
+            VisualItem item = items.next();
+            if ( !m_buffer.add(item) )
+                process(item, frac);
+        }
+        m_buffer.flush();
+    }
+    
     /**
      * @see prefux.action.ItemAction#process(prefux.visual.VisualItem, double)
      */
@@ -30,17 +30,18 @@
  */
 package prefux.action.filter;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import prefux.Constants;
 import prefux.Visualization;
 import prefux.action.GroupAction;
 import prefux.data.Graph;
-import prefux.data.Node;
 import prefux.data.Tree;
 import prefux.data.expression.Predicate;
+import prefux.data.util.GraphDistanceIndex;
 import prefux.util.PrefuseLib;
-import prefux.visual.EdgeItem;
+import prefux.util.collections.IntIterator;
 import prefux.visual.NodeItem;
 import prefux.visual.VisualItem;
 import prefux.visual.expression.InGroupPredicate;
@@ -62,6 +63,16 @@ import prefux.visual.expression.InGroupPredicate;
  * Files," Bell Laboratories Tech. Report, Murray Hill, New Jersey, 1981. 
  * Available online at <a href="http://citeseer.nj.nec.com/furnas81fisheye.html">
  * http://citeseer.nj.nec.com/furnas81fisheye.html</a>.</p>
+ * 
+ * <p>The distance of each node below the focus nodes and their ancestors
+ * is computed by a {@link GraphDistanceIndex} over the child edges of the
+ * tree, which is kept across runs. When only the focus nodes changed since
+ * the last run, the distances are updated incrementally and only the
+ * children of nodes with a changed child are updated. Any change to the
+ * tree structure or the distance causes a full update. As unchanged items
+ * are not revisited, incremental runs assume that the visibility of the
+ * group's items is only set by this filter; see
+ * {@link #setIncremental(boolean)}.</p>
  *  
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
@@ -75,6 +86,18 @@ public class FisheyeTreeFilter extends GroupAction {
     private NodeItem m_root;
     private double m_divisor;
     
+    private GraphDistanceIndex m_index;
+    private boolean m_incremental = true;
+    private int[] m_rows = new int[0];    // focus rows and their ancestors
+    private VisualItem[] m_touched = new VisualItem[0]; // updated items
+    private int m_touchedCount = 0;
+    private int[] m_via = new int[0];     // child through which a focus
+                                          // ancestor was first reached
+    private int[] m_refresh = new int[0]; // nodes whose m_via changed
+    private int m_refreshCount = 0;
+    private int[] m_stamp = new int[0];
+    private int m_epoch = 0;
+    
     /**
      * Create a new FisheyeTreeFilter that processes the given group.
      * @param group the data group to process. This should resolve to
@@ -156,6 +179,26 @@ public class FisheyeTreeFilter extends GroupAction {
         m_sources = sources;
     }
     
+    /**
+     * Indicates if runs after a change of the focus nodes only update the
+     * nodes whose degree-of-interest changed.
+     * @return true if updates are incremental
+     */
+    public boolean isIncremental() {
+        return m_incremental;
+    }
+    
+    /**
+     * Set if runs after a change of the focus nodes only update the nodes
+     * whose degree-of-interest changed. Disable this if other actions
+     * change the visibility of the group's items.
+     * @param incremental true for incremental updates, false to update
+     * all items on every run
+     */
+    public void setIncremental(boolean incremental) {
+        m_incremental = incremental;
+    }
+    
     /**
      * @see prefux.action.GroupAction#run(double)
      */
@@ -163,6 +206,96 @@ public class FisheyeTreeFilter extends GroupAction {
         Tree tree = ((Graph)m_vis.getGroup(m_group)).getSpanningTree();
         m_divisor = tree.getNodeCount();
         m_root = (NodeItem)tree.getRoot();
+        if ( m_index == null || m_index.getGraph() != tree ) {
+            if ( m_index != null ) m_index.dispose();
+            m_index = new GraphDistanceIndex(tree, Graph.OUTEDGES);
+            m_touchedCount = 0;
+        }
+        m_index.setMaxDistance(Math.max(0, -m_threshold));
+        
+        // collect the foci and their ancestors up to the root
+        int len = tree.getNodeTable().getMaximumRow()+1;
+        if ( m_stamp.length < len || ++m_epoch == Integer.MAX_VALUE ) {
+            m_stamp = new int[Math.max(len, m_stamp.length)];
+            m_epoch = 1;
+        }
+        if ( m_via.length < len ) {
+            int old = m_via.length;
+            m_via = Arrays.copyOf(m_via, len);
+            Arrays.fill(m_via, old, len, -1);
+        }
+        m_refreshCount = 0;
+        int count = 0;
+        Iterator<VisualItem> iter = m_vis.items(m_sources, m_groupP);
+        while ( iter.hasNext() )
+            count = addPath(tree, iter.next().getRow(), count);
+        count = addPath(tree, m_root.getRow(), count);
+        
+        if ( m_index.update(m_rows, count) && m_incremental ) {
+            // settle the items updated by the last run
+            for ( int i=0; i<m_touchedCount; ++i ) {
+                if ( m_touched[i].isVisible() )
+                    m_touched[i].setStartVisible(true);
+                m_touched[i] = null;
+            }
+            m_touchedCount = 0;
+            
+            // update the children of each node with a changed child, as
+            // their local degree-of-interest depends on their focus sibling
+            if ( ++m_epoch == Integer.MAX_VALUE ) {
+                Arrays.fill(m_stamp, 0);
+                m_epoch = 1;
+            }
+            for ( int i=0; i<m_index.getChangedCount(); ++i ) {
+                int n = m_index.getChangedNode(i);
+                int p = tree.getParent(n);
+                if ( p < 0 ) {
+                    visit(m_root, null, 0);
+                } else if ( m_stamp[p] != m_epoch ) {
+                    m_stamp[p] = m_epoch;
+                    visitChildren(tree, p, false);
+                }
+            }
+            for ( int i=0; i<m_refreshCount; ++i ) {
+                int p = m_refresh[i];
+                if ( m_stamp[p] != m_epoch ) {
+                    m_stamp[p] = m_epoch;
+                    visitChildren(tree, p, false);
+                }
+            }
+        } else {
+            runAll(tree);
+        }
+    }
+    
+    /**
+     * Add a node and its ancestors not yet added to the focus rows,
+     * remembering the child through which each ancestor was reached.
+     */
+    private int addPath(Tree tree, int n, int count) {
+        for ( int c = -1; n >= 0 && m_stamp[n] != m_epoch;
+              c = n, n = tree.getParent(n) )
+        {
+            m_stamp[n] = m_epoch;
+            if ( count == m_rows.length )
+                m_rows = Arrays.copyOf(m_rows, Math.max(16, 2*count));
+            m_rows[count++] = n;
+            if ( m_via[n] != c ) {
+                m_via[n] = c;
+                if ( m_refreshCount == m_refresh.length )
+                    m_refresh = Arrays.copyOf(m_refresh,
+                                              Math.max(16, 2*m_refreshCount));
+                m_refresh[m_refreshCount++] = n;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Update all items of the group.
+     */
+    private void runAll(Tree tree) {
+        m_touchedCount = 0;
         
         // mark the items
         Iterator<VisualItem> items = m_vis.visibleItems(m_group);
@@ -172,75 +305,100 @@ public class FisheyeTreeFilter extends GroupAction {
             item.setExpanded(false);
         }
         
-        // compute the fisheye over nodes
-        Iterator<VisualItem> iter = m_vis.items(m_sources, m_groupP);
-        while ( iter.hasNext() )
-            visitFocus((NodeItem)iter.next(), null);
-        visitFocus(m_root, null);
-
+        // compute the fisheye over the reached nodes
+        visit(m_root, null, 0);
+        for ( int n=0, len=tree.getNodeTable().getMaximumRow()+1; n<len; ++n ) {
+            int d = m_index.getDistance(n);
+            if ( d >= 0 && d < getDistance() )
+                visitChildren(tree, n, true);
+        }
+        
         // mark unreached items
         items = m_vis.visibleItems(m_group);
         while ( items.hasNext() ) {
             VisualItem item = items.next();
-            if ( item.getDOI() == Constants.MINIMUM_DOI )
+            if ( item.getDOI() == Constants.MINIMUM_DOI ) {
                 PrefuseLib.updateVisible(item, false);
+                touch(item);
+            }
         }
     }
-
+    
     /**
-     * Visit a focus node.
+     * Visit the children of a node. The local degree-of-interest of the
+     * children decreases with their distance, in siblings, to the child
+     * through which the node was first reached from a focus.
      */
-    private void visitFocus(NodeItem n, NodeItem c) {
-        if ( n.getDOI() <= -1 ) {
-            visit(n, c, 0, 0);
-            if ( m_threshold < 0 )                 
-                visitDescendants(n, c);
-            visitAncestors(n);
+    private void visitChildren(Tree tree, int p, boolean reachedOnly) {
+        int lidx = 0, i = 0;
+        int via = m_index.isSource(p) ? m_via[p] : -1;
+        if ( via >= 0 ) {
+            for ( IntIterator edges = tree.childEdgeRows(p); edges.hasNext(); ++i ) {
+                if ( tree.getTargetNode(edges.nextInt()) == via ) {
+                    lidx = i; break;
+                }
+            }
+        }
+        i = 0;
+        for ( IntIterator edges = tree.childEdgeRows(p); edges.hasNext(); ++i ) {
+            int e = edges.nextInt();
+            int c = tree.getTargetNode(e);
+            if ( reachedOnly && m_index.getDistance(c) < 0 ) continue;
+            visit((NodeItem)tree.getNode(c), (VisualItem)tree.getEdge(e),
+                  Math.abs(lidx-i));
         }
     }
     
     /**
-     * Visit a specific node and update its degree-of-interest.
+     * Visit a specific node and its parent edge, and update their
+     * visibility and degree-of-interest.
      */
-    private void visit(NodeItem n, NodeItem c, int doi, int ldist) {
-        PrefuseLib.updateVisible(n, true);
-        double localDOI = -ldist / Math.min(1000.0, m_divisor);
-        n.setDOI(doi+localDOI);
-        
-        if ( c != null ) {
-            EdgeItem e = (EdgeItem)c.getParentEdge();
-            e.setDOI(c.getDOI());
-            PrefuseLib.updateVisible(e, true);
+    private void visit(NodeItem n, VisualItem e, int ldist) {
+        int row = n.getRow();
+        int d = m_index.getDistance(row);
+        double doi = Constants.MINIMUM_DOI;
+        if ( d >= 0 ) {
+            doi = m_index.isSource(row) ? 0 
+                : -d - ldist / Math.min(1000.0, m_divisor);
+            PrefuseLib.updateVisible(n, true);
+            n.setDOI(doi);
+            n.setExpanded(d < getDistance() && n.getChildCount() > 0);
+        } else if ( n.isVisible() ) {
+            PrefuseLib.updateVisible(n, false);
+            n.setDOI(doi);
+            n.setExpanded(false);
+        }
+        if ( e != null && (d >= 0 || e.isVisible()) ) {
+            PrefuseLib.updateVisible(e, d >= 0);
+            e.setDOI(doi);
         }
+        
+        touch(n);
+        if ( e != null ) touch(e);
     }
     
     /**
-     * Visit tree ancestors and their other descendants.
+     * Remember an item updated by this run, so that the next incremental
+     * run can reset the start visibility of the items still visible, as a
+     * full run would do.
      */
-    private void visitAncestors(NodeItem n) {
-        if ( n == m_root ) return;
-        visitFocus((NodeItem)n.getParent(), n);
+    private void touch(VisualItem item) {
+        if ( m_touchedCount == m_touched.length )
+            m_touched = Arrays.copyOf(m_touched, Math.max(16, 2*m_touchedCount));
+        m_touched[m_touchedCount++] = item;
     }
     
     /**
-     * Traverse tree descendents.
+     * Clears references to graph tuples.  The group and visualization are
+     * retained.
      */
-    private void visitDescendants(NodeItem p, NodeItem skip) {
-        int lidx = ( skip == null ? 0 : p.getChildIndex(skip) );
-        
-        Iterator<? extends Node> children = p.children();
-        
-        p.setExpanded(children.hasNext());
-        
-        for ( int i=0; children.hasNext(); ++i ) {
-            NodeItem c = (NodeItem)children.next();
-            if ( c == skip ) { continue; }             
-            
-            int doi = (int)(p.getDOI()-1);            
-            visit(c, c, doi, Math.abs(lidx-i));      
-            if ( doi > m_threshold )
-                visitDescendants(c, null);   
+    public void reset() {
+        if ( m_index != null ) {
+            m_index.dispose();
+            m_index = null;
         }
+        m_root = null;
+        m_touchedCount = 0;
     }
     
 } // end of class FisheyeTreeFilter
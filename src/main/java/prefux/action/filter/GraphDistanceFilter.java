@@ -30,6 +30,7 @@
  */
 package prefux.action.filter;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import prefux.Constants;
@@ -39,8 +40,8 @@ import prefux.data.Graph;
 import prefux.data.Tuple;
 import prefux.data.expression.Predicate;
 import prefux.data.tuple.TupleSet;
-import prefux.data.util.BreadthFirstIterator;
 import prefux.data.util.FilterIterator;
+import prefux.data.util.GraphDistanceIndex;
 import prefux.util.PrefuseLib;
 import prefux.visual.VisualItem;
 import prefux.visual.expression.InGroupPredicate;
@@ -49,6 +50,15 @@ import prefux.visual.expression.InGroupPredicate;
  * Filter Action that sets visible all items within a specified graph distance
  * from a set of focus items; all other items will be set to invisible.
  * 
+ * <p>Distances are computed by a {@link GraphDistanceIndex}, which is kept
+ * across runs. When only the focus items changed since the last run, the
+ * distances are updated incrementally and only the items whose distance
+ * changed, along with their incident edges, are updated. Any change to
+ * the graph structure or the distance causes a full update. As unchanged
+ * items are not revisited, incremental runs assume that the visibility of
+ * the group's items is only set by this filter; see
+ * {@link #setIncremental(boolean)}.</p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class GraphDistanceFilter extends GroupAction {
@@ -56,7 +66,14 @@ public class GraphDistanceFilter extends GroupAction {
     protected int m_distance;
     protected String m_sources;
     protected Predicate m_groupP;
-    protected BreadthFirstIterator m_bfs;
+    protected GraphDistanceIndex m_index;
+    protected boolean m_incremental = true;
+    
+    private int[] m_rows = new int[0];    // source rows
+    private VisualItem[] m_touched = new VisualItem[0]; // updated items
+    private int m_touchedCount = 0;
+    private int[] m_edgeStamp = new int[0]; // edges updated by this run
+    private int m_epoch = 0;
    
     /**
      * Create a new GraphDistanceFilter that processes the given data group
@@ -104,7 +121,6 @@ public class GraphDistanceFilter extends GroupAction {
         m_distance = distance;
         m_groupP = new InGroupPredicate(
             PrefuseLib.getGroupName(group, Graph.NODES));
-        m_bfs = new BreadthFirstIterator();
     }
     
     /**
@@ -143,10 +159,75 @@ public class GraphDistanceFilter extends GroupAction {
         m_sources = sources;
     }
     
+    /**
+     * Indicates if runs after a change of the source nodes only update the
+     * items whose distance changed.
+     * @return true if updates are incremental
+     */
+    public boolean isIncremental() {
+        return m_incremental;
+    }
+    
+    /**
+     * Set if runs after a change of the source nodes only update the items
+     * whose distance changed. Disable this if other actions change the
+     * visibility of the group's items.
+     * @param incremental true for incremental updates, false to update
+     * all items on every run
+     */
+    public void setIncremental(boolean incremental) {
+        m_incremental = incremental;
+    }
+    
     /**
      * @see prefux.action.GroupAction#run(double)
      */
     public void run(double frac) {
+        Graph g = (Graph)m_vis.getGroup(m_group);
+        if ( m_index == null || m_index.getGraph() != g ) {
+            if ( m_index != null ) m_index.dispose();
+            m_index = new GraphDistanceIndex(g, Graph.UNDIRECTED);
+            m_touchedCount = 0;
+        }
+        m_index.setMaxDistance(Math.max(0, m_distance));
+        int edges = g.getEdgeTable().getMaximumRow()+1;
+        if ( m_edgeStamp.length < edges || ++m_epoch == Integer.MAX_VALUE ) {
+            m_edgeStamp = new int[Math.max(edges, m_edgeStamp.length)];
+            m_epoch = 1;
+        }
+        
+        // collect the source rows
+        TupleSet src = m_vis.getGroup(m_sources);
+        Iterator<Tuple> srcs = new FilterIterator(src.tuples(), m_groupP);
+        int count = 0;
+        while ( srcs.hasNext() ) {
+            if ( count == m_rows.length )
+                m_rows = Arrays.copyOf(m_rows, Math.max(16, 2*count));
+            m_rows[count++] = srcs.next().getRow();
+        }
+        
+        if ( m_index.update(m_rows, count) && m_incremental ) {
+            // settle the items updated by the last run, then update the
+            // items whose distance changed
+            for ( int i=0; i<m_touchedCount; ++i ) {
+                if ( m_touched[i].isVisible() )
+                    m_touched[i].setStartVisible(true);
+                m_touched[i] = null;
+            }
+            m_touchedCount = 0;
+            for ( int i=0; i<m_index.getChangedCount(); ++i )
+                update(g, m_index.getChangedNode(i));
+        } else {
+            runAll(g);
+        }
+    }
+    
+    /**
+     * Update all items of the group.
+     */
+    protected void runAll(Graph g) {
+        m_touchedCount = 0;
+        
         // mark the items
         Iterator<VisualItem> items = m_vis.visibleItems(m_group);
         while ( items.hasNext() ) {
@@ -154,18 +235,10 @@ public class GraphDistanceFilter extends GroupAction {
             item.setDOI(Constants.MINIMUM_DOI);
         }
         
-        // set up the graph traversal
-        TupleSet src = m_vis.getGroup(m_sources);
-        Iterator<Tuple> srcs = new FilterIterator(src.tuples(), m_groupP);
-        m_bfs.init(srcs, m_distance, Constants.NODE_AND_EDGE_TRAVERSAL);
-        
-        // traverse the graph
-        while ( m_bfs.hasNext() ) {
-            VisualItem item = (VisualItem)m_bfs.next();
-            int d = m_bfs.getDepth(item);
-            PrefuseLib.updateVisible(item, true);
-            item.setDOI(-d);
-            item.setExpanded(d < m_distance);
+        // update the reached nodes and their edges
+        for ( int n=0, len=g.getNodeTable().getMaximumRow()+1; n<len; ++n ) {
+            if ( m_index.getDistance(n) >= 0 )
+                update(g, n);
         }
         
         // mark unreached items
@@ -175,16 +248,77 @@ public class GraphDistanceFilter extends GroupAction {
             if ( item.getDOI() == Constants.MINIMUM_DOI ) {
                 PrefuseLib.updateVisible(item, false);
                 item.setExpanded(false);
+                touch(item);
             }
         }
     }
     
+    /**
+     * Update a node from its distance, along with its edges.
+     */
+    private void update(Graph g, int n) {
+        VisualItem item = (VisualItem)g.getNode(n);
+        int d = m_index.getDistance(n);
+        if ( d >= 0 ) {
+            PrefuseLib.updateVisible(item, true);
+            item.setDOI(-d);
+            item.setExpanded(d < m_distance);
+        } else if ( item.isVisible() ) {
+            PrefuseLib.updateVisible(item, false);
+            item.setDOI(Constants.MINIMUM_DOI);
+            item.setExpanded(false);
+        }
+        for ( int i=0, k=m_index.getNeighborCount(n); i<k; ++i )
+            updateEdge(g, m_index.getNeighborEdge(n, i));
+        touch(item);
+    }
+    
+    /**
+     * Update an edge from the distances of its nodes, once per run. An edge
+     * is reached if both its nodes are, and gets the depth at which a
+     * breadth-first traversal first crosses it.
+     */
+    private void updateEdge(Graph g, int e) {
+        if ( m_edgeStamp[e] == m_epoch ) return;
+        m_edgeStamp[e] = m_epoch;
+        VisualItem item = (VisualItem)g.getEdge(e);
+        int du = m_index.getDistance(g.getSourceNode(e));
+        int dv = m_index.getDistance(g.getTargetNode(e));
+        int min = Math.min(du, dv), max = Math.max(du, dv);
+        if ( min >= 0 && (min < m_distance || max > 0) ) {
+            int d = min < m_distance ? min+1 : min;
+            PrefuseLib.updateVisible(item, true);
+            item.setDOI(-d);
+            item.setExpanded(d < m_distance);
+        } else if ( item.isVisible() ) {
+            PrefuseLib.updateVisible(item, false);
+            item.setDOI(Constants.MINIMUM_DOI);
+            item.setExpanded(false);
+        }
+        touch(item);
+    }
+    
+    /**
+     * Remember an item updated by this run, so that the next incremental
+     * run can reset the start visibility of the items still visible, as a
+     * full run would do.
+     */
+    private void touch(VisualItem item) {
+        if ( m_touchedCount == m_touched.length )
+            m_touched = Arrays.copyOf(m_touched, Math.max(16, 2*m_touchedCount));
+        m_touched[m_touchedCount++] = item;
+    }
+    
     /**
      * Clears references to graph tuples.  The group and visualization are
      * retained.
      */
     public void reset() {
-    	m_bfs = new BreadthFirstIterator();
+        if ( m_index != null ) {
+            m_index.dispose();
+            m_index = null;
+        }
+        m_touchedCount = 0;
     }
 
 } // end of class GraphDistanceFilter
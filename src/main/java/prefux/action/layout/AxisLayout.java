@@ -76,6 +76,9 @@ public class AxisLayout extends Layout {
     // value range / distribution
     private double[] m_dist = new double[2];
     
+    // new positions, set in bulk at the end of a run
+    private LocationBuffer m_locations;
+    
     /**
      * Create a new AxisLayout. Defaults to using the x-axis.
      * @param group the data group to layout
@@ -269,6 +272,8 @@ public class AxisLayout extends Layout {
         TupleSet ts = m_vis.getGroup(m_group);
         setMinMax();
         
+        boolean xaxis = ( m_axis == Constants.X_AXIS );
+        m_locations = new LocationBuffer(xaxis, !xaxis);
         switch ( getDataType(ts) ) {
         case Constants.NUMERICAL:
             numericalLayout(ts);
@@ -276,6 +281,7 @@ public class AxisLayout extends Layout {
         default:
             ordinalLayout(ts);
         }
+        m_locations.flush();
     }
     
     /**
@@ -319,15 +325,12 @@ public class AxisLayout extends Layout {
     }
     
     /**
-     * Set the layout position of an item.
+     * Set the layout position of an item. Positions are buffered, and set
+     * in bulk at the end of {@link #run(double)}.
      */
     protected void set(VisualItem item, double frac) {
         double xOrY = m_min + frac*m_range;
-        if ( m_axis == Constants.X_AXIS ) {
-            setX(item, null, xOrY);
-        } else {
-            setY(item, null, xOrY);
-        }
+        m_locations.set(item, xOrY, xOrY);
     }
     
     /**
@@ -0,0 +1,625 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.action.layout;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javafx.geometry.Rectangle2D;
+import prefux.Constants;
+import prefux.data.Schema;
+import prefux.data.Table;
+import prefux.data.event.TableListener;
+import prefux.data.query.NumberRangeModel;
+import prefux.util.MathLib;
+import prefux.util.PrefuseLib;
+import prefux.util.collections.IntIterator;
+import prefux.util.ui.ValuedRangeModel;
+import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
+
+/**
+ * <p>
+ * Scatterplot layout that aggregates the rows of a large data table into a
+ * two-dimensional grid of bins, instead of creating a {@link VisualItem}
+ * for every row as a pair of {@link AxisLayout} actions would. The rows in
+ * view are counted per bin, and optionally a value field is averaged, reading
+ * the x, y and value columns of the source table directly. The non-empty
+ * bins are written to a {@link VisualTable} of bin items, positioned at the
+ * bin centers and carrying the {@link #COUNT}, {@link #MEAN},
+ * {@link #BIN_WIDTH} and {@link #BIN_HEIGHT} fields, so that they can be
+ * colored and drawn as a heatmap.
+ * </p>
+ * 
+ * <p>
+ * The source rows are kept in an index sorted by x value, which is rebuilt
+ * when the table changes. When zooming or panning through the range models,
+ * only the rows within the visible x range are scanned, in parallel on a
+ * ForkJoin pool. Runs that find the view and table unchanged return
+ * immediately. If an item group is set and no more than a threshold number
+ * of rows are in view, the layout falls back to individual items: the bins
+ * are cleared and one item per visible row is placed in the item group,
+ * with the source row available in the {@link #SOURCE_ROW} field.
+ * </p>
+ */
+public class BinnedAxisLayout extends Layout {
+
+    /** The number of rows in a bin. */
+    public static final String COUNT = "count";
+    /** The mean of the value field in a bin, or NaN if not set. */
+    public static final String MEAN = "mean";
+    /** The width of a bin, in pixels. */
+    public static final String BIN_WIDTH = "_binWidth";
+    /** The height of a bin, in pixels. */
+    public static final String BIN_HEIGHT = "_binHeight";
+    /** The source table row of an individual item. */
+    public static final String SOURCE_ROW = "_sourceRow";
+
+    /** The schema of the bin items. */
+    public static final Schema BIN_SCHEMA = PrefuseLib.getVisualItemSchema();
+    /** The schema of the individual items. */
+    public static final Schema ITEM_SCHEMA = PrefuseLib.getVisualItemSchema();
+    static {
+        BIN_SCHEMA.addColumn(COUNT, int.class);
+        BIN_SCHEMA.addColumn(MEAN, double.class, Double.NaN);
+        BIN_SCHEMA.addColumn(BIN_WIDTH, double.class);
+        BIN_SCHEMA.addColumn(BIN_HEIGHT, double.class);
+        ITEM_SCHEMA.addColumn(SOURCE_ROW, int.class, -1);
+    }
+
+    // number of source rows read at once through the bulk accessors
+    private static final int CHUNK = 1024;
+
+    private Table m_table;
+    private String m_xfield, m_yfield, m_valueField;
+    private String m_itemGroup;
+    private int m_xscale = Constants.LINEAR_SCALE;
+    private int m_yscale = Constants.LINEAR_SCALE;
+    private ValuedRangeModel m_xmodel, m_ymodel;
+    private boolean m_xmodelSet, m_ymodelSet;
+
+    private double m_binSize = 4;
+    private int m_threshold = 5000;
+    private ForkJoinPool m_pool = ForkJoinPool.commonPool();
+    private int m_grain = 1 << 16;
+
+    // source rows, sorted by x value: float bits in the high word, row in
+    // the low word
+    private long[] m_keys = new long[0];
+    private int m_size;
+    private double[] m_xrange = new double[2], m_yrange = new double[2];
+    private boolean m_dirty = true;
+    private double[] m_view;
+    private int m_inView;
+    private boolean m_binned;
+
+    private final TableListener m_listener = new TableListener() {
+        public void tableChanged(Table t, int start, int end, int col, int type) {
+            m_dirty = true;
+        }
+    };
+
+    /**
+     * Create a new BinnedAxisLayout.
+     * @param group the data group of the bin items. A VisualTable with the
+     * {@link #BIN_SCHEMA} is added to the visualization if the group does
+     * not exist.
+     * @param table the data table to aggregate
+     * @param xfield the data field determining the x position
+     * @param yfield the data field determining the y position
+     */
+    public BinnedAxisLayout(String group, Table table, String xfield,
+            String yfield)
+    {
+        super(group);
+        m_table = table;
+        m_xfield = xfield;
+        m_yfield = yfield;
+        m_table.addTableListener(m_listener);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set the data field averaged in each bin, as the {@link #MEAN} field.
+     * @param field the value field, or null to only count rows
+     */
+    public void setValueField(String field) {
+        m_valueField = field;
+        m_view = null;
+    }
+
+    /**
+     * Get the data field averaged in each bin.
+     * @return the value field, or null if rows are only counted
+     */
+    public String getValueField() {
+        return m_valueField;
+    }
+
+    /**
+     * Set the data group of individual items, used when few rows are in
+     * view. A VisualTable with the {@link #ITEM_SCHEMA} is added to the
+     * visualization if the group does not exist.
+     * @param group the item group, or null to always show bins
+     */
+    public void setItemGroup(String group) {
+        m_itemGroup = group;
+        m_view = null;
+    }
+
+    /**
+     * Get the data group of individual items.
+     * @return the item group, or null if bins are always shown
+     */
+    public String getItemGroup() {
+        return m_itemGroup;
+    }
+
+    /**
+     * Set the range models determining the visible span of both axes. Zoom
+     * and pan by updating the low and high values of the models.
+     * @param xmodel the x-axis range model, or null to span all values
+     * @param ymodel the y-axis range model, or null to span all values
+     */
+    public void setRangeModels(ValuedRangeModel xmodel, ValuedRangeModel ymodel) {
+        m_xmodel = xmodel;
+        m_ymodel = ymodel;
+        m_xmodelSet = (xmodel != null);
+        m_ymodelSet = (ymodel != null);
+    }
+
+    /**
+     * Get the range model of the x-axis.
+     * @return the x-axis range model
+     */
+    public ValuedRangeModel getXRangeModel() {
+        return m_xmodel;
+    }
+
+    /**
+     * Get the range model of the y-axis.
+     * @return the y-axis range model
+     */
+    public ValuedRangeModel getYRangeModel() {
+        return m_ymodel;
+    }
+
+    /**
+     * Sets the scale types used for the axes.
+     * @param xscale the x-axis scale type
+     * @param yscale the y-axis scale type
+     * @see AxisLayout#setScale(int)
+     */
+    public void setScale(int xscale, int yscale) {
+        if ( xscale < 0 || xscale >= Constants.SCALE_COUNT
+                || yscale < 0 || yscale >= Constants.SCALE_COUNT )
+            throw new IllegalArgumentException(
+                    "Unrecognized scale value: "+xscale+", "+yscale);
+        m_xscale = xscale;
+        m_yscale = yscale;
+        m_view = null;
+    }
+
+    /**
+     * Set the size of the bins, in pixels.
+     * @param size the bin size
+     */
+    public void setBinSize(double size) {
+        if ( !(size > 0) )
+            throw new IllegalArgumentException("Invalid bin size: "+size);
+        m_binSize = size;
+    }
+
+    /**
+     * Get the size of the bins, in pixels.
+     * @return the bin size
+     */
+    public double getBinSize() {
+        return m_binSize;
+    }
+
+    /**
+     * Set the maximum number of rows in view for which individual items
+     * are shown instead of bins, if an item group is set.
+     * @param threshold the item threshold
+     */
+    public void setItemThreshold(int threshold) {
+        m_threshold = threshold;
+    }
+
+    /**
+     * Get the maximum number of rows in view for which individual items
+     * are shown instead of bins.
+     * @return the item threshold
+     */
+    public int getItemThreshold() {
+        return m_threshold;
+    }
+
+    /**
+     * Sets the pool on which rows are binned in parallel.
+     * @param pool the ForkJoin pool to use, or null to bin all rows on the
+     * calling thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        m_pool = pool;
+    }
+
+    /**
+     * Gets the pool on which rows are binned in parallel.
+     * @return the ForkJoin pool, or null if rows are binned sequentially
+     */
+    public ForkJoinPool getPool() {
+        return m_pool;
+    }
+
+    /**
+     * Get the number of rows in view after the last run.
+     * @return the number of rows in view
+     */
+    public int getRowsInView() {
+        return m_inView;
+    }
+
+    /**
+     * Indicates if the last run showed bins, rather than individual items.
+     * @return true if bins are shown
+     */
+    public boolean isBinned() {
+        return m_binned;
+    }
+
+    /**
+     * Stop listening to the source table and release the row index.
+     */
+    public void dispose() {
+        m_table.removeTableListener(m_listener);
+        m_keys = new long[0];
+        m_size = 0;
+        m_dirty = true;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * @see prefux.action.Action#run(double)
+     */
+    public void run(double frac) {
+        if ( m_dirty ) {
+            buildIndex();
+            m_view = null;
+        }
+        double x0 = m_xrange[0], x1 = m_xrange[1];
+        double y0 = m_yrange[0], y1 = m_yrange[1];
+        if ( m_xmodelSet ) {
+            x0 = ((Number)m_xmodel.getLowValue()).doubleValue();
+            x1 = ((Number)m_xmodel.getHighValue()).doubleValue();
+        } else if ( m_xmodel == null ) {
+            m_xmodel = new NumberRangeModel(x0, x1, x0, x1);
+        } else {
+            ((NumberRangeModel)m_xmodel).setValueRange(x0, x1, x0, x1);
+        }
+        if ( m_ymodelSet ) {
+            y0 = ((Number)m_ymodel.getLowValue()).doubleValue();
+            y1 = ((Number)m_ymodel.getHighValue()).doubleValue();
+        } else if ( m_ymodel == null ) {
+            m_ymodel = new NumberRangeModel(y0, y1, y0, y1);
+        } else {
+            ((NumberRangeModel)m_ymodel).setValueRange(y0, y1, y0, y1);
+        }
+
+        Rectangle2D b = getLayoutBounds();
+        double[] view = { x0, x1, y0, y1, b.getMinX(), b.getMinY(),
+                b.getWidth(), b.getHeight(), m_binSize, m_threshold };
+        if ( Arrays.equals(view, m_view) )
+            return;
+        m_view = view;
+
+        int cols = Math.max(1, (int)Math.ceil(b.getWidth() / m_binSize));
+        int rows = Math.max(1, (int)Math.ceil(b.getHeight() / m_binSize));
+        Grid grid = new Grid(x0, x1, y0, y1, cols, rows);
+
+        // only scan the rows within the visible x range
+        int lo = lowerBound(Math.nextDown((float)Math.min(x0, x1)));
+        int hi = lowerBound(Math.nextUp((float)Math.max(x0, x1)));
+
+        BinTask task = new BinTask(grid, lo, hi);
+        if ( m_pool != null && hi - lo > m_grain )
+            m_pool.invoke(task);
+        else
+            task.compute();
+        m_inView = task.total;
+
+        m_binned = m_itemGroup == null || task.total > m_threshold;
+        VisualTable bins = getTable(m_group, BIN_SCHEMA);
+        VisualTable items = m_itemGroup == null
+                ? null : getTable(m_itemGroup, ITEM_SCHEMA);
+        if ( m_binned ) {
+            if ( items != null )
+                items.clear();
+            updateBins(bins, grid, b, task.count, task.sum);
+        } else {
+            bins.clear();
+            updateItems(items, grid, b, lo, hi);
+        }
+    }
+
+    private VisualTable getTable(String group, Schema schema) {
+        VisualTable vt = (VisualTable)m_vis.getGroup(group);
+        if ( vt == null )
+            vt = m_vis.addTable(group, schema);
+        return vt;
+    }
+
+    /**
+     * Writes the non-empty bins to the bin table.
+     */
+    private void updateBins(VisualTable bins, Grid grid, Rectangle2D b,
+            int[] count, double[] sum)
+    {
+        bins.clear();
+        double w = b.getWidth() / grid.cols, h = b.getHeight() / grid.rows;
+        for ( int cy = 0; cy < grid.rows; ++cy ) {
+            for ( int cx = 0; cx < grid.cols; ++cx ) {
+                int idx = cy * grid.cols + cx;
+                if ( count[idx] == 0 )
+                    continue;
+                int row = bins.addRow();
+                bins.setInt(row, COUNT, count[idx]);
+                bins.setDouble(row, BIN_WIDTH, w);
+                bins.setDouble(row, BIN_HEIGHT, h);
+                if ( sum != null )
+                    bins.setDouble(row, MEAN, sum[idx] / count[idx]);
+                VisualItem item = bins.getItem(row);
+                setX(item, null, b.getMinX() + (cx + 0.5) * w);
+                setY(item, null, b.getMaxY() - (cy + 0.5) * h);
+            }
+        }
+    }
+
+    /**
+     * Writes one item per row in view to the item table.
+     */
+    private void updateItems(VisualTable items, Grid grid, Rectangle2D b,
+            int lo, int hi)
+    {
+        items.clear();
+        Chunk c = new Chunk(hi - lo, false);
+        for ( int i = lo; i < hi; i += CHUNK ) {
+            int n = c.read(i, Math.min(CHUNK, hi - i));
+            for ( int j = 0; j < n; ++j ) {
+                double x = c.x[j], y = c.y[j];
+                if ( !grid.contains(x, y) )
+                    continue;
+                int row = items.addRow();
+                items.setInt(row, SOURCE_ROW, c.rows[j]);
+                VisualItem item = items.getItem(row);
+                setX(item, null, b.getMinX() + MathLib.interp(
+                        m_xscale, x, grid.xdist) * b.getWidth());
+                setY(item, null, b.getMaxY() - MathLib.interp(
+                        m_yscale, y, grid.ydist) * b.getHeight());
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Row Index
+
+    /**
+     * Sorts the source rows by x value and computes the value ranges.
+     */
+    private void buildIndex() {
+        int n = m_table.getRowCount();
+        if ( m_keys.length < n )
+            m_keys = new long[n];
+        double xmin = Double.POSITIVE_INFINITY, xmax = Double.NEGATIVE_INFINITY;
+        double ymin = Double.POSITIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+        Chunk c = new Chunk(n, false);
+        int k = 0;
+        for ( IntIterator rows = m_table.rows(); rows.hasNext(); ) {
+            int m = 0;
+            while ( m < CHUNK && rows.hasNext() )
+                c.rows[m++] = rows.nextInt();
+            c.read(m);
+            for ( int j = 0; j < m; ++j ) {
+                double x = c.x[j], y = c.y[j];
+                if ( Double.isNaN(x) || Double.isNaN(y) )
+                    continue;
+                m_keys[k++] = ((long)sortable((float)x) << 32) | c.rows[j];
+                if ( x < xmin ) xmin = x;
+                if ( x > xmax ) xmax = x;
+                if ( y < ymin ) ymin = y;
+                if ( y > ymax ) ymax = y;
+            }
+        }
+        Arrays.parallelSort(m_keys, 0, k);
+        m_size = k;
+        if ( k == 0 ) {
+            xmin = xmax = ymin = ymax = 0;
+        }
+        m_xrange[0] = xmin; m_xrange[1] = xmax;
+        m_yrange[0] = ymin; m_yrange[1] = ymax;
+        m_dirty = false;
+    }
+
+    /**
+     * Maps a float to an int with the same ordering.
+     */
+    private static int sortable(float f) {
+        int bits = Float.floatToIntBits(f);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * Returns the position of the first key not less than the given value.
+     */
+    private int lowerBound(float x) {
+        long key = (long)sortable(x) << 32;
+        int lo = 0, hi = m_size;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( m_keys[mid] < key )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // ------------------------------------------------------------------------
+    // Binning
+
+    /**
+     * The visible value ranges and their division into bins.
+     */
+    private final class Grid {
+        final double[] xdist, ydist;
+        final double xlo, xhi, ylo, yhi;
+        final int cols, rows;
+
+        Grid(double x0, double x1, double y0, double y1, int cols, int rows) {
+            xdist = new double[] { x0, x1 };
+            ydist = new double[] { y0, y1 };
+            xlo = Math.min(x0, x1); xhi = Math.max(x0, x1);
+            ylo = Math.min(y0, y1); yhi = Math.max(y0, y1);
+            this.cols = cols;
+            this.rows = rows;
+        }
+
+        boolean contains(double x, double y) {
+            return x >= xlo && x <= xhi && y >= ylo && y <= yhi;
+        }
+
+        int bin(double x, double y) {
+            int cx = (int)(MathLib.interp(m_xscale, x, xdist) * cols);
+            int cy = (int)(MathLib.interp(m_yscale, y, ydist) * rows);
+            cx = cx < 0 ? 0 : cx >= cols ? cols-1 : cx;
+            cy = cy < 0 ? 0 : cy >= rows ? rows-1 : cy;
+            return cy * cols + cx;
+        }
+    }
+
+    /**
+     * Bins a range of the sorted rows, splitting large ranges into
+     * parallel tasks whose grids are summed when they complete.
+     */
+    private final class BinTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Grid grid;
+        final int lo, hi;
+        int[] count;
+        double[] sum;
+        int total;
+
+        BinTask(Grid grid, int lo, int hi) {
+            this.grid = grid;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if ( m_pool != null && hi - lo > m_grain ) {
+                int mid = (lo + hi) >>> 1;
+                BinTask left = new BinTask(grid, lo, mid);
+                BinTask right = new BinTask(grid, mid, hi);
+                invokeAll(left, right);
+                count = left.count;
+                sum = left.sum;
+                total = left.total + right.total;
+                for ( int i = 0; i < count.length; ++i )
+                    count[i] += right.count[i];
+                if ( sum != null )
+                    for ( int i = 0; i < sum.length; ++i )
+                        sum[i] += right.sum[i];
+                return;
+            }
+
+            Chunk c = new Chunk(hi - lo, m_valueField != null);
+            count = new int[grid.cols * grid.rows];
+            sum = c.v == null ? null : new double[count.length];
+            for ( int i = lo; i < hi; i += CHUNK ) {
+                int n = c.read(i, Math.min(CHUNK, hi - i));
+                for ( int j = 0; j < n; ++j ) {
+                    double x = c.x[j], y = c.y[j];
+                    if ( !grid.contains(x, y) )
+                        continue;
+                    int idx = grid.bin(x, y);
+                    count[idx]++;
+                    if ( sum != null )
+                        sum[idx] += c.v[j];
+                    ++total;
+                }
+            }
+        }
+    }
+
+    /**
+     * Buffers for reading the values of a chunk of source rows through the
+     * bulk accessors of the source table, which map the table rows to the
+     * rows of the backing columns.
+     */
+    private final class Chunk {
+        final int[] rows;
+        final double[] x, y, v;
+
+        Chunk(int size, boolean values) {
+            size = Math.max(1, Math.min(CHUNK, size));
+            rows = new int[size];
+            x = new double[size];
+            y = new double[size];
+            v = values ? new double[size] : null;
+        }
+
+        /**
+         * Reads the values of the first n buffered rows.
+         */
+        void read(int n) {
+            m_table.getDoubles(rows, m_xfield, x, n);
+            m_table.getDoubles(rows, m_yfield, y, n);
+            if ( v != null )
+                m_table.getDoubles(rows, m_valueField, v, n);
+        }
+
+        /**
+         * Buffers and reads the n sorted rows starting at the given key.
+         */
+        int read(int start, int n) {
+            for ( int j = 0; j < n; ++j )
+                rows[j] = (int)m_keys[start + j];
+            read(n);
+            return n;
+        }
+    }
+
+} // end of class BinnedAxisLayout
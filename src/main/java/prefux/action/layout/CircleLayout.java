@@ -101,15 +101,16 @@ public class CircleLayout extends Layout {
             radius = 0.45 * (height < width ? height : width);
         }
 
+        LocationBuffer locations = new LocationBuffer(true, true);
         Iterator items = ts.tuples();
         for (int i=0; items.hasNext(); i++) {
             VisualItem n = (VisualItem)items.next();
             double angle = (2*Math.PI*i) / nn;
             double x = Math.cos(angle)*radius + cx;
             double y = Math.sin(angle)*radius + cy;
-            setX(n, null, x);
-            setY(n, null, y);
+            locations.set(n, x, y);
         }
+        locations.flush();
     }
 
 } // end of class CircleLayout
@@ -93,6 +93,7 @@ public class GridLayout extends Layout {
             m = d[0]; n = d[1];
         }
         
+        LocationBuffer locations = new LocationBuffer(true, true);
         Iterator iter = ts.tuples();
         // layout grid contents
         for ( int i=0; iter.hasNext() && i < m*n; ++i ) {
@@ -100,9 +101,9 @@ public class GridLayout extends Layout {
             item.setVisible(true);
             double x = bx + w*((i%n)/(double)(n-1));
             double y = by + h*((i/n)/(double)(m-1));
-            setX(item,null,x);
-            setY(item,null,y);
+            locations.set(item, x, y);
         }
+        locations.flush();
         // set left-overs invisible
         while ( iter.hasNext() ) {
             VisualItem item = (VisualItem)iter.next();
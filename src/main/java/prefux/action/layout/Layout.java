@@ -37,7 +37,9 @@ import prefux.Display;
 import prefux.action.GroupAction;
 import prefux.data.util.Point2D;
 import prefux.util.PrefuseLib;
+import prefux.visual.ItemRowBuffer;
 import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
 
 /**
  * Abstract base class providing convenience methods for layout algorithms.
@@ -201,5 +203,77 @@ public abstract class Layout extends GroupAction {
     public void setY(VisualItem item, VisualItem referrer, double y) {
         PrefuseLib.setY(item, referrer, y);
     }
+    
+    /**
+     * Convenience method for setting the x-coordinates of a number of items
+     * stored in the same table, in the same way as
+     * {@link #setX(VisualItem, VisualItem, double)} without a referrer.
+     * @param table the VisualTable storing the items
+     * @param rows the table rows of the items
+     * @param x the x-coordinate values to set
+     * @param n the number of items to set
+     * @see prefux.util.PrefuseLib#setX(VisualTable, int[], double[], int)
+     */
+    public void setX(VisualTable table, int[] rows, double[] x, int n) {
+        PrefuseLib.setX(table, rows, x, n);
+    }
+    
+    /**
+     * Convenience method for setting the y-coordinates of a number of items
+     * stored in the same table, in the same way as
+     * {@link #setY(VisualItem, VisualItem, double)} without a referrer.
+     * @param table the VisualTable storing the items
+     * @param rows the table rows of the items
+     * @param y the y-coordinate values to set
+     * @param n the number of items to set
+     * @see prefux.util.PrefuseLib#setY(VisualTable, int[], double[], int)
+     */
+    public void setY(VisualTable table, int[] rows, double[] y, int n) {
+        PrefuseLib.setY(table, rows, y, n);
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    /**
+     * Buffers the new locations of items, and sets those of items stored in
+     * a VisualTable in bulk, through
+     * {@link Layout#setX(VisualTable, int[], double[], int)} and
+     * {@link Layout#setY(VisualTable, int[], double[], int)}. Locations of
+     * other items are set right away. Call {@link #flush()} after setting
+     * the last location.
+     */
+    protected class LocationBuffer extends ItemRowBuffer {
+        private final boolean m_x, m_y;
+        
+        /**
+         * Create a new LocationBuffer.
+         * @param x true to set x-coordinates
+         * @param y true to set y-coordinates
+         */
+        public LocationBuffer(boolean x, boolean y) {
+            m_x = x;
+            m_y = y;
+        }
+        
+        /**
+         * Set the location of an item, without a referrer.
+         * @param item the item to set
+         * @param x the x-coordinate, ignored if x-coordinates are not set
+         * @param y the y-coordinate, ignored if y-coordinates are not set
+         */
+        public void set(VisualItem item, double x, double y) {
+            if ( !add(item, x, y) ) {
+                if ( m_x ) setX(item, null, x);
+                if ( m_y ) setY(item, null, y);
+            }
+        }
+        
+        protected void process(VisualTable table, int[] rows,
+                               double[] x, double[] y, int n)
+        {
+            if ( m_x ) setX(table, rows, x, n);
+            if ( m_y ) setY(table, rows, y, n);
+        }
+    }
 
 } // end of abstract class Layout
@@ -47,6 +47,17 @@ import prefux.visual.VisualItem;
  * Layout Action that computes a stacked area chart, in which a series of
  * data values are consecutively stacked on top of each other.
  * 
+ * <p>For live time series, the chart can run in streaming mode, in which it
+ * shows a sliding window of the most recently appended columns (see
+ * {@link #setWindow(int)} and {@link #appendColumn(String)}). Once the
+ * window is full, a run only stacks the newly appended columns: the
+ * existing polygons are shifted in place and normalization uses running
+ * column sums, so that the data of older columns is not read again. The
+ * data values of columns are assumed not to change once appended, and runs
+ * without newly appended columns leave the layout as is. Unless the chart
+ * is normalized, the vertical scale is kept until the stack maximum
+ * exceeds it or drops below half of it, which triggers a full layout.</p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class StackedAreaChart extends Layout {
@@ -70,6 +81,18 @@ public class StackedAreaChart extends Layout {
     private boolean m_norm = false;
     private NumberRangeModel m_model;
     
+    // streaming mode state
+    private int m_window = 0;
+    private int m_appended = 0;
+    private boolean m_valid = false;
+    private double[] m_sums = new double[0];
+    private double m_peak;
+    private Rectangle2D m_bounds;
+    private VisualItem[] m_items = new VisualItem[0];
+    private int m_itemCount;
+    private int m_rowCount;
+    private int[] m_low = new int[0];
+    
     /**
      * Create a new StackedAreaChart.
      * @param group the data group to layout
@@ -116,6 +139,52 @@ public class StackedAreaChart extends Layout {
      */
     public void setColumns(String[] cols) {
         columns = cols;
+        m_valid = false;
+    }
+    
+    /**
+     * Sets the size of the sliding window of columns shown in streaming
+     * mode. In streaming mode, columns are added with
+     * {@link #appendColumn(String)}, and the oldest column is dropped
+     * once the window is full.
+     * @param window the number of columns in the window, at least 2, or
+     * 0 to disable streaming mode
+     */
+    public void setWindow(int window) {
+        if ( window != 0 && window < 2 )
+            throw new IllegalArgumentException(
+                    "Illegal window size: " + window);
+        m_window = window;
+        m_valid = false;
+    }
+    
+    /**
+     * Gets the size of the sliding window of columns shown in streaming
+     * mode.
+     * @return the number of columns in the window, or 0 if streaming
+     * mode is disabled
+     */
+    public int getWindow() {
+        return m_window;
+    }
+    
+    /**
+     * Appends a data column in streaming mode, dropping the oldest column
+     * if the window is full. The new column is stacked on the next run.
+     * @param field the data field of the new column
+     */
+    public void appendColumn(String field) {
+        if ( m_window == 0 )
+            throw new IllegalStateException("Streaming mode is not enabled");
+        int len = columns.length;
+        if ( len < m_window ) {
+            columns = Arrays.copyOf(columns, len+1);
+        } else {
+            // copy first, the array may have been passed to setColumns
+            columns = Arrays.copyOfRange(columns, len-m_window+1, len+1);
+        }
+        columns[columns.length-1] = field;
+        ++m_appended;
     }
     
     /**
@@ -125,6 +194,7 @@ public class StackedAreaChart extends Layout {
      */
     public void setNormalized(boolean b) {
         m_norm = b;
+        m_valid = false;
     }
     
     /**
@@ -155,6 +225,7 @@ public class StackedAreaChart extends Layout {
             throw new IllegalArgumentException(
                     "Illegal padding percentage: " + p);
         m_padding = p;
+        m_valid = false;
     }
     
     /**
@@ -172,7 +243,8 @@ public class StackedAreaChart extends Layout {
      * @param threshold the minimum height threshold for visibility to use
      */
     public void setThreshold(double threshold) {
-        m_threshold = (double)threshold;
+        m_threshold = threshold;
+        m_valid = false;
     }
     
     /**
@@ -219,6 +291,7 @@ public class StackedAreaChart extends Layout {
                    m_orientation == Constants.ORIENT_RIGHT_LEFT);
         m_top   = (m_orientation == Constants.ORIENT_TOP_BOTTOM ||
                    m_orientation == Constants.ORIENT_LEFT_RIGHT);
+        m_valid = false;
     }
     
 // TODO: support externally driven range specification (i.e. stack zooming)
@@ -232,40 +305,58 @@ public class StackedAreaChart extends Layout {
      * @see prefux.action.Action#run(double)
      */
     public void run(double frac) {
+        int appended = m_appended;
+        m_appended = 0;
+        if ( m_window > 0 && m_valid && columns.length == m_window
+                && m_sums.length == m_window
+                && getLayoutBounds().equals(m_bounds) )
+        {
+            if ( appended == 0 || stream(appended) )
+                return;
+        }
+        
         bounds = getLayoutBounds();
+        if ( baseline.length != columns.length ) {
+            baseline = new double[columns.length];
+            peaks = new double[columns.length];
+            poly = new double[4*columns.length];
+        }
         Arrays.fill(baseline, 0);
         
         // get the orientation specifics sorted out
-        double min = (double)(m_horiz?bounds.getMaxY() :bounds.getMinX());
-        double hgt = (double)(m_horiz?bounds.getWidth():bounds.getHeight());
+        double min = (m_horiz?bounds.getMaxY() :bounds.getMinX());
+        double hgt = (m_horiz?bounds.getWidth():bounds.getHeight());
         int xbias = (m_horiz ? 1 : 0);
         int ybias = (m_horiz ? 0 : 1);
         int mult = m_top ? 1 : -1;
-        double inc = (double) (m_horiz ? (bounds.getMinY()-bounds.getMaxY())
-                                     : (bounds.getMaxX()-bounds.getMinX()));
-        inc /= columns.length-1;
+        double inc = (m_horiz ? (bounds.getMinY()-bounds.getMaxY())
+                              : (bounds.getMaxX()-bounds.getMinX()));
+        inc /= slots()-1;
         int len = columns.length;
         
         // perform first walk to compute max values
         double maxValue = getPeaks();
-        double b = (double)(m_horiz ? (m_top?bounds.getMinX():bounds.getMaxX())
-                                  : (m_top?bounds.getMinY():bounds.getMaxY()));
+        double b = (m_horiz ? (m_top?bounds.getMinX():bounds.getMaxX())
+                            : (m_top?bounds.getMinY():bounds.getMaxY()));
         Arrays.fill(baseline, b);
         
         m_model.setValueRange(0, maxValue, 0, maxValue);
         
         // perform second walk to compute polygon layout
         Table t = (Table)m_vis.getGroup(m_group);
+        boolean hidden = false;
+        m_itemCount = 0;
         Iterator iter = t.tuplesReversed();
         while ( iter.hasNext() ) {
             VisualItem item = (VisualItem)iter.next();
             if ( !item.isVisible() ) continue;
             
             double height = 0;
+            int low = 0;
             
             for ( int i=len; --i >= 0; ) {
                 poly[2*(len-1-i)+xbias] = min + i*inc;
-                poly[2*(len-1-i)+ybias] = (double)baseline[i];
+                poly[2*(len-1-i)+ybias] = baseline[i];
             }
             for ( int i=0; i<columns.length; ++i ) {
                 int base = 2*(len+i);
@@ -273,18 +364,134 @@ public class StackedAreaChart extends Layout {
                 baseline[i] += mult * hgt * 
                                  MathLib.linearInterp(value,0,peaks[i]);
                 poly[base+xbias] = min + i*inc;
-                poly[base+ybias] = (double)baseline[i];
-                height = Math.max(height,
-                        Math.abs(poly[2*(len-1-i)+ybias]-poly[base+ybias]));
+                poly[base+ybias] = baseline[i];
+                double h = Math.abs(poly[2*(len-1-i)+ybias]-poly[base+ybias]);
+                height = Math.max(height, h);
+                low = ( h < m_threshold ) ? low+1 : 0;
             }
             if ( height < m_threshold ) {
                 item.setVisible(false);
+                hidden = true;
             }
+            if ( m_window > 0 )
+                track(item, low);
 
             setX(item, null, 0);
             setY(item, null, 0);
             setPolygon(item, poly);
         }
+        
+        // hidden items change the column sums, so lay out all columns on
+        // the next run
+        m_valid = m_window > 0 && !hidden;
+        m_rowCount = t.getRowCount();
+        m_bounds = bounds;
+        m_peak = len > 0 ? peaks[0] : 0;
+    }
+    
+    /**
+     * Returns the number of column positions along the axis.
+     */
+    private int slots() {
+        return m_window > 0 ? m_window : columns.length;
+    }
+    
+    /**
+     * Records a laid out item for streaming, along with the number of
+     * trailing columns in which it is below the height threshold.
+     */
+    private void track(VisualItem item, int low) {
+        if ( m_itemCount == m_items.length )
+            m_items = Arrays.copyOf(m_items, Math.max(16, 2*m_itemCount));
+        m_items[m_itemCount++] = item;
+        int row = item.getRow();
+        if ( row >= m_low.length )
+            m_low = Arrays.copyOf(m_low, Math.max(row+1, 2*m_low.length));
+        m_low[row] = low;
+    }
+    
+    /**
+     * Stacks the last k columns onto the previous layout, shifting the
+     * existing polygons in place. Returns false if a full layout is
+     * required, in which case nothing is changed: if the items changed,
+     * or if the stack maximum is no longer within a factor of two of the
+     * current scale.
+     */
+    private boolean stream(int k) {
+        int len = columns.length;
+        Table t = (Table)m_vis.getGroup(m_group);
+        if ( k >= len || t.getRowCount() != m_rowCount )
+            return false;
+        for ( int j = 0; j < m_itemCount; ++j ) {
+            VisualItem item = m_items[j];
+            if ( !item.isValid() || !item.isVisible() )
+                return false;
+        }
+        
+        // sums of the new columns, and the new stack maximum
+        double[] sums = new double[k];
+        for ( int j = 0; j < m_itemCount; ++j )
+            for ( int c = 0; c < k; ++c )
+                sums[c] += m_items[j].getDouble(columns[len-k+c]);
+        if ( !m_norm ) {
+            double max = Math.max(ArrayLib.max(sums),
+                    len > k ? max(m_sums, k, len) : 0);
+            max += m_padding * max;
+            if ( max > m_peak || max < m_peak / 2 )
+                return false;
+        }
+        System.arraycopy(m_sums, k, m_sums, 0, len-k);
+        System.arraycopy(sums, 0, m_sums, len-k, k);
+        if ( m_norm )
+            System.arraycopy(m_sums, 0, peaks, 0, len);
+        
+        double min = (m_horiz?bounds.getMaxY() :bounds.getMinX());
+        double hgt = (m_horiz?bounds.getWidth():bounds.getHeight());
+        int ybias = (m_horiz ? 0 : 1);
+        int mult = m_top ? 1 : -1;
+        double b = (m_horiz ? (m_top?bounds.getMinX():bounds.getMaxX())
+                            : (m_top?bounds.getMinY():bounds.getMaxY()));
+        Arrays.fill(baseline, len-k, len, b);
+        
+        boolean hidden = false;
+        for ( int j = 0; j < m_itemCount; ++j ) {
+            VisualItem item = m_items[j];
+            double[] a = getPolygon(item, m_field);
+            double[] s = getPolygon(item, m_start);
+            double[] e = getPolygon(item, m_end);
+            System.arraycopy(a, 0, s, 0, a.length);
+            
+            // shift the y values of the retained columns
+            for ( int i=0; i<len-k; ++i ) {
+                a[2*(len+i)+ybias] = a[2*(len+i+k)+ybias];
+                a[2*(len-1-i)+ybias] = a[2*(len-1-i-k)+ybias];
+            }
+            // stack the new columns
+            int row = item.getRow();
+            for ( int i=len-k; i<len; ++i ) {
+                a[2*(len-1-i)+ybias] = baseline[i];
+                double value = item.getDouble(columns[i]);
+                double h = mult * hgt * MathLib.linearInterp(value,0,peaks[i]);
+                baseline[i] += h;
+                a[2*(len+i)+ybias] = baseline[i];
+                m_low[row] = ( Math.abs(h) < m_threshold ) ? m_low[row]+1 : 0;
+            }
+            System.arraycopy(a, 0, e, 0, a.length);
+            item.setValidated(false);
+            if ( m_low[row] >= len ) {
+                item.setVisible(false);
+                hidden = true;
+            }
+        }
+        m_valid = !hidden;
+        return true;
+    }
+    
+    private static double max(double[] a, int from, int to) {
+        double max = Double.NEGATIVE_INFINITY;
+        for ( int i=from; i<to; ++i )
+            if ( a[i] > max ) max = a[i];
+        return max;
     }
     
     private double getPeaks() {
@@ -302,6 +509,9 @@ public class StackedAreaChart extends Layout {
             }
         }
         double max = ArrayLib.max(peaks);
+        if ( m_sums.length != peaks.length )
+            m_sums = new double[peaks.length];
+        System.arraycopy(peaks, 0, m_sums, 0, peaks.length);
         
         // update peaks array as needed
         if ( !m_norm ) {
@@ -346,13 +556,12 @@ public class StackedAreaChart extends Layout {
         if ( poly == null || poly.length < 4*columns.length ) {
             // get oriented
             int len = columns.length;
-            double inc = (double) (m_horiz?(bounds.getMinY()-bounds.getMaxY())
-                                        :(bounds.getMaxX()-bounds.getMinX()));
-            inc /= len-1;
-            double max = (double)
-                (m_horiz ? (m_top?bounds.getMaxX():bounds.getMinX())
-                         : (m_top?bounds.getMinY():bounds.getMaxY()));
-            double min = (double)(m_horiz?bounds.getMaxY():bounds.getMinX());
+            double inc = (m_horiz?(bounds.getMinY()-bounds.getMaxY())
+                                 :(bounds.getMaxX()-bounds.getMinX()));
+            inc /= slots()-1;
+            double max = (m_horiz ? (m_top?bounds.getMaxX():bounds.getMinX())
+                                  : (m_top?bounds.getMinY():bounds.getMaxY()));
+            double min = (m_horiz?bounds.getMaxY():bounds.getMinX());
             int  bias = (m_horiz ? 1 : 0);
             
             // create polygon, populate default values
@@ -0,0 +1,574 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.action.layout.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import javafx.geometry.Rectangle2D;
+import prefux.action.layout.Layout;
+import prefux.data.Graph;
+import prefux.data.util.Point2D;
+import prefux.util.PrefuseLib;
+import prefux.util.force.DragForce;
+import prefux.util.force.EulerIntegrator;
+import prefux.util.force.ForceItem;
+import prefux.util.force.ForceSimulator;
+import prefux.util.force.NBodyForce;
+import prefux.util.force.SpringForce;
+import prefux.visual.EdgeItem;
+import prefux.visual.VisualItem;
+
+/**
+ * <p>
+ * Multilevel force-directed layout for large graphs. The visible graph is
+ * repeatedly coarsened by collapsing heavy-edge matchings, with leftover
+ * nodes merged into a neighboring cluster, until it is small enough to lay
+ * out directly. The coarsest graph is laid out with a full force simulation,
+ * and each finer level is then interpolated from the positions of its
+ * clusters and refined with a short simulation of its own.
+ * </p>
+ * 
+ * <p>
+ * Refinement uses the same {@link prefux.util.force} forces as
+ * {@link ForceDirectedLayout}, but only coarse levels are run for many
+ * iterations: the number of refinement iterations shrinks with the level
+ * size, so that the finest levels, which dominate the running time, only
+ * need a few O(N log N) steps to remove local overlap. Each level is
+ * simulated with its own {@link ForceItem} instances, so that the visual
+ * items are only written once the layout is complete.
+ * </p>
+ * 
+ * <p>
+ * This layout is meant to be run once; fixed items keep their position.
+ * </p>
+ */
+public class MultilevelForceLayout extends Layout {
+
+    private ForceSimulator m_fsim;
+    private int m_coarsest = 50;
+    private int m_iterations = 1000;
+    private int m_refineIterations = 40;
+    private int m_minIterations = 5;
+    private int m_refineSize = 10000;
+    private long m_refineStep = 250L;
+    private boolean m_enforceBounds;
+    private int m_levels;
+
+    protected String m_nodeGroup;
+    protected String m_edgeGroup;
+
+    private ForceItem[] m_fitems = new ForceItem[0];
+
+    /**
+     * Create a new MultilevelForceLayout.
+     * @param graph the data group to layout. Must resolve to a Graph
+     * instance.
+     */
+    public MultilevelForceLayout(String graph) {
+        this(graph, false);
+    }
+
+    /**
+     * Create a new MultilevelForceLayout.
+     * @param graph the data group to layout. Must resolve to a Graph
+     * instance.
+     * @param enforceBounds indicates whether or not the layout should
+     * require that all node placements stay within the layout bounds.
+     */
+    public MultilevelForceLayout(String graph, boolean enforceBounds) {
+        super(graph);
+        m_nodeGroup = PrefuseLib.getGroupName(graph, Graph.NODES);
+        m_edgeGroup = PrefuseLib.getGroupName(graph, Graph.EDGES);
+        m_enforceBounds = enforceBounds;
+
+        m_fsim = new ForceSimulator(new EulerIntegrator());
+        m_fsim.addForce(new NBodyForce());
+        m_fsim.addForce(new SpringForce());
+        m_fsim.addForce(new DragForce());
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the force simulator used to lay out and refine each level.
+     * @return the force simulator
+     */
+    public ForceSimulator getForceSimulator() {
+        return m_fsim;
+    }
+
+    /**
+     * Set the force simulator used to lay out and refine each level. By
+     * default, an Euler integrated simulator with n-body, spring and drag
+     * forces is used.
+     * @param fsim the force simulator
+     */
+    public void setForceSimulator(ForceSimulator fsim) {
+        m_fsim = fsim;
+    }
+
+    /**
+     * Get the number of iterations used to lay out the coarsest level.
+     * @return the number of iterations for the coarsest level
+     */
+    public int getIterations() {
+        return m_iterations;
+    }
+
+    /**
+     * Set the number of iterations used to lay out the coarsest level.
+     * @param iter the number of iterations for the coarsest level
+     */
+    public void setIterations(int iter) {
+        if ( iter < 1 )
+            throw new IllegalArgumentException(
+                    "Iterations must be a positive number!");
+        m_iterations = iter;
+    }
+
+    /**
+     * Get the number of refinement iterations used for levels of up to
+     * {@link #getRefineSize()} nodes.
+     * @return the maximum number of refinement iterations per level
+     */
+    public int getRefineIterations() {
+        return m_refineIterations;
+    }
+
+    /**
+     * Set the number of refinement iterations per level. Levels with more
+     * than {@link #getRefineSize()} nodes are refined for proportionally
+     * fewer iterations, but never less than the given minimum.
+     * @param iter the maximum number of refinement iterations per level
+     * @param min the minimum number of refinement iterations per level
+     */
+    public void setRefineIterations(int iter, int min) {
+        if ( min < 1 || iter < min )
+            throw new IllegalArgumentException(
+                    "Invalid refinement iterations: "+iter+", "+min);
+        m_refineIterations = iter;
+        m_minIterations = min;
+    }
+
+    /**
+     * Get the level size above which the number of refinement iterations
+     * is reduced.
+     * @return the refinement size threshold
+     */
+    public int getRefineSize() {
+        return m_refineSize;
+    }
+
+    /**
+     * Set the level size above which the number of refinement iterations
+     * is reduced.
+     * @param size the refinement size threshold
+     */
+    public void setRefineSize(int size) {
+        m_refineSize = Math.max(1, size);
+    }
+
+    /**
+     * Get the number of nodes at which coarsening stops.
+     * @return the size of the coarsest level
+     */
+    public int getCoarsestSize() {
+        return m_coarsest;
+    }
+
+    /**
+     * Set the number of nodes at which coarsening stops.
+     * @param size the size of the coarsest level
+     */
+    public void setCoarsestSize(int size) {
+        m_coarsest = Math.max(2, size);
+    }
+
+    /**
+     * Get the number of levels used by the last run of this layout,
+     * including the original graph.
+     * @return the number of levels of the last layout
+     */
+    public int getLevelCount() {
+        return m_levels;
+    }
+
+    /**
+     * Explicitly sets the node and edge groups to use for this layout,
+     * overriding the group setting passed to the constructor.
+     * @param nodeGroup the node data group
+     * @param edgeGroup the edge data group
+     */
+    public void setDataGroups(String nodeGroup, String edgeGroup) {
+        m_nodeGroup = nodeGroup;
+        m_edgeGroup = edgeGroup;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * @see prefux.action.Action#run(double)
+     */
+    public void run(double frac) {
+        // snapshot the visible nodes, indexed by row
+        VisualItem[] items = new VisualItem[64];
+        int[] index = new int[64];
+        int n = 0;
+        Iterator<VisualItem> iter = m_vis.visibleItems(m_nodeGroup);
+        while ( iter.hasNext() ) {
+            VisualItem item = iter.next();
+            int row = item.getRow();
+            if ( n == items.length )
+                items = Arrays.copyOf(items, 2*n);
+            if ( row >= index.length )
+                index = Arrays.copyOf(index, Math.max(row+1, 2*index.length));
+            items[n] = item;
+            index[row] = n++;
+        }
+        if ( n == 0 )
+            return;
+
+        // snapshot the visible edges
+        int[] src = new int[64], dst = new int[64];
+        int m = 0;
+        if ( m_edgeGroup != null ) {
+            iter = m_vis.visibleItems(m_edgeGroup);
+            while ( iter.hasNext() ) {
+                EdgeItem e = (EdgeItem)iter.next();
+                VisualItem s = e.getSourceItem(), t = e.getTargetItem();
+                if ( !s.isVisible() || !t.isVisible() || s == t )
+                    continue;
+                if ( m == src.length ) {
+                    src = Arrays.copyOf(src, 2*m);
+                    dst = Arrays.copyOf(dst, 2*m);
+                }
+                src[m] = index[s.getRow()];
+                dst[m] = index[t.getRow()];
+                ++m;
+            }
+        }
+
+        // coarsen until the graph is small or stops shrinking
+        ArrayList<Level> levels = new ArrayList<>();
+        Level level = new Level(n, src, dst, m);
+        levels.add(level);
+        while ( level.n > m_coarsest ) {
+            Level coarse = level.coarsen();
+            if ( coarse.n > 0.9 * level.n )
+                break;
+            levels.add(coarse);
+            level = coarse;
+        }
+        m_levels = levels.size();
+
+        // lay out the coarsest level, starting on a spiral
+        double[] x = new double[level.n], y = new double[level.n];
+        double r = SpringForce.DEFAULT_SPRING_LENGTH / 2;
+        for ( int i = 0; i < level.n; ++i ) {
+            double a = i * GOLDEN_ANGLE, d = r * Math.sqrt(i);
+            x[i] = d * Math.cos(a);
+            y[i] = d * Math.sin(a);
+        }
+        simulate(level, x, y, m_iterations, 1000L);
+
+        // interpolate and refine each finer level
+        for ( int l = levels.size()-2; l >= 0; --l ) {
+            Level fine = levels.get(l);
+            int[] size = new int[level.n];
+            for ( int i = 0; i < fine.n; ++i )
+                size[fine.map[i]]++;
+            double[] fx = new double[fine.n], fy = new double[fine.n];
+            for ( int i = 0; i < fine.n; ++i ) {
+                int c = fine.map[i];
+                double a = i * GOLDEN_ANGLE;
+                double d = size[c] > 1 ? r * Math.sqrt(size[c]) / 4 : 0;
+                fx[i] = x[c] + d * Math.cos(a);
+                fy[i] = y[c] + d * Math.sin(a);
+            }
+            x = fx; y = fy;
+            level = fine;
+            int iters = (int)((long)m_refineIterations * m_refineSize / level.n);
+            iters = Math.max(m_minIterations, Math.min(m_refineIterations, iters));
+            simulate(level, x, y, iters, m_refineStep);
+        }
+        m_fsim.clear();
+
+        updateNodePositions(items, x, y);
+    }
+
+    /**
+     * Runs the force simulation on a single level, starting from and
+     * updating the given positions. Springs between clusters are scaled by
+     * the square root of the cluster sizes, so that coarse levels are laid
+     * out at roughly the scale of the graph they stand for, and refinement
+     * starts with a short timestep that keeps the interpolated structure.
+     */
+    private void simulate(Level level, double[] x, double[] y, int iterations, long timestep) {
+        double length = SpringForce.DEFAULT_SPRING_LENGTH;
+        int n = level.n;
+        if ( m_fitems.length < n ) {
+            ForceItem[] fitems = Arrays.copyOf(m_fitems, n);
+            for ( int i = m_fitems.length; i < n; ++i )
+                fitems[i] = new ForceItem();
+            m_fitems = fitems;
+        }
+        m_fsim.clear();
+        for ( int i = 0; i < n; ++i ) {
+            ForceItem f = m_fitems[i];
+            f.mass = level.mass[i];
+            f.location[0] = x[i];
+            f.location[1] = y[i];
+            f.velocity[0] = f.velocity[1] = 0;
+            f.force[0] = f.force[1] = 0;
+            m_fsim.addItem(f);
+        }
+        for ( int u = 0; u < n; ++u ) {
+            for ( int j = level.offset[u]; j < level.offset[u+1]; ++j ) {
+                int v = level.adj[j];
+                if ( u < v )
+                    m_fsim.addSpring(m_fitems[u], m_fitems[v], -1., length
+                            * (Math.sqrt(level.mass[u]) + Math.sqrt(level.mass[v])) / 2);
+            }
+        }
+
+        // use the same annealing schedule as ForceDirectedLayout
+        for ( int i = 0; i < iterations; ++i ) {
+            timestep *= (1.0 - i / (double)iterations);
+            m_fsim.runSimulator(timestep + 50);
+        }
+
+        for ( int i = 0; i < n; ++i ) {
+            x[i] = m_fitems[i].location[0];
+            y[i] = m_fitems[i].location[1];
+        }
+    }
+
+    /**
+     * Centers the layout on the layout anchor and sets the positions of
+     * all non-fixed items.
+     */
+    private void updateNodePositions(VisualItem[] items, double[] x, double[] y)
+    {
+        int n = x.length;
+        double cx = 0, cy = 0;
+        for ( int i = 0; i < n; ++i ) {
+            cx += x[i];
+            cy += y[i];
+        }
+        Point2D anchor = getLayoutAnchor();
+        double dx = anchor.getX() - cx / n, dy = anchor.getY() - cy / n;
+
+        Rectangle2D bounds = m_enforceBounds ? getLayoutBounds() : null;
+        for ( int i = 0; i < n; ++i ) {
+            VisualItem item = items[i];
+            if ( item.isFixed() )
+                continue;
+            double px = x[i] + dx, py = y[i] + dy;
+            if ( bounds != null ) {
+                Rectangle2D b = item.getBounds();
+                double hw = b.getWidth() / 2, hh = b.getHeight() / 2;
+                px = Math.max(bounds.getMinX() + hw,
+                        Math.min(bounds.getMaxX() - hw, px));
+                py = Math.max(bounds.getMinY() + hh,
+                        Math.min(bounds.getMaxY() - hh, py));
+            }
+            setX(item, null, px);
+            setY(item, null, py);
+        }
+    }
+
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * A level of the coarsening hierarchy: an undirected graph in
+     * compressed adjacency form, with edge multiplicities as weights and
+     * cluster sizes as node masses.
+     */
+    private static final class Level {
+        final int n;
+        final int[] offset;
+        final int[] adj;
+        final int[] weight;
+        final double[] mass;
+        /** The node of the next coarser level each node was merged into. */
+        int[] map;
+
+        Level(int n, int[] offset, int[] adj, int[] weight, double[] mass) {
+            this.n = n;
+            this.offset = offset;
+            this.adj = adj;
+            this.weight = weight;
+            this.mass = mass;
+        }
+
+        /**
+         * Builds the finest level from an edge list.
+         */
+        Level(int n, int[] src, int[] dst, int m) {
+            this.n = n;
+            offset = new int[n+1];
+            for ( int i = 0; i < m; ++i ) {
+                offset[src[i]+1]++;
+                offset[dst[i]+1]++;
+            }
+            for ( int i = 0; i < n; ++i )
+                offset[i+1] += offset[i];
+            adj = new int[2*m];
+            int[] pos = Arrays.copyOf(offset, n);
+            for ( int i = 0; i < m; ++i ) {
+                adj[pos[src[i]]++] = dst[i];
+                adj[pos[dst[i]]++] = src[i];
+            }
+            weight = new int[2*m];
+            Arrays.fill(weight, 1);
+            mass = new double[n];
+            Arrays.fill(mass, 1.0);
+        }
+
+        /**
+         * Builds the next coarser level and sets the map of this level.
+         */
+        Level coarsen() {
+            // visit nodes by increasing degree, so that leaves match first
+            int maxdeg = 0;
+            for ( int u = 0; u < n; ++u )
+                maxdeg = Math.max(maxdeg, offset[u+1] - offset[u]);
+            int[] count = new int[maxdeg+2];
+            for ( int u = 0; u < n; ++u )
+                count[offset[u+1] - offset[u] + 1]++;
+            for ( int d = 0; d <= maxdeg; ++d )
+                count[d+1] += count[d];
+            int[] order = new int[n];
+            for ( int u = 0; u < n; ++u )
+                order[count[offset[u+1] - offset[u]]++] = u;
+
+            // heavy-edge matching, normalized by the cluster masses
+            int[] match = new int[n];
+            Arrays.fill(match, -1);
+            int cn = 0;
+            for ( int k = 0; k < n; ++k ) {
+                int u = order[k];
+                if ( match[u] >= 0 )
+                    continue;
+                int best = -1;
+                double score = 0;
+                for ( int j = offset[u]; j < offset[u+1]; ++j ) {
+                    int v = adj[j];
+                    if ( match[v] >= 0 )
+                        continue;
+                    double s = weight[j] / (mass[u] * mass[v]);
+                    if ( s > score ) {
+                        score = s;
+                        best = v;
+                    }
+                }
+                if ( best >= 0 )
+                    match[u] = match[best] = cn++;
+            }
+
+            // merge unmatched nodes into the lightest neighboring cluster,
+            // and pair up isolated nodes
+            double[] cmass = new double[n];
+            for ( int u = 0; u < n; ++u )
+                if ( match[u] >= 0 )
+                    cmass[match[u]] += mass[u];
+            int isolated = -1;
+            for ( int k = 0; k < n; ++k ) {
+                int u = order[k];
+                if ( match[u] >= 0 )
+                    continue;
+                int best = -1;
+                for ( int j = offset[u]; j < offset[u+1]; ++j ) {
+                    int c = match[adj[j]];
+                    if ( c >= 0 && (best < 0 || cmass[c] < cmass[best]) )
+                        best = c;
+                }
+                if ( best < 0 && offset[u] == offset[u+1] && isolated >= 0 ) {
+                    best = match[isolated];
+                    isolated = -1;
+                } else if ( best < 0 ) {
+                    best = cn++;
+                    if ( offset[u] == offset[u+1] )
+                        isolated = u;
+                }
+                match[u] = best;
+                cmass[best] += mass[u];
+            }
+            map = match;
+
+            // group the nodes by cluster
+            int[] start = new int[cn+1];
+            for ( int u = 0; u < n; ++u )
+                start[match[u]+1]++;
+            for ( int c = 0; c < cn; ++c )
+                start[c+1] += start[c];
+            int[] members = new int[n];
+            int[] pos = Arrays.copyOf(start, cn);
+            for ( int u = 0; u < n; ++u )
+                members[pos[match[u]]++] = u;
+
+            // merge the adjacency of each cluster, summing edge weights
+            int[] coffset = new int[cn+1];
+            int[] cadj = new int[adj.length];
+            int[] cweight = new int[adj.length];
+            int[] mark = pos;
+            Arrays.fill(mark, -1);
+            int[] slot = new int[cn];
+            int len = 0;
+            for ( int c = 0; c < cn; ++c ) {
+                for ( int k = start[c]; k < start[c+1]; ++k ) {
+                    int u = members[k];
+                    for ( int j = offset[u]; j < offset[u+1]; ++j ) {
+                        int cv = match[adj[j]];
+                        if ( cv == c )
+                            continue;
+                        if ( mark[cv] != c ) {
+                            mark[cv] = c;
+                            slot[cv] = len;
+                            cadj[len] = cv;
+                            cweight[len++] = weight[j];
+                        } else {
+                            cweight[slot[cv]] += weight[j];
+                        }
+                    }
+                }
+                coffset[c+1] = len;
+            }
+            return new Level(cn, coffset, Arrays.copyOf(cadj, len),
+                    Arrays.copyOf(cweight, len), Arrays.copyOf(cmass, cn));
+        }
+    } // end of inner class Level
+
+} // end of class MultilevelForceLayout
@@ -0,0 +1,488 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.action.layout.graph;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import prefux.action.layout.Layout;
+import prefux.data.Graph;
+import prefux.data.util.Point2D;
+import prefux.util.PrefuseLib;
+import prefux.util.force.ForceItem;
+import prefux.util.force.SpringForce;
+import prefux.visual.EdgeItem;
+import prefux.visual.VisualItem;
+
+/**
+ * <p>
+ * Layout that positions graph nodes using Pivot MDS (Brandes and Pich). The
+ * graph-theoretic distances from a small number of pivot nodes, chosen by
+ * max-min selection, are double-centered and the two principal components
+ * of the resulting n x k matrix are used as coordinates. Only a k x k
+ * eigenproblem is solved, so the layout takes O(k(n+m)) time for k pivots,
+ * and unlike a force simulation it is deterministic.
+ * </p>
+ * 
+ * <p>
+ * The layout can optionally be improved by a number of sparse stress
+ * majorization iterations, which only consider the distances to adjacent
+ * nodes and to the pivots. Distances are computed on the visible nodes
+ * and edges only, following edges in both directions, and scaled so that
+ * adjacent nodes are the default spring length apart. The resulting
+ * positions are also copied to the force items of nodes that have them,
+ * so the layout can be used to seed a {@link ForceDirectedLayout}.
+ * </p>
+ */
+public class PivotMDSLayout extends Layout {
+
+    private int m_pivots = 50;
+    private int m_stressIterations = 0;
+    private double m_edgeLength = SpringForce.DEFAULT_SPRING_LENGTH;
+
+    /**
+     * Create a new PivotMDSLayout.
+     * @param graph the data group to layout. Must resolve to a Graph
+     * instance.
+     */
+    public PivotMDSLayout(String graph) {
+        super(graph);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * Get the number of pivot nodes.
+     * @return the number of pivots
+     */
+    public int getPivotCount() {
+        return m_pivots;
+    }
+
+    /**
+     * Set the number of pivot nodes. More pivots give a more accurate
+     * layout, at a linear cost in time and memory.
+     * @param pivots the number of pivots, at least 2
+     */
+    public void setPivotCount(int pivots) {
+        if ( pivots < 2 )
+            throw new IllegalArgumentException(
+                    "At least two pivots are required: "+pivots);
+        m_pivots = pivots;
+    }
+
+    /**
+     * Get the number of sparse stress majorization iterations run after
+     * the pivot layout.
+     * @return the number of stress iterations
+     */
+    public int getStressIterations() {
+        return m_stressIterations;
+    }
+
+    /**
+     * Set the number of sparse stress majorization iterations run after
+     * the pivot layout. By default no iterations are run.
+     * @param iter the number of stress iterations
+     */
+    public void setStressIterations(int iter) {
+        m_stressIterations = Math.max(0, iter);
+    }
+
+    /**
+     * Get the distance between adjacent nodes in the layout.
+     * @return the edge length
+     */
+    public double getEdgeLength() {
+        return m_edgeLength;
+    }
+
+    /**
+     * Set the distance between adjacent nodes in the layout.
+     * @param length the edge length
+     */
+    public void setEdgeLength(double length) {
+        m_edgeLength = length;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * @see prefux.action.Action#run(double)
+     */
+    public void run(double frac) {
+        Graph g = (Graph)m_vis.getGroup(m_group);
+
+        // collect the visible nodes
+        String nodeGroup = PrefuseLib.getGroupName(m_group, Graph.NODES);
+        VisualItem[] items = new VisualItem[64];
+        int[] index = new int[64];
+        int n = 0;
+        Iterator<VisualItem> iter = m_vis.visibleItems(nodeGroup);
+        while ( iter.hasNext() ) {
+            VisualItem item = iter.next();
+            int row = item.getRow();
+            if ( n == items.length )
+                items = Arrays.copyOf(items, 2*n);
+            if ( row >= index.length )
+                index = Arrays.copyOf(index, Math.max(row+1, 2*index.length));
+            items[n] = item;
+            index[row] = n++;
+        }
+        if ( n == 0 )
+            return;
+
+        // snapshot the visible edges, in both directions
+        int[] src = new int[64], dst = new int[64];
+        int m = 0;
+        String edgeGroup = PrefuseLib.getGroupName(m_group, Graph.EDGES);
+        iter = m_vis.visibleItems(edgeGroup);
+        while ( iter.hasNext() ) {
+            EdgeItem e = (EdgeItem)iter.next();
+            VisualItem s = e.getSourceItem(), t = e.getTargetItem();
+            if ( !s.isVisible() || !t.isVisible() || s == t )
+                continue;
+            if ( m == src.length ) {
+                src = Arrays.copyOf(src, 2*m);
+                dst = Arrays.copyOf(dst, 2*m);
+            }
+            src[m] = index[s.getRow()];
+            dst[m] = index[t.getRow()];
+            ++m;
+        }
+        int[] offset = new int[n+1];
+        for ( int e = 0; e < m; ++e ) {
+            ++offset[src[e]+1];
+            ++offset[dst[e]+1];
+        }
+        for ( int i = 0; i < n; ++i )
+            offset[i+1] += offset[i];
+        int[] adj = new int[2*m];
+        int[] pos = Arrays.copyOf(offset, n);
+        for ( int e = 0; e < m; ++e ) {
+            adj[pos[src[e]]++] = dst[e];
+            adj[pos[dst[e]]++] = src[e];
+        }
+
+        int[][] dist = pivotDistances(offset, adj, n);
+        double[] x = new double[n], y = new double[n];
+        if ( dist.length >= 2 ) {
+            project(dist, n, x, y);
+            scale(offset, adj, n, x, y);
+        }
+        if ( m_stressIterations > 0 )
+            stress(offset, adj, n, dist, x, y);
+        updateNodePositions(g, items, n, x, y);
+    }
+
+    /**
+     * Selects the pivots by max-min selection, starting from the node of
+     * highest degree, and returns their distances to each visible node,
+     * found by a breadth-first search over the visible edges. Unreachable
+     * nodes are given a distance one larger than the largest distance
+     * found.
+     */
+    private int[][] pivotDistances(int[] offset, int[] adj, int n) {
+        int start = 0, maxdeg = -1;
+        for ( int i = 0; i < n; ++i ) {
+            int deg = offset[i+1] - offset[i];
+            if ( deg > maxdeg ) {
+                maxdeg = deg;
+                start = i;
+            }
+        }
+
+        int k = Math.min(m_pivots, n);
+        int[][] dist = new int[k][];
+        int[] mind = new int[n];
+        Arrays.fill(mind, Integer.MAX_VALUE);
+        int[] queue = new int[n];
+        int max = 0;
+        for ( int p = 0; p < k; ++p ) {
+            int[] d = dist[p] = new int[n];
+            Arrays.fill(d, -1);
+            d[start] = 0;
+            queue[0] = start;
+            for ( int head = 0, tail = 1; head < tail; ++head ) {
+                int u = queue[head];
+                for ( int j = offset[u]; j < offset[u+1]; ++j ) {
+                    int v = adj[j];
+                    if ( d[v] < 0 ) {
+                        d[v] = d[u] + 1;
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            int next = -1;
+            for ( int i = 0; i < n; ++i ) {
+                max = Math.max(max, d[i]);
+                // unreachable nodes are the furthest away
+                int di = d[i] < 0 ? Integer.MAX_VALUE - 1 : d[i];
+                if ( di < mind[i] )
+                    mind[i] = di;
+                if ( mind[i] > 0 && (next < 0 || mind[i] > mind[next]) )
+                    next = i;
+            }
+            if ( next < 0 ) {
+                dist = Arrays.copyOf(dist, p+1);
+                break;
+            }
+            start = next;
+        }
+        for ( int[] d : dist )
+            for ( int i = 0; i < n; ++i )
+                if ( d[i] < 0 ) d[i] = max + 1;
+        return dist;
+    }
+
+    /**
+     * Double-centers the squared pivot distances and projects the nodes on
+     * the two principal axes, found by power iteration on the k x k matrix
+     * C'C.
+     */
+    private void project(int[][] dist, int n, double[] x, double[] y) {
+        int k = dist.length;
+
+        // row, column and grand means of the squared distances
+        double[] rmean = new double[n], cmean = new double[k];
+        double mean = 0;
+        for ( int p = 0; p < k; ++p ) {
+            int[] d = dist[p];
+            for ( int i = 0; i < n; ++i ) {
+                double d2 = (double)d[i] * d[i];
+                rmean[i] += d2;
+                cmean[p] += d2;
+            }
+            mean += cmean[p];
+        }
+        for ( int i = 0; i < n; ++i )
+            rmean[i] /= k;
+        for ( int p = 0; p < k; ++p )
+            cmean[p] /= n;
+        mean /= (double)n * k;
+
+        // B = C'C, with C the double-centered matrix
+        double[] b = new double[k*k];
+        double[] c = new double[k];
+        for ( int i = 0; i < n; ++i ) {
+            for ( int p = 0; p < k; ++p ) {
+                double d = dist[p][i];
+                c[p] = -0.5 * (d*d - rmean[i] - cmean[p] + mean);
+            }
+            for ( int p = 0; p < k; ++p ) {
+                double cp = c[p];
+                for ( int q = p; q < k; ++q )
+                    b[p*k+q] += cp * c[q];
+            }
+        }
+        for ( int p = 0; p < k; ++p )
+            for ( int q = 0; q < p; ++q )
+                b[p*k+q] = b[q*k+p];
+
+        double[] v1 = new double[k], v2 = new double[k];
+        for ( int p = 0; p < k; ++p ) {
+            v1[p] = 1.0 / (p+1);
+            v2[p] = (p % 2 == 0 ? 1 : -1);
+        }
+        powerIteration(b, k, v1, null);
+        powerIteration(b, k, v2, v1);
+
+        // project: x = C v1, y = C v2
+        for ( int i = 0; i < n; ++i ) {
+            double xi = 0, yi = 0;
+            for ( int p = 0; p < k; ++p ) {
+                double d = dist[p][i];
+                double cp = -0.5 * (d*d - rmean[i] - cmean[p] + mean);
+                xi += cp * v1[p];
+                yi += cp * v2[p];
+            }
+            x[i] = xi;
+            y[i] = yi;
+        }
+    }
+
+    /**
+     * Finds the dominant eigenvector of the symmetric matrix b, orthogonal
+     * to the given vector if non-null.
+     */
+    private static void powerIteration(double[] b, int k, double[] v,
+            double[] ortho)
+    {
+        double[] w = new double[k];
+        normalize(v, ortho);
+        for ( int iter = 0; iter < 1000; ++iter ) {
+            for ( int p = 0; p < k; ++p ) {
+                double s = 0;
+                for ( int q = 0; q < k; ++q )
+                    s += b[p*k+q] * v[q];
+                w[p] = s;
+            }
+            if ( normalize(w, ortho) == 0 )
+                return;
+            double delta = 0;
+            for ( int p = 0; p < k; ++p ) {
+                delta += Math.abs(w[p] - v[p]);
+                v[p] = w[p];
+            }
+            if ( delta < 1e-9 )
+                return;
+        }
+    }
+
+    private static double normalize(double[] v, double[] ortho) {
+        int k = v.length;
+        if ( ortho != null ) {
+            double dot = 0;
+            for ( int p = 0; p < k; ++p )
+                dot += v[p] * ortho[p];
+            for ( int p = 0; p < k; ++p )
+                v[p] -= dot * ortho[p];
+        }
+        double len = 0;
+        for ( int p = 0; p < k; ++p )
+            len += v[p] * v[p];
+        len = Math.sqrt(len);
+        if ( len > 0 )
+            for ( int p = 0; p < k; ++p )
+                v[p] /= len;
+        return len;
+    }
+
+    /**
+     * Scales the layout so that adjacent nodes are on average the edge
+     * length apart.
+     */
+    private void scale(int[] offset, int[] adj, int n, double[] x,
+            double[] y)
+    {
+        double sum = 0;
+        long count = 0;
+        for ( int i = 0; i < n; ++i ) {
+            for ( int j = offset[i]; j < offset[i+1]; ++j ) {
+                int nb = adj[j];
+                sum += Math.hypot(x[i]-x[nb], y[i]-y[nb]);
+                ++count;
+            }
+        }
+        double s = sum > 0 ? m_edgeLength * count / sum : m_edgeLength;
+        for ( int i = 0; i < n; ++i ) {
+            x[i] *= s;
+            y[i] *= s;
+        }
+    }
+
+    /**
+     * Runs sparse stress majorization, with weights 1/d^2, over the terms
+     * between adjacent nodes and between each node and the pivots.
+     * Positions are updated in place, in node order.
+     */
+    private void stress(int[] offset, int[] adj, int n, int[][] dist,
+            double[] x, double[] y)
+    {
+        int[] pivot = new int[dist.length];
+        for ( int p = 0; p < dist.length; ++p ) {
+            pivot[p] = -1;
+            for ( int i = 0; i < n; ++i )
+                if ( dist[p][i] == 0 ) { pivot[p] = i; break; }
+        }
+
+        double len = m_edgeLength;
+        for ( int iter = 0; iter < m_stressIterations; ++iter ) {
+            for ( int i = 0; i < n; ++i ) {
+                double xi = x[i], yi = y[i];
+                double sx = 0, sy = 0, sw = 0;
+                for ( int j = offset[i]; j < offset[i+1]; ++j ) {
+                    int nb = adj[j];
+                    double dx = xi - x[nb], dy = yi - y[nb];
+                    double d = Math.sqrt(dx*dx + dy*dy);
+                    double r = d > 0 ? len / d : 0;
+                    sx += x[nb] + r * dx;
+                    sy += y[nb] + r * dy;
+                    sw += 1;
+                }
+                for ( int p = 0; p < pivot.length; ++p ) {
+                    int nb = pivot[p];
+                    int dp = dist[p][i];
+                    if ( nb < 0 || nb == i || dp <= 1 ) continue;
+                    double w = 1.0 / ((double)dp * dp);
+                    double dx = xi - x[nb], dy = yi - y[nb];
+                    double d = Math.sqrt(dx*dx + dy*dy);
+                    double r = d > 0 ? len * dp / d : 0;
+                    sx += w * (x[nb] + r * dx);
+                    sy += w * (y[nb] + r * dy);
+                    sw += w;
+                }
+                if ( sw > 0 ) {
+                    x[i] = sx / sw;
+                    y[i] = sy / sw;
+                }
+            }
+        }
+    }
+
+    /**
+     * Centers the layout on the layout anchor and sets the positions of
+     * all non-fixed items, along with their force items, if any.
+     */
+    private void updateNodePositions(Graph g, VisualItem[] items, int n,
+            double[] x, double[] y)
+    {
+        double cx = 0, cy = 0;
+        for ( int i = 0; i < n; ++i ) {
+            cx += x[i];
+            cy += y[i];
+        }
+        Point2D anchor = getLayoutAnchor();
+        double dx = anchor.getX() - cx / n, dy = anchor.getY() - cy / n;
+
+        boolean force = g.getNodeTable()
+                .getColumnNumber(ForceDirectedLayout.FORCEITEM) >= 0;
+        for ( int i = 0; i < n; ++i ) {
+            VisualItem item = items[i];
+            if ( item.isFixed() )
+                continue;
+            double px = x[i] + dx, py = y[i] + dy;
+            setX(item, null, px);
+            setY(item, null, py);
+            if ( force ) {
+                ForceItem fitem =
+                    (ForceItem)item.get(ForceDirectedLayout.FORCEITEM);
+                if ( fitem != null ) {
+                    fitem.location[0] = px;
+                    fitem.location[1] = py;
+                    fitem.force[0] = fitem.force[1] = 0;
+                    fitem.velocity[0] = fitem.velocity[1] = 0;
+                }
+            }
+        }
+    }
+
+} // end of class PivotMDSLayout
@@ -31,18 +31,16 @@
 package prefux.action.layout.graph;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import javafx.geometry.Rectangle2D;
 import prefux.data.Graph;
 import prefux.data.Schema;
 import prefux.data.tuple.TupleSet;
-import prefux.data.util.TreeNodeIterator;
 import prefux.visual.NodeItem;
-import prefux.visual.VisualItem;
 
 
 /**
@@ -65,6 +63,21 @@ import prefux.visual.VisualItem;
  * <a href="http://www.cs.umd.edu/hcil/treemap-history/">
  * http://www.cs.umd.edu/hcil/treemap-history/</a>.
  * </p>
+ * <p>
+ * The layout first copies the tree into primitive arrays, in breadth-first
+ * order so that the children of a node are stored contiguously. Subtrees
+ * are then laid out independently of each other: subtrees larger than the
+ * {@link #setParallelThreshold(int) parallel threshold} are processed as
+ * separate tasks on a ForkJoin pool. The computed rectangles are written
+ * back to the visual items on the calling thread once all tasks are done.
+ * </p>
+ * <p>
+ * When {@link #setIncremental(boolean) incremental} layout is enabled, the
+ * layout remembers the sizes, the tree structure and the rectangle of each
+ * node from the previous pass, and skips subtrees in which none of these
+ * changed. Skipped items are not touched at all, so their start and end
+ * values are left as set by the pass that last laid them out.
+ * </p>
  *
  * @version 1.0
  * @author <a href="http://jheer.org">jeffrey heer</a>
@@ -78,19 +91,42 @@ public class SquarifiedTreeMapLayout extends TreeLayout {
         AREA_SCHEMA.addColumn(AREA, double.class);
     }
     
-    private static Comparator s_cmp = new Comparator() {
-        public int compare(Object o1, Object o2) {
-            double s1 = ((VisualItem)o1).getDouble(AREA);
-            double s2 = ((VisualItem)o2).getDouble(AREA);
-            return ( s1>s2 ? 1 : (s1<s2 ? -1 : 0));
-        }
-    };
-    private ArrayList m_kids = new ArrayList();
-    private ArrayList m_row  = new ArrayList();
     private Rectangle2D m_r  = Rectangle2D.EMPTY;
     
     private double m_frame; // space between parents border and children
     
+    private ForkJoinPool m_pool = ForkJoinPool.commonPool();
+    private int m_threshold = 4096;
+    private boolean m_incremental = false;
+    private double m_tolerance = 0;
+    
+    // -- per pass state, indexed by breadth-first position ------------------
+    
+    private int m_count;
+    private int m_maxKids;
+    private NodeItem[] m_items = new NodeItem[0];
+    private int[] m_parent = new int[0];  // parent position
+    private int[] m_first = new int[0];   // position of first child
+    private int[] m_kids = new int[0];    // number of children
+    private int[] m_size = new int[0];    // number of nodes in the subtree
+    private double[] m_raw = new double[0];   // unscaled size values
+    private double[] m_area = new double[0];  // pixel areas
+    private double[] m_x = new double[0], m_y = new double[0];
+    private double[] m_w = new double[0], m_h = new double[0];
+    private boolean[] m_dirty = new boolean[0]; // subtree changed
+    private boolean[] m_placed = new boolean[0]; // laid out in this pass
+    
+    // -- state of the previous pass, indexed by item row -------------------
+    
+    private NodeItem m_prevRoot;
+    private double m_prevFrame = -1;
+    private double[] m_prevRaw = new double[0];
+    private int[] m_prevParent = new int[0];
+    private int[] m_prevIndex = new int[0];
+    private int[] m_prevKids = new int[0];
+    private double[] m_prevRect = new double[0];
+    private boolean[] m_prevValid = new boolean[0];
+    
     /**
      * Creates a new SquarifiedTreeMapLayout with no spacing between
      * parent areas and their enclosed children.
@@ -136,6 +172,100 @@ public class SquarifiedTreeMapLayout extends TreeLayout {
         return m_frame;
     }
     
+    /**
+     * Sets the pool on which large subtrees are laid out in parallel.
+     * @param pool the ForkJoin pool to use, or null to lay out all
+     * subtrees on the calling thread
+     */
+    public void setPool(ForkJoinPool pool) {
+        m_pool = pool;
+    }
+    
+    /**
+     * Gets the pool on which large subtrees are laid out in parallel.
+     * @return the ForkJoin pool, or null if the layout runs sequentially
+     */
+    public ForkJoinPool getPool() {
+        return m_pool;
+    }
+    
+    /**
+     * Sets the minimum number of nodes a subtree must contain to be laid
+     * out as a separate parallel task. Smaller subtrees are laid out by the
+     * task processing their parent.
+     * @param threshold the minimum subtree size of a parallel task
+     */
+    public void setParallelThreshold(int threshold) {
+        if ( threshold < 1 )
+            throw new IllegalArgumentException(
+                    "Threshold must be greater than 0.");
+        m_threshold = threshold;
+    }
+    
+    /**
+     * Gets the minimum number of nodes a subtree must contain to be laid
+     * out as a separate parallel task.
+     * @return the minimum subtree size of a parallel task
+     */
+    public int getParallelThreshold() {
+        return m_threshold;
+    }
+    
+    /**
+     * Sets whether subtrees whose sizes, structure and bounds did not change
+     * since the previous pass are skipped. This is disabled by default, as
+     * the items of skipped subtrees keep the start values of the pass that
+     * last laid them out, which animators would interpolate from again.
+     * @param incremental true to skip unchanged subtrees
+     */
+    public void setIncremental(boolean incremental) {
+        m_incremental = incremental;
+        if ( !incremental )
+            clearHistory();
+    }
+    
+    /**
+     * Indicates whether unchanged subtrees are skipped.
+     * @return true if unchanged subtrees are skipped
+     */
+    public boolean isIncremental() {
+        return m_incremental;
+    }
+    
+    /**
+     * Sets the distance, in pixels, by which the rectangle of an otherwise
+     * unchanged subtree may move before the subtree is laid out again. As
+     * a size change rescales all areas, every rectangle of the treemap moves
+     * slightly; a tolerance of a fraction of a pixel lets incremental layout
+     * re-layout only the subtrees that actually changed. The default of 0
+     * only skips subtrees whose rectangle is exactly the same.
+     * @param tolerance the tolerated rectangle change, in pixels
+     */
+    public void setTolerance(double tolerance) {
+        if ( tolerance < 0 )
+            throw new IllegalArgumentException(
+                    "Tolerance must be greater than or equal to 0.");
+        m_tolerance = tolerance;
+    }
+    
+    /**
+     * Gets the distance, in pixels, by which the rectangle of an otherwise
+     * unchanged subtree may move before the subtree is laid out again.
+     * @return the tolerated rectangle change, in pixels
+     */
+    public double getTolerance() {
+        return m_tolerance;
+    }
+    
+    /**
+     * Forgets the state of the previous pass, so that the next pass lays out
+     * the whole tree.
+     */
+    public void clearHistory() {
+        m_prevRoot = null;
+        Arrays.fill(m_prevValid, false);
+    }
+    
     /**
      * @see prefux.action.Action#run(double)
      */
@@ -145,206 +275,351 @@ public class SquarifiedTreeMapLayout extends TreeLayout {
         Rectangle2D b = getLayoutBounds();
         m_r = new Rectangle2D(b.getMinX(), b.getMinY(), b.getWidth()-1, b.getHeight()-1);
         
-        // process size values
-        computeAreas(root);
+        // ensure area data column exists
+        Graph g = (Graph)m_vis.getGroup(m_group);
+        TupleSet nodes = g.getNodes();
+        nodes.addColumns(AREA_SCHEMA);
+        
+        // copy the tree and detect changes since the previous pass
+        if ( root != m_prevRoot || m_frame != m_prevFrame )
+            clearHistory();
+        collectNodes(root);
         
         // layout root node
         setX(root, null, 0);
         setY(root, null, 0);        
         root.setBounds(0, 0, m_r.getWidth(), m_r.getHeight());
+        m_x[0] = m_r.getMinX(); m_y[0] = m_r.getMinY();
+        m_w[0] = m_r.getWidth(); m_h[0] = m_r.getHeight();
+        m_area[0] = m_w[0]*m_h[0];
 
-        // layout the tree
-        updateArea(root, m_r);
-        layout(root, m_r);
+        // layout the tree, then copy the rectangles to the items
+        if ( m_raw[0] > 0 ) {
+            LayoutTask task = new LayoutTask(0);
+            if ( m_pool != null && m_size[0] >= m_threshold )
+                m_pool.invoke(task);
+            else
+                task.compute();
+        }
+        updateItems();
+        
+        m_prevRoot = m_incremental ? root : null;
+        m_prevFrame = m_frame;
     }
     
+    // ------------------------------------------------------------------------
+    
     /**
-     * Compute the pixel areas of nodes based on their size values.
+     * Copies the tree into the per pass arrays, in breadth-first order, and
+     * computes the raw size of each node, the size of each subtree and
+     * whether a subtree changed since the previous pass.
      */
-    private void computeAreas(NodeItem root) {
-        int leafCount = 0;
+    private void collectNodes(NodeItem root) {
+        m_count = 0;
+        m_maxKids = 0;
+        ensureCapacity(16);
+        m_items[0] = root;
+        m_parent[0] = -1;
+        m_count = 1;
         
-        // ensure area data column exists
-        Graph g = (Graph)m_vis.getGroup(m_group);
-        TupleSet nodes = g.getNodes();
-        nodes.addColumns(AREA_SCHEMA);
-        
-        // reset all sizes to zero
-        Iterator iter = new TreeNodeIterator(root);
-        while ( iter.hasNext() ) {
-            NodeItem n = (NodeItem)iter.next();
-            n.setDouble(AREA, 0);
+        for ( int i=0; i<m_count; ++i ) {
+            NodeItem n = m_items[i];
+            m_first[i] = m_count;
+            int k = 0;
+            for ( NodeItem c = (NodeItem)n.getFirstChild(); c != null;
+                  c = (NodeItem)c.getNextSibling(), ++k )
+            {
+                ensureCapacity(m_count+1);
+                m_items[m_count] = c;
+                m_parent[m_count] = i;
+                ++m_count;
+            }
+            m_kids[i] = k;
+            m_maxKids = Math.max(m_maxKids, k);
         }
+        Arrays.fill(m_placed, 0, m_count, false);
         
-        // set raw sizes, compute leaf count
-        iter = new TreeNodeIterator(root, false);
-        while ( iter.hasNext() ) {
-            NodeItem n = (NodeItem)iter.next();
-            double area = 0;
-            if ( n.getChildCount() == 0 ) {
-            	area = n.getSize();
-            	++leafCount;
-            } else if ( n.isExpanded() ) {
-            	NodeItem c = (NodeItem)n.getFirstChild();
-            	for (; c!=null; c = (NodeItem)c.getNextSibling()) {
-            		area += c.getDouble(AREA);
-            		++leafCount;
-            	}
+        // set raw sizes bottom-up: children follow their parents
+        int maxRow = 0;
+        for ( int i=m_count; --i >= 0; ) {
+            NodeItem n = m_items[i];
+            double raw = 0;
+            int size = 1;
+            boolean dirty = false;
+            if ( m_kids[i] == 0 ) {
+                raw = n.getSize();
+            } else {
+                boolean expanded = n.isExpanded();
+                for ( int c=m_first[i], e=c+m_kids[i]; c<e; ++c ) {
+                    if ( expanded ) raw += m_raw[c];
+                    size += m_size[c];
+                    dirty |= m_dirty[c];
+                }
             }
-            n.setDouble(AREA, area);
-            
+            m_raw[i] = raw;
+            m_size[i] = size;
+            m_dirty[i] = dirty;
+            maxRow = Math.max(maxRow, n.getRow());
         }
         
-        // scale sizes by display area factor
-        Rectangle2D b = getLayoutBounds();
-        double area = (b.getWidth()-1)*(b.getHeight()-1);
-        double scale = area/root.getDouble(AREA);
-        iter = new TreeNodeIterator(root);
-        while ( iter.hasNext() ) {
-            NodeItem n = (NodeItem)iter.next();
-            n.setDouble(AREA, n.getDouble(AREA)*scale);
+        // compare against, then remember, the state of the previous pass
+        if ( !m_incremental ) return;
+        ensureHistory(maxRow+1);
+        for ( int i=0; i<m_count; ++i ) {
+            int row = m_items[i].getRow();
+            int p = m_parent[i];
+            int prow = p < 0 ? -1 : m_items[p].getRow();
+            int idx = p < 0 ? 0 : i - m_first[p];
+            if ( m_prevRaw[row] != m_raw[i] || m_prevParent[row] != prow
+                 || m_prevIndex[row] != idx || m_prevKids[row] != m_kids[i] )
+            {
+                // mark the path up to the root as changed
+                for ( int a=i; a >= 0 && !m_dirty[a]; a=m_parent[a] )
+                    m_dirty[a] = true;
+                m_prevRaw[row] = m_raw[i];
+                m_prevParent[row] = prow;
+                m_prevIndex[row] = idx;
+                m_prevKids[row] = m_kids[i];
+            }
         }
     }
     
+    private void ensureCapacity(int n) {
+        if ( n <= m_items.length ) return;
+        int len = Math.max(n, 2*m_items.length);
+        m_items  = Arrays.copyOf(m_items, len);
+        m_parent = Arrays.copyOf(m_parent, len);
+        m_first  = Arrays.copyOf(m_first, len);
+        m_kids   = Arrays.copyOf(m_kids, len);
+        m_size   = Arrays.copyOf(m_size, len);
+        m_raw    = Arrays.copyOf(m_raw, len);
+        m_area   = Arrays.copyOf(m_area, len);
+        m_x      = Arrays.copyOf(m_x, len);
+        m_y      = Arrays.copyOf(m_y, len);
+        m_w      = Arrays.copyOf(m_w, len);
+        m_h      = Arrays.copyOf(m_h, len);
+        m_dirty  = Arrays.copyOf(m_dirty, len);
+        m_placed = Arrays.copyOf(m_placed, len);
+    }
+    
+    private void ensureHistory(int n) {
+        if ( n <= m_prevRaw.length ) return;
+        int old = m_prevRaw.length;
+        int len = Math.max(n, 2*old);
+        m_prevRaw    = Arrays.copyOf(m_prevRaw, len);
+        m_prevParent = Arrays.copyOf(m_prevParent, len);
+        m_prevIndex  = Arrays.copyOf(m_prevIndex, len);
+        m_prevKids   = Arrays.copyOf(m_prevKids, len);
+        m_prevRect   = Arrays.copyOf(m_prevRect, 4*len);
+        m_prevValid  = Arrays.copyOf(m_prevValid, len);
+        Arrays.fill(m_prevRaw, old, len, Double.NaN);
+        Arrays.fill(m_prevParent, old, len, -2);
+    }
+    
     /**
-     * Compute the tree map layout.
+     * Copies the computed rectangles of all nodes laid out in this pass
+     * to their visual items.
      */
-    private void layout(NodeItem p, Rectangle2D r) {
-        // create sorted list of children
-        Iterator childIter = p.children();
-        while ( childIter.hasNext() )
-            m_kids.add(childIter.next());
-        Collections.sort(m_kids, s_cmp);
-        
-        // do squarified layout of siblings
-        double w = Math.min(r.getWidth(),r.getHeight());
-        squarify(m_kids, m_row, w, r); 
-        m_kids.clear(); // clear m_kids
-        
-        // recurse
-        childIter = p.children();
-        while ( childIter.hasNext() ) {
-            NodeItem c = (NodeItem)childIter.next();
-            if ( c.getChildCount() > 0 && c.getDouble(AREA) > 0 ) {
-                updateArea(c,r);
-                layout(c, r);
-            }
+    private void updateItems() {
+        for ( int i=1; i<m_count; ++i ) {
+            if ( !m_placed[i] ) continue;
+            NodeItem n = m_items[i];
+            NodeItem p = m_items[m_parent[i]];
+            setX(n, p, m_x[i]);
+            setY(n, p, m_y[i]);
+            setNodeDimensions(n, m_w[i], m_h[i]);
+            n.setDouble(AREA, m_area[i]);
         }
+        m_items[0].setDouble(AREA, m_area[0]);
+        Arrays.fill(m_items, 0, m_count, null);
     }
     
-    private void updateArea(NodeItem n, Rectangle2D r) {
-        Rectangle2D b = n.getBounds();
-        if ( m_frame == 0.0 ) {
-            // if no framing, simply update bounding rectangle
-            r= b;
-            return;
-        }
-        
-        // compute area loss due to frame
-        double dA = 2*m_frame*(b.getWidth()+b.getHeight()-2*m_frame);
-        double A = n.getDouble(AREA) - dA;
-        
-        // compute renormalization factor
-        double s = 0;
-        Iterator childIter = n.children();
-        while ( childIter.hasNext() )
-            s += ((NodeItem)childIter.next()).getDouble(AREA);
-        double t = A/s;
+    // ------------------------------------------------------------------------
+    
+    /**
+     * Lays out a subtree, forking tasks for large child subtrees.
+     */
+    private class LayoutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int m_node;
+        private int[] m_sort;
+        private int[] m_tmp;
         
-        // re-normalize children areas
-        childIter = n.children();
-        while ( childIter.hasNext() ) {
-            NodeItem c = (NodeItem)childIter.next();
-            c.setDouble(AREA, c.getDouble(AREA)*t);
+        LayoutTask(int node) {
+            m_node = node;
         }
         
-        // set bounding rectangle and return
-        r = new Rectangle2D(b.getMinX()+m_frame,       b.getMinY()+m_frame, 
-                  b.getWidth()-2*m_frame, b.getHeight()-2*m_frame);
-        return;
-    }
-    
-    private void squarify(List c, List row, double w, Rectangle2D r) {
-        double worst = Double.MAX_VALUE, nworst;
-        int len;
+        protected void compute() {
+            m_sort = new int[m_maxKids];
+            m_tmp  = new int[m_maxKids];
+            List<LayoutTask> forks = null;
+            forks = layout(m_node, forks);
+            if ( forks != null )
+                invokeAll(forks);
+        }
         
-        while ( (len=c.size()) > 0 ) {
-            // add item to the row list, ignore if negative area
-            VisualItem item = (VisualItem) c.get(len-1);
-            double a = item.getDouble(AREA);
-            if (a <= 0.0) {
-                c.remove(len-1);
-                continue;
+        /**
+         * Compute the tree map layout of the children of node p, then
+         * recurse into the children with children of their own. Large child
+         * subtrees are added to the list of tasks to fork.
+         */
+        private List<LayoutTask> layout(int p, List<LayoutTask> forks) {
+            // compute the rectangle available to the children
+            double x = m_x[p], y = m_y[p], w = m_w[p], h = m_h[p];
+            if ( m_frame > 0 ) {
+                x += m_frame; y += m_frame;
+                w -= 2*m_frame; h -= 2*m_frame;
             }
-            row.add(item);
+            if ( m_incremental && skip(p, x, y, w, h) )
+                return forks;
             
-            nworst = worst(row, w);
-            if ( nworst <= worst ) {
-                c.remove(len-1);
-                worst = nworst;
-            } else {
-                row.remove(row.size()-1); // remove the latest addition
-                r = layoutRow(row, w, r); // layout the current row
-                w = Math.min(r.getWidth(),r.getHeight()); // recompute w
-                row.clear(); // clear the row
-                worst = Double.MAX_VALUE;
+            // scale the children to the available area
+            int first = m_first[p], len = m_kids[p];
+            double s = 0;
+            for ( int c=first; c<first+len; ++c )
+                s += m_raw[c];
+            double t = s > 0 ? w*h/s : 0;
+            for ( int c=first; c<first+len; ++c )
+                m_area[c] = m_raw[c]*t;
+            
+            // do squarified layout of siblings, sorted by area
+            for ( int k=0; k<len; ++k )
+                m_sort[k] = first+k;
+            sort(m_sort, m_tmp, 0, len);
+            squarify(len, x, y, w, h);
+            
+            // recurse
+            for ( int c=first; c<first+len; ++c ) {
+                if ( m_kids[c] == 0 || !(m_area[c] > 0) || !m_placed[c] )
+                    continue;
+                if ( m_pool != null && m_size[c] >= m_threshold ) {
+                    if ( forks == null ) forks = new ArrayList<LayoutTask>();
+                    forks.add(new LayoutTask(c));
+                } else {
+                    forks = layout(c, forks);
+                }
+            }
+            return forks;
+        }
+        
+        /**
+         * Lays out the sorted children, largest first, in rows that keep
+         * the aspect ratios of the row items low.
+         */
+        private void squarify(int len, double x, double y, double w, double h) {
+            double worst = Double.MAX_VALUE, nworst;
+            double side = Math.min(w, h);
+            double s = 0, rmax = 0, rmin = 0;
+            int end = len, start = len; // row is m_sort[start, end)
+            
+            while ( start > 0 ) {
+                // add item to the row, stop at the first item without area,
+                // as all remaining items are smaller
+                double a = m_area[m_sort[start-1]];
+                if ( !(a > 0.0) )
+                    break;
+                double ns = s + a;
+                double nmax = start == end ? a : Math.max(rmax, a);
+                double nmin = start == end ? a : Math.min(rmin, a);
+                nworst = worst(ns, nmax, nmin, side);
+                if ( nworst <= worst ) {
+                    --start;
+                    s = ns; rmax = nmax; rmin = nmin;
+                    worst = nworst;
+                } else {
+                    // layout the current row, then update the free space
+                    double rh = side==0 ? 0 : s/side;
+                    layoutRow(start, end, rh, side == w, x, y);
+                    if ( side == w ) { y += rh; h -= rh; }
+                    else             { x += rh; w -= rh; }
+                    side = Math.min(w, h);
+                    end = start;
+                    s = 0;
+                    worst = Double.MAX_VALUE;
+                }
+            }
+            if ( start < end ) {
+                double rh = side==0 ? 0 : s/side;
+                layoutRow(start, end, rh, side == w, x, y);
             }
         }
-        if ( row.size() > 0 ) {
-            r = layoutRow(row, w, r); // layout the current row
-            row.clear(); // clear the row
+        
+        private double worst(double s, double rmax, double rmin, double w) {
+            s = s*s; w = w*w;
+            return Math.max(w*rmax/s, s/(w*rmin));
+        }
+        
+        /**
+         * Sets the rectangles of a row of items, in the order they were
+         * added to the row.
+         */
+        private void layoutRow(int start, int end, double h, boolean horiz,
+                               double x, double y)
+        {
+            double d = 0;
+            for ( int k=end; --k >= start; ) {
+                int n = m_sort[k];
+                double nw = m_area[n]/h;
+                if ( horiz ) {
+                    m_x[n] = x+d; m_y[n] = y;
+                    m_w[n] = nw;  m_h[n] = h;
+                } else {
+                    m_x[n] = x;   m_y[n] = y+d;
+                    m_w[n] = h;   m_h[n] = nw;
+                }
+                m_placed[n] = true;
+                d += nw;
+            }
         }
     }
-
-    private double worst(List rlist, double w) {
-        double rmax = Double.MIN_VALUE, rmin = Double.MAX_VALUE, s = 0.0;
-        Iterator iter = rlist.iterator();
-        while ( iter.hasNext() ) {
-            double r = ((VisualItem)iter.next()).getDouble(AREA);
-            rmin = Math.min(rmin, r);
-            rmax = Math.max(rmax, r);
-            s += r;
+    
+    /**
+     * Indicates whether the children of node p can keep the layout of the
+     * previous pass, and remembers the rectangle available to them.
+     */
+    private boolean skip(int p, double x, double y, double w, double h) {
+        int row = m_items[p].getRow();
+        int r = 4*row;
+        double[] rect = m_prevRect;
+        double tol = m_tolerance;
+        boolean same = m_prevValid[row] && !m_dirty[p]
+            && Math.abs(rect[r]-x) <= tol && Math.abs(rect[r+1]-y) <= tol
+            && Math.abs(rect[r+2]-w) <= tol && Math.abs(rect[r+3]-h) <= tol;
+        if ( !same ) {
+            rect[r] = x; rect[r+1] = y; rect[r+2] = w; rect[r+3] = h;
+            m_prevValid[row] = true;
         }
-        s = s*s; w = w*w;
-        return Math.max(w*rmax/s, s/(w*rmin));
+        return same;
     }
     
-    private Rectangle2D layoutRow(List row, double w, Rectangle2D r) {        
-        double s = 0; // sum of row areas
-        Iterator rowIter = row.iterator();
-        while ( rowIter.hasNext() )
-            s += ((VisualItem)rowIter.next()).getDouble(AREA);
-        double x = r.getMinX(), y = r.getMinY(), d = 0;
-        double h = w==0 ? 0 : s/w;
-        boolean horiz = (w == r.getWidth());
-        
-        // set node positions and dimensions
-        rowIter = row.iterator();
-        while ( rowIter.hasNext() ) {
-            NodeItem n = (NodeItem)rowIter.next();
-            NodeItem p = (NodeItem)n.getParent();
-            if ( horiz ) {
-                setX(n, p, x+d);
-                setY(n, p, y);
-            } else {
-                setX(n, p, x);
-                setY(n, p, y+d);
-            }
-            double nw = n.getDouble(AREA)/h;
-            if ( horiz ) {
-                setNodeDimensions(n,nw,h);
-                d += nw;
-            } else {
-                setNodeDimensions(n,h,nw);
-                d += nw;
+    /**
+     * Stable merge sort of node positions by ascending area.
+     */
+    private void sort(int[] a, int[] tmp, int lo, int hi) {
+        if ( hi-lo < 8 ) {
+            for ( int i=lo+1; i<hi; ++i ) {
+                int v = a[i];
+                double av = m_area[v];
+                int j = i-1;
+                for ( ; j >= lo && m_area[a[j]] > av; --j )
+                    a[j+1] = a[j];
+                a[j+1] = v;
             }
+            return;
+        }
+        int mid = (lo+hi) >>> 1;
+        sort(a, tmp, lo, mid);
+        sort(a, tmp, mid, hi);
+        if ( m_area[a[mid-1]] <= m_area[a[mid]] )
+            return;
+        System.arraycopy(a, lo, tmp, lo, hi-lo);
+        for ( int i=lo, j=mid, k=lo; k<hi; ++k ) {
+            if ( j >= hi || (i < mid && m_area[tmp[i]] <= m_area[tmp[j]]) )
+                a[k] = tmp[i++];
+            else
+                a[k] = tmp[j++];
         }
-        // update space available in rectangle r
-        if ( horiz )
-            r = new Rectangle2D(x,y+h,r.getWidth(),r.getHeight()-h);
-        else
-            r = new Rectangle2D(x+h,y,r.getWidth()-h,r.getHeight());
-        return r;
     }
     
     private void setNodeDimensions(NodeItem n, double w, double h) {
@@ -46,7 +46,16 @@ public abstract class Activity {
     public static final long INFINITY = -1L; // specifies infinite duration
     public static final long DEFAULT_STEP_TIME = 15L;
     
+    /** Priority of activities that may be deferred when a frame runs
+     *  over budget. */
+    public static final int LOW_PRIORITY = 0;
+    /** Default activity priority. */
+    public static final int NORMAL_PRIORITY = 5;
+    /** Priority of activities that run before all others in a frame. */
+    public static final int HIGH_PRIORITY = 10;
+    
     private boolean m_enabled = true;
+    private int m_priority = NORMAL_PRIORITY;
     private Pacer m_pacer;
     
     private long m_startTime = -1L;
@@ -179,8 +188,7 @@ public abstract class Activity {
                 fireActivityStarted();
             }
             if ( m_enabled ) {               
-                run(elapsedTime);
-                fireActivityStepped();
+                step(elapsedTime);
             }
             setRunning(false);
             
@@ -192,8 +200,7 @@ public abstract class Activity {
             if ( !setRunning(true) )
                 fireActivityStarted();
             if ( m_enabled ) {
-                run(elapsedTime);
-                fireActivityStepped();
+                step(elapsedTime);
             }
             m_nextTime = currentTime + m_stepTime;
         }
@@ -201,6 +208,24 @@ public abstract class Activity {
         return (m_nextTime-currentTime);
     }
     
+    /**
+     * Runs a single step and notifies listeners. If the ActivityMonitor is
+     * enabled, the run time and allocations of the step are recorded.
+     * @param elapsedTime the time elapsed since the start of the activity.
+     */
+    private void step(long elapsedTime) {
+        ActivityMonitor monitor = ActivityMonitor.getInstance();
+        if ( monitor.isEnabled() ) {
+            long start = System.nanoTime();
+            long bytes = monitor.allocatedBytes();
+            run(elapsedTime);
+            monitor.record(this, start, bytes);
+        } else {
+            run(elapsedTime);
+        }
+        fireActivityStepped();
+    }
+    
     /**
      * Cancels this activity, if scheduled. This will stop a
      * running activity, and will remove the activity from
@@ -461,4 +486,26 @@ public abstract class Activity {
         m_enabled = s;
     }
     
+    /**
+     * Returns the scheduling priority of this activity.
+     * @return the priority, {@link #NORMAL_PRIORITY} by default
+     */
+    public int getPriority() {
+        return m_priority;
+    }
+    
+    /**
+     * Sets the scheduling priority of this activity. When the
+     * ActivityManager is driven by a {@link FrameDriver}, activities run in
+     * order of decreasing priority within each frame, and activities with a
+     * priority below {@link #NORMAL_PRIORITY} are deferred to the next frame
+     * once the frame budget is used up. The priority has no effect when the
+     * ActivityManager runs on its own thread.
+     * @param priority the new priority of this activity
+     * @see ActivityManager#setFrameBudget(long)
+     */
+    public void setPriority(int priority) {
+        m_priority = priority;
+    }
+    
 } // end of class Activity
@@ -31,6 +31,7 @@
 package prefux.activity;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 
 import prefux.util.PrefuseConfig;
 
@@ -60,6 +61,14 @@ import prefux.util.PrefuseConfig;
  * instance, also provides a useful level of indirection, allowing actions
  * to be changed dynamically without changes to code in other locations.
  * </p>
+ * 
+ * <p>Alternatively, the ActivityManager can be driven by a
+ * {@link FrameDriver}, such as an {@link FxFrameDriver} that ticks on every
+ * JavaFX pulse. In this mode the manager thread stays idle, and on each
+ * frame every due activity runs exactly once, in order of decreasing
+ * {@link Activity#getPriority() priority}. Once the work of a frame exceeds
+ * the {@link #setFrameBudget(long) frame budget}, the remaining low priority
+ * activities are deferred to the next frame.</p>
  *
  * @author <a href="http://jheer.org">jeffrey heer</a>
  * @see Activity
@@ -69,11 +78,18 @@ public class ActivityManager extends Thread {
     
     private static ActivityManager s_instance;
     
+    private static final Comparator<Activity> PRIORITY_ORDER =
+        (a, b) -> Integer.compare(b.getPriority(), a.getPriority());
+    
     private ArrayList<Activity> m_activities;
     private ArrayList<Activity> m_tmp;
+    private ArrayList<Activity> m_frame;
     private long      m_nextTime;
     private boolean   m_run;
     
+    private FrameDriver m_driver;
+    private volatile long m_frameBudget;
+    
     /**
      * Returns the active ActivityManager instance.
      * @return the ActivityManager
@@ -92,7 +108,9 @@ public class ActivityManager extends Thread {
         super("prefuse_ActivityManager");
         m_activities = new ArrayList<>();
         m_tmp = new ArrayList<>();
+        m_frame = new ArrayList<>();
         m_nextTime = Long.MAX_VALUE;
+        m_frameBudget = PrefuseConfig.getLong("activity.frameBudget");
         
         int priority = PrefuseConfig.getInt("activity.threadPriority");
         if ( priority >= Thread.MIN_PRIORITY && 
@@ -198,6 +216,55 @@ public class ActivityManager extends Thread {
         return getInstance()._activityCount();
     }
     
+    /**
+     * Sets the driver that runs scheduled activities once per frame. While
+     * a driver is installed, the activity manager thread does not run any
+     * activities. Passing null uninstalls the current driver and returns to
+     * thread based scheduling.
+     * @param driver the frame driver to use, or null for none
+     */
+    public static void setFrameDriver(FrameDriver driver) {
+        getInstance()._setFrameDriver(driver);
+    }
+    
+    /**
+     * Returns the currently installed frame driver.
+     * @return the frame driver, or null if activities are run by the
+     *  activity manager thread
+     */
+    public static FrameDriver getFrameDriver() {
+        return getInstance()._getFrameDriver();
+    }
+    
+    /**
+     * Sets the time budget of a single frame when a {@link FrameDriver} is
+     * installed. Activities with a priority below
+     * {@link Activity#NORMAL_PRIORITY} that are due after the budget has been
+     * used up are deferred to the next frame.
+     * @param budget the frame budget in milliseconds
+     */
+    public static void setFrameBudget(long budget) {
+        getInstance().m_frameBudget = budget;
+    }
+    
+    /**
+     * Returns the time budget of a single frame.
+     * @return the frame budget in milliseconds
+     */
+    public static long getFrameBudget() {
+        return getInstance().m_frameBudget;
+    }
+    
+    /**
+     * Runs all due activities once, called by a {@link FrameDriver} on
+     * each frame. Does nothing if the driver is not installed.
+     * @param driver the frame driver issuing the call
+     * @param currentTime the time of the frame
+     */
+    static void runFrame(FrameDriver driver, long currentTime) {
+        getInstance()._runFrame(driver, currentTime);
+    }
+    
     /**
      * Stops the activity manager thread. All scheduled actvities are
      * canceled, and then the thread is then notified to stop running.
@@ -207,10 +274,75 @@ public class ActivityManager extends Thread {
             Activity a = (Activity)m_activities.get(m_activities.size()-1);
             a.cancel();
         }
+        _setFrameDriver(null);
         _setRunning(false);
         notify();
     }
     
+    /**
+     * Installs a frame driver, stopping the previous one.
+     * @param driver the frame driver to use, or null for none
+     */
+    private void _setFrameDriver(FrameDriver driver) {
+        FrameDriver old;
+        synchronized ( this ) {
+            old = m_driver;
+            if ( old == driver ) return;
+            m_driver = driver;
+            // wake up the thread, so that it either idles or resumes work
+            notify();
+        }
+        if ( old != null )
+            old.stop();
+        if ( driver != null )
+            driver.start();
+    }
+    
+    /**
+     * Returns the currently installed frame driver.
+     */
+    private synchronized FrameDriver _getFrameDriver() {
+        return m_driver;
+    }
+    
+    /**
+     * Runs all due activities once, in order of decreasing priority. When
+     * the frame budget is exceeded, low priority activities are left
+     * scheduled without running, so that they run on a later frame.
+     * @param driver the frame driver issuing the call
+     * @param currentTime the time of the frame
+     */
+    private void _runFrame(FrameDriver driver, long currentTime) {
+        synchronized ( this ) {
+            if ( driver != m_driver || m_activities.isEmpty() ) return;
+            m_frame.addAll(m_activities);
+        }
+        m_frame.sort(PRIORITY_ORDER);
+        
+        ActivityMonitor monitor = ActivityMonitor.getInstance();
+        if ( monitor.isEnabled() )
+            monitor.queued(m_frame.size());
+        
+        long start = System.nanoTime();
+        long budget = m_frameBudget * 1000000L;
+        try {
+            for ( int i=0; i<m_frame.size(); i++ ) {
+                Activity a = m_frame.get(i);
+                if ( a.getPriority() < Activity.NORMAL_PRIORITY
+                     && System.nanoTime() - start > budget )
+                {
+                    continue; // over budget, defer to the next frame
+                }
+                // remove activities that won't be run again
+                if ( currentTime >= a.getStopTime() && !_removeActivity(a) )
+                    continue; // cancelled in the meantime
+                a.runActivity(currentTime);
+            }
+        } finally {
+            m_frame.clear();
+        }
+    }
+    
     /**
      * Schedules an Activity with the manager.
      * @param a the Activity to schedule
@@ -364,6 +496,13 @@ public class ActivityManager extends Thread {
     public void run() {
         _setRunning(true);
         while ( _keepRunning() ) {
+            synchronized (this) {
+                if ( m_driver != null ) {
+                    // activities are run by the frame driver
+                    try { wait(); } catch (InterruptedException e) { }
+                    continue;
+                }
+            }
             if ( _activityCount() > 0 ) {
                 long currentTime = System.currentTimeMillis();
                 long t = -1;
@@ -388,6 +527,10 @@ public class ActivityManager extends Thread {
                     }
                 }
                 
+                ActivityMonitor monitor = ActivityMonitor.getInstance();
+                if ( monitor.isEnabled() )
+                    monitor.queued(m_tmp.size());
+                
                 for ( int i=0; i<m_tmp.size(); i++ ) {
                     // run the activity - the activity will check for
                     // itself if it should perform any action or not
@@ -183,6 +183,8 @@ public class ActivityMap {
      * @return the Activity previously mapped to by the key, or null if none
      */
     public Activity put(String key, Activity activity) {
+        if ( activity != null )
+            ActivityMonitor.getInstance().setName(activity, key);
         return (Activity)m_map.put(key, activity);
     }
     
@@ -0,0 +1,402 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.activity;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import prefux.util.PrefuseConfig;
+import prefux.util.collections.CopyOnWriteArrayList;
+
+
+/**
+ * <p>Records the run time, allocated bytes and lateness of activity steps,
+ * to find the actions that exceed the frame budget. Steps of scheduled
+ * activities are recorded, as are the steps of each action within an
+ * {@link prefux.action.ActionList}. A step is late if it runs longer than
+ * the step time of its activity.</p>
+ * 
+ * <p>Monitoring is disabled by default, in which case each step costs a
+ * single volatile read. It can be enabled in code or with the
+ * <code>activity.monitor</code> configuration setting. The first time it
+ * is enabled, the monitor registers itself with the platform MBean server
+ * under {@link #OBJECT_NAME}, so it can then be controlled through JMX.
+ * Call {@link #registerMBean()} to expose it before it is enabled.
+ * Per-step allocation is measured with
+ * the thread allocation counters of the HotSpot ThreadMXBean, where
+ * supported. The ThreadMXBean is only looked up once monitoring is
+ * enabled.</p>
+ * 
+ * <p>Activities are reported by the name they are registered under in an
+ * {@link ActivityMap}, such as the action names of a
+ * {@link prefux.Visualization}, or by their class name otherwise. Names
+ * are only recorded while monitoring is enabled, so enable it before the
+ * activities are registered, for example with the
+ * <code>activity.monitor</code> setting, to have them reported by
+ * name.</p>
+ *
+ * @see StepStatistics
+ * @see StepListener
+ */
+public class ActivityMonitor implements ActivityMonitorMBean {
+
+    /** The name under which the monitor is registered as an MBean. */
+    public static final String OBJECT_NAME = "prefux:type=ActivityMonitor";
+    
+    private static final Logger s_logger = 
+        Logger.getLogger(ActivityMonitor.class.getName());
+    
+    private static final ActivityMonitor s_instance = new ActivityMonitor();
+    
+    private volatile boolean m_enabled;
+    private boolean m_registered;
+    private boolean m_tracking;
+    private volatile com.sun.management.ThreadMXBean m_threads;
+    
+    private final Map<Activity,StepStatistics> m_stats = new WeakHashMap<>();
+    private final Map<Activity,String> m_names = new WeakHashMap<>();
+    private final CopyOnWriteArrayList m_listeners = new CopyOnWriteArrayList();
+    private long m_steps;
+    private long m_late;
+    private volatile int m_depth;
+    private volatile int m_maxDepth;
+    
+    /**
+     * Returns the ActivityMonitor instance.
+     * @return the ActivityMonitor
+     */
+    public static ActivityMonitor getInstance() {
+        return s_instance;
+    }
+    
+    /**
+     * Create a new ActivityMonitor.
+     */
+    private ActivityMonitor() {
+        setEnabled(PrefuseConfig.getBoolean("activity.monitor"));
+    }
+    
+    // ------------------------------------------------------------------------
+    // Configuration
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#isEnabled()
+     */
+    public boolean isEnabled() {
+        return m_enabled;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#setEnabled(boolean)
+     */
+    public void setEnabled(boolean enabled) {
+        if ( enabled )
+            trackAllocations();
+        m_enabled = enabled;
+        if ( enabled && !m_registered )
+            registerMBean();
+    }
+    
+    /**
+     * Turns on the allocation counters of the ThreadMXBean, the first time
+     * the monitor is enabled.
+     */
+    private synchronized void trackAllocations() {
+        if ( m_tracking )
+            return;
+        m_tracking = true;
+        try {
+            java.lang.management.ThreadMXBean tmx =
+                ManagementFactory.getThreadMXBean();
+            if ( tmx instanceof com.sun.management.ThreadMXBean ) {
+                com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean)tmx;
+                if ( threads.isThreadAllocatedMemorySupported() ) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    m_threads = threads;
+                }
+            }
+        } catch ( Throwable t ) {
+            // not a HotSpot JVM, allocations are not tracked
+        }
+    }
+    
+    /**
+     * Sets the name under which an Activity is reported. Called by
+     * {@link ActivityMap#put(String, Activity)}. The name is only recorded
+     * while the monitor is enabled.
+     * @param a the Activity
+     * @param name the name of the Activity
+     */
+    public void setName(Activity a, String name) {
+        if ( !m_enabled )
+            return;
+        synchronized ( m_stats ) {
+            m_names.put(a, name);
+            StepStatistics stats = m_stats.get(a);
+            if ( stats != null )
+                stats.setName(name);
+        }
+    }
+    
+    /**
+     * Registers this monitor with the platform MBean server, under the name
+     * {@link #OBJECT_NAME}. This is done automatically the first time the
+     * monitor is enabled.
+     * @return true if the monitor is registered, false if registration
+     * failed
+     */
+    public synchronized boolean registerMBean() {
+        m_registered = true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if ( !server.isRegistered(name) )
+                server.registerMBean(this, name);
+            return true;
+        } catch ( JMException e ) {
+            s_logger.warning("Could not register ActivityMonitor MBean: "
+                    + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Removes this monitor from the platform MBean server. It is not
+     * registered again when it is enabled later on.
+     */
+    public synchronized void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if ( server.isRegistered(name) )
+                server.unregisterMBean(name);
+        } catch ( JMException e ) {
+            s_logger.warning("Could not unregister ActivityMonitor MBean: "
+                    + e.getMessage());
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Step Listeners
+    
+    /**
+     * Add a StepListener to be notified of recorded steps.
+     * @param l the StepListener to add
+     */
+    public void addStepListener(StepListener l) {
+        if ( !m_listeners.contains(l) )
+            m_listeners.add(l);
+    }
+    
+    /**
+     * Remove a registered StepListener.
+     * @param l the StepListener to remove
+     */
+    public void removeStepListener(StepListener l) {
+        m_listeners.remove(l);
+    }
+    
+    // ------------------------------------------------------------------------
+    // Recording
+    
+    /**
+     * Returns the number of bytes allocated so far by the current thread.
+     * @return the allocated bytes, or -1 if allocations are not tracked
+     */
+    public long allocatedBytes() {
+        return m_threads == null ? -1 :
+            m_threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    /**
+     * Records a step of an Activity. Steps of scheduled activities are
+     * recorded automatically; composite actions use this method to record
+     * the actions they run.
+     * @param a the stepped Activity
+     * @param start the value of System.nanoTime() before the step
+     * @param bytes the value of {@link #allocatedBytes()} before the step
+     */
+    public void record(Activity a, long start, long bytes) {
+        long nanos = System.nanoTime() - start;
+        long alloc = bytes < 0 ? -1 : allocatedBytes() - bytes;
+        long step = a.getStepTime();
+        boolean late = step > 0 && nanos > step * 1000000L;
+        
+        StepStatistics stats;
+        synchronized ( m_stats ) {
+            stats = m_stats.get(a);
+            if ( stats == null ) {
+                stats = new StepStatistics(getName(a));
+                m_stats.put(a, stats);
+            }
+            ++m_steps;
+            if ( late ) ++m_late;
+        }
+        stats.record(nanos, alloc, late);
+        
+        Object[] l = m_listeners.getArray();
+        for ( int i=0; i<l.length; ++i ) {
+            ((StepListener)l[i]).activityStepped(a, stats, nanos, alloc, late);
+        }
+    }
+    
+    /**
+     * Records the number of activities scheduled in a cycle of the
+     * ActivityManager.
+     * @param depth the number of scheduled activities
+     */
+    void queued(int depth) {
+        m_depth = depth;
+        if ( depth > m_maxDepth )
+            m_maxDepth = depth;
+    }
+    
+    private String getName(Activity a) {
+        String name = m_names.get(a);
+        if ( name == null ) {
+            Class<?> type = a.getClass();
+            name = type.getSimpleName().length() > 0 ?
+                    type.getSimpleName() : type.getName();
+            name += "@" + Integer.toHexString(System.identityHashCode(a));
+        }
+        return name;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Statistics
+    
+    /**
+     * Returns the statistics recorded for an Activity.
+     * @param a the Activity
+     * @return the step statistics, or null if no step of the Activity was
+     * recorded
+     */
+    public StepStatistics getStatistics(Activity a) {
+        synchronized ( m_stats ) {
+            return m_stats.get(a);
+        }
+    }
+    
+    /**
+     * Returns the statistics of all monitored activities, ordered by
+     * decreasing total run time.
+     * @return a list of step statistics
+     */
+    public List<StepStatistics> getStatistics() {
+        List<StepStatistics> list;
+        synchronized ( m_stats ) {
+            list = new ArrayList<>(m_stats.values());
+        }
+        Collections.sort(list, new Comparator<StepStatistics>() {
+            public int compare(StepStatistics a, StepStatistics b) {
+                return Double.compare(b.getTotalTime(), a.getTotalTime());
+            }
+        });
+        return list;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#getStepCount()
+     */
+    public long getStepCount() {
+        synchronized ( m_stats ) {
+            return m_steps;
+        }
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#getLateStepCount()
+     */
+    public long getLateStepCount() {
+        synchronized ( m_stats ) {
+            return m_late;
+        }
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#getQueueDepth()
+     */
+    public int getQueueDepth() {
+        return m_depth;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#getMaxQueueDepth()
+     */
+    public int getMaxQueueDepth() {
+        return m_maxDepth;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#getActivities()
+     */
+    public String[] getActivities() {
+        List<StepStatistics> list = getStatistics();
+        String[] s = new String[list.size()];
+        for ( int i=0; i<s.length; ++i )
+            s[i] = list.get(i).toString();
+        return s;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#percentile(java.lang.String, double)
+     */
+    public double percentile(String activity, double p) {
+        for ( StepStatistics stats : getStatistics() ) {
+            if ( stats.getName().equals(activity) )
+                return stats.getPercentile(p);
+        }
+        return -1;
+    }
+    
+    /**
+     * @see prefux.activity.ActivityMonitorMBean#reset()
+     */
+    public void reset() {
+        synchronized ( m_stats ) {
+            m_stats.clear();
+            m_steps = m_late = 0;
+        }
+        m_depth = m_maxDepth = 0;
+    }
+    
+} // end of class ActivityMonitor
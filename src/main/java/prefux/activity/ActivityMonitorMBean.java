@@ -0,0 +1,100 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.activity;
+
+/**
+ * Management interface of the {@link ActivityMonitor}, registered with the
+ * platform MBean server when the monitor is first enabled, or earlier by
+ * {@link ActivityMonitor#registerMBean()}.
+ */
+public interface ActivityMonitorMBean {
+
+    /**
+     * Indicates if activity steps are being recorded.
+     * @return true if monitoring is enabled
+     */
+    public boolean isEnabled();
+    
+    /**
+     * Enables or disables the recording of activity steps.
+     * @param enabled true to enable monitoring
+     */
+    public void setEnabled(boolean enabled);
+    
+    /**
+     * Returns the number of steps recorded for all activities.
+     * @return the total step count
+     */
+    public long getStepCount();
+    
+    /**
+     * Returns the number of recorded steps that exceeded the step time of
+     * their activity.
+     * @return the total late step count
+     */
+    public long getLateStepCount();
+    
+    /**
+     * Returns the number of activities scheduled with the ActivityManager
+     * in its last cycle.
+     * @return the current queue depth
+     */
+    public int getQueueDepth();
+    
+    /**
+     * Returns the largest number of activities scheduled with the
+     * ActivityManager in a single cycle.
+     * @return the maximum queue depth
+     */
+    public int getMaxQueueDepth();
+    
+    /**
+     * Returns a summary line for each monitored activity, ordered by
+     * decreasing total run time.
+     * @return the activity summaries
+     */
+    public String[] getActivities();
+    
+    /**
+     * Returns a percentile of the step times of the named activity.
+     * @param activity the activity name, as reported by getActivities()
+     * @param p the percentile, between 0 and 100
+     * @return the step time in milliseconds, or -1 if no such activity
+     * was recorded
+     */
+    public double percentile(String activity, double p);
+    
+    /**
+     * Clears all recorded statistics.
+     */
+    public void reset();
+    
+} // end of interface ActivityMonitorMBean
@@ -0,0 +1,73 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.activity;
+
+/**
+ * <p>Source of frames that drives the {@link ActivityManager} instead of
+ * its own thread. Once installed with
+ * {@link ActivityManager#setFrameDriver(FrameDriver)}, the driver is
+ * started, and every call to {@link #tick(long)} runs all due activities
+ * exactly once on the calling thread. This keeps the steps of layouts and
+ * animations in sync with the frames in which their results are drawn.</p>
+ * 
+ * <p>Subclasses decide where the frames come from, see
+ * {@link FxFrameDriver} for the JavaFX pulse and {@link ManualFrameDriver}
+ * for frames issued by application code or tests.</p>
+ */
+public abstract class FrameDriver {
+
+    /**
+     * Called when this driver is installed with the ActivityManager.
+     */
+    protected abstract void start();
+
+    /**
+     * Called when this driver is replaced or uninstalled.
+     */
+    protected abstract void stop();
+
+    /**
+     * Runs a frame at the current system time.
+     */
+    protected void tick() {
+        tick(System.currentTimeMillis());
+    }
+
+    /**
+     * Runs a frame, stepping all activities due at the given time. Does
+     * nothing if this driver is not installed.
+     * @param currentTime the time of the frame, in milliseconds
+     */
+    protected void tick(long currentTime) {
+        ActivityManager.runFrame(this, currentTime);
+    }
+
+} // end of class FrameDriver
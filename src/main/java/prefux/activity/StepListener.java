@@ -0,0 +1,58 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.activity;
+
+import java.util.EventListener;
+
+/**
+ * Callback interface by which interested classes can be notified of every
+ * step recorded by the {@link ActivityMonitor}, for example to log steps
+ * exceeding the frame budget.
+ */
+public interface StepListener extends EventListener {
+
+    /**
+     * Called after an activity step was run while monitoring is enabled.
+     * For composite actions, this is called for each contained action as
+     * well as for the composite itself. Called on the thread that ran the
+     * step, so implementations should return quickly.
+     * @param a the Activity that was stepped
+     * @param stats the statistics of the Activity, including this step
+     * @param nanos the run time of the step, in nanoseconds
+     * @param bytes the number of bytes allocated by the step, or -1 if
+     * allocation tracking is not supported by the JVM
+     * @param late true if the step took longer than the step time of the
+     * Activity
+     */
+    public void activityStepped(Activity a, StepStatistics stats,
+            long nanos, long bytes, boolean late);
+
+} // end of interface StepListener
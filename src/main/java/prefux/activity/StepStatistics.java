@@ -0,0 +1,239 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.activity;
+
+import java.util.Arrays;
+
+/**
+ * <p>Run time and allocation statistics of the steps of a single Activity,
+ * as recorded by the {@link ActivityMonitor}.</p>
+ * 
+ * <p>Step times are kept in a log-linear histogram in the style of
+ * HdrHistogram: every power of two is split into 16 linear buckets, so
+ * percentiles are accurate to about 6% over the full range of values, in
+ * constant memory and with constant time recording.</p>
+ *
+ * @see ActivityMonitor
+ */
+public class StepStatistics {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_COUNT;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT + LINEAR;
+
+    private volatile String m_name;
+    private final long[] m_counts = new long[BUCKETS];
+    private long m_count;
+    private long m_lateCount;
+    private long m_totalNanos;
+    private long m_maxNanos;
+    private long m_totalBytes;
+    private long m_maxBytes;
+    
+    /**
+     * Creates new, empty statistics.
+     * @param name the name of the monitored Activity
+     */
+    StepStatistics(String name) {
+        m_name = name;
+    }
+    
+    /**
+     * Records a step.
+     * @param nanos the step run time in nanoseconds
+     * @param bytes the bytes allocated by the step, or a negative value if
+     * unknown
+     * @param late true if the step exceeded the step time of its Activity
+     */
+    synchronized void record(long nanos, long bytes, boolean late) {
+        if ( nanos < 0 ) nanos = 0;
+        ++m_counts[index(nanos)];
+        ++m_count;
+        if ( late ) ++m_lateCount;
+        m_totalNanos += nanos;
+        m_maxNanos = Math.max(m_maxNanos, nanos);
+        if ( bytes > 0 ) {
+            m_totalBytes += bytes;
+            m_maxBytes = Math.max(m_maxBytes, bytes);
+        }
+    }
+    
+    /**
+     * Clears all recorded steps.
+     */
+    public synchronized void reset() {
+        Arrays.fill(m_counts, 0);
+        m_count = m_lateCount = 0;
+        m_totalNanos = m_maxNanos = 0;
+        m_totalBytes = m_maxBytes = 0;
+    }
+    
+    /**
+     * Renames the monitored Activity.
+     * @param name the new Activity name
+     */
+    void setName(String name) {
+        m_name = name;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Histogram Buckets
+    
+    /**
+     * Values below LINEAR have a bucket each. Above, a value with highest
+     * bit b falls into one of SUB_COUNT buckets of width 2^(b-SUB_BITS).
+     */
+    private static int index(long v) {
+        if ( v < LINEAR ) return (int)v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        return shift*SUB_COUNT + (int)(v >>> shift);
+    }
+    
+    /**
+     * Returns the largest value falling into the given bucket.
+     */
+    private static long highest(int index) {
+        if ( index < LINEAR ) return index;
+        int shift = index / SUB_COUNT - 1;
+        long sub = index - shift*SUB_COUNT;
+        return ((sub+1) << shift) - 1;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Accessor Methods
+    
+    /**
+     * Returns the name of the monitored Activity.
+     * @return the Activity name
+     */
+    public String getName() {
+        return m_name;
+    }
+    
+    /**
+     * Returns the number of recorded steps.
+     * @return the step count
+     */
+    public synchronized long getCount() {
+        return m_count;
+    }
+    
+    /**
+     * Returns the number of steps that took longer than the step time of
+     * the Activity.
+     * @return the late step count
+     */
+    public synchronized long getLateCount() {
+        return m_lateCount;
+    }
+    
+    /**
+     * Returns the total run time of all recorded steps.
+     * @return the total run time, in milliseconds
+     */
+    public synchronized double getTotalTime() {
+        return m_totalNanos / 1e6;
+    }
+    
+    /**
+     * Returns the mean run time of the recorded steps.
+     * @return the mean step time, in milliseconds
+     */
+    public synchronized double getMeanTime() {
+        return m_count == 0 ? 0 : m_totalNanos / 1e6 / m_count;
+    }
+    
+    /**
+     * Returns the longest run time of the recorded steps.
+     * @return the maximum step time, in milliseconds
+     */
+    public synchronized double getMaxTime() {
+        return m_maxNanos / 1e6;
+    }
+    
+    /**
+     * Returns a percentile of the step run times.
+     * @param p the percentile, between 0 and 100
+     * @return the step time, in milliseconds, that the given percentage of
+     * steps did not exceed
+     */
+    public synchronized double getPercentile(double p) {
+        if ( m_count == 0 ) return 0;
+        long rank = (long)Math.ceil(Math.max(0, Math.min(100, p)) / 100 * m_count);
+        rank = Math.max(1, rank);
+        long n = 0;
+        for ( int i=0; i<BUCKETS; ++i ) {
+            n += m_counts[i];
+            if ( n >= rank )
+                return Math.min(highest(i), m_maxNanos) / 1e6;
+        }
+        return m_maxNanos / 1e6;
+    }
+    
+    /**
+     * Returns the total number of bytes allocated by the recorded steps.
+     * @return the allocated bytes, or 0 if allocation tracking is not
+     * supported by the JVM
+     */
+    public synchronized long getAllocatedBytes() {
+        return m_totalBytes;
+    }
+    
+    /**
+     * Returns the mean number of bytes allocated per step.
+     * @return the mean allocated bytes per step
+     */
+    public synchronized long getMeanAllocatedBytes() {
+        return m_count == 0 ? 0 : m_totalBytes / m_count;
+    }
+    
+    /**
+     * Returns the largest number of bytes allocated by a single step.
+     * @return the maximum allocated bytes per step
+     */
+    public synchronized long getMaxAllocatedBytes() {
+        return m_maxBytes;
+    }
+    
+    /**
+     * Returns a one line summary of these statistics.
+     * @see java.lang.Object#toString()
+     */
+    public synchronized String toString() {
+        return String.format("%s: steps=%d late=%d mean=%.3fms p50=%.3fms "
+                + "p99=%.3fms max=%.3fms alloc/step=%dB",
+                m_name, m_count, m_lateCount, getMeanTime(),
+                getPercentile(50), getPercentile(99), getMaxTime(),
+                getMeanAllocatedBytes());
+    }
+    
+} // end of class StepStatistics
@@ -31,7 +31,9 @@
 package prefux.data;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
+import java.util.Set;
 
 import javax.swing.event.TableModelEvent;
 
@@ -41,13 +43,18 @@ import prefux.data.event.EventConstants;
 import prefux.data.event.ExpressionListener;
 import prefux.data.event.ProjectionListener;
 import prefux.data.event.TableListener;
+import prefux.data.expression.AbstractExpression;
+import prefux.data.expression.AndPredicate;
 import prefux.data.expression.BooleanLiteral;
 import prefux.data.expression.Expression;
+import prefux.data.expression.ExpressionAnalyzer;
 import prefux.data.expression.Predicate;
+import prefux.data.expression.RangePredicate;
 import prefux.data.tuple.TableTuple;
 import prefux.data.util.AcceptAllColumnProjection;
 import prefux.data.util.CascadedRowManager;
 import prefux.data.util.ColumnProjection;
+import prefux.data.util.FilterIteratorFactory;
 import prefux.util.collections.CompositeIterator;
 import prefux.util.collections.IntIterator;
 
@@ -70,6 +77,20 @@ import prefux.util.collections.IntIterator;
  * CascadedTable that is inherited from a parent table <em>will</em> update
  * the value in the parent table.</p>
  * 
+ * <p>Changes are processed incrementally where possible. Updates of parent
+ * columns the row filter does not refer to are passed on without testing
+ * the filter, and events for consecutive rows are fired as one range
+ * event. When only the bounds of a single
+ * {@link prefux.data.expression.RangePredicate} clause of the row filter
+ * change, as with a dynamic query slider, and the parent table has an
+ * index on its column, only the rows with values between the old and the
+ * new bounds are filtered again. Updates made to the parent table within
+ * a batch, see {@link Table#beginBatch()}, are processed at the end of
+ * the batch, so until then the filtered rows may not reflect them and
+ * listeners of this table are not notified of them. Rows inserted into
+ * or deleted from the parent table are processed right away, after any
+ * pending updates.</p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class CascadedTable extends Table {
@@ -89,6 +110,16 @@ public class CascadedTable extends Table {
     /** An internal listener class */
     protected Listener m_listener;
     
+    /** Columns the row filter depends on, or null if it may depend on
+     * other data as well */
+    private Set<String> m_filterColumns;
+    /** Clauses of the row filter at the last filtering, with their change
+     * counts and, for range clauses, their bounds. Used to find the rows
+     * that a change of the row filter can affect. */
+    private Predicate[] m_clauses;
+    private int[] m_clauseChanges;
+    private Expression[] m_clauseLo, m_clauseHi;
+    
     // ------------------------------------------------------------------------
     // Constructor
     
@@ -157,7 +188,7 @@ public class CascadedTable extends Table {
         
         setColumnProjection(colFilter);
         setRowFilter(rowFilter);
-        m_parent.addTableListener(m_listener);
+        m_parent.addTableListener(m_listener, true);
     }
     
     // -- non-cascading version -----------------------------------------------
@@ -247,23 +278,172 @@ public class CascadedTable extends Table {
         if ( m_parent == null ) return;
         
         CascadedRowManager rowman = (CascadedRowManager)m_rows;
-        IntIterator crows = m_rows.rows();
-        while ( crows.hasNext() ) {
-            int crow = crows.nextInt();
-            if ( !m_rowFilter.getBoolean(
-                    m_parent.getTuple(rowman.getParentRow(crow))) )
+        EventRun events = new EventRun();
+        BitSet prows = FilterIteratorFactory.getBitmap(m_parent, m_rowFilter);
+        if ( prows != null ) {
+            // the filter was evaluated using indexes, look up the rows
+            IntIterator crows = m_rows.rows();
+            while ( crows.hasNext() ) {
+                int crow = crows.nextInt();
+                if ( !prows.get(rowman.getParentRow(crow)) )
+                    removeCascadedRow(crow);
+            }
+            for ( int prow = prows.nextSetBit(0); prow >= 0;
+                  prow = prows.nextSetBit(prow+1) )
             {
-                removeCascadedRow(crow);
+                if ( rowman.getChildRow(prow) == -1 )
+                    addCascadedRow(prow, events);
+            }
+        } else {
+            IntIterator crows = m_rows.rows();
+            while ( crows.hasNext() ) {
+                int crow = crows.nextInt();
+                if ( !m_rowFilter.getBoolean(
+                        m_parent.getTuple(rowman.getParentRow(crow))) )
+                {
+                    removeCascadedRow(crow);
+                }
+            }
+            
+            Iterator<? extends Tuple> ptuples = m_parent.tuples(m_rowFilter);
+            while ( ptuples.hasNext() ) {
+                Tuple pt = ptuples.next();
+                int prow = pt.getRow();
+                if ( rowman.getChildRow(prow) == -1 )
+                    addCascadedRow(prow, events);
+            }
+        }
+        events.fire();
+        saveFilterState();
+    }
+    
+    /**
+     * Re-filter only the rows that the last change of the row filter can
+     * affect. This is possible if the bounds of a single range clause
+     * of the row filter changed, and the parent table has an index on the
+     * column of that range.
+     * @return true if the rows were filtered, false if all rows need to
+     * be filtered again
+     */
+    private boolean filterChangedRows() {
+        Predicate[] clauses = getClauses(m_rowFilter);
+        if ( m_filterColumns == null || m_clauses == null || clauses == null
+                || clauses.length != m_clauses.length )
+        {
+            return false;
+        }
+        
+        // find the one clause that changed
+        int changed = -1;
+        for ( int i=0; i<clauses.length; ++i ) {
+            if ( clauses[i] != m_clauses[i] ) {
+                return false;
+            } else if ( getChangeCount(clauses[i]) != m_clauseChanges[i] ) {
+                if ( changed != -1 ) return false;
+                changed = i;
             }
         }
+        if ( changed == -1 || m_clauseLo[changed] == null )
+            return false;
+        
+        IntIterator rows = FilterIteratorFactory.getRangeDeltaIterator(
+                m_parent, (RangePredicate)clauses[changed],
+                m_clauseLo[changed], m_clauseHi[changed]);
+        if ( rows == null )
+            return false;
+        
+        // visit the rows in order, so that events can be merged
+        BitSet prows = new BitSet();
+        while ( rows.hasNext() )
+            prows.set(rows.nextInt());
+        
+        EventRun events = new EventRun();
+        for ( int r = prows.nextSetBit(0); r >= 0; r = prows.nextSetBit(r+1) )
+            filterRow(r, -1, events);
+        events.fire();
+        saveFilterState();
+        return true;
+    }
+    
+    /**
+     * Filter a range of parent rows again after they were inserted or
+     * updated.
+     * @param start the first parent row
+     * @param end the last parent row, inclusive
+     * @param col the column of this table to fire update events for, for
+     * the rows that still pass the filter, or -1 for none
+     */
+    private void filterRange(int start, int end, int col) {
+        EventRun events = new EventRun();
+        for ( int r=start; r<=end; ++r )
+            filterRow(r, col, events);
+        events.fire();
+    }
+    
+    private void filterRow(int prow, int col, EventRun events) {
+        int crow = ((CascadedRowManager)m_rows).getChildRow(prow);
+        if ( m_rowFilter.getBoolean(m_parent.getTuple(prow)) ) {
+            if ( crow == -1 ) {
+                addCascadedRow(prow, events);
+            } else if ( col >= getLocalColumnCount() ) {
+                events.add(crow, col, EventConstants.UPDATE);
+            }
+        } else if ( crow != -1 ) {
+            // row no longer passes the filter, remove it
+            events.fire();
+            removeCascadedRow(crow);
+        }
+    }
+    
+    /**
+     * Record the state of the row filter after the rows were filtered.
+     */
+    @SuppressWarnings("unchecked")
+    private void saveFilterState() {
+        m_filterColumns = ExpressionAnalyzer.isSelfContained(m_rowFilter)
+            ? ExpressionAnalyzer.getReferencedColumns(m_rowFilter) : null;
         
-        Iterator<? extends Tuple> ptuples = m_parent.tuples(m_rowFilter);
-        while ( ptuples.hasNext() ) {
-            Tuple pt = ptuples.next();
-            int prow = pt.getRow();
-            if ( rowman.getChildRow(prow) == -1 )
-                addCascadedRow(prow);
+        m_clauses = getClauses(m_rowFilter);
+        if ( m_clauses == null ) return;
+        
+        int n = m_clauses.length;
+        m_clauseChanges = new int[n];
+        m_clauseLo = new Expression[n];
+        m_clauseHi = new Expression[n];
+        for ( int i=0; i<n; ++i ) {
+            m_clauseChanges[i] = getChangeCount(m_clauses[i]);
+            if ( m_clauses[i] instanceof RangePredicate ) {
+                RangePredicate rp = (RangePredicate)m_clauses[i];
+                m_clauseLo[i] = rp.getLeftExpression();
+                m_clauseHi[i] = rp.getRightExpression();
+            }
+        }
+    }
+    
+    /**
+     * Get the top level clauses of a conjunctive predicate.
+     * @return the clauses, or null if one of them does not count its
+     * changes
+     */
+    private static Predicate[] getClauses(Predicate p) {
+        Predicate[] clauses;
+        if ( p instanceof AndPredicate ) {
+            AndPredicate ap = (AndPredicate)p;
+            clauses = new Predicate[ap.size()];
+            for ( int i=0; i<clauses.length; ++i )
+                clauses[i] = ap.get(i);
+        } else {
+            clauses = new Predicate[] { p };
         }
+        for ( int i=0; i<clauses.length; ++i ) {
+            if ( !(clauses[i] instanceof AbstractExpression) )
+                return null;
+        }
+        return clauses;
+    }
+    
+    private static int getChangeCount(Predicate p) {
+        return ((AbstractExpression)p).getChangeCount();
     }
     
     /**
@@ -425,6 +605,17 @@ public class CascadedTable extends Table {
         return r;
     }
     
+    /**
+     * Add a new cascaded row, leaving the notification to the given run
+     * of events.
+     */
+    private int addCascadedRow(int prow, EventRun events) {
+        int r = m_rows.addRow();
+        ((CascadedRowManager)m_rows).put(r, prow);
+        events.add(r, EventConstants.ALL_COLUMNS, EventConstants.INSERT);
+        return r;
+    }
+    
     /**
      * Internal method for removing a cascaded row from this table.
      * @param row the row to remove
@@ -537,26 +728,23 @@ public class CascadedTable extends Table {
                     break;
                 }
                 
-                // process each update, check if filtered state changes
-                for ( int r=start, cr=-1; r<=end; ++r ) {
-                    if ( (cr=rowman.getChildRow(r)) != -1 ) {
-                        // the parent row has a corresponding row in this table
-                        if ( m_rowFilter.getBoolean(m_parent.getTuple(r)) ) {
-                            // row still passes the filter, check the column
-                            int idx = getColumnNumber(m_parent.getColumnName(col));
-                            if ( idx >= getLocalColumnCount() )
-                                fireTableEvent(cr, cr, idx, EventConstants.UPDATE);
-                        } else {
-                            // row no longer passes the filter, remove it
-                            removeCascadedRow(cr);
-                        }
-                    } else {
-                        // does it now pass the filter due to the update?
-                        if ( m_rowFilter.getBoolean(m_parent.getTuple(r)) ) {
-                            if ( (cr=rowman.getChildRow(r)) < 0 )
-                                addCascadedRow(r);
-                        }
+                String name = m_parent.getColumnName(col);
+                int idx = getColumnNumber(name);
+                if ( m_filterColumns != null &&
+                        !m_filterColumns.contains(name) )
+                {
+                    // the filtered state cannot change, pass the update on
+                    if ( idx < getLocalColumnCount() )
+                        break;
+                    EventRun events = new EventRun();
+                    for ( int r=start, cr=-1; r<=end; ++r ) {
+                        if ( (cr=rowman.getChildRow(r)) != -1 )
+                            events.add(cr, idx, EventConstants.UPDATE);
                     }
+                    events.fire();
+                } else {
+                    // process each update, check if filtered state changes
+                    filterRange(start, end, idx);
                 }
                 break;
             }
@@ -577,12 +765,7 @@ public class CascadedTable extends Table {
             case EventConstants.INSERT:
                 if ( col == EventConstants.ALL_COLUMNS ) {
                     // entire rows added
-                    for ( int r=start; r<=end; ++r ) {
-                        if ( m_rowFilter.getBoolean(m_parent.getTuple(r)) ) {
-                            if ( rowman.getChildRow(r) < 0 )
-                                addCascadedRow(r);
-                        }
-                    }
+                    filterRange(start, end, -1);
                 } else {
                     // column added
                     filterColumns();
@@ -597,9 +780,38 @@ public class CascadedTable extends Table {
         }
     
         public void expressionChanged(Expression expr) {
-            if ( expr == m_rowFilter )
+            if ( expr == m_rowFilter && !filterChangedRows() )
                 filterRows();
         }
     }
     
+    /**
+     * Collects the events of consecutive rows of this table, to fire them
+     * as a single range event. Added rows are only counted when the
+     * events are fired.
+     */
+    private class EventRun {
+        private int m_type = -1;
+        private int m_col, m_first, m_last;
+        
+        void add(int row, int col, int type) {
+            if ( type != m_type || col != m_col || row != m_last+1 ) {
+                fire();
+                m_type = type;
+                m_col = col;
+                m_first = row;
+            }
+            m_last = row;
+        }
+        
+        void fire() {
+            if ( m_type == -1 ) return;
+            if ( m_type == EventConstants.INSERT )
+                updateRowCount();
+            int type = m_type;
+            m_type = -1;
+            fireTableEvent(m_first, m_last, m_col, type);
+        }
+    } // end of inner class EventRun
+    
 } // end of class CascadedTable
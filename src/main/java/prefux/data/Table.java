@@ -42,6 +42,7 @@ import prefux.data.column.ColumnFactory;
 import prefux.data.column.ColumnMetadata;
 import prefux.data.event.ColumnListener;
 import prefux.data.event.EventConstants;
+import prefux.data.event.TableEventBuffer;
 import prefux.data.event.TableListener;
 import prefux.data.expression.Expression;
 import prefux.data.expression.Predicate;
@@ -119,6 +120,14 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     
     /** Listeners for changes to this table */
     protected CopyOnWriteArrayList m_listeners;
+    /** The listeners, among m_listeners, whose updates are batched */
+    private CopyOnWriteArrayList m_batchListeners;
+    /** Whether each entry of the m_listeners array m_flagged is batched */
+    private Object[] m_flagged;
+    private boolean[] m_batched;
+    /** Nesting depth of batches, and the events of the current batch */
+    private int m_batch = 0;
+    private TableEventBuffer m_events;
     
     /** Locally stored data columns */
     protected ArrayList<Column> m_columns;
@@ -145,6 +154,9 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     /** A cached schema instance, loaded lazily */
     protected Schema m_schema;
     
+    /** The most recent snapshot, reused while the table is unchanged */
+    private TableSnapshot m_snapshot;
+    
     // ------------------------------------------------------------------------
     // Constructors
     
@@ -262,6 +274,27 @@ public class Table extends AbstractTupleSet implements ColumnListener {
         return m_modCount;
     }
     
+    /**
+     * Returns a read-only snapshot of the current contents of this table.
+     * The snapshot shares the column values with this table until they are
+     * next written, so taking it is cheap, and it never changes afterwards.
+     * A snapshot can be read from any thread without locking, for example
+     * to render or export a table while a layout keeps updating it.
+     * <p>This method must not run concurrently with writes to this table.
+     * Call it from the thread modifying the table, or while holding the
+     * lock its writers use, see
+     * {@link prefux.Visualization#snapshot(String)}.</p>
+     * @return a snapshot of this table, the same instance as long as this
+     * table is not modified
+     */
+    public TableSnapshot snapshot() {
+        TableSnapshot s = m_snapshot;
+        if ( s == null || s.getEpoch() != m_modCount ) {
+            s = m_snapshot = new TableSnapshot(this);
+        }
+        return s;
+    }
+    
     /**
      * Sets the TupleManager used by this Table. Use this method
      * carefully, as it will cause all existing Tuples retrieved
@@ -348,6 +381,23 @@ public class Table extends AbstractTupleSet implements ColumnListener {
         return m_rows.getTableRow(colrow, col);
     }
     
+    /**
+     * Get the row values for accessing an underlying Column instance,
+     * corresponding to the given table rows of a column. This performs
+     * the mapping of {@link #getColumnRow(int, int)} for a whole array of
+     * rows at once, as needed by the bulk accessors such as
+     * {@link #getDoubles(int[], int, double[], int)}.
+     * @param rows the table rows to lookup
+     * @param col the table column to lookup
+     * @param n the number of rows to lookup
+     * @return the column row numbers of the first n table rows. This may
+     * be the given array itself, when the rows need no mapping, so the
+     * returned array should not be modified.
+     */
+    public int[] getColumnRows(int[] rows, int col, int n) {
+        return m_rows.getColumnRows(rows, col, n);
+    }
+    
     /**
      * Add a row to this table. All data columns will be notified and will
      * take on the appropriate default values for the added row.
@@ -564,11 +614,12 @@ public class Table extends AbstractTupleSet implements ColumnListener {
     }
     
     /**
-     * Internal method for adding a column.
+     * Add a column instance to this table. The column should have as many
+     * rows as the table.
      * @param name the name of the column
      * @param col the actual Column instance
      */
-    protected void addColumn(String name, Column col) {
+    public void addColumn(String name, Column col) {
         int idx = getColumnNumber(name);
         if ( idx >= 0 && idx < m_columns.size() ) {
             throw new IllegalArgumentException(
@@ -724,6 +775,33 @@ public class Table extends AbstractTupleSet implements ColumnListener {
         return e.index;
     }
     
+    /**
+     * Create (if necessary) and return an index over the given data field,
+     * choosing how the index is stored. If the field is already indexed,
+     * the existing index is returned.
+     * @param field the data field name of the column to index
+     * @param sortedArray true to store the index in sorted arrays, which
+     * take less memory and scan ranges faster, false for a red-black tree,
+     * which is cheaper to update. Sorted arrays are only available for
+     * numeric and Date columns.
+     * @return the index over the specified data column
+     * @see #index(String)
+     */
+    public Index index(String field, boolean sortedArray) {
+        ColumnEntry e = (ColumnEntry)m_entries.get(field);
+        if ( e == null ) {
+            throw new IllegalArgumentException("Unknown column name: "+field);
+        } else if ( e.index != null ) {
+            return e.index; // already indexed
+        }
+        
+        try {
+            e.index = new TreeIndex(this, m_rows, e.column, null, sortedArray);
+        } catch ( IncompatibleComparatorException ice ) { /* can't happen */ }
+        
+        return e.index;
+    }
+    
     /**
      * Retrieve, without creating, an index for the given data field.
      * @param field the data field name of the column
@@ -1329,6 +1407,70 @@ public class Table extends AbstractTupleSet implements ColumnListener {
         row = getColumnRow(row, col);
         getColumn(col).setDouble(val, row);
     }
+    
+    /**
+     * Get the data values at the given rows and field as
+     * <code>double</code>s.
+     * @param rows the table rows to retrieve
+     * @param field the data field to retrieve
+     * @param values the array to store the values in, the value of
+     * <code>rows[i]</code> is stored at <code>values[i]</code>
+     * @param n the number of rows to retrieve
+     * @see #canGetDouble(String)
+     */
+    public final void getDoubles(int[] rows, String field, double[] values,
+                                 int n)
+    {
+        getDoubles(rows, getColumnNumber(field), values, n);
+    }
+    
+    /**
+     * Get the data values at the given rows and field as
+     * <code>double</code>s. The rows are mapped to the rows of the
+     * backing column, which then reads all values at once.
+     * @param rows the table rows to retrieve
+     * @param col the column number of the data field to retrieve
+     * @param values the array to store the values in, the value of
+     * <code>rows[i]</code> is stored at <code>values[i]</code>
+     * @param n the number of rows to retrieve
+     * @see #canGetDouble(String)
+     */
+    public final void getDoubles(int[] rows, int col, double[] values, int n) {
+        getColumn(col).getDoubles(getColumnRows(rows, col, n), values, n);
+    }
+    
+    /**
+     * Set the data values at the given rows and field as
+     * <code>double</code>s.
+     * @param rows the table rows to set
+     * @param field the data field to set
+     * @param values the values to set, <code>values[i]</code> is set at
+     * <code>rows[i]</code>
+     * @param n the number of rows to set
+     * @see #canSetDouble(String)
+     */
+    public final void setDoubles(int[] rows, String field, double[] values,
+                                 int n)
+    {
+        setDoubles(rows, getColumnNumber(field), values, n);
+    }
+    
+    /**
+     * Set the data values at the given rows and field as
+     * <code>double</code>s. The rows are mapped to the rows of the
+     * backing column, which then writes all values at once. Depending on
+     * the column, changes of consecutive rows may be reported with a single
+     * range update event.
+     * @param rows the table rows to set
+     * @param col the column number of the data field to set
+     * @param values the values to set, <code>values[i]</code> is set at
+     * <code>rows[i]</code>
+     * @param n the number of rows to set
+     * @see #canSetDouble(String)
+     */
+    public final void setDoubles(int[] rows, int col, double[] values, int n) {
+        getColumn(col).setDoubles(getColumnRows(rows, col, n), values, n);
+    }
 
     // --------------------------------------------------------------
     
@@ -1874,6 +2016,26 @@ public class Table extends AbstractTupleSet implements ColumnListener {
         if ( !m_listeners.contains(listnr) )
             m_listeners.add(listnr);
     }
+    
+    /**
+     * Add a table listener to this table.
+     * @param listnr the listener to add
+     * @param batched if true, the listener is notified of the updates
+     * made within a batch only at the end of the batch, or before the
+     * next insert or delete, see {@link #beginBatch()}. Outside of
+     * batches, it is notified of each change right away like any other
+     * listener.
+     */
+    public void addTableListener(TableListener listnr, boolean batched) {
+        addTableListener(listnr);
+        if ( !batched )
+            return;
+        if ( m_batchListeners == null )
+            m_batchListeners = new CopyOnWriteArrayList();
+        if ( !m_batchListeners.contains(listnr) )
+            m_batchListeners.add(listnr);
+        m_flagged = null;
+    }
 
     /**
      * Remove a table listener from this table.
@@ -1881,6 +2043,9 @@ public class Table extends AbstractTupleSet implements ColumnListener {
      */
     public void removeTableListener(TableListener listnr) {
         m_listeners.remove(listnr);
+        if ( m_batchListeners != null )
+            m_batchListeners.remove(listnr);
+        m_flagged = null;
     }
     
     /**
@@ -1888,6 +2053,78 @@ public class Table extends AbstractTupleSet implements ColumnListener {
      */
     public void removeAllTableListeners() {
     	m_listeners.clear();
+    	m_batchListeners = null;
+    	m_flagged = null;
+    }
+    
+    /**
+     * Start a batch of changes to this table. Until the batch is ended by
+     * {@link #endBatch()}, the listeners added as batched listeners are
+     * not notified of updates. The updates are collected instead, with
+     * updates of adjacent rows of a column coalesced into a single event,
+     * and then delivered when the batch ends. Inserts and deletes are not
+     * batched: the collected updates are delivered first, and then the
+     * insert or delete is delivered to all listeners right away, so that
+     * no listener refers to a deleted or reused row. Other listeners, such
+     * as indexes, are notified of each change right away. Batches may be
+     * nested, in which case the updates are delivered at the end of the
+     * outermost batch.
+     * <p>Use batches around bulk updates, so that derived tables such as
+     * a {@link CascadedTable} process the changed rows in a few range
+     * events rather than one event per cell.</p>
+     */
+    public void beginBatch() {
+        if ( m_batch++ == 0 && m_events == null )
+            m_events = new TableEventBuffer();
+    }
+    
+    /**
+     * End a batch of changes started by {@link #beginBatch()}. If this
+     * ends the outermost batch, the collected events are delivered to the
+     * batched listeners.
+     */
+    public void endBatch() {
+        if ( m_batch == 0 )
+            throw new IllegalStateException("No batch to end.");
+        if ( --m_batch == 0 )
+            fireBatchEvents();
+    }
+    
+    /**
+     * Deliver the updates collected within the current batch to the
+     * batched listeners.
+     */
+    private void fireBatchEvents() {
+        if ( m_events != null && !m_events.isEmpty() ) {
+            m_events.fire(this, m_batchListeners == null
+                    ? new Object[0] : m_batchListeners.getArray());
+        }
+    }
+    
+    /**
+     * Get whether each of the given table listeners is a batched listener.
+     * The flags are kept until the listeners change.
+     * @param lstnrs the array of the table listeners
+     * @return the flags, in the order of the listeners
+     */
+    private boolean[] getBatchedFlags(Object[] lstnrs) {
+        if ( lstnrs != m_flagged ) {
+            boolean[] batched = new boolean[lstnrs.length];
+            for ( int i=0; i<lstnrs.length; ++i )
+                batched[i] = m_batchListeners.contains(lstnrs[i]);
+            m_batched = batched;
+            m_flagged = lstnrs;
+        }
+        return m_batched;
+    }
+    
+    /**
+     * Indicates if a batch of changes to this table is in progress.
+     * @return true if within a batch, false otherwise
+     * @see #beginBatch()
+     */
+    public boolean isBatching() {
+        return m_batch > 0;
     }
     
     /**
@@ -1913,10 +2150,27 @@ public class Table extends AbstractTupleSet implements ColumnListener {
             fireTupleEvent(this, row0, row1, type);
         }
         
+        boolean defer = false;
+        if ( m_batch > 0 && m_batchListeners != null &&
+             !m_batchListeners.isEmpty() )
+        {
+            if ( type == EventConstants.UPDATE ) {
+                // keep the update until the end of the batch
+                m_events.add(row0, row1, col);
+                defer = true;
+            } else {
+                // bring batched listeners up to date before rows change
+                fireBatchEvents();
+            }
+        }
+        
         if ( !m_listeners.isEmpty() ) {
             // fire event to all table listeners
             Object[] lstnrs = m_listeners.getArray();
+            boolean[] batched = ( defer ? getBatchedFlags(lstnrs) : null );
             for ( int i=0; i<lstnrs.length; ++i ) {
+                if ( defer && batched[i] )
+                    continue;
                 ((TableListener)lstnrs[i]).tableChanged(
                         this, row0, row1, col, type);
             }
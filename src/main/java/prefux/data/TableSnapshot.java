@@ -0,0 +1,507 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data;
+
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+import prefux.data.column.Column;
+import prefux.util.collections.IntIterator;
+
+/**
+ * <p>Read-only, immutable view of the contents of a {@link Table} at one
+ * point in time, obtained through {@link Table#snapshot()}. A snapshot
+ * shares the column values with its table; columns copy their values on
+ * the next write (copy on write), so taking a snapshot costs little more
+ * than a pass over the valid rows, and the snapshot never changes.</p>
+ * 
+ * <p>Snapshots can be read from any thread without locking. This allows
+ * renderers, exporters or searches to work with a consistent state of a
+ * table while a layout or a data loader keeps modifying it on another
+ * thread. The {@link #getEpoch() epoch} of a snapshot is the modification
+ * count of the table when the snapshot was taken.</p>
+ * 
+ * <p>The columns a {@link CascadedTable} inherits from its parent are read
+ * from a snapshot of the parent table, taken along with this one.</p>
+ */
+public class TableSnapshot {
+
+    private final Table m_table;
+    private final int m_epoch;
+    
+    private final String[] m_names;
+    private final HashMap<String,Integer> m_colnums;
+    private final Column[] m_columns;
+    
+    private final int m_minrow;
+    private final int m_maxrow;
+    private final int m_rowCount;
+    private final BitSet m_valid; // null if all rows in range are valid
+    
+    // inherited columns of cascaded tables
+    private final TableSnapshot m_parent;
+    private final int[] m_prows;
+    private final int[] m_pcols;
+    
+    /**
+     * Create a new snapshot of the given table. Called by
+     * {@link Table#snapshot()}, and so must not run concurrently with
+     * writes to the table.
+     * @param table the table to take a snapshot of
+     */
+    TableSnapshot(Table table) {
+        m_table = table;
+        m_epoch = table.getModificationCount();
+        
+        // rows
+        m_minrow = table.getMinimumRow();
+        m_maxrow = table.getMaximumRow();
+        m_rowCount = table.getRowCount();
+        if ( m_rowCount < m_maxrow - m_minrow + 1 ) {
+            m_valid = new BitSet(m_maxrow+1);
+            for ( IntIterator rows = table.rows(); rows.hasNext(); )
+                m_valid.set(rows.nextInt());
+        } else {
+            m_valid = null;
+        }
+        
+        // columns
+        int ncols = table.getColumnCount();
+        int local = ncols;
+        Table parent = null;
+        if ( table instanceof CascadedTable ) {
+            CascadedTable ct = (CascadedTable)table;
+            parent = ct.getParentTable();
+            if ( parent != null ) local = ct.getLocalColumnCount();
+        }
+        m_names = new String[ncols];
+        m_colnums = new HashMap<>();
+        m_columns = new Column[local];
+        for ( int col=0; col<ncols; ++col ) {
+            m_names[col] = table.getColumnName(col);
+            m_colnums.put(m_names[col], col);
+            if ( col < local )
+                m_columns[col] = table.getColumn(col).snapshot();
+        }
+        
+        if ( local < ncols ) {
+            CascadedTable ct = (CascadedTable)table;
+            m_parent = parent.snapshot();
+            m_pcols = new int[ncols-local];
+            for ( int col=local; col<ncols; ++col )
+                m_pcols[col-local] = m_parent.getColumnNumber(m_names[col]);
+            m_prows = new int[m_maxrow+1];
+            for ( IntIterator rows = table.rows(); rows.hasNext(); ) {
+                int row = rows.nextInt();
+                m_prows[row] = ct.getParentRow(row);
+            }
+        } else {
+            m_parent = null;
+            m_pcols = null;
+            m_prows = null;
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Snapshot Metadata
+    
+    /**
+     * Returns the table this snapshot was taken from. Note that the table
+     * may have changed since.
+     * @return the source table
+     */
+    public Table getTable() {
+        return m_table;
+    }
+    
+    /**
+     * Returns the epoch of this snapshot, the modification count of the
+     * table at the time the snapshot was taken.
+     * @return the epoch of this snapshot
+     * @see Table#getModificationCount()
+     */
+    public int getEpoch() {
+        return m_epoch;
+    }
+    
+    /**
+     * Indicates if the table has been modified since this snapshot was
+     * taken. Unlike the snapshot, the result is only accurate when called
+     * from the thread writing to the table.
+     * @return true if the table changed after this snapshot was taken
+     */
+    public boolean isStale() {
+        return m_table.getModificationCount() != m_epoch;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Rows
+    
+    /**
+     * Get the number of valid rows.
+     * @return the number of rows
+     */
+    public int getRowCount() {
+        return m_rowCount;
+    }
+    
+    /**
+     * Get the minimum row index in use.
+     * @return the minimum row index
+     */
+    public int getMinimumRow() {
+        return m_minrow;
+    }
+    
+    /**
+     * Get the maximum row index in use.
+     * @return the maximum row index
+     */
+    public int getMaximumRow() {
+        return m_maxrow;
+    }
+    
+    /**
+     * Indicates if the given row number was a valid row of the table.
+     * @param row the row number to check
+     * @return true if the row was valid, false otherwise
+     */
+    public boolean isValidRow(int row) {
+        if ( row < m_minrow || row > m_maxrow )
+            return false;
+        return m_valid == null || m_valid.get(row);
+    }
+    
+    /**
+     * Get an iterator over the valid rows, in ascending order.
+     * @return an iterator over the rows of this snapshot
+     */
+    public IntIterator rows() {
+        return new RowIterator();
+    }
+    
+    // ------------------------------------------------------------------------
+    // Columns
+    
+    /**
+     * Get the number of columns.
+     * @return the number of columns
+     */
+    public int getColumnCount() {
+        return m_names.length;
+    }
+    
+    /**
+     * Get the name of the given column.
+     * @param col the column number
+     * @return the column name
+     */
+    public String getColumnName(int col) {
+        return m_names[col];
+    }
+    
+    /**
+     * Get the number of the column with the given name.
+     * @param field the column name
+     * @return the column number, or -1 if there is no such column
+     */
+    public int getColumnNumber(String field) {
+        Integer col = m_colnums.get(field);
+        return col == null ? -1 : col.intValue();
+    }
+    
+    /**
+     * Get the data type of the given column.
+     * @param col the column number
+     * @return the data type of the column
+     */
+    public Class getColumnType(int col) {
+        return column(col).getColumnType();
+    }
+    
+    /**
+     * Get the data type of the given column.
+     * @param field the column name
+     * @return the data type of the column
+     */
+    public Class getColumnType(String field) {
+        return getColumnType(number(field));
+    }
+    
+    // ------------------------------------------------------------------------
+    // Data Access Methods
+    
+    /**
+     * Get the value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value
+     */
+    public Object get(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.get(m_prows[row], m_pcols[col-m_columns.length]);
+        return m_columns[col].get(row);
+    }
+    
+    /**
+     * Get the value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value
+     */
+    public Object get(int row, String field) {
+        return get(row, number(field));
+    }
+    
+    /**
+     * Get the int value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as an int
+     */
+    public int getInt(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getInt(m_prows[row],
+                                   m_pcols[col-m_columns.length]);
+        return m_columns[col].getInt(row);
+    }
+    
+    /**
+     * Get the int value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as an int
+     */
+    public int getInt(int row, String field) {
+        return getInt(row, number(field));
+    }
+    
+    /**
+     * Get the long value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a long
+     */
+    public long getLong(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getLong(m_prows[row],
+                                    m_pcols[col-m_columns.length]);
+        return m_columns[col].getLong(row);
+    }
+    
+    /**
+     * Get the long value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a long
+     */
+    public long getLong(int row, String field) {
+        return getLong(row, number(field));
+    }
+    
+    /**
+     * Get the float value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a float
+     */
+    public float getFloat(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getFloat(m_prows[row],
+                                     m_pcols[col-m_columns.length]);
+        return m_columns[col].getFloat(row);
+    }
+    
+    /**
+     * Get the float value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a float
+     */
+    public float getFloat(int row, String field) {
+        return getFloat(row, number(field));
+    }
+    
+    /**
+     * Get the double value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a double
+     */
+    public double getDouble(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getDouble(m_prows[row],
+                                      m_pcols[col-m_columns.length]);
+        return m_columns[col].getDouble(row);
+    }
+    
+    /**
+     * Get the double value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a double
+     */
+    public double getDouble(int row, String field) {
+        return getDouble(row, number(field));
+    }
+    
+    /**
+     * Get the boolean value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a boolean
+     */
+    public boolean getBoolean(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getBoolean(m_prows[row],
+                                       m_pcols[col-m_columns.length]);
+        return m_columns[col].getBoolean(row);
+    }
+    
+    /**
+     * Get the boolean value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a boolean
+     */
+    public boolean getBoolean(int row, String field) {
+        return getBoolean(row, number(field));
+    }
+    
+    /**
+     * Get the String value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a String
+     */
+    public String getString(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getString(m_prows[row],
+                                      m_pcols[col-m_columns.length]);
+        return m_columns[col].getString(row);
+    }
+    
+    /**
+     * Get the String value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a String
+     */
+    public String getString(int row, String field) {
+        return getString(row, number(field));
+    }
+    
+    /**
+     * Get the Date value at the given row and column.
+     * @param row the table row
+     * @param col the column number
+     * @return the data value as a Date
+     */
+    public Date getDate(int row, int col) {
+        if ( col >= m_columns.length )
+            return m_parent.getDate(m_prows[row],
+                                    m_pcols[col-m_columns.length]);
+        return m_columns[col].getDate(row);
+    }
+    
+    /**
+     * Get the Date value at the given row and field.
+     * @param row the table row
+     * @param field the column name
+     * @return the data value as a Date
+     */
+    public Date getDate(int row, String field) {
+        return getDate(row, number(field));
+    }
+    
+    // ------------------------------------------------------------------------
+    // Internals
+    
+    /**
+     * Returns the column number of the given field, or throws an exception
+     * if there is no such column.
+     */
+    private int number(String field) {
+        Integer col = m_colnums.get(field);
+        if ( col == null )
+            throw new IllegalArgumentException("Unknown column: "+field);
+        return col.intValue();
+    }
+    
+    /**
+     * Returns the column snapshot holding the values of the given column.
+     */
+    private Column column(int col) {
+        if ( col >= m_columns.length )
+            return m_parent.column(m_pcols[col-m_columns.length]);
+        return m_columns[col];
+    }
+    
+    /**
+     * @see java.lang.Object#toString()
+     */
+    public String toString() {
+        return "TableSnapshot[rows="+m_rowCount+", cols="+m_names.length
+            +", epoch="+m_epoch+"]";
+    }
+    
+    /**
+     * Iterator over the valid rows of this snapshot.
+     */
+    private class RowIterator extends IntIterator {
+        private int m_next = next(m_minrow);
+        
+        private int next(int row) {
+            if ( m_valid != null )
+                return m_valid.nextSetBit(row);
+            return row <= m_maxrow ? row : -1;
+        }
+        
+        public boolean hasNext() {
+            return m_next >= 0;
+        }
+        
+        public int nextInt() {
+            if ( m_next < 0 )
+                throw new NoSuchElementException();
+            int row = m_next;
+            m_next = next(row+1);
+            return row;
+        }
+        
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    } // end of inner class RowIterator
+    
+} // end of class TableSnapshot
@@ -33,6 +33,7 @@ package prefux.data;
 import java.util.Iterator;
 import java.util.logging.Logger;
 
+import prefux.data.util.TreeTraversalIndex;
 import prefux.util.PrefuseConfig;
 import prefux.util.collections.IntIterator;
 
@@ -82,6 +83,9 @@ public class Tree extends Graph {
     /** The node table row number for the root node of the tree. */
     protected int m_root = -1;
     
+    /** Optional index over the tree structure, null if disabled. */
+    protected TreeTraversalIndex m_traversal = null;
+    
     // ------------------------------------------------------------------------
     // Constructors
     
@@ -151,6 +155,7 @@ public class Tree extends Graph {
      */
     void setRoot(Node root) {
         m_root = root.getRow();
+        if ( m_traversal != null ) m_traversal.invalidate();
     }
         
     /**
@@ -182,6 +187,20 @@ public class Tree extends Graph {
         }
     }
     
+    /**
+     * @see prefux.data.Graph#fireGraphEvent(prefux.data.Table, int, int, int, int)
+     */
+    protected void fireGraphEvent(Table t, 
+            int first, int last, int col, int type)
+    {
+        // update the traversal index before any listener can query it
+        if ( m_traversal != null ) {
+            m_traversal.graphChanged(this, t==getNodeTable() ? NODES : EDGES,
+                                     first, last, col, type);
+        }
+        super.fireGraphEvent(t, first, last, col, type);
+    }
+    
     // ------------------------------------------------------------------------
     // Tree Mutators
     
@@ -411,6 +430,8 @@ public class Tree extends Graph {
      * is no previous sibling.
      */
     public int getPreviousSiblingRow(int node) {
+        if ( m_traversal != null && m_traversal.contains(node) )
+            return m_traversal.getPreviousSibling(node);
         int p = getParent(node);
         if ( p < 0 )
             return -1;
@@ -436,6 +457,8 @@ public class Tree extends Graph {
      * is no next sibling.
      */
     public int getNextSiblingRow(int node) {
+        if ( m_traversal != null && m_traversal.contains(node) )
+            return m_traversal.getNextSibling(node);
         int p = getParent(node);
         if ( p < 0 )
             return -1;
@@ -466,6 +489,8 @@ public class Tree extends Graph {
     public int getDepth(int node) {
         if ( !getNodeTable().isValidRow(node) )
             return -1;
+        if ( m_traversal != null && m_traversal.contains(node) )
+            return m_traversal.getDepth(node);
         
         int depth = 0;
         if ( node!=m_root && getParent(node) < 0 ) return -1;
@@ -513,6 +538,8 @@ public class Tree extends Graph {
      * @return the parent node id, or -1 if there is no parent
      */
     public int getParent(int node) {
+        if ( m_traversal != null && m_traversal.contains(node) )
+            return m_traversal.getParent(node);
         int pe = getParentEdge(node);
         return ( pe < 0 ? -1 : getSourceNode(pe) );
     }
@@ -527,6 +554,62 @@ public class Tree extends Graph {
         return ( p < 0 ? null : getNode(p) );
     }
     
+    /**
+     * Indicates if a node lies in the subtree rooted at another node. A
+     * node is considered a descendant of itself.
+     * @param node a node id (node table row number)
+     * @param ancestor the potential ancestor node id
+     * @return true if ancestor lies on the path from node to the root
+     */
+    public boolean isDescendant(int node, int ancestor) {
+        if ( m_traversal != null && m_traversal.contains(node) )
+            return m_traversal.isDescendant(node, ancestor);
+        for ( int i=node; i>=0; i=getParent(i) ) {
+            if ( i == ancestor ) return true;
+            if ( i == m_root ) break;
+        }
+        return false;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Traversal Index
+    
+    /**
+     * Enable or disable the traversal index of this tree. When enabled,
+     * parent, depth, sibling and descendant queries are answered in
+     * constant time from a {@link TreeTraversalIndex}, which is rebuilt on
+     * the first query after each structural change. Enable the index once
+     * the tree is built, as interleaving edits and queries rebuilds it
+     * each time.
+     * @param b true to enable the index, false to disable it
+     */
+    public void setTraversalIndexEnabled(boolean b) {
+        if ( b && m_traversal == null ) {
+            m_traversal = new TreeTraversalIndex(this);
+        } else if ( !b && m_traversal != null ) {
+            m_traversal.dispose();
+            m_traversal = null;
+        }
+    }
+    
+    /**
+     * Indicates if the traversal index of this tree is enabled.
+     * @return true if the traversal index is enabled
+     */
+    public boolean isTraversalIndexEnabled() {
+        return m_traversal != null;
+    }
+    
+    /**
+     * Get the traversal index of this tree, providing pre- and post-order
+     * numbers and subtree sizes in addition to the tree accessors.
+     * @return the traversal index, or null if it is not enabled
+     * @see #setTraversalIndexEnabled(boolean)
+     */
+    public TreeTraversalIndex getTraversalIndex() {
+        return m_traversal;
+    }
+    
     // ------------------------------------------------------------------------
     // Iterators
     
@@ -34,6 +34,7 @@ import java.util.Date;
 
 import prefux.data.DataTypeException;
 import prefux.data.event.ColumnListener;
+import prefux.data.event.EventConstants;
 import prefux.data.parser.DataParseException;
 import prefux.data.parser.DataParser;
 import prefux.data.parser.ObjectParser;
@@ -143,6 +144,22 @@ public abstract class AbstractColumn implements Column {
         m_parser = parser;
     }
     
+    /**
+     * Returns a read-only copy of the current values of this column, which
+     * is not affected by later changes to this column. This default
+     * implementation copies all values; array backed columns override it to
+     * share their values with the snapshot until the next write.
+     * @return a read-only snapshot of this column
+     */
+    public Column snapshot() {
+        int nrows = getRowCount();
+        Column c = ColumnFactory.getColumn(m_columnType, nrows);
+        for ( int row=0; row<nrows; ++row )
+            c.set(get(row), row);
+        c.setReadOnly(true);
+        return c;
+    }
+    
     // ------------------------------------------------------------------------
     // Listener Methods
     
@@ -215,6 +232,25 @@ public abstract class AbstractColumn implements Column {
             ((ColumnListener)lstnrs[i]).columnChanged(this, idx, prev);
     }
     
+    /**
+     * Notifies all registered listeners of a column UPDATE event for a run
+     * of consecutive rows changed by a bulk write. A run of a single row is
+     * reported along with its previous value, just like a single write, so
+     * that listeners such as indices can still update incrementally.
+     * @param start the first row of the run, or -1 for an empty run
+     * @param end the last row (inclusive) of the run
+     * @param prev the previous value of the first row of the run
+     */
+    protected final void fireColumnRunEvent(int start, int end, double prev) {
+        if ( start < 0 ) {
+            return;
+        } else if ( start == end ) {
+            fireColumnEvent(start, prev);
+        } else {
+            fireColumnEvent(EventConstants.UPDATE, start, end);
+        }
+    }
+    
     /**
      * Notifies all registered listeners of a column UPDATE event
      * @param idx the row index of the column that was updated
@@ -520,6 +556,56 @@ public abstract class AbstractColumn implements Column {
         }
     }
     
+    /**
+     * Get the data values at the specified rows as doubles. This
+     * implementation calls {@link #getDouble(int)} for each row.
+     * @see prefux.data.column.Column#getDoubles(int[], double[], int)
+     */
+    public void getDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException
+    {
+        for ( int i=0; i<n; ++i )
+            values[i] = getDouble(rows[i]);
+    }
+    
+    /**
+     * Get the data values of a contiguous range of rows as doubles. This
+     * implementation calls {@link #getDouble(int)} for each row.
+     * @see prefux.data.column.Column#getDoubles(int, double[], int)
+     */
+    public void getDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        for ( int i=0; i<n; ++i )
+            values[i] = getDouble(start+i);
+    }
+    
+    /**
+     * Set the data values at the specified rows as doubles. This
+     * implementation calls {@link #setDouble(double, int)} for each row,
+     * firing one event per changed row.
+     * @see prefux.data.column.Column#setDoubles(int[], double[], int)
+     */
+    public void setDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException
+    {
+        for ( int i=0; i<n; ++i )
+            setDouble(values[i], rows[i]);
+    }
+    
+    /**
+     * Set the data values of a contiguous range of rows as doubles. This
+     * implementation calls {@link #setDouble(double, int)} for each row,
+     * firing one event per changed row.
+     * @see prefux.data.column.Column#setDoubles(int, double[], int)
+     */
+    public void setDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        for ( int i=0; i<n; ++i )
+            setDouble(values[i], start+i);
+    }
+    
     // -- boolean -------------------------------------------------------------
     
     /**
@@ -46,6 +46,7 @@ public class BooleanColumn extends AbstractColumn {
 
     private BitSet m_bits;
     private int m_size;
+    private boolean m_shared;
 
     /**
      * Create an empty BooleanColumn.
@@ -95,12 +96,39 @@ public class BooleanColumn extends AbstractColumn {
      */
     public void setMaximumRow(int nrows) {
         if (nrows > m_size) {
+            unshare();
             m_bits.set(m_size, nrows,
                     ((Boolean) m_defaultValue).booleanValue());
         }
         m_size = nrows;
     }
 
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        BooleanColumn c = new BooleanColumn(0, 0,
+                ((Boolean) m_defaultValue).booleanValue());
+        c.m_bits = m_bits;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+
+    /**
+     * Copies the values if they are referenced by a snapshot.
+     */
+    private void unshare() {
+        if (m_shared) {
+            m_bits = (BitSet) m_bits.clone();
+            m_shared = false;
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Data Access Methods    
     /**
@@ -159,6 +187,7 @@ public class BooleanColumn extends AbstractColumn {
         }
 
         // set the new value
+        unshare();
         m_bits.set(row, val);
 
         // fire a change event
@@ -183,6 +212,7 @@ public class BooleanColumn extends AbstractColumn {
         }
 
         // set the new value
+        unshare();
         m_bits.set(row, boolVal);
 
         // fire a change event
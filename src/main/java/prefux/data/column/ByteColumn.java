@@ -44,6 +44,7 @@ public class ByteColumn extends AbstractColumn {
 
     private byte[] m_values;
     private int    m_size;
+    private boolean m_shared;
     
     /**
      * Create a new empty IntColumn. 
@@ -98,10 +99,27 @@ public class ByteColumn extends AbstractColumn {
             Arrays.fill(values, m_size, capacity,
                     ((Byte)m_defaultValue).byteValue());
             m_values = values;
+            m_shared = false;
         }
         m_size = nrows;
     }
 
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        ByteColumn c = new ByteColumn(0, 0,
+                ((Byte)m_defaultValue).byteValue());
+        c.m_values = m_values;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+
     // ------------------------------------------------------------------------
     // Data Access Methods    
     
@@ -166,6 +184,11 @@ public class ByteColumn extends AbstractColumn {
         // exit early if no change
         if ( prev == val ) return;
         
+        if ( m_shared ) {
+            // the values are referenced by a snapshot, copy on write
+            m_values = m_values.clone();
+            m_shared = false;
+        }
         // set the new value
         m_values[row] = (byte)val;
         
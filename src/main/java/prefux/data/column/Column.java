@@ -99,6 +99,14 @@ public interface Column {
      */
     public void setParser(DataParser parser);
     
+    /**
+     * Returns a read-only copy of the current values of this column, which
+     * is not affected by later changes to this column.
+     * @return a read-only snapshot of this column
+     * @see prefux.data.TableSnapshot
+     */
+    public Column snapshot();
+    
     // ------------------------------------------------------------------------
     // Listener Methods
     
@@ -301,6 +309,58 @@ public interface Column {
      */
     public void setDouble(double val, int row) throws DataTypeException;
     
+    /**
+     * Get the data values at the specified rows as doubles.
+     * @param rows the rows from which to retrieve the values
+     * @param values the array to store the values in, the value of
+     *  <code>rows[i]</code> is stored at <code>values[i]</code>
+     * @param n the number of rows to retrieve
+     * @throws DataTypeException if this column does not 
+     *  support the double type
+     */
+    public void getDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException;
+    
+    /**
+     * Get the data values of a contiguous range of rows as doubles.
+     * @param start the first row from which to retrieve a value
+     * @param values the array to store the values in, the value of
+     *  row <code>start+i</code> is stored at <code>values[i]</code>
+     * @param n the number of rows to retrieve
+     * @throws DataTypeException if this column does not 
+     *  support the double type
+     */
+    public void getDoubles(int start, double[] values, int n)
+        throws DataTypeException;
+    
+    /**
+     * Set the data values at the specified rows as doubles. Columns may
+     * report the changes of consecutive rows as a single range update
+     * event, rather than one event per row.
+     * @param rows the rows at which to set the values
+     * @param values the values to set, <code>values[i]</code> is set at
+     *  <code>rows[i]</code>
+     * @param n the number of rows to set
+     * @throws DataTypeException if this column does not 
+     *  support the double type
+     */
+    public void setDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException;
+    
+    /**
+     * Set the data values of a contiguous range of rows as doubles.
+     * Columns may report the changes as a single range update event,
+     * rather than one event per row.
+     * @param start the first row at which to set a value
+     * @param values the values to set, <code>values[i]</code> is set at
+     *  row <code>start+i</code>
+     * @param n the number of rows to set
+     * @throws DataTypeException if this column does not 
+     *  support the double type
+     */
+    public void setDoubles(int start, double[] values, int n)
+        throws DataTypeException;
+    
     // -- boolean -------------------------------------------------------------
     
     /**
@@ -30,11 +30,13 @@
  */
 package prefux.data.column;
 
+import java.nio.channels.FileChannel;
 import java.util.Date;
 
 import prefux.data.DataTypeException;
 import prefux.data.Table;
 import prefux.data.expression.Expression;
+import prefux.util.PrefuseConfig;
 
 /**
  * Factory class for generating appropriate column instances. Used by
@@ -44,6 +46,11 @@ import prefux.data.expression.Expression;
  */
 public class ColumnFactory {
     
+    private static final int DICTIONARY_THRESHOLD =
+        PrefuseConfig.getInt("data.column.dictionaryThreshold");
+    private static final boolean OFF_HEAP =
+        PrefuseConfig.getBoolean("data.column.offHeap");
+    
     /**
      * Get a new column of the given type.
      * @param type the column data type
@@ -88,6 +95,10 @@ public class ColumnFactory {
     public static final Column getColumn(Class type, int nrows, int nnz,
                                          Object defaultValue)
     {
+        if ( OFF_HEAP && isOffHeapType(type) )
+        {
+            return getOffHeapColumn(type, nrows, defaultValue, null);
+        }
         if ( type == byte.class )
         {
             if ( defaultValue == null ) {
@@ -164,6 +175,78 @@ public class ColumnFactory {
         }
     }
     
+    /**
+     * Indicates if columns of the given type can be stored off the heap.
+     * @param type the column data type
+     * @return true for int, long, float and double, false otherwise
+     */
+    public static final boolean isOffHeapType(Class type) {
+        return type == int.class || type == long.class
+            || type == float.class || type == double.class;
+    }
+    
+    /**
+     * Get a new column of the given type storing its values outside of the
+     * Java heap, either in direct memory or in a memory-mapped file.
+     * @param type the column data type, one of int, long, float or double
+     * @param nrows the number of rows to include in the column
+     * @param defaultValue the default value for the column
+     * @param channel a file channel open for reading and writing to store
+     * the values in, or null to use direct memory
+     * @return the new column
+     * @see OffHeapColumn
+     */
+    public static final Column getOffHeapColumn(Class type, int nrows,
+            Object defaultValue, FileChannel channel)
+    {
+        Number def = (Number)defaultValue;
+        if ( type == int.class ) {
+            return new OffHeapIntColumn(nrows,
+                    def == null ? -1 : def.intValue(), channel);
+        } else if ( type == long.class ) {
+            return new OffHeapLongColumn(nrows,
+                    def == null ? 0L : def.longValue(), channel);
+        } else if ( type == float.class ) {
+            return new OffHeapFloatColumn(nrows,
+                    def == null ? 0f : def.floatValue(), channel);
+        } else if ( type == double.class ) {
+            return new OffHeapDoubleColumn(nrows,
+                    def == null ? 0 : def.doubleValue(), channel);
+        } else {
+            throw new DataTypeException(type);
+        }
+    }
+    
+    /**
+     * Get a new column for String values. If the number of distinct values
+     * is known to be small, both in absolute terms and compared to the
+     * number of rows, a {@link DictionaryStringColumn} is returned,
+     * otherwise an {@link ObjectColumn}.
+     * @param nrows the number of rows to include in the column
+     * @param cardinality the number of distinct values expected in the
+     * column, or -1 if unknown
+     * @return the new column
+     */
+    public static final Column getStringColumn(int nrows, int cardinality) {
+        if ( cardinality >= 0 && cardinality <= DICTIONARY_THRESHOLD
+                && 2*cardinality <= nrows )
+        {
+            return new DictionaryStringColumn(nrows);
+        } else {
+            return new ObjectColumn(String.class, nrows, nrows, null);
+        }
+    }
+    
+    /**
+     * Get the maximum number of distinct values for which
+     * {@link #getStringColumn(int, int)} returns a dictionary encoded
+     * column.
+     * @return the dictionary threshold
+     */
+    public static final int getDictionaryThreshold() {
+        return DICTIONARY_THRESHOLD;
+    }
+    
     /**
      * Get a new column based on the given expression.
      * @param t the table the column should be added to
@@ -30,6 +30,8 @@
  */
 package prefux.data.column;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
@@ -40,6 +42,7 @@ import prefux.data.util.Index;
 import prefux.util.DataLib;
 import prefux.util.TypeLib;
 import prefux.util.collections.DefaultLiteralComparator;
+import prefux.util.collections.IntIterator;
 
 /**
  * ColumnMetadata stores computed metadata and statistics for a singe column
@@ -245,8 +248,11 @@ public class ColumnMetadata implements ColumnListener {
         accessCheck();
         if ( m_unique == -1 && m_dynamic ) {
             Index idx = m_table.getIndex(m_field);
+            BitSet codes;
             if ( idx != null ) {
                 m_unique = idx.uniqueCount();
+            } else if ( (codes=getUsedCodes()) != null ) {
+                m_unique = codes.cardinality();
             } else {
                 m_unique = DataLib.uniqueCount(m_table.tuples(), m_field);
             }
@@ -304,7 +310,22 @@ public class ColumnMetadata implements ColumnListener {
     public Object[] getOrdinalArray() {
         accessCheck();
         if ( m_ordinalA == null && m_dynamic ) {
-            m_ordinalA = DataLib.ordinalArray(m_table.tuples(),m_field,m_cmp);
+            BitSet codes = getUsedCodes();
+            if ( codes != null ) {
+                DictionaryStringColumn col = 
+                    (DictionaryStringColumn)m_table.getColumn(m_field);
+                Object[] a = new Object[codes.cardinality()];
+                for ( int c=codes.nextSetBit(0), i=0; c>=0; 
+                      c=codes.nextSetBit(c+1), ++i )
+                {
+                    a[i] = col.decode(c);
+                }
+                Arrays.sort(a, m_cmp);
+                m_ordinalA = a;
+            } else {
+                m_ordinalA = DataLib.ordinalArray(
+                                m_table.tuples(), m_field, m_cmp);
+            }
         }
         return m_ordinalA;
     }
@@ -328,6 +349,28 @@ public class ColumnMetadata implements ColumnListener {
         return m_ordinalM;
     }
     
+    /**
+     * Collect the dictionary codes used by the rows of the table, if the
+     * column is dictionary encoded. The distinct values are then found
+     * without creating tuples or hashing the values.
+     * @return the codes in use, or null if the column is not a
+     * {@link DictionaryStringColumn}
+     */
+    private BitSet getUsedCodes() {
+        Column c = m_table.getColumn(m_field);
+        if ( !(c instanceof DictionaryStringColumn) )
+            return null;
+        
+        DictionaryStringColumn dc = (DictionaryStringColumn)c;
+        int col = m_table.getColumnNumber(m_field);
+        BitSet codes = new BitSet(dc.getDictionarySize());
+        for ( IntIterator rows = m_table.rows(); rows.hasNext(); ) {
+            int row = m_table.getColumnRow(rows.nextInt(), col);
+            codes.set(dc.getCode(row));
+        }
+        return codes;
+    }
+    
     // ------------------------------------------------------------------------
     
     /**
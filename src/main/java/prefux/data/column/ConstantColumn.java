@@ -64,6 +64,16 @@ public class ConstantColumn extends AbstractColumn {
     public void setMaximumRow(int nrows) {
         m_size = nrows;
     }
+    
+    /**
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        ConstantColumn c = new ConstantColumn(m_columnType, m_defaultValue);
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        return c;
+    }
 
     /**
      * @see prefux.data.column.Column#get(int)
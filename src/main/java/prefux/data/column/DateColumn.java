@@ -46,6 +46,7 @@ public class DateColumn extends AbstractColumn {
 
     private long[] m_values;
     private int    m_size;
+    private boolean m_shared;
     
     /**
      * Create a new empty DateColumn. 
@@ -116,9 +117,26 @@ public class DateColumn extends AbstractColumn {
             Arrays.fill(values, m_size, capacity,
                     ((Date)m_defaultValue).getTime());
             m_values = values;
+            m_shared = false;
         }
         m_size = nrows;
     }
+
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        DateColumn c = new DateColumn(getColumnType(), 0, 0,
+                ((Date)m_defaultValue).getTime());
+        c.m_values = m_values;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
     
     /**
      * Indicates if the set method can be called without
@@ -197,6 +215,11 @@ public class DateColumn extends AbstractColumn {
         // exit early if no change
         if ( prev == val ) return;
         
+        if ( m_shared ) {
+            // the values are referenced by a snapshot, copy on write
+            m_values = m_values.clone();
+            m_shared = false;
+        }
         // set the new value
         m_values[row] = val;
         
@@ -0,0 +1,266 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.column;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import prefux.data.DataReadOnlyException;
+import prefux.data.DataTypeException;
+
+/**
+ * Column implementation for String values with few distinct values. Each
+ * row stores an int code into a dictionary of the distinct strings, so that
+ * repeated values are stored only once and can be compared by their codes.
+ * The dictionary only grows: codes are never reassigned, even if no row
+ * refers to a string anymore.
+ */
+public class DictionaryStringColumn extends AbstractColumn {
+
+    private int[]    m_codes;
+    private int      m_size;
+    private boolean  m_shared;
+    
+    private String[] m_dict;
+    private int      m_dictSize;
+    private HashMap<String,Integer> m_lookup;
+    
+    /**
+     * Create a new empty DictionaryStringColumn.
+     */
+    public DictionaryStringColumn() {
+        this(0, 10, null);
+    }
+    
+    /**
+     * Create a new DictionaryStringColumn.
+     * @param nrows the initial size of the column
+     */
+    public DictionaryStringColumn(int nrows) {
+        this(nrows, nrows, null);
+    }
+    
+    /**
+     * Create a new DictionaryStringColumn.
+     * @param nrows the initial size of the column
+     * @param capacity the initial capacity of the column
+     * @param defaultValue the default value for the column
+     */
+    public DictionaryStringColumn(int nrows, int capacity,
+                                  String defaultValue)
+    {
+        super(String.class, defaultValue);
+        if ( capacity < nrows ) {
+            throw new IllegalArgumentException(
+                "Capacity value can not be less than the row count.");
+        }
+        m_dict = new String[16];
+        m_lookup = new HashMap<>();
+        m_codes = new int[capacity];
+        Arrays.fill(m_codes, add(defaultValue));
+        m_size = nrows;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Column Metadata
+    
+    /**
+     * @see prefux.data.column.Column#getRowCount()
+     */
+    public int getRowCount() {
+        return m_size;
+    }
+    
+    /**
+     * @see prefux.data.column.Column#setMaximumRow(int)
+     */
+    public void setMaximumRow(int nrows) {
+        if ( nrows > m_codes.length ) {
+            int capacity = Math.max((3*m_codes.length)/2 + 1, nrows);
+            int[] codes = new int[capacity];
+            System.arraycopy(m_codes, 0, codes, 0, m_size);
+            Arrays.fill(codes, m_size, capacity, 
+                    add((String)m_defaultValue));
+            m_codes = codes;
+            m_shared = false;
+        }
+        m_size = nrows;
+    }
+    
+    /**
+     * Returns a read-only copy of this column that shares the current codes
+     * and dictionary with this column. The codes are copied by the next
+     * write to this column, and the dictionary is only ever appended to, so
+     * that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        DictionaryStringColumn c = new DictionaryStringColumn(0, 0,
+                (String)m_defaultValue);
+        c.m_codes = m_codes;
+        c.m_size = m_size;
+        c.m_dict = m_dict;
+        c.m_dictSize = m_dictSize;
+        c.m_lookup = null;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Dictionary Methods
+    
+    /**
+     * Get the number of distinct values in the dictionary. This is an upper
+     * bound of the number of distinct values in the column, as values are
+     * not removed from the dictionary when they are overwritten.
+     * @return the dictionary size
+     */
+    public int getDictionarySize() {
+        return m_dictSize;
+    }
+    
+    /**
+     * Get the dictionary code of the value at the given row.
+     * @param row the row from which to retrieve the code
+     * @return the code of the row's value
+     */
+    public int getCode(int row) {
+        if ( row < 0 || row >= m_size ) {
+            throw new IllegalArgumentException(
+                "Row index out of bounds: "+row);
+        }
+        return m_codes[row];
+    }
+    
+    /**
+     * Get the string for a dictionary code.
+     * @param code a code between 0 and {@link #getDictionarySize()}
+     * @return the string with the given code
+     */
+    public String decode(int code) {
+        if ( code < 0 || code >= m_dictSize ) {
+            throw new IllegalArgumentException(
+                "Dictionary code out of bounds: "+code);
+        }
+        return m_dict[code];
+    }
+    
+    /**
+     * Get the dictionary code of a string, without adding the string to
+     * the dictionary.
+     * @param value the string to look up, may be null
+     * @return the code of the string, or -1 if it is not in the dictionary
+     */
+    public int encode(String value) {
+        Integer code = lookup().get(value);
+        return ( code == null ? -1 : code.intValue() );
+    }
+    
+    /**
+     * Get the lookup table from strings to codes, building it if needed.
+     * Snapshots build their own table on first use, as the dictionary
+     * arrays are shared with the column they were taken from.
+     */
+    private HashMap<String,Integer> lookup() {
+        if ( m_lookup == null ) {
+            HashMap<String,Integer> lookup = new HashMap<>();
+            for ( int i=0; i<m_dictSize; ++i )
+                lookup.put(m_dict[i], Integer.valueOf(i));
+            m_lookup = lookup;
+        }
+        return m_lookup;
+    }
+    
+    /**
+     * Get the code of a string, adding it to the dictionary if needed.
+     */
+    private int add(String value) {
+        int code = encode(value);
+        if ( code < 0 ) {
+            if ( m_dictSize == m_dict.length ) {
+                String[] dict = new String[2*m_dict.length];
+                System.arraycopy(m_dict, 0, dict, 0, m_dictSize);
+                m_dict = dict;
+            }
+            code = m_dictSize++;
+            m_dict[code] = value;
+            m_lookup.put(value, Integer.valueOf(code));
+        }
+        return code;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Data Access Methods
+    
+    /**
+     * Get the data value at the specified row
+     * @param row the row from which to retrieve the value
+     * @return the data value
+     */
+    public Object get(int row) {
+        return m_dict[getCode(row)];
+    }
+    
+    /**
+     * Set the data value at the specified row
+     * @param val the value to set
+     * @param row the row at which to set the value
+     */
+    public void set(Object val, int row) {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        } else if ( row < 0 || row >= m_size ) {
+            throw new IllegalArgumentException(
+                "Row index out of bounds: "+row);
+        } else if ( val == null || val instanceof String ) {
+            int prev = m_codes[row];
+            int code = add((String)val);
+            
+            // exit early if no change
+            if ( prev == code ) return;
+            
+            if ( m_shared ) {
+                // the codes are referenced by a snapshot, copy on write
+                m_codes = m_codes.clone();
+                m_shared = false;
+            }
+            // set the new value
+            m_codes[row] = code;
+            
+            // fire a change event
+            fireColumnEvent(row, m_dict[prev]);
+        } else {
+            throw new DataTypeException(val.getClass());
+        }
+    }
+    
+} // end of class DictionaryStringColumn
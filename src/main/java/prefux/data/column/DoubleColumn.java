@@ -44,6 +44,7 @@ public class DoubleColumn extends AbstractColumn {
 
     private double[] m_values;
     private int      m_size;
+    private boolean  m_shared;
     
     /**
      * Create a new empty DoubleColumn. 
@@ -98,10 +99,27 @@ public class DoubleColumn extends AbstractColumn {
             Arrays.fill(values, m_size, capacity,
                     ((Double)m_defaultValue).doubleValue());
             m_values = values;
+            m_shared = false;
         }
         m_size = nrows;
     }
 
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        DoubleColumn c = new DoubleColumn(0, 0,
+                ((Double)m_defaultValue).doubleValue());
+        c.m_values = m_values;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+
     // ------------------------------------------------------------------------
     // Data Access Methods    
     
@@ -159,6 +177,11 @@ public class DoubleColumn extends AbstractColumn {
         // exit early if no change
         if ( prev == val ) return;
         
+        if ( m_shared ) {
+            // the values are referenced by a snapshot, copy on write
+            m_values = m_values.clone();
+            m_shared = false;
+        }
         // set the new value
         m_values[row] = val;
         
@@ -166,6 +189,107 @@ public class DoubleColumn extends AbstractColumn {
         fireColumnEvent(row, prev);
     }
     
+    /**
+     * @see prefux.data.column.Column#getDoubles(int[], double[], int)
+     */
+    public void getDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException
+    {
+        double[] a = m_values;
+        for ( int i=0; i<n; ++i ) {
+            int row = rows[i];
+            if ( row < 0 || row >= m_size ) {
+                throw new IllegalArgumentException(
+                    "Row index out of bounds: "+row);
+            }
+            values[i] = a[row];
+        }
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getDoubles(int, double[], int)
+     */
+    public void getDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        checkRange(start, n);
+        System.arraycopy(m_values, start, values, 0, n);
+    }
+    
+    /**
+     * Sets the values at the given rows. Rows whose value does not change
+     * are skipped, and each run of consecutive changed rows is reported
+     * with a single range update event.
+     * @see prefux.data.column.Column#setDoubles(int[], double[], int)
+     */
+    public void setDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException
+    {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        for ( int i=0; i<n; ++i ) {
+            if ( rows[i] < 0 || rows[i] >= m_size ) {
+                throw new IllegalArgumentException(
+                    "Row index out of bounds: "+rows[i]);
+            }
+        }
+        setValues(rows, 0, values, n);
+    }
+    
+    /**
+     * Sets the values of the given range of rows. Rows whose value does
+     * not change are skipped, and each run of consecutive changed rows is
+     * reported with a single range update event.
+     * @see prefux.data.column.Column#setDoubles(int, double[], int)
+     */
+    public void setDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        checkRange(start, n);
+        setValues(null, start, values, n);
+    }
+    
+    /**
+     * Writes the values of validated rows, given either as an array or as
+     * the range starting at <code>start</code>, and fires the events.
+     */
+    private void setValues(int[] rows, int start, double[] values, int n) {
+        int r0 = -1, r1 = -1;
+        double prev = 0;
+        for ( int i=0; i<n; ++i ) {
+            int row = ( rows == null ? start+i : rows[i] );
+            double p = m_values[row];
+            if ( p == values[i] ) continue;
+            
+            if ( m_shared ) {
+                // the values are referenced by a snapshot, copy on write
+                m_values = m_values.clone();
+                m_shared = false;
+            }
+            m_values[row] = values[i];
+            
+            if ( r0 >= 0 && row == r1+1 ) {
+                r1 = row;
+            } else {
+                fireColumnRunEvent(r0, r1, prev);
+                r0 = r1 = row;
+                prev = p;
+            }
+        }
+        fireColumnRunEvent(r0, r1, prev);
+    }
+    
+    private void checkRange(int start, int n) {
+        if ( start < 0 || n < 0 || start+n > m_size ) {
+            throw new IllegalArgumentException(
+                "Row range out of bounds: "+start+"-"+(start+n-1));
+        }
+    }
+    
 //    /**
 //     * @see prefux.data.column.AbstractColumn#getString(int)
 //     */
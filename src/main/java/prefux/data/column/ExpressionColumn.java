@@ -41,6 +41,7 @@ import prefux.data.event.EventConstants;
 import prefux.data.event.ExpressionListener;
 import prefux.data.expression.Expression;
 import prefux.data.expression.ExpressionAnalyzer;
+import prefux.util.collections.IntIterator;
 
 /**
  * <p>Column instance that stores values provided by an Expression
@@ -140,6 +141,23 @@ public class ExpressionColumn extends AbstractColumn {
     public void setMaximumRow(int nrows) {
         m_cache.setMaximumRow(nrows);
     }
+    
+    /**
+     * Evaluates the expression for all valid rows of the table and returns
+     * the values in a read-only column.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        int nrows = getRowCount();
+        Column c = ColumnFactory.getColumn(getColumnType(), nrows);
+        for ( IntIterator rows = m_table.rows(); rows.hasNext(); ) {
+            int row = rows.nextInt();
+            if ( row < nrows )
+                c.set(get(row), row);
+        }
+        c.setReadOnly(true);
+        return c;
+    }
 
     // ------------------------------------------------------------------------
     // Cache Management
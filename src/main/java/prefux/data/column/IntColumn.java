@@ -44,6 +44,7 @@ public class IntColumn extends AbstractColumn {
 
     private int[] m_values;
     private int   m_size;
+    private boolean m_shared;
     
     /**
      * Create a new empty IntColumn. 
@@ -98,10 +99,27 @@ public class IntColumn extends AbstractColumn {
             Arrays.fill(values, m_size, capacity,
                     ((Integer)m_defaultValue).intValue());
             m_values = values;
+            m_shared = false;
         }
         m_size = nrows;
     }
 
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        IntColumn c = new IntColumn(0, 0,
+                ((Integer)m_defaultValue).intValue());
+        c.m_values = m_values;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+
     // ------------------------------------------------------------------------
     // Data Access Methods    
     
@@ -159,6 +177,11 @@ public class IntColumn extends AbstractColumn {
         // exit early if no change
         if ( prev == val ) return;
         
+        if ( m_shared ) {
+            // the values are referenced by a snapshot, copy on write
+            m_values = m_values.clone();
+            m_shared = false;
+        }
         // set the new value
         m_values[row] = val;
         
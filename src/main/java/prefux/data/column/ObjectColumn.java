@@ -46,6 +46,7 @@ public class ObjectColumn extends AbstractColumn {
 
     private Object[] m_values;
     private int      m_size;
+    private boolean  m_shared;
     
     /**
      * Create a new empty ObjectColumn. The type is assumed to be Object.
@@ -145,10 +146,27 @@ public class ObjectColumn extends AbstractColumn {
                 Arrays.fill(values, m_size, capacity, m_defaultValue);
             }
             m_values = values;
+            m_shared = false;
         }
         m_size = nrows;
     }
 
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. The values are copied by the next write to this
+     * column, so that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        ObjectColumn c = new ObjectColumn(getColumnType(), 0, 0,
+                m_defaultValue);
+        c.m_values = m_values;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        m_shared = true;
+        return c;
+    }
+
     // ------------------------------------------------------------------------
     // Data Access Methods
     
@@ -196,6 +214,11 @@ public class ObjectColumn extends AbstractColumn {
             // do we trust .equals() here? for now, no.
             if ( prev == val ) return;
             
+            if ( m_shared ) {
+                // the values are referenced by a snapshot, copy on write
+                m_values = m_values.clone();
+                m_shared = false;
+            }
             // set the new value
             m_values[row] = val;
             
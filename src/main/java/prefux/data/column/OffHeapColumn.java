@@ -0,0 +1,221 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.column;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Abstract base class for columns storing primitive values outside of the
+ * Java heap. Values are kept in fixed size segments, each a direct
+ * {@link java.nio.ByteBuffer} or a region of a memory-mapped file. Growing
+ * the column only adds segments, so existing values are never copied.
+ * Values are stored in native byte order.
+ * 
+ * <p>Snapshots share the segments with the column. The first write to a
+ * shared segment copies that segment only. For file backed columns the
+ * copy is held in direct memory, so the file then no longer reflects the
+ * writes to that segment.</p>
+ */
+public abstract class OffHeapColumn extends AbstractColumn {
+
+    /** The base 2 logarithm of the number of values per segment. */
+    public static final int SEGMENT_SHIFT = 16;
+    /** The number of values per segment. */
+    public static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+    /** Mask for the index of a value within its segment. */
+    protected static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+    
+    private final int m_shift;
+    private final FileChannel m_channel;
+    private ByteBuffer[] m_segments;
+    private boolean[] m_shared;
+    private int m_nsegs;
+    protected int m_size;
+    
+    /**
+     * Create a new OffHeapColumn.
+     * @param type the primitive type stored by the column
+     * @param width the number of bytes per value, a power of two
+     * @param defaultValue the default value for the column
+     * @param channel a file channel open for reading and writing to map
+     * the segments from, or null to use direct memory. Values already in
+     * the file are kept, the remaining rows are set to the default.
+     */
+    protected OffHeapColumn(Class type, int width, Object defaultValue,
+                            FileChannel channel)
+    {
+        super(type, defaultValue);
+        m_shift = Integer.numberOfTrailingZeros(width);
+        m_channel = channel;
+        m_segments = new ByteBuffer[4];
+        m_shared = new boolean[4];
+    }
+    
+    // ------------------------------------------------------------------------
+    // Column Metadata
+    
+    /**
+     * @see prefux.data.column.Column#getRowCount()
+     */
+    public int getRowCount() {
+        return m_size;
+    }
+    
+    /**
+     * @see prefux.data.column.Column#setMaximumRow(int)
+     */
+    public void setMaximumRow(int nrows) {
+        int nsegs = (nrows + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+        while ( m_nsegs < nsegs )
+            addSegment();
+        m_size = nrows;
+    }
+    
+    /**
+     * Indicates if the values of this column are stored in a memory-mapped
+     * file rather than in direct memory.
+     * @return true if this column is file backed
+     */
+    public boolean isMapped() {
+        return m_channel != null;
+    }
+    
+    /**
+     * Let a new column share the segments of this column, as a read-only
+     * snapshot. Used by the {@link Column#snapshot()} implementations.
+     * @param c the new column, of the same type as this one
+     * @return the new column
+     */
+    protected Column share(OffHeapColumn c) {
+        c.m_segments = m_segments.clone();
+        c.m_shared = new boolean[m_segments.length];
+        c.m_nsegs = m_nsegs;
+        c.m_size = m_size;
+        c.setReadOnly(true);
+        for ( int i=0; i<m_nsegs; ++i )
+            m_shared[i] = true;
+        return c;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Segment Management
+    
+    /**
+     * Get the segment holding the value of the given row, for reading. The
+     * value is found at the byte offset given by {@link #offset(int)}.
+     * @param row the row to read
+     * @return the segment
+     */
+    protected final ByteBuffer segment(int row) {
+        if ( row < 0 || row >= m_size ) {
+            throw new IllegalArgumentException("Row index out of bounds: "+row);
+        }
+        return m_segments[row >>> SEGMENT_SHIFT];
+    }
+    
+    /**
+     * Get the segment holding the value of the given row, for writing. If
+     * the segment is shared with a snapshot, it is copied first.
+     * @param row the row to write
+     * @return the segment
+     */
+    protected final ByteBuffer writableSegment(int row) {
+        int s = row >>> SEGMENT_SHIFT;
+        if ( m_shared[s] ) {
+            // the segment is referenced by a snapshot, copy on write
+            ByteBuffer src = m_segments[s].duplicate();
+            src.clear();
+            ByteBuffer seg = allocate(src.capacity());
+            seg.put(src);
+            seg.clear();
+            m_segments[s] = seg;
+            m_shared[s] = false;
+        }
+        return m_segments[s];
+    }
+    
+    /**
+     * Get the byte offset of a row's value within its segment.
+     * @param row the row
+     * @return the byte offset
+     */
+    protected final int offset(int row) {
+        return (row & SEGMENT_MASK) << m_shift;
+    }
+    
+    /**
+     * Set the values in a range of a new segment to the default value.
+     * @param seg the segment
+     * @param from the index of the first value to set
+     * @param to the index after the last value to set
+     */
+    protected abstract void fill(ByteBuffer seg, int from, int to);
+    
+    private void addSegment() {
+        if ( m_nsegs == m_segments.length ) {
+            int len = 2*m_segments.length;
+            ByteBuffer[] segments = new ByteBuffer[len];
+            System.arraycopy(m_segments, 0, segments, 0, m_nsegs);
+            boolean[] shared = new boolean[len];
+            System.arraycopy(m_shared, 0, shared, 0, m_nsegs);
+            m_segments = segments;
+            m_shared = shared;
+        }
+        
+        int bytes = SEGMENT_SIZE << m_shift;
+        ByteBuffer seg;
+        int from = 0;
+        if ( m_channel == null ) {
+            seg = allocate(bytes);
+        } else {
+            long pos = ((long)m_nsegs) * bytes;
+            try {
+                // keep the values already stored in the file
+                long avail = m_channel.size() - pos;
+                from = (int)Math.max(0, Math.min(avail, bytes)) >>> m_shift;
+                seg = m_channel.map(FileChannel.MapMode.READ_WRITE, pos, bytes)
+                        .order(ByteOrder.nativeOrder());
+            } catch ( IOException e ) {
+                throw new RuntimeException(e);
+            }
+        }
+        fill(seg, from, SEGMENT_SIZE);
+        m_segments[m_nsegs++] = seg;
+    }
+    
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+    
+} // end of abstract class OffHeapColumn
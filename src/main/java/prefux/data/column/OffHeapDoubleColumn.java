@@ -0,0 +1,279 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.column;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import prefux.data.DataReadOnlyException;
+import prefux.data.DataTypeException;
+
+/**
+ * Column implementation for storing double values outside of the Java heap.
+ * @see OffHeapColumn
+ */
+public class OffHeapDoubleColumn extends OffHeapColumn {
+
+    private final double m_default;
+    
+    /**
+     * Create a new OffHeapDoubleColumn in direct memory. 
+     * @param nrows the initial size of the column
+     */
+    public OffHeapDoubleColumn(int nrows) {
+        this(nrows, 0, null);
+    }
+    
+    /**
+     * Create a new OffHeapDoubleColumn. 
+     * @param nrows the initial size of the column
+     * @param defaultValue the default value for the column
+     * @param channel a file channel open for reading and writing to store
+     * the values in, or null to use direct memory
+     */
+    public OffHeapDoubleColumn(int nrows, double defaultValue,
+                               FileChannel channel)
+    {
+        super(double.class, 8, Double.valueOf(defaultValue), channel);
+        m_default = defaultValue;
+        setMaximumRow(nrows);
+    }
+    
+    /**
+     * @see prefux.data.column.OffHeapColumn#fill(java.nio.ByteBuffer, int, int)
+     */
+    protected void fill(ByteBuffer seg, int from, int to) {
+        for ( int i=from; i<to; ++i )
+            seg.putDouble(i << 3, m_default);
+    }
+    
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. Segments are copied by the next write to them, so
+     * that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        return share(new OffHeapDoubleColumn(0, m_default, null));
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Access Methods    
+    
+    /**
+     * @see prefux.data.column.Column#get(int)
+     */
+    public Object get(int row) {
+        return Double.valueOf(getDouble(row));
+    }
+
+    /**
+     * @see prefux.data.column.Column#set(java.lang.Object, int)
+     */
+    public void set(Object val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        } else if ( val != null ) {
+            if ( val instanceof Number ) {
+                setDouble(((Number)val).doubleValue(), row);
+            } else if ( val instanceof String ) {
+                setString((String)val, row);
+            } else {
+                throw new DataTypeException(val.getClass());
+            }
+        } else {
+            throw new DataTypeException("Column does not accept null values");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Type Convenience Methods
+    
+    /**
+     * @see prefux.data.column.AbstractColumn#getDouble(int)
+     */
+    public double getDouble(int row) throws DataTypeException {
+        return segment(row).getDouble(offset(row));
+    }
+
+    /**
+     * @see prefux.data.column.AbstractColumn#setDouble(double, int)
+     */
+    public void setDouble(double val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        // get the previous value
+        double prev = getDouble(row);
+        
+        // exit early if no change
+        if ( prev == val ) return;
+        
+        // set the new value
+        writableSegment(row).putDouble(offset(row), val);
+        
+        // fire a change event
+        fireColumnEvent(row, prev);
+    }
+    
+    /**
+     * Reads the values segment by segment, with one bulk read each.
+     * @see prefux.data.column.Column#getDoubles(int, double[], int)
+     */
+    public void getDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        checkRange(start, n);
+        for ( int i=0; i<n; ) {
+            int row = start+i;
+            int len = Math.min(n-i, SEGMENT_SIZE - (row & SEGMENT_MASK));
+            ByteBuffer seg = segment(row);
+            seg = seg.duplicate().order(seg.order());
+            seg.position(offset(row));
+            seg.asDoubleBuffer().get(values, i, len);
+            i += len;
+        }
+    }
+    
+    /**
+     * Sets the values at the given rows. Rows whose value does not change
+     * are skipped, and each run of consecutive changed rows is reported
+     * with a single range update event.
+     * @see prefux.data.column.Column#setDoubles(int[], double[], int)
+     */
+    public void setDoubles(int[] rows, double[] values, int n)
+        throws DataTypeException
+    {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        for ( int i=0; i<n; ++i ) {
+            if ( rows[i] < 0 || rows[i] >= m_size ) {
+                throw new IllegalArgumentException(
+                    "Row index out of bounds: "+rows[i]);
+            }
+        }
+        setValues(rows, 0, values, n);
+    }
+    
+    /**
+     * Sets the values of the given range of rows. Rows whose value does
+     * not change are skipped, and each run of consecutive changed rows is
+     * reported with a single range update event.
+     * @see prefux.data.column.Column#setDoubles(int, double[], int)
+     */
+    public void setDoubles(int start, double[] values, int n)
+        throws DataTypeException
+    {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        checkRange(start, n);
+        setValues(null, start, values, n);
+    }
+    
+    /**
+     * Writes the values of validated rows, given either as an array or as
+     * the range starting at <code>start</code>, and fires the events.
+     */
+    private void setValues(int[] rows, int start, double[] values, int n) {
+        int r0 = -1, r1 = -1;
+        double prev = 0;
+        for ( int i=0; i<n; ++i ) {
+            int row = ( rows == null ? start+i : rows[i] );
+            double p = segment(row).getDouble(offset(row));
+            if ( p == values[i] ) continue;
+            
+            writableSegment(row).putDouble(offset(row), values[i]);
+            
+            if ( r0 >= 0 && row == r1+1 ) {
+                r1 = row;
+            } else {
+                fireColumnRunEvent(r0, r1, prev);
+                r0 = r1 = row;
+                prev = p;
+            }
+        }
+        fireColumnRunEvent(r0, r1, prev);
+    }
+    
+    private void checkRange(int start, int n) {
+        if ( start < 0 || n < 0 || start+n > m_size ) {
+            throw new IllegalArgumentException(
+                "Row range out of bounds: "+start+"-"+(start+n-1));
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    /**
+     * @see prefux.data.column.Column#getInt(int)
+     */
+    public int getInt(int row) throws DataTypeException {
+        return (int)getDouble(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#setInt(int, int)
+     */
+    public void setInt(int val, int row) throws DataTypeException {
+        setDouble(val, row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getLong(int)
+     */
+    public long getLong(int row) throws DataTypeException {
+        return (long)getDouble(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#setLong(long, int)
+     */
+    public void setLong(long val, int row) throws DataTypeException {
+        setDouble(val, row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getFloat(int)
+     */
+    public float getFloat(int row) throws DataTypeException {
+        return (float)getDouble(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#setFloat(float, int)
+     */
+    public void setFloat(float val, int row) throws DataTypeException {
+        setDouble(val, row);
+    }
+
+} // end of class OffHeapDoubleColumn
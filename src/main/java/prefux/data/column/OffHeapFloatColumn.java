@@ -0,0 +1,170 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.column;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import prefux.data.DataReadOnlyException;
+import prefux.data.DataTypeException;
+
+/**
+ * Column implementation for storing float values outside of the Java heap.
+ * @see OffHeapColumn
+ */
+public class OffHeapFloatColumn extends OffHeapColumn {
+
+    private final float m_default;
+    
+    /**
+     * Create a new OffHeapFloatColumn in direct memory. 
+     * @param nrows the initial size of the column
+     */
+    public OffHeapFloatColumn(int nrows) {
+        this(nrows, 0f, null);
+    }
+    
+    /**
+     * Create a new OffHeapFloatColumn. 
+     * @param nrows the initial size of the column
+     * @param defaultValue the default value for the column
+     * @param channel a file channel open for reading and writing to store
+     * the values in, or null to use direct memory
+     */
+    public OffHeapFloatColumn(int nrows, float defaultValue,
+                              FileChannel channel)
+    {
+        super(float.class, 4, Float.valueOf(defaultValue), channel);
+        m_default = defaultValue;
+        setMaximumRow(nrows);
+    }
+    
+    /**
+     * @see prefux.data.column.OffHeapColumn#fill(java.nio.ByteBuffer, int, int)
+     */
+    protected void fill(ByteBuffer seg, int from, int to) {
+        for ( int i=from; i<to; ++i )
+            seg.putFloat(i << 2, m_default);
+    }
+    
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. Segments are copied by the next write to them, so
+     * that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        return share(new OffHeapFloatColumn(0, m_default, null));
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Access Methods    
+    
+    /**
+     * @see prefux.data.column.Column#get(int)
+     */
+    public Object get(int row) {
+        return Float.valueOf(getFloat(row));
+    }
+
+    /**
+     * @see prefux.data.column.Column#set(java.lang.Object, int)
+     */
+    public void set(Object val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        } else if ( val != null ) {
+            if ( val instanceof Number ) {
+                setFloat(((Number)val).floatValue(), row);
+            } else if ( val instanceof String ) {
+                setString((String)val, row);
+            } else {
+                throw new DataTypeException(val.getClass());
+            }
+        } else {
+            throw new DataTypeException("Column does not accept null values");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Type Convenience Methods
+    
+    /**
+     * @see prefux.data.column.AbstractColumn#getFloat(int)
+     */
+    public float getFloat(int row) throws DataTypeException {
+        return segment(row).getFloat(offset(row));
+    }
+
+    /**
+     * @see prefux.data.column.AbstractColumn#setFloat(float, int)
+     */
+    public void setFloat(float val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        // get the previous value
+        float prev = getFloat(row);
+        
+        // exit early if no change
+        if ( prev == val ) return;
+        
+        // set the new value
+        writableSegment(row).putFloat(offset(row), val);
+        
+        // fire a change event
+        fireColumnEvent(row, prev);
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    /**
+     * @see prefux.data.column.Column#getInt(int)
+     */
+    public int getInt(int row) throws DataTypeException {
+        return (int)getFloat(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getLong(int)
+     */
+    public long getLong(int row) throws DataTypeException {
+        return (long)getFloat(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getDouble(int)
+     */
+    public double getDouble(int row) throws DataTypeException {
+        return getFloat(row);
+    }
+
+} // end of class OffHeapFloatColumn
@@ -0,0 +1,170 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.column;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import prefux.data.DataReadOnlyException;
+import prefux.data.DataTypeException;
+
+/**
+ * Column implementation for storing long values outside of the Java heap.
+ * @see OffHeapColumn
+ */
+public class OffHeapLongColumn extends OffHeapColumn {
+
+    private final long m_default;
+    
+    /**
+     * Create a new OffHeapLongColumn in direct memory. 
+     * @param nrows the initial size of the column
+     */
+    public OffHeapLongColumn(int nrows) {
+        this(nrows, 0L, null);
+    }
+    
+    /**
+     * Create a new OffHeapLongColumn. 
+     * @param nrows the initial size of the column
+     * @param defaultValue the default value for the column
+     * @param channel a file channel open for reading and writing to store
+     * the values in, or null to use direct memory
+     */
+    public OffHeapLongColumn(int nrows, long defaultValue,
+                             FileChannel channel)
+    {
+        super(long.class, 8, Long.valueOf(defaultValue), channel);
+        m_default = defaultValue;
+        setMaximumRow(nrows);
+    }
+    
+    /**
+     * @see prefux.data.column.OffHeapColumn#fill(java.nio.ByteBuffer, int, int)
+     */
+    protected void fill(ByteBuffer seg, int from, int to) {
+        for ( int i=from; i<to; ++i )
+            seg.putLong(i << 3, m_default);
+    }
+    
+    /**
+     * Returns a read-only copy of this column that shares the current values
+     * with this column. Segments are copied by the next write to them, so
+     * that the returned column never changes.
+     * @see prefux.data.column.Column#snapshot()
+     */
+    public Column snapshot() {
+        return share(new OffHeapLongColumn(0, m_default, null));
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Access Methods    
+    
+    /**
+     * @see prefux.data.column.Column#get(int)
+     */
+    public Object get(int row) {
+        return Long.valueOf(getLong(row));
+    }
+
+    /**
+     * @see prefux.data.column.Column#set(java.lang.Object, int)
+     */
+    public void set(Object val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        } else if ( val != null ) {
+            if ( val instanceof Number ) {
+                setLong(((Number)val).longValue(), row);
+            } else if ( val instanceof String ) {
+                setString((String)val, row);
+            } else {
+                throw new DataTypeException(val.getClass());
+            }
+        } else {
+            throw new DataTypeException("Column does not accept null values");
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Data Type Convenience Methods
+    
+    /**
+     * @see prefux.data.column.AbstractColumn#getLong(int)
+     */
+    public long getLong(int row) throws DataTypeException {
+        return segment(row).getLong(offset(row));
+    }
+
+    /**
+     * @see prefux.data.column.AbstractColumn#setLong(long, int)
+     */
+    public void setLong(long val, int row) throws DataTypeException {
+        if ( m_readOnly ) {
+            throw new DataReadOnlyException();
+        }
+        // get the previous value
+        long prev = getLong(row);
+        
+        // exit early if no change
+        if ( prev == val ) return;
+        
+        // set the new value
+        writableSegment(row).putLong(offset(row), val);
+        
+        // fire a change event
+        fireColumnEvent(row, prev);
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    /**
+     * @see prefux.data.column.Column#getInt(int)
+     */
+    public int getInt(int row) throws DataTypeException {
+        return (int)getLong(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getFloat(int)
+     */
+    public float getFloat(int row) throws DataTypeException {
+        return getLong(row);
+    }
+    
+    /**
+     * @see prefux.data.column.Column#getDouble(int)
+     */
+    public double getDouble(int row) throws DataTypeException {
+        return getLong(row);
+    }
+
+} // end of class OffHeapLongColumn
@@ -0,0 +1,153 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.event;
+
+import prefux.data.Table;
+
+/**
+ * Buffer of table updates that are delivered later as a batch, see
+ * {@link prefux.data.Table#beginBatch()}. Updates of the same column are
+ * coalesced into a single event when their row ranges overlap or are
+ * adjacent. Inserts and deletes are not buffered: the table delivers the
+ * buffered updates before any insert or delete.
+ */
+public class TableEventBuffer {
+
+    /** How many of the most recent updates are checked for coalescing */
+    private static final int LOOKBACK = 8;
+    
+    private static final int START = 0, END = 1, COL = 2;
+    
+    // the updates, three ints each
+    private int[] m_events = new int[3*16];
+    private int m_size = 0;
+    
+    /**
+     * Indicates if this buffer holds no events.
+     * @return true if the buffer is empty
+     */
+    public boolean isEmpty() {
+        return m_size == 0;
+    }
+    
+    /**
+     * Get the number of (coalesced) events in this buffer.
+     * @return the number of events
+     */
+    public int size() {
+        return m_size;
+    }
+    
+    /**
+     * Remove all events from this buffer.
+     */
+    public void clear() {
+        m_size = 0;
+    }
+    
+    /**
+     * Add a table update to this buffer.
+     * @param start the starting row index of the updated table region
+     * @param end the ending row index of the updated table region
+     * @param col the column that has changed, or
+     * {@link EventConstants#ALL_COLUMNS} if the update affects all
+     * columns
+     */
+    public void add(int start, int end, int col) {
+        // look for a recent update of the same column to merge with
+        int min = Math.max(0, m_size-LOOKBACK);
+        for ( int i=m_size; --i >= min; ) {
+            if ( merge(i, start, end, col) )
+                return;
+        }
+        
+        if ( 3*(m_size+1) > m_events.length ) {
+            int[] events = new int[2*m_events.length];
+            System.arraycopy(m_events, 0, events, 0, 3*m_size);
+            m_events = events;
+        }
+        int i = 3*m_size++;
+        m_events[i+START] = start;
+        m_events[i+END]   = end;
+        m_events[i+COL]   = col;
+    }
+    
+    private boolean merge(int e, int start, int end, int col) {
+        int i = 3*e;
+        if ( m_events[i+COL] != col ||
+             start > m_events[i+END]+1 || end+1 < m_events[i+START] )
+        {
+            return false;
+        }
+        m_events[i+START] = Math.min(start, m_events[i+START]);
+        m_events[i+END]   = Math.max(end, m_events[i+END]);
+        return true;
+    }
+    
+    /**
+     * Deliver the updates of this buffer to the given listeners, and clear
+     * the buffer. Each update only covers the rows that are still valid.
+     * @param t the table the updates belong to
+     * @param listeners the listeners to notify
+     */
+    public void fire(Table t, Object[] listeners) {
+        int[] events = m_events;
+        int size = m_size;
+        // listeners may start a new batch on the same table
+        m_events = new int[3*16];
+        clear();
+        
+        for ( int e=0; e<size; ++e ) {
+            int i = 3*e;
+            int start = events[i+START], end = events[i+END];
+            int col = events[i+COL];
+            
+            // deliver each run of valid rows
+            for ( int r=start; r<=end; ) {
+                for ( ; r<=end && !t.isValidRow(r); ++r );
+                int s = r;
+                for ( ; r<=end && t.isValidRow(r); ++r );
+                if ( s < r )
+                    fire(t, listeners, s, r-1, col);
+            }
+        }
+    }
+    
+    private static void fire(Table t, Object[] listeners,
+                             int start, int end, int col)
+    {
+        for ( int i=0; i<listeners.length; ++i ) {
+            ((TableListener)listeners[i]).tableChanged(
+                    t, start, end, col, EventConstants.UPDATE);
+        }
+    }
+    
+} // end of class TableEventBuffer
@@ -45,6 +45,7 @@ public abstract class AbstractExpression
     implements Expression, ExpressionListener
 {
     private CopyOnWriteArrayList m_listeners = new CopyOnWriteArrayList();
+    private int m_changes = 0;
     
     /**
      * @see prefux.data.expression.Expression#visit(prefux.data.expression.ExpressionVisitor)
@@ -80,10 +81,22 @@ public abstract class AbstractExpression
         return m_listeners != null && m_listeners.size() > 0;
     }
     
+    /**
+     * Get the number of changes this Expression has fired. The count is
+     * incremented before any listener is notified, so that it can be used
+     * to tell if an expression changed since it was last evaluated even
+     * while the change is still being delivered to other listeners.
+     * @return the number of expression changes fired
+     */
+    public final int getChangeCount() {
+        return m_changes;
+    }
+    
     /**
      * Fire an expression change.
      */
     protected final void fireExpressionChange() {
+        ++m_changes;
         Object[] lstnrs = m_listeners.getArray();
         for ( int i=0; i<lstnrs.length; ++i ) {
             ((ExpressionListener)lstnrs[i]).expressionChanged(this);
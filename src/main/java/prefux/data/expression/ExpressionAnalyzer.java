@@ -59,19 +59,59 @@ public class ExpressionAnalyzer {
      * @param expr the expression to analyze
      * @return a set of all data field names the expression references
      */
-    public static Set getReferencedColumns(Expression expr) {
+    public static Set<String> getReferencedColumns(Expression expr) {
         ColumnCollector cc = new ColumnCollector(true);
         expr.visit(cc);
         return cc.getColumnSet();
     }
     
+    /**
+     * Determine if the value of an expression only depends on the data
+     * fields it references. This holds for expressions built solely from
+     * the expression types of this package, other than functions, which
+     * may depend on any other state.
+     * @param expr the expression to analyze
+     * @return true if the expression depends on nothing but its
+     * referenced data fields
+     */
+    public static boolean isSelfContained(Expression expr) {
+        TypeChecker tc = new TypeChecker();
+        expr.visit(tc);
+        return tc.isSelfContained();
+    }
+    
+    /**
+     * ExpressionVisitor that checks for expressions of other packages or
+     * function expressions.
+     */
+    private static class TypeChecker implements ExpressionVisitor {
+        private boolean m_contained = true;
+        
+        public boolean isSelfContained() {
+            return m_contained;
+        }
+        public void visitExpression(Expression expr) {
+            if ( expr instanceof FunctionExpression || expr.getClass()
+                    .getPackage() != Expression.class.getPackage() )
+            {
+                m_contained = false;
+            }
+        }
+        public void down() {
+            // do nothing
+        }
+        public void up() {
+            // do nothing
+        }
+    }
+    
     /**
      * ExpressionVisitor that collects all referenced columns / data fields
      * in an Expression.
      */
     private static class ColumnCollector implements ExpressionVisitor {
         private boolean store;
-        private Set m_cols;
+        private Set<String> m_cols;
         private int m_count;
         
         public ColumnCollector(boolean store) {
@@ -80,9 +120,9 @@ public class ExpressionAnalyzer {
         public int getColumnCount() {
             return m_count;
         }
-        public Set getColumnSet() {
+        public Set<String> getColumnSet() {
             if ( m_cols == null ) {
-                return Collections.EMPTY_SET;
+                return Collections.emptySet();
             } else {
                 return m_cols;
             }
@@ -93,7 +133,7 @@ public class ExpressionAnalyzer {
                 if ( store ) {
                     String field = ((ColumnExpression)expr).getColumnName();
                     if ( m_cols == null )
-                        m_cols = new HashSet();
+                        m_cols = new HashSet<>();
                     m_cols.add(field);
                 }
                 
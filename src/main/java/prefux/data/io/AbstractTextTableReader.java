@@ -33,8 +33,10 @@ package prefux.data.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashSet;
 
 import prefux.data.Table;
+import prefux.data.column.ColumnFactory;
 import prefux.data.parser.DataParseException;
 import prefux.data.parser.DataParser;
 import prefux.data.parser.ParserFactory;
@@ -105,6 +107,8 @@ public abstract class AbstractTextTableReader extends AbstractTableReader {
         final TypeInferencer di = new TypeInferencer(m_pfactory);
         final ArrayList headers = getColumnNames();
         final int[] dim = new int[] { 0, 0 };
+        final ArrayList<HashSet<String>> distinct = new ArrayList<>();
+        final int maxDistinct = ColumnFactory.getDictionaryThreshold();
         
         TableReadListener scanner = new TableReadListener() {
             int prevLine = -1;
@@ -114,6 +118,8 @@ public abstract class AbstractTextTableReader extends AbstractTableReader {
                 // sample value to determine data type
                 if ( line > 1 || !m_hasHeader ) {
                     di.sample(col-1, value);
+                    countDistinct(distinct, col-1, value, maxDistinct,
+                            di.getType(col-1) == String.class);
                     
                     // update num rows
                     if ( line != prevLine ) {
@@ -152,7 +158,17 @@ public abstract class AbstractTextTableReader extends AbstractTableReader {
             } else {
                 header = getDefaultHeader(i);
             }
-            table.addColumn(header, di.getType(i));
+            Class type = di.getType(i);
+            if ( type == String.class ) {
+                // dictionary encode columns with few distinct values
+                HashSet<String> values = i < distinct.size()
+                        ? distinct.get(i) : null;
+                int card = ( values == null ? -1 : values.size() );
+                table.addColumn(header, 
+                        ColumnFactory.getStringColumn(nrows, card));
+            } else {
+                table.addColumn(header, type);
+            }
             table.getColumn(i).setParser(di.getParser(i));
         }
         
@@ -204,6 +220,26 @@ public abstract class AbstractTextTableReader extends AbstractTableReader {
         return table;
     }
     
+    /**
+     * Track the distinct values of a String column during the scan pass.
+     * Tracking of a column stops once it has more than the given number of
+     * distinct values, or once a value was sampled while its type was not
+     * yet inferred to be String, as earlier values were not counted. Its
+     * set is then replaced by null.
+     */
+    private static void countDistinct(ArrayList<HashSet<String>> distinct,
+                                      int col, String value, int max,
+                                      boolean string)
+    {
+        while ( distinct.size() <= col )
+            distinct.add(new HashSet<String>());
+        HashSet<String> values = distinct.get(col);
+        if ( values == null )
+            return;
+        if ( !string || (values.add(value) && values.size() > max) )
+            distinct.set(col, null);
+    }
+    
     /**
      * Subclasses can override this to provide column names through
      * a custom mechanism.
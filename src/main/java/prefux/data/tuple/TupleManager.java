@@ -121,6 +121,19 @@ public class TupleManager {
         }
     }
     
+    /**
+     * Get the Tuple corresponding to the given row index, if it has already
+     * been created. Unlike {@link #getTuple(int)}, no new Tuple is created.
+     * @param row the row index
+     * @return the Tuple corresponding to the given row, or null if no Tuple
+     * has been created for that row
+     */
+    public Tuple getCachedTuple(int row) {
+        if ( m_tuples == null || row < 0 || row >= m_tuples.length )
+            return null;
+        return m_tuples[row];
+    }
+    
     /**
      * Instantiate a new Tuple instance for the given row index.
      * @param row the row index of the tuple
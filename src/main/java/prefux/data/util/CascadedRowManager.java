@@ -63,6 +63,24 @@ public class CascadedRowManager extends FilteredRowManager {
             return row;
     }
     
+    /**
+     * Maps the rows of inherited columns to parent rows first, and then
+     * lets the parent table map all of them to its column rows at once.
+     * @see prefux.data.util.RowManager#getColumnRows(int[], int, int)
+     */
+    public int[] getColumnRows(int[] rows, int col, int n) {
+        CascadedTable table = (CascadedTable)m_table;
+        if ( col < table.getLocalColumnCount() )
+            return validRows(rows, n);
+        
+        int[] prows = new int[n];
+        for ( int i=0; i<n; ++i ) {
+            int row = rows[i];
+            prows[i] = isValidRow(row) ? getParentRow(row) : -1;
+        }
+        return table.getParentTable().getColumnRows(prows, col, n);
+    }
+    
     /**
      * @see prefux.data.util.RowManager#getTableRow(int, int)
      */
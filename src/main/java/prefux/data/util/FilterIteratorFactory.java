@@ -30,23 +30,31 @@
  */
 package prefux.data.util;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.Iterator;
 
+import prefux.data.Schema;
 import prefux.data.Table;
 import prefux.data.Tuple;
+import prefux.data.column.Column;
+import prefux.data.column.DictionaryStringColumn;
 import prefux.data.expression.AndPredicate;
 import prefux.data.expression.ColumnExpression;
 import prefux.data.expression.ComparisonPredicate;
 import prefux.data.expression.Expression;
 import prefux.data.expression.ExpressionAnalyzer;
+import prefux.data.expression.Literal;
 import prefux.data.expression.NotPredicate;
 import prefux.data.expression.OrPredicate;
 import prefux.data.expression.Predicate;
 import prefux.data.expression.RangePredicate;
 import prefux.data.tuple.TupleSet;
 import prefux.util.PrefuseConfig;
+import prefux.util.TypeLib;
 import prefux.util.collections.CompositeIntIterator;
+import prefux.util.collections.DefaultLiteralComparator;
 import prefux.util.collections.IntIterator;
 
 /**
@@ -55,6 +63,12 @@ import prefux.util.collections.IntIterator;
  * available indexes, in many incrasing performance by only visiting
  * the tuples which will pass the filter condition.
  * 
+ * <p>Compound predicates are planned into row bitmaps: the bitmaps of the
+ * indexed clauses are intersected, unioned or complemented, and clauses
+ * without an index are only evaluated for the rows left over. Bitmaps are
+ * kept in the {@link RowBitmapCache} of the table, so unchanged clauses
+ * of a query are not evaluated again.</p>
+ * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class FilterIteratorFactory {
@@ -88,7 +102,7 @@ public class FilterIteratorFactory {
         
         // optimization fails, scan the entire table
         if ( iter == null ) {
-            iter = new FilterIterator(ts.tuples(), p);
+            iter = new FilterIterator<>(ts.tuples(), p);
         }
         
         return iter;
@@ -136,6 +150,8 @@ public class FilterIteratorFactory {
                 return getColumnIterator(t,
                         ((ColumnExpression)pp).getColumnName(), false);
             }
+            // otherwise complement the rows of the negated clause
+            return getBitmapIterator(t, p);
         }
         else if ( p instanceof AndPredicate )
         {
@@ -176,47 +192,120 @@ public class FilterIteratorFactory {
     }
     
     protected static IntIterator getOrIterator(Table t, OrPredicate op) {
-        int size = op.size();
-        if ( size > 1 ) {
-            // if all subclauses can be optimized, we can optimize the query
-            IntIterator[] rows = new IntIterator[size];
-            for ( int i=0; i<rows.length; ++i ) {
-                rows[i] = getOptimizedIterator(t, op.get(i));
-                
-                // all clauses must be optimized to avoid linear scan
-                if ( rows[i] == null ) return null;
-            }
-            // group iterators, and filter for uniqueness
-            return new UniqueRowIterator(new CompositeIntIterator(rows));
-        } else if ( size == 1 ) {
-            // only one clause, optimize for that
-            return getOptimizedIterator(t, op.get(0));
+        return getBitmapIterator(t, op);
+    }
+    
+    protected static IntIterator getAndIterator(Table t, AndPredicate ap) {
+        return getBitmapIterator(t, ap);
+    }
+    
+    protected static IntIterator getBitmapIterator(Table t, Predicate p) {
+        BitSet rows = getBitmap(t, p);
+        return ( rows == null ? null : new BitSetRowIterator(rows) );
+    }
+    
+    // ------------------------------------------------------------------------
+    // Row Bitmaps
+    
+    /**
+     * Get a bitmap of the rows of a table that pass the given predicate,
+     * evaluated using the available indexes. Bitmaps are cached in the
+     * {@link RowBitmapCache} of the table.
+     * @param t the Table to evaluate the predicate on
+     * @param p the filter predicate
+     * @return the bitmap of the rows passing the predicate, or null if the
+     * predicate cannot be evaluated using indexes. The bitmap may be shared
+     * and must not be modified.
+     */
+    public static BitSet getBitmap(Table t, Predicate p) {
+        RowBitmapCache cache = RowBitmapCache.getCache(t);
+        if ( cache == null )
+            return computeBitmap(t, p);
+        
+        BitSet rows = cache.get(p);
+        if ( rows == null ) {
+            int stamp = cache.getStamp();
+            if ( (rows=computeBitmap(t, p)) != null )
+                cache.put(p, rows, stamp);
+        }
+        return rows;
+    }
+    
+    protected static BitSet computeBitmap(Table t, Predicate p) {
+        if ( p instanceof AndPredicate ) {
+            return getAndBitmap(t, (AndPredicate)p);
+        } else if ( p instanceof OrPredicate ) {
+            return getOrBitmap(t, (OrPredicate)p);
+        } else if ( p instanceof NotPredicate ) {
+            return getNotBitmap(t, (NotPredicate)p);
         } else {
-            // no woman, no cry
-            return null;
+            IntIterator rows = getOptimizedIterator(t, p);
+            return ( rows == null ? null : getBitmap(t, rows) );
         }
     }
     
-    protected static IntIterator getAndIterator(Table t, AndPredicate ap) {
-        // possible TODO: add scoring to select best optimized iterator
-        // for now just work from the end backwards and take the first
-        // optimized iterator we find
-        IntIterator rows = null;
-        Predicate clause = null;
-        for ( int i=ap.size(); --i >= 0; ) {
-            clause = ap.get(i);
-            if ( (rows=getOptimizedIterator(t,clause)) != null )
-                break;
+    protected static BitSet getAndBitmap(Table t, AndPredicate ap) {
+        // intersect the bitmaps of all clauses that can use an index,
+        // and remember the others to check row by row afterwards
+        BitSet rows = null;
+        ArrayList<Predicate> rest = new ArrayList<Predicate>();
+        for ( int i=0; i<ap.size(); ++i ) {
+            Predicate clause = ap.get(i);
+            BitSet b = getBitmap(t, clause);
+            if ( b == null ) {
+                rest.add(clause);
+            } else if ( rows == null ) {
+                rows = (BitSet)b.clone();
+            } else {
+                rows.and(b);
+            }
+            if ( rows != null && rows.isEmpty() )
+                return rows;
         }
         
-        // exit if we didn't optimize
+        // exit if no clause was optimized
         if ( rows == null ) return null;
         
-        // if only one clause, no extras needed
-        if ( ap.size() == 1 ) return rows;
+        for ( Predicate clause : rest ) {
+            for ( int r=rows.nextSetBit(0); r>=0; r=rows.nextSetBit(r+1) ) {
+                if ( !clause.getBoolean(t.getTuple(r)) )
+                    rows.clear(r);
+            }
+        }
+        return rows;
+    }
+    
+    protected static BitSet getOrBitmap(Table t, OrPredicate op) {
+        // all clauses must be optimized to avoid linear scan
+        BitSet rows = null;
+        for ( int i=0; i<op.size(); ++i ) {
+            BitSet b = getBitmap(t, op.get(i));
+            if ( b == null ) {
+                return null;
+            } else if ( rows == null ) {
+                rows = (BitSet)b.clone();
+            } else {
+                rows.or(b);
+            }
+        }
+        return rows;
+    }
+    
+    protected static BitSet getNotBitmap(Table t, NotPredicate np) {
+        BitSet b = getBitmap(t, np.getPredicate());
+        if ( b == null ) return null;
         
-        // otherwise get optimized source, run through other clauses
-        return new FilterRowIterator(rows, t, ap.getSubPredicate(clause));
+        // the complement is taken over the valid rows only
+        BitSet rows = getBitmap(t, t.rows());
+        rows.andNot(b);
+        return rows;
+    }
+    
+    private static BitSet getBitmap(Table t, IntIterator iter) {
+        BitSet rows = new BitSet(t.getMaximumRow()+1);
+        while ( iter.hasNext() )
+            rows.set(iter.nextInt());
+        return rows;
     }
     
     protected static IntIterator getComparisonIterator(Table t, 
@@ -226,10 +315,6 @@ public class FilterIteratorFactory {
         Expression r = cp.getRightExpression();
         int operation = cp.getOperation();
         
-        // not equals operations aren't handled by the index
-        if ( operation == ComparisonPredicate.NEQ )
-            return null;
-        
         ColumnExpression col;
         Expression lit;
         
@@ -244,20 +329,55 @@ public class FilterIteratorFactory {
         {
             col = (ColumnExpression)r;
             lit = l;
+            // mirror the comparison, so that the column is on the left
+            switch ( operation ) {
+            case ComparisonPredicate.LT:
+                operation = ComparisonPredicate.GT;
+                break;
+            case ComparisonPredicate.GT:
+                operation = ComparisonPredicate.LT;
+                break;
+            case ComparisonPredicate.LTEQ:
+                operation = ComparisonPredicate.GTEQ;
+                break;
+            case ComparisonPredicate.GTEQ:
+                operation = ComparisonPredicate.LTEQ;
+                break;
+            }
         } else {
             return null;
         }
         
         // if table has index of the right type, use it
-        Comparator cmp = cp.getComparator();
+        Comparator<?> cmp = cp.getComparator();
         Index index = t.getIndex(col.getColumnName());
         
+        // equality tests on dictionary encoded columns compare codes
+        if ( operation == ComparisonPredicate.NEQ || ( index == null &&
+                operation == ComparisonPredicate.EQ ) )
+        {
+            return getDictionaryIterator(t, col.getColumnName(), lit,
+                    cmp, operation == ComparisonPredicate.EQ);
+        }
+        
         if ( index == null || !cmp.equals(index.getComparator()) )
             return null;
         
-        Class ltype = lit.getClass();
+        // the index is keyed on the column type, so query with that type
+        Class<?> ltype = col.getType(t.getSchema());
+        Number key = null;
+        if ( isKeyType(ltype) ) {
+            key = getIndexKey(lit, ltype, t.getSchema());
+            if ( key == null ) {
+                // no value of the column type equals a numeric literal
+                return ( operation == ComparisonPredicate.EQ &&
+                        TypeLib.isNumericType(lit.getType(t.getSchema()))
+                        ? emptyRows() : null );
+            }
+        }
+        
         if ( ltype == int.class ) {
-            int val = lit.getInt(null); // literal value, so null is safe
+            int val = key.intValue();
             switch ( operation ) {
             case ComparisonPredicate.LT:
                 return index.rows(Integer.MIN_VALUE, val, Index.TYPE_AIE);
@@ -273,7 +393,7 @@ public class FilterIteratorFactory {
                 throw new IllegalStateException(); // should never occur
             }
         } else if ( ltype == long.class ) {
-            long val = lit.getLong(null); // literal value, so null is safe
+            long val = key.longValue();
             switch ( operation ) {
             case ComparisonPredicate.LT:
                 return index.rows(Long.MIN_VALUE, val, Index.TYPE_AIE);
@@ -289,34 +409,38 @@ public class FilterIteratorFactory {
                 throw new IllegalStateException(); // should never occur
             }
         } else if ( ltype == float.class ) {
-            float val = lit.getFloat(null); // literal value, so null is safe
+            // the index orders values as Float.compare does, from negative
+            // infinity up to NaN, so the open bounds cover all values
+            float val = key.floatValue();
             switch ( operation ) {
             case ComparisonPredicate.LT:
-                return index.rows(Float.MIN_VALUE, val, Index.TYPE_AIE);
+                return index.rows(Float.NEGATIVE_INFINITY, val, Index.TYPE_AIE);
             case ComparisonPredicate.GT:
-                return index.rows(val, Float.MAX_VALUE, Index.TYPE_AEI);
+                return index.rows(val, Float.NaN, Index.TYPE_AEI);
             case ComparisonPredicate.EQ:
                 return index.rows(val, val, Index.TYPE_AII);
             case ComparisonPredicate.LTEQ:
-                return index.rows(Float.MIN_VALUE, val, Index.TYPE_AII);
+                return index.rows(Float.NEGATIVE_INFINITY, val, Index.TYPE_AII);
             case ComparisonPredicate.GTEQ:
-                return index.rows(val, Float.MAX_VALUE, Index.TYPE_AII);
+                return index.rows(val, Float.NaN, Index.TYPE_AII);
             default:
                 throw new IllegalStateException(); // should never occur
             }
         } else if ( ltype == double.class ) {
-            double val = lit.getDouble(null); // literal value, so null is safe
+            double val = key.doubleValue();
             switch ( operation ) {
             case ComparisonPredicate.LT:
-                return index.rows(Double.MIN_VALUE, val, Index.TYPE_AIE);
+                return index.rows(Double.NEGATIVE_INFINITY, val,
+                                  Index.TYPE_AIE);
             case ComparisonPredicate.GT:
-                return index.rows(val, Double.MAX_VALUE, Index.TYPE_AEI);
+                return index.rows(val, Double.NaN, Index.TYPE_AEI);
             case ComparisonPredicate.EQ:
                 return index.rows(val, val, Index.TYPE_AII);
             case ComparisonPredicate.LTEQ:
-                return index.rows(Double.MIN_VALUE, val, Index.TYPE_AII);
+                return index.rows(Double.NEGATIVE_INFINITY, val,
+                                  Index.TYPE_AII);
             case ComparisonPredicate.GTEQ:
-                return index.rows(val, Double.MAX_VALUE, Index.TYPE_AII);
+                return index.rows(val, Double.NaN, Index.TYPE_AII);
             default:
                 throw new IllegalStateException(); // should never occur
             }
@@ -339,6 +463,26 @@ public class FilterIteratorFactory {
         }        
     }
     
+    protected static IntIterator getDictionaryIterator(Table t, String field,
+            Expression lit, Comparator<?> cmp, boolean equal)
+    {
+        Column c = t.getColumn(field);
+        if ( !(c instanceof DictionaryStringColumn) ||
+                cmp != DefaultLiteralComparator.getInstance() )
+        {
+            return null; // only works for dictionary encoded columns
+        }
+        
+        Object val = lit.get(null); // literal value, so null is safe
+        if ( !(val instanceof String) )
+            return null;
+        
+        // a literal missing from the dictionary matches no row, which the
+        // code -1 takes care of
+        int code = ((DictionaryStringColumn)c).encode((String)val);
+        return new DictionaryRowIterator(t.rows(), t, field, code, equal);
+    }
+    
     protected static IntIterator getRangeIterator(Table t, RangePredicate rp) {
         ColumnExpression col;
         Expression l, r;
@@ -357,16 +501,22 @@ public class FilterIteratorFactory {
         r = rp.getRightExpression();
         
         // if table has index of the right type, use it
-        Comparator cmp = rp.getComparator();
+        Comparator<?> cmp = rp.getComparator();
         Index index = t.getIndex(col.getColumnName());
         
         if ( index == null || !cmp.equals(index.getComparator()) )
             return null;
         
         int operation = rp.getOperation();
-        Class ltype = t.getColumnType(col.getColumnName());
+        Class<?> ltype = t.getColumnType(col.getColumnName());
         
-        // TODO safety check literal types
+        Number lk = null, hk = null;
+        if ( isKeyType(ltype) ) {
+            lk = getIndexKey(l, ltype, t.getSchema());
+            hk = getIndexKey(r, ltype, t.getSchema());
+            if ( lk == null || hk == null )
+                return null; // let a scan compare with the exact bounds
+        }
         
         // get the index type
         int indexType;
@@ -387,18 +537,177 @@ public class FilterIteratorFactory {
             throw new IllegalStateException(); // should never occur
         }
         
-        // get the indexed rows
+        // get the indexed rows. a range with reversed bounds holds no
+        // values, but the index would not iterate it as an empty range.
         if ( ltype == int.class ) {
-            return index.rows(l.getInt(null), r.getInt(null), indexType);
+            int lo = lk.intValue(), hi = hk.intValue();
+            return ( lo > hi ? emptyRows() : index.rows(lo, hi, indexType) );
         } else if ( ltype == long.class ) {
-            return index.rows(l.getLong(null), r.getLong(null), indexType);
+            long lo = lk.longValue(), hi = hk.longValue();
+            return ( lo > hi ? emptyRows() : index.rows(lo, hi, indexType) );
         } else if ( ltype == float.class ) {
-            return index.rows(l.getFloat(null), r.getFloat(null), indexType);
+            float lo = lk.floatValue(), hi = hk.floatValue();
+            return ( Float.compare(lo, hi) > 0
+                    ? emptyRows() : index.rows(lo, hi, indexType) );
         } else if ( ltype == double.class ) {
-            return index.rows(l.getDouble(null), r.getDouble(null), indexType);
+            double lo = lk.doubleValue(), hi = hk.doubleValue();
+            return ( Double.compare(lo, hi) > 0
+                    ? emptyRows() : index.rows(lo, hi, indexType) );
         } else {
-            return index.rows(l.get(null), r.get(null), indexType);
+            Object lo = l.get(null), hi = r.get(null);
+            return ( lo != null && hi != null && compare(cmp, lo, hi) > 0
+                    ? emptyRows() : index.rows(lo, hi, indexType) );
+        }
+    }
+    
+    /**
+     * Get an iterator over the rows of a table that may have changed
+     * whether they pass a range predicate when the bounds of the range
+     * changed. These are the rows with values between the previous and
+     * the current lower bound, or between the previous and the current
+     * upper bound, all inclusive. All other rows either passed the range
+     * predicate both before and after the change, or neither time.
+     * @param t the Table to iterate over
+     * @param rp the range predicate, with its current bounds
+     * @param lo the previous lower bound of the range predicate
+     * @param hi the previous upper bound of the range predicate
+     * @return an iterator over the rows of the table that may have
+     * changed, or null if the table has no suitable index or the bounds
+     * are not literals
+     */
+    public static IntIterator getRangeDeltaIterator(Table t,
+            RangePredicate rp, Expression lo, Expression hi)
+    {
+        Expression l = rp.getLeftExpression();
+        Expression r = rp.getRightExpression();
+        if ( !(rp.getMiddleExpression() instanceof ColumnExpression) ||
+                !(l instanceof Literal) || !(r instanceof Literal) ||
+                !(lo instanceof Literal) || !(hi instanceof Literal) )
+        {
+            return null;
         }
+        
+        ColumnExpression col = (ColumnExpression)rp.getMiddleExpression();
+        Comparator<?> cmp = rp.getComparator();
+        Index index = t.getIndex(col.getColumnName());
+        
+        if ( index == null || !cmp.equals(index.getComparator()) )
+            return null;
+        
+        Class<?> ltype = t.getColumnType(col.getColumnName());
+        IntIterator lrows = getBetween(index, ltype, t.getSchema(), lo, l);
+        IntIterator hrows = getBetween(index, ltype, t.getSchema(), hi, r);
+        if ( lrows == null || hrows == null ) return null;
+        
+        // the two value ranges may overlap
+        return new UniqueRowIterator(new CompositeIntIterator(lrows, hrows));
+    }
+    
+    private static IntIterator getBetween(Index index, Class<?> type,
+                                          Schema s, Expression a, Expression b)
+    {
+        int indexType = Index.TYPE_AII;
+        if ( isKeyType(type) ) {
+            Number xk = getIndexKey(a, type, s), yk = getIndexKey(b, type, s);
+            if ( xk == null || yk == null )
+                return null; // the index cannot hold the exact bounds
+            if ( type == int.class ) {
+                int x = xk.intValue(), y = yk.intValue();
+                return index.rows(Math.min(x,y), Math.max(x,y), indexType);
+            } else if ( type == long.class ) {
+                long x = xk.longValue(), y = yk.longValue();
+                return index.rows(Math.min(x,y), Math.max(x,y), indexType);
+            } else if ( type == float.class ) {
+                float x = xk.floatValue(), y = yk.floatValue();
+                return ( Float.compare(x, y) <= 0
+                        ? index.rows(x, y, indexType)
+                        : index.rows(y, x, indexType) );
+            } else {
+                double x = xk.doubleValue(), y = yk.doubleValue();
+                return ( Double.compare(x, y) <= 0
+                        ? index.rows(x, y, indexType)
+                        : index.rows(y, x, indexType) );
+            }
+        } else {
+            Object x = a.get(null), y = b.get(null);
+            if ( x == null || y == null )
+                return null; // a null bound leaves the range open
+            return ( compare(index.getComparator(), x, y) <= 0
+                    ? index.rows(x, y, indexType)
+                    : index.rows(y, x, indexType) );
+        }
+    }
+    
+    /**
+     * Indicates if an index on a column of the given type is keyed on
+     * primitive numbers, see {@link #getIndexKey(Expression, Class, Schema)}.
+     */
+    private static boolean isKeyType(Class<?> type) {
+        return ( type == int.class   || type == long.class ||
+                 type == float.class || type == double.class );
+    }
+    
+    /**
+     * Get the value of a literal as a key of an index on a column of the
+     * given numeric type. A scan compares the column with the literal in
+     * the wider of the two types, so the key must equal the literal
+     * exactly, or the index would return other rows than the scan.
+     * @param lit the literal expression
+     * @param type the column type, one of int, long, float, or double
+     * @param s the schema of the table
+     * @return the key, or null if the literal is not a number or no value
+     * of the column type equals it
+     */
+    private static Number getIndexKey(Expression lit, Class<?> type, Schema s) {
+        Class<?> vtype = lit.getType(s);
+        if ( vtype == null || !TypeLib.isNumericType(vtype) )
+            return null;
+        
+        // literal values, so null is safe
+        if ( TypeLib.getNumericType(type, vtype) == type ) {
+            // the literal is converted to the column type, as by a scan
+            if ( type == int.class )
+                return Integer.valueOf(lit.getInt(null));
+            else if ( type == long.class )
+                return Long.valueOf(lit.getLong(null));
+            else if ( type == float.class )
+                return Float.valueOf(lit.getFloat(null));
+            else
+                return Double.valueOf(lit.getDouble(null));
+        }
+        
+        // the literal is wider, and Double.compare tells -0.0 and NaN apart
+        if ( type == int.class && vtype == long.class ) {
+            long v = lit.getLong(null);
+            return ( v == (int)v ? Integer.valueOf((int)v) : null );
+        } else if ( type == int.class ) {
+            double v = lit.getDouble(null);
+            return ( Double.compare(v, (int)v) == 0
+                    ? Integer.valueOf((int)v) : null );
+        } else if ( type == long.class ) {
+            double v = lit.getDouble(null);
+            return ( v < 0x1p63 && Double.compare(v, (long)v) == 0
+                    ? Long.valueOf((long)v) : null );
+        } else if ( type == float.class ) {
+            double v = lit.getDouble(null);
+            return ( Double.compare(v, (float)v) == 0
+                    ? Float.valueOf((float)v) : null );
+        } else {
+            return null;
+        }
+    }
+    
+    private static IntIterator emptyRows() {
+        return new BitSetRowIterator(new BitSet(0));
+    }
+    
+    /**
+     * Compares two literal values with the untyped comparator of a
+     * predicate or index.
+     */
+    @SuppressWarnings("unchecked")
+    private static int compare(Comparator<?> cmp, Object a, Object b) {
+        return ((Comparator<Object>)cmp).compare(a, b);
     }
     
 } // end of class FilterIteratorFactory
@@ -100,6 +100,17 @@ public class FilteredRowManager extends RowManager {
                     .getColumnRow(getParentRow(row), col);
     }
     
+    /**
+     * @see prefux.data.util.RowManager#getColumnRows(int[], int, int)
+     */
+    public int[] getColumnRows(int[] rows, int col, int n) {
+        int[] prows = new int[n];
+        for ( int i=0; i<n; ++i )
+            prows[i] = getParentRow(rows[i]);
+        return ((CascadedTable)m_table).getParentTable()
+                    .getColumnRows(prows, col, n);
+    }
+    
     /**
      * @see prefux.data.util.RowManager#getTableRow(int, int)
      */
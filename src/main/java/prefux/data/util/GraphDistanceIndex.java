@@ -0,0 +1,565 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.util;
+
+import java.util.Arrays;
+
+import prefux.data.Graph;
+import prefux.data.Table;
+import prefux.data.event.EventConstants;
+import prefux.data.event.GraphListener;
+import prefux.util.collections.IntIterator;
+
+/**
+ * Bounded multi-source breadth-first search over the node rows of a
+ * {@link Graph}, using primitive arrays that are reused across searches.
+ * The adjacency of the graph is copied into compressed arrays, which are
+ * rebuilt lazily after any change to the graph structure, as reported by
+ * the graph's {@link GraphListener} events.
+ * 
+ * <p>The index keeps the distance of every node to the nearest source
+ * node, up to a maximum distance. When {@link #update(int[], int)} is
+ * called with a new set of sources, only the distances around the added
+ * and removed sources are recomputed, and the nodes whose distance changed
+ * are recorded, so that clients can restrict their own updates to these
+ * nodes.</p>
+ */
+public class GraphDistanceIndex implements GraphListener {
+
+    protected Graph m_graph;
+    protected int m_direction;
+    protected boolean m_valid = false;
+    protected boolean m_computed = false;
+    protected int m_maxDistance = Integer.MAX_VALUE;
+    
+    // adjacency: the neighbors of node n are m_adj[m_offset[n]..m_offset[n+1])
+    protected int[] m_offset = new int[1];
+    protected int[] m_adj = new int[0];
+    protected int[] m_adjEdge = new int[0];
+    // reverse adjacency, shared with the forward one for undirected search
+    protected int[] m_revOffset = m_offset;
+    protected int[] m_rev = m_adj;
+    
+    protected int[] m_dist = new int[0];
+    protected boolean[] m_source = new boolean[0];
+    protected int[] m_sources = new int[0];
+    protected int m_sourceCount = 0;
+    
+    protected int[] m_queue = new int[0];
+    protected int[] m_stamp = new int[0];
+    protected int m_epoch = 0;
+    
+    protected int[] m_changeStamp = new int[0];
+    protected int m_changeEpoch = 0;
+    protected int[] m_changed = new int[0];
+    protected int[] m_prevDist = new int[0];
+    protected int m_changedCount = 0;
+    
+    /**
+     * Create a new GraphDistanceIndex, which listens for changes to the
+     * given graph.
+     * @param graph the Graph to search
+     * @param direction the edges to follow from a node, one of
+     * {@link Graph#OUTEDGES}, {@link Graph#INEDGES} or
+     * {@link Graph#UNDIRECTED}
+     */
+    public GraphDistanceIndex(Graph graph, int direction) {
+        if ( direction != Graph.OUTEDGES && direction != Graph.INEDGES
+                && direction != Graph.UNDIRECTED )
+            throw new IllegalArgumentException(
+                    "Unrecognized edge direction: "+direction);
+        m_graph = graph;
+        m_direction = direction;
+        m_graph.addGraphModelListener(this);
+    }
+    
+    /**
+     * Stop listening to the graph and release the index arrays.
+     */
+    public void dispose() {
+        m_graph.removeGraphModelListener(this);
+        m_offset = m_revOffset = new int[1];
+        m_adj = m_adjEdge = m_rev = new int[0];
+        m_dist = m_sources = m_queue = m_stamp = m_changeStamp = m_changed
+            = m_prevDist = new int[0];
+        m_source = new boolean[0];
+        m_sourceCount = m_changedCount = 0;
+        m_valid = m_computed = false;
+    }
+    
+    /**
+     * Get the graph searched by this index.
+     * @return the indexed Graph
+     */
+    public Graph getGraph() {
+        return m_graph;
+    }
+    
+    /**
+     * Mark the index as stale, causing the adjacency to be rebuilt and the
+     * distances to be recomputed from scratch on the next update.
+     */
+    public void invalidate() {
+        m_valid = false;
+    }
+    
+    /**
+     * Indicates if the index is up to date with the graph structure.
+     * @return true if the index is valid
+     */
+    public boolean isValid() {
+        return m_valid;
+    }
+    
+    /**
+     * @see prefux.data.event.GraphListener#graphChanged(prefux.data.Graph, java.lang.String, int, int, int, int)
+     */
+    public void graphChanged(Graph g, String table, 
+            int start, int end, int col, int type)
+    {
+        if ( !m_valid ) return;
+        if ( Graph.NODES.equals(table) ) {
+            // node data updates do not affect the structure
+            if ( type != EventConstants.UPDATE )
+                m_valid = false;
+        } else if ( type != EventConstants.UPDATE 
+                || col == EventConstants.ALL_COLUMNS )
+        {
+            m_valid = false;
+        } else {
+            Table edges = g.getEdgeTable();
+            if ( col == edges.getColumnNumber(g.getEdgeSourceField()) ||
+                 col == edges.getColumnNumber(g.getEdgeTargetField()) )
+                m_valid = false;
+        }
+    }
+    
+    /**
+     * Set the maximum distance searched from the source nodes. Nodes
+     * further away are considered unreached. Changing the distance causes
+     * the next update to recompute all distances.
+     * @param distance the maximum distance
+     */
+    public void setMaxDistance(int distance) {
+        if ( distance < 0 )
+            throw new IllegalArgumentException(
+                    "Distance must be greater than or equal to 0.");
+        if ( distance != m_maxDistance )
+            m_computed = false;
+        m_maxDistance = distance;
+    }
+    
+    /**
+     * Get the maximum distance searched from the source nodes.
+     * @return the maximum distance
+     */
+    public int getMaxDistance() {
+        return m_maxDistance;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Adjacency Construction
+    
+    /**
+     * Rebuild the adjacency arrays if they are stale.
+     */
+    protected void validate() {
+        if ( m_valid ) return;
+        int n = m_graph.getNodeTable().getMaximumRow()+1;
+        
+        // count the neighbors of each node
+        int[] out = new int[n+1], in = new int[n+1];
+        int edges = 0;
+        for ( IntIterator iter = m_graph.edgeRows(); iter.hasNext(); ) {
+            int e = iter.nextInt();
+            int s = m_graph.getSourceNode(e), t = m_graph.getTargetNode(e);
+            if ( s < 0 || t < 0 || s >= n || t >= n ) continue;
+            ++out[s]; ++in[t];
+            ++edges;
+        }
+        if ( m_direction == Graph.UNDIRECTED ) {
+            for ( int i=0; i<n; ++i ) out[i] += in[i];
+            in = null;
+        } else if ( m_direction == Graph.INEDGES ) {
+            int[] tmp = out; out = in; in = tmp;
+        }
+        
+        m_offset = offsets(out, n);
+        m_adj = new int[m_offset[n]];
+        m_adjEdge = new int[m_offset[n]];
+        if ( in == null ) {
+            m_revOffset = m_offset;
+            m_rev = m_adj;
+        } else {
+            m_revOffset = offsets(in, n);
+            m_rev = new int[m_revOffset[n]];
+        }
+        
+        // fill in the neighbors, using the counts as insertion positions
+        System.arraycopy(m_offset, 0, out, 0, n);
+        if ( in != null ) System.arraycopy(m_revOffset, 0, in, 0, n);
+        for ( IntIterator iter = m_graph.edgeRows(); iter.hasNext(); ) {
+            int e = iter.nextInt();
+            int s = m_graph.getSourceNode(e), t = m_graph.getTargetNode(e);
+            if ( s < 0 || t < 0 || s >= n || t >= n ) continue;
+            if ( m_direction == Graph.INEDGES ) {
+                int tmp = s; s = t; t = tmp;
+            }
+            m_adj[out[s]] = t; m_adjEdge[out[s]++] = e;
+            if ( in == null ) {
+                m_adj[out[t]] = s; m_adjEdge[out[t]++] = e;
+            } else {
+                m_rev[in[t]++] = s;
+            }
+        }
+        
+        // reset the search state
+        if ( m_dist.length != n ) {
+            m_dist = new int[n];
+            m_source = new boolean[n];
+            m_queue = new int[n];
+            m_stamp = new int[n];
+            m_changeStamp = new int[n];
+            m_changed = new int[n];
+            m_prevDist = new int[n];
+        }
+        m_sourceCount = 0;
+        m_valid = true;
+        m_computed = false;
+    }
+    
+    private static int[] offsets(int[] counts, int n) {
+        int[] offset = new int[n+1];
+        for ( int i=0; i<n; ++i )
+            offset[i+1] = offset[i] + counts[i];
+        return offset;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Search
+    
+    /**
+     * Update the distances for a new set of source nodes. If the graph
+     * structure or the maximum distance changed since the last update, all
+     * distances are recomputed and this method returns false. Otherwise,
+     * only the distances affected by the added and removed sources are
+     * recomputed, the nodes whose distance changed are available through
+     * {@link #getChangedCount()} and {@link #getChangedNode(int)}, and this
+     * method returns true.
+     * @param sources an array of source node rows
+     * @param count the number of sources in the array
+     * @return true if the distances were updated incrementally, false if
+     * they were recomputed from scratch
+     */
+    public boolean update(int[] sources, int count) {
+        validate();
+        m_changedCount = 0;
+        if ( ++m_changeEpoch == Integer.MAX_VALUE ) {
+            Arrays.fill(m_changeStamp, 0);
+            m_changeEpoch = 1;
+        }
+        if ( !m_computed ) {
+            compute(sources, count);
+            return false;
+        }
+        
+        // find the removed sources
+        int stamp = nextEpoch();
+        int n = m_dist.length;
+        for ( int i=0; i<count; ++i ) {
+            int s = sources[i];
+            if ( s >= 0 && s < n ) m_stamp[s] = stamp;
+        }
+        int removed = 0;
+        for ( int i=0; i<m_sourceCount; ++i ) {
+            int s = m_sources[i];
+            if ( m_stamp[s] != stamp ) {
+                m_source[s] = false;
+                m_queue[removed++] = s;
+            }
+        }
+        if ( removed > 0 )
+            removeSources(removed);
+        
+        // add the new sources, skipping duplicates
+        stamp = nextEpoch();
+        int tail = 0;
+        m_sourceCount = 0;
+        for ( int i=0; i<count; ++i ) {
+            int s = sources[i];
+            if ( s < 0 || s >= n || m_stamp[s] == stamp ) continue;
+            m_stamp[s] = stamp;
+            addSource(s);
+            if ( m_dist[s] != 0 ) {
+                changed(s);
+                m_dist[s] = 0;
+                m_queue[tail++] = s;
+            }
+        }
+        search(0, tail);
+        compactChanges();
+        return true;
+    }
+    
+    /**
+     * Recompute all distances from the given sources.
+     */
+    private void compute(int[] sources, int count) {
+        Arrays.fill(m_dist, -1);
+        Arrays.fill(m_source, false);
+        m_sourceCount = 0;
+        int tail = 0, n = m_dist.length;
+        for ( int i=0; i<count; ++i ) {
+            int s = sources[i];
+            if ( s < 0 || s >= n || m_source[s] ) continue;
+            addSource(s);
+            m_dist[s] = 0;
+            m_queue[tail++] = s;
+        }
+        search(0, tail);
+        m_computed = true;
+    }
+    
+    private void addSource(int s) {
+        if ( m_sourceCount == m_sources.length )
+            m_sources = Arrays.copyOf(m_sources, Math.max(8, 2*m_sourceCount));
+        m_sources[m_sourceCount++] = s;
+        m_source[s] = true;
+    }
+    
+    /**
+     * Breadth-first search from the queued nodes, lowering the distance
+     * of every node reached by a shorter path.
+     */
+    private void search(int head, int tail) {
+        int max = m_maxDistance;
+        while ( head < tail ) {
+            int u = m_queue[head++];
+            int d = m_dist[u];
+            if ( d >= max ) continue;
+            for ( int i=m_offset[u], e=m_offset[u+1]; i<e; ++i ) {
+                int v = m_adj[i];
+                int dv = m_dist[v];
+                if ( dv < 0 || dv > d+1 ) {
+                    changed(v);
+                    m_dist[v] = d+1;
+                    m_queue[tail++] = v;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Recompute the distances of the nodes whose shortest paths start at
+     * the removed sources, which are the first nodes in the queue.
+     */
+    private void removeSources(int removed) {
+        // collect the nodes reached from the removed sources along
+        // shortest paths; all other distances remain valid
+        int stamp = nextEpoch();
+        int tail = removed;
+        for ( int i=0; i<removed; ++i )
+            m_stamp[m_queue[i]] = stamp;
+        for ( int head=0; head<tail; ++head ) {
+            int u = m_queue[head];
+            int d = m_dist[u];
+            for ( int i=m_offset[u], e=m_offset[u+1]; i<e; ++i ) {
+                int v = m_adj[i];
+                if ( m_stamp[v] != stamp && !m_source[v] && m_dist[v] == d+1 ) {
+                    m_stamp[v] = stamp;
+                    m_queue[tail++] = v;
+                }
+            }
+        }
+        
+        // seed each affected node from its unaffected neighbors
+        int max = m_maxDistance;
+        long[] seeds = new long[tail];
+        int count = 0;
+        for ( int k=0; k<tail; ++k ) {
+            int v = m_queue[k];
+            changed(v);
+            m_dist[v] = -1;
+            int best = -1;
+            for ( int i=m_revOffset[v], e=m_revOffset[v+1]; i<e; ++i ) {
+                int u = m_rev[i];
+                int du = m_dist[u];
+                if ( m_stamp[u] != stamp && du >= 0 && du < max
+                        && (best < 0 || du+1 < best) )
+                    best = du+1;
+            }
+            if ( best > 0 )
+                seeds[count++] = ((long)best << 32) | v;
+        }
+        Arrays.sort(seeds, 0, count);
+        
+        // breadth-first search within the affected nodes, merging the
+        // seeds, ordered by distance, with the queue
+        int head = 0, qtail = 0, next = 0;
+        while ( next < count || head < qtail ) {
+            int u, d;
+            if ( head < qtail && (next >= count ||
+                    m_dist[m_queue[head]] <= (int)(seeds[next] >>> 32)) )
+            {
+                u = m_queue[head++];
+                d = m_dist[u];
+            } else {
+                u = (int)seeds[next];
+                d = (int)(seeds[next++] >>> 32);
+                if ( m_dist[u] >= 0 && m_dist[u] <= d ) continue;
+                m_dist[u] = d;
+            }
+            if ( d >= max ) continue;
+            for ( int i=m_offset[u], e=m_offset[u+1]; i<e; ++i ) {
+                int v = m_adj[i];
+                if ( m_stamp[v] == stamp && (m_dist[v] < 0 || m_dist[v] > d+1) ) {
+                    m_dist[v] = d+1;
+                    m_queue[qtail++] = v;
+                }
+            }
+        }
+    }
+    
+    private int nextEpoch() {
+        if ( ++m_epoch == Integer.MAX_VALUE ) {
+            Arrays.fill(m_stamp, 0);
+            m_epoch = 1;
+        }
+        return m_epoch;
+    }
+    
+    /**
+     * Record the current distance of a node about to change, once per
+     * update.
+     */
+    private void changed(int v) {
+        if ( m_changeStamp[v] == m_changeEpoch ) return;
+        m_changeStamp[v] = m_changeEpoch;
+        m_prevDist[m_changedCount] = m_dist[v];
+        m_changed[m_changedCount++] = v;
+    }
+    
+    private void compactChanges() {
+        int k = 0;
+        for ( int i=0; i<m_changedCount; ++i ) {
+            int v = m_changed[i];
+            if ( m_dist[v] != m_prevDist[i] ) {
+                m_changed[k] = v;
+                m_prevDist[k++] = m_prevDist[i];
+            }
+        }
+        m_changedCount = k;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Accessors
+    
+    /**
+     * Get the distance of a node to the nearest source node.
+     * @param node the node row
+     * @return the distance, or -1 if the node is further away than the
+     * maximum distance or not connected to any source
+     */
+    public int getDistance(int node) {
+        return node < m_dist.length ? m_dist[node] : -1;
+    }
+    
+    /**
+     * Indicates if a node is one of the current source nodes.
+     * @param node the node row
+     * @return true if the node is a source
+     */
+    public boolean isSource(int node) {
+        return node < m_source.length && m_source[node];
+    }
+    
+    /**
+     * Get the number of nodes whose distance changed in the last
+     * incremental update.
+     * @return the number of changed nodes
+     */
+    public int getChangedCount() {
+        return m_changedCount;
+    }
+    
+    /**
+     * Get a node whose distance changed in the last incremental update.
+     * @param i the index of the change, between 0 and
+     * {@link #getChangedCount()}
+     * @return the node row
+     */
+    public int getChangedNode(int i) {
+        return m_changed[i];
+    }
+    
+    /**
+     * Get the distance a changed node had before the last update.
+     * @param i the index of the change, between 0 and
+     * {@link #getChangedCount()}
+     * @return the previous distance, or -1 if the node was not reached
+     */
+    public int getPreviousDistance(int i) {
+        return m_prevDist[i];
+    }
+    
+    /**
+     * Get the number of nodes adjacent to a node in the search direction.
+     * @param node the node row
+     * @return the number of neighbors
+     */
+    public int getNeighborCount(int node) {
+        validate();
+        return m_offset[node+1] - m_offset[node];
+    }
+    
+    /**
+     * Get a node adjacent to a node in the search direction.
+     * @param node the node row
+     * @param i the neighbor index, between 0 and
+     * {@link #getNeighborCount(int)}
+     * @return the neighbor node row
+     */
+    public int getNeighbor(int node, int i) {
+        return m_adj[m_offset[node]+i];
+    }
+    
+    /**
+     * Get the edge connecting a node to one of its neighbors.
+     * @param node the node row
+     * @param i the neighbor index, between 0 and
+     * {@link #getNeighborCount(int)}
+     * @return the edge row
+     */
+    public int getNeighborEdge(int node, int i) {
+        return m_adjEdge[m_offset[node]+i];
+    }
+
+} // end of class GraphDistanceIndex
@@ -0,0 +1,255 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.util;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import prefux.data.Table;
+import prefux.data.event.EventConstants;
+import prefux.data.event.ExpressionListener;
+import prefux.data.event.TableListener;
+import prefux.data.expression.AbstractExpression;
+import prefux.data.expression.Expression;
+import prefux.data.expression.ExpressionAnalyzer;
+import prefux.data.expression.Predicate;
+import prefux.util.PrefuseConfig;
+
+/**
+ * Cache of the row bitmaps of recently evaluated predicates over a table,
+ * used by the {@link FilterIteratorFactory} so that a query whose clauses
+ * did not change, such as the other ranges of a dynamic query while one
+ * slider is dragged, does not go through the indexes again.
+ * 
+ * <p>Each table has at most one cache, holding the bitmaps of the most
+ * recently used predicates up to the size given by the
+ * <code>data.filter.bitmapCacheSize</code> configuration setting. A bitmap
+ * is dropped when its predicate changes or when a column the predicate
+ * refers to is updated. Inserting or deleting rows clears the whole
+ * cache. Only predicates that depend on nothing but the columns they
+ * refer to are cached, see
+ * {@link prefux.data.expression.ExpressionAnalyzer#isSelfContained}.
+ * Cached bitmaps are shared and must never be modified.</p>
+ */
+public class RowBitmapCache implements TableListener, ExpressionListener {
+
+    private static final int CACHE_SIZE
+        = PrefuseConfig.getInt("data.filter.bitmapCacheSize");
+    
+    private static final Map<Table,RowBitmapCache> s_caches
+        = new WeakHashMap<Table,RowBitmapCache>();
+    
+    private final LinkedHashMap<Predicate,Entry> m_entries
+        = new LinkedHashMap<Predicate,Entry>(16, 0.75f, true);
+    private final WeakReference<Table> m_table;
+    private int m_stamp = 0;
+    
+    /** The number of table events received, which falls behind the
+     * modification count of the table while an event is delivered to
+     * the listeners registered before this cache. */
+    private int m_events;
+    
+    /**
+     * Get the bitmap cache of the given table, creating it if necessary.
+     * @param t the table
+     * @return the bitmap cache of the table, or null if caching is
+     * disabled
+     */
+    public static RowBitmapCache getCache(Table t) {
+        if ( CACHE_SIZE <= 0 )
+            return null;
+        synchronized ( s_caches ) {
+            RowBitmapCache cache = s_caches.get(t);
+            if ( cache == null ) {
+                cache = new RowBitmapCache(t);
+                t.addTableListener(cache);
+                s_caches.put(t, cache);
+            }
+            return cache;
+        }
+    }
+    
+    private RowBitmapCache(Table t) {
+        m_table = new WeakReference<Table>(t);
+        m_events = t.getModificationCount();
+    }
+    
+    /**
+     * Indicates if this cache has seen all changes of its table.
+     */
+    private boolean isCurrent() {
+        Table t = m_table.get();
+        return ( t != null && t.getModificationCount() == m_events );
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    /**
+     * Get the cached bitmap of a predicate.
+     * @param p the predicate
+     * @return the bitmap of the rows passing the predicate, or null if
+     * it is not cached. The bitmap must not be modified.
+     */
+    public synchronized BitSet get(Predicate p) {
+        Entry e = m_entries.get(p);
+        if ( e == null || !isCurrent() ) {
+            return null;
+        } else if ( e.changes != getChangeCount(p) ) {
+            // the predicate changed, but this cache has not been
+            // notified yet
+            m_entries.remove(p);
+            p.removeExpressionListener(this);
+            return null;
+        } else {
+            return e.rows;
+        }
+    }
+    
+    /**
+     * Get the current modification stamp of this cache. The stamp is
+     * taken before a bitmap is computed and passed to
+     * {@link #put(Predicate, BitSet, int)}, so that a bitmap that might
+     * have been invalidated while it was computed is not cached.
+     * @return the modification stamp
+     */
+    public synchronized int getStamp() {
+        return m_stamp;
+    }
+    
+    /**
+     * Cache the bitmap of a predicate, evicting the least recently used
+     * bitmap if the cache is full. The bitmap must not be modified
+     * afterwards.
+     * @param p the predicate
+     * @param rows the bitmap of the rows passing the predicate
+     * @param stamp the modification stamp taken before the bitmap was
+     * computed
+     */
+    public synchronized void put(Predicate p, BitSet rows, int stamp) {
+        if ( stamp != m_stamp || m_entries.containsKey(p) || !isCurrent() ||
+                !(p instanceof AbstractExpression) ||
+                !ExpressionAnalyzer.isSelfContained(p) )
+        {
+            return;
+        }
+        
+        if ( m_entries.size() >= CACHE_SIZE ) {
+            Iterator<Predicate> iter = m_entries.keySet().iterator();
+            Predicate eldest = iter.next();
+            iter.remove();
+            eldest.removeExpressionListener(this);
+        }
+        m_entries.put(p, new Entry(rows, getChangeCount(p),
+                ExpressionAnalyzer.getReferencedColumns(p)));
+        p.addExpressionListener(this);
+    }
+    
+    /**
+     * Remove all bitmaps from this cache.
+     */
+    public synchronized void clear() {
+        ++m_stamp;
+        for ( Predicate p : m_entries.keySet() )
+            p.removeExpressionListener(this);
+        m_entries.clear();
+    }
+    
+    // ------------------------------------------------------------------------
+    // Invalidation
+    
+    /**
+     * @see prefux.data.event.TableListener#tableChanged(prefux.data.Table, int, int, int, int)
+     */
+    public synchronized void tableChanged(Table t, int start, int end,
+                                          int col, int type)
+    {
+        ++m_events;
+        if ( m_entries.isEmpty() ) {
+            ++m_stamp;
+            return;
+        }
+        if ( type != EventConstants.UPDATE ||
+                col == EventConstants.ALL_COLUMNS )
+        {
+            clear();
+            return;
+        }
+        
+        ++m_stamp;
+        String field = t.getColumnName(col);
+        Iterator<Map.Entry<Predicate,Entry>> iter
+            = m_entries.entrySet().iterator();
+        while ( iter.hasNext() ) {
+            Map.Entry<Predicate,Entry> e = iter.next();
+            if ( e.getValue().columns.contains(field) ) {
+                iter.remove();
+                e.getKey().removeExpressionListener(this);
+            }
+        }
+    }
+    
+    /**
+     * @see prefux.data.event.ExpressionListener#expressionChanged(prefux.data.expression.Expression)
+     */
+    public synchronized void expressionChanged(Expression expr) {
+        ++m_stamp;
+        if ( m_entries.remove(expr) != null )
+            expr.removeExpressionListener(this);
+    }
+    
+    // ------------------------------------------------------------------------
+    
+    private static int getChangeCount(Predicate p) {
+        return ((AbstractExpression)p).getChangeCount();
+    }
+    
+    /**
+     * A cached bitmap, the change count of its predicate and the columns
+     * the predicate refers to.
+     */
+    private static class Entry {
+        final BitSet rows;
+        final int changes;
+        final Set<String> columns;
+        
+        Entry(BitSet rows, int changes, Set<String> columns) {
+            this.rows = rows;
+            this.changes = changes;
+            this.columns = columns;
+        }
+    } // end of inner class Entry
+    
+} // end of class RowBitmapCache
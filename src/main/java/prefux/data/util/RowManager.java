@@ -177,6 +177,40 @@ public class RowManager {
         return this.isValidRow(row) ? row : -1;
     }
     
+    /**
+     * Given Table row indices and a column index, return the corresponding
+     * rows in the underlying data column, as with
+     * {@link #getColumnRow(int, int)}, for a whole array of rows at once.
+     * @param rows the table rows
+     * @param col the table column
+     * @param n the number of rows to map
+     * @return the column rows of the first n table rows, invalid rows are
+     * mapped to -1. If all rows are valid, this is the given array itself,
+     * so the returned array should not be modified.
+     */
+    public int[] getColumnRows(int[] rows, int col, int n) {
+        return validRows(rows, n);
+    }
+    
+    /**
+     * Check the given rows for validity.
+     * @param rows the rows to check
+     * @param n the number of rows to check
+     * @return the given array if the first n rows are valid, otherwise
+     * a copy in which the invalid rows are replaced by -1
+     */
+    protected final int[] validRows(int[] rows, int n) {
+        for ( int i=0; i<n; ++i ) {
+            if ( !this.isValidRow(rows[i]) ) {
+                int[] colrows = new int[n];
+                for ( int j=0; j<n; ++j )
+                    colrows[j] = this.isValidRow(rows[j]) ? rows[j] : -1;
+                return colrows;
+            }
+        }
+        return rows;
+    }
+    
     /**
      * Given a column row index and a table column index, return the
      * table row corresponding to the column value. This is of use for
@@ -37,25 +37,35 @@ import prefux.data.column.Column;
 import prefux.data.event.ColumnListener;
 import prefux.data.event.EventConstants;
 import prefux.data.event.TableListener;
+import prefux.util.PrefuseConfig;
+import prefux.util.collections.AbstractSortedArrayMap;
 import prefux.util.collections.BooleanIntSortedMap;
+import prefux.util.collections.DoubleIntSortedArrayMap;
 import prefux.util.collections.DoubleIntSortedMap;
+import prefux.util.collections.FloatIntSortedArrayMap;
 import prefux.util.collections.FloatIntSortedMap;
 import prefux.util.collections.IncompatibleComparatorException;
+import prefux.util.collections.IntIntSortedArrayMap;
 import prefux.util.collections.IntIntSortedMap;
 import prefux.util.collections.IntIterator;
 import prefux.util.collections.IntSortedMap;
+import prefux.util.collections.LongIntSortedArrayMap;
 import prefux.util.collections.LongIntSortedMap;
 import prefux.util.collections.ObjectIntSortedMap;
 import prefux.util.collections.SortedMapFactory;
 
 /**
- * Index instance that uses red-black trees to provide an index
- * over a column of data.
+ * Index instance that uses red-black trees or sorted arrays to provide an
+ * index over a column of data. Sorted arrays take much less memory and
+ * scan ranges faster, while trees are cheaper to update.
  * 
  * @author <a href="http://jheer.org">jeffrey heer</a>
  */
 public class TreeIndex implements Index, ColumnListener, TableListener {
 
+    private static final boolean SORTED_ARRAY =
+        PrefuseConfig.getBoolean("data.index.sortedArray");
+    
     protected Table           m_table;
     protected RowManager      m_rows;
     protected Column          m_col;
@@ -74,12 +84,31 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      */
     public TreeIndex(Table t, RowManager rows, Column col, Comparator cmp)
         throws IncompatibleComparatorException
+    {
+        this(t, rows, col, cmp, SORTED_ARRAY);
+    }
+    
+    /**
+     * Create a new TreeIndex.
+     * @param t the Table containing the data column to index
+     * @param rows the RowManager of the Table
+     * @param col the Column instance to index
+     * @param cmp the Comparator to use to sort data values
+     * @param sortedArray true to store the index in sorted arrays where
+     * the column type and comparator allow it, false for a red-black tree
+     * @throws IncompatibleComparatorException if the comparator is not
+     * compatible with the column's data type
+     */
+    public TreeIndex(Table t, RowManager rows, Column col, Comparator cmp,
+                     boolean sortedArray)
+        throws IncompatibleComparatorException
     {
         m_table = t;
         m_rows = rows;
         m_col = col;
         
-        m_index = SortedMapFactory.getMap(col.getColumnType(), cmp, false);
+        m_index = SortedMapFactory.getMap(col.getColumnType(), cmp, false,
+                                          sortedArray);
         index();
         
         m_col.addColumnListener(this);
@@ -105,6 +134,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#size()
      */
     public int size() {
+        ensureIndex();
         return m_index.size();
     }
     
@@ -129,7 +159,11 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
         m_colidx = idx;
         IntIterator rows = m_rows.rows();
         
-        if ( m_index instanceof IntIntSortedMap )
+        if ( m_index instanceof AbstractSortedArrayMap )
+        {
+            load(rows, idx);
+        }
+        else if ( m_index instanceof IntIntSortedMap )
         {
             IntIntSortedMap map = (IntIntSortedMap)m_index;
             while ( rows.hasNext() ) {
@@ -183,6 +217,63 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
         
         m_reindex = false;
     }
+    
+    /**
+     * Rebuild the index if a column range update left it stale.
+     */
+    private void ensureIndex() {
+        if ( m_reindex ) {
+            index();
+        }
+    }
+    
+    /**
+     * Bulk load a sorted array map with the values of all valid rows.
+     */
+    private void load(IntIterator rows, int idx) {
+        int n = m_rows.getRowCount();
+        int[] vals = new int[n];
+        int i = 0;
+        if ( m_index instanceof IntIntSortedArrayMap )
+        {
+            int[] keys = new int[n];
+            for ( ; rows.hasNext(); ++i ) {
+                vals[i] = rows.nextInt();
+                keys[i] = m_col.getInt(m_table.getColumnRow(vals[i],idx));
+            }
+            ((IntIntSortedArrayMap)m_index).load(keys, vals, i);
+        }
+        else if ( m_index instanceof LongIntSortedArrayMap )
+        {
+            long[] keys = new long[n];
+            for ( ; rows.hasNext(); ++i ) {
+                vals[i] = rows.nextInt();
+                keys[i] = m_col.getLong(m_table.getColumnRow(vals[i],idx));
+            }
+            ((LongIntSortedArrayMap)m_index).load(keys, vals, i);
+        }
+        else if ( m_index instanceof FloatIntSortedArrayMap )
+        {
+            float[] keys = new float[n];
+            for ( ; rows.hasNext(); ++i ) {
+                vals[i] = rows.nextInt();
+                keys[i] = m_col.getFloat(m_table.getColumnRow(vals[i],idx));
+            }
+            ((FloatIntSortedArrayMap)m_index).load(keys, vals, i);
+        }
+        else if ( m_index instanceof DoubleIntSortedArrayMap )
+        {
+            double[] keys = new double[n];
+            for ( ; rows.hasNext(); ++i ) {
+                vals[i] = rows.nextInt();
+                keys[i] = m_col.getDouble(m_table.getColumnRow(vals[i],idx));
+            }
+            ((DoubleIntSortedArrayMap)m_index).load(keys, vals, i);
+        }
+        else {
+            throw new IllegalStateException();
+        }
+    }
 
     // ------------------------------------------------------------------------
     // Listener Methods
@@ -201,6 +292,8 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
     }
     
     private void rowChanged(int row, boolean insert) {
+        if ( m_reindex ) return; // rebuilt on next access
+        
         // make sure we access the right column value
         int crow = m_rows.getColumnRow(row, getColumnIndex());
         
@@ -267,6 +360,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, int, int)
      */
     public void columnChanged(Column src, int type, int start, int end) {
+        // the previous values are unknown, rebuild on next access
         m_reindex = true;
     }    
     
@@ -274,6 +368,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, boolean)
      */
     public void columnChanged(Column src, int idx, boolean prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((BooleanIntSortedMap)m_index).remove(prev, row);
@@ -284,6 +379,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, int)
      */
     public void columnChanged(Column src, int idx, int prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((IntIntSortedMap)m_index).remove(prev, row);
@@ -294,6 +390,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, long)
      */
     public void columnChanged(Column src, int idx, long prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((LongIntSortedMap)m_index).remove(prev, row);
@@ -304,6 +401,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, float)
      */
     public void columnChanged(Column src, int idx, float prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((FloatIntSortedMap)m_index).remove(prev, row);
@@ -314,6 +412,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, double)
      */
     public void columnChanged(Column src, int idx, double prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((DoubleIntSortedMap)m_index).remove(prev, row);
@@ -324,6 +423,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.event.ColumnListener#columnChanged(prefux.data.column.Column, int, java.lang.Object)
      */
     public void columnChanged(Column src, int idx, Object prev) {
+        if ( m_reindex ) return; // rebuilt on next access
         int row = m_rows.getTableRow(idx, getColumnIndex());
         if ( row < 0 ) return; // invalid row value
         ((ObjectIntSortedMap)m_index).remove(prev, row);
@@ -337,6 +437,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#minimum()
      */
     public int minimum() {
+        ensureIndex();
         return m_index.getMinimum();
     }
     
@@ -344,6 +445,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#maximum()
      */
     public int maximum() {
+        ensureIndex();
         return m_index.getMaximum();
     }
     
@@ -351,6 +453,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#median()
      */
     public int median() {
+        ensureIndex();
         return m_index.getMedian();
     }
     
@@ -358,6 +461,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#uniqueCount()
      */
     public int uniqueCount() {
+        ensureIndex();
         return m_index.getUniqueCount();
     }
     
@@ -367,6 +471,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#allRows(int)
      */
     public IntIterator allRows(int type) {
+        ensureIndex();
         boolean ascending = (type & Index.TYPE_ASCENDING) > 0;
         return m_index.valueIterator(ascending);
     }
@@ -375,6 +480,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(java.lang.Object, java.lang.Object, int)
      */
     public IntIterator rows(Object lo, Object hi, int type) {
+        ensureIndex();
         if ( !(m_index instanceof ObjectIntSortedMap) )
             throw new IllegalStateException();
 
@@ -397,6 +503,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(int, int, int)
      */
     public IntIterator rows(int lo, int hi, int type) {
+        ensureIndex();
         if ( !(m_index instanceof IntIntSortedMap) )
             throw new IllegalStateException();
 
@@ -416,6 +523,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(long, long, int)
      */
     public IntIterator rows(long lo, long hi, int type) {
+        ensureIndex();
         if ( !(m_index instanceof LongIntSortedMap) )
             throw new IllegalStateException();
         
@@ -435,6 +543,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(float, float, int)
      */
     public IntIterator rows(float lo, float hi, int type) {
+        ensureIndex();
         if ( !(m_index instanceof FloatIntSortedMap) )
             throw new IllegalStateException();
         
@@ -454,6 +563,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(double, double, int)
      */
     public IntIterator rows(double lo, double hi, int type) {
+        ensureIndex();
         if ( !(m_index instanceof DoubleIntSortedMap) )
             throw new IllegalStateException();
         
@@ -503,6 +613,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#rows(boolean)
      */
     public IntIterator rows(boolean val) {
+        ensureIndex();
         if ( !(m_index instanceof BooleanIntSortedMap) )
             throw new IllegalStateException();
         
@@ -523,6 +634,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#get(double)
      */
     public int get(double x) {
+        ensureIndex();
         DoubleIntSortedMap index = (DoubleIntSortedMap)m_index;
         return index.get(x);
     }
@@ -531,6 +643,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#get(float)
      */
     public int get(float x) {
+        ensureIndex();
         FloatIntSortedMap index = (FloatIntSortedMap)m_index;
         return index.get(x);
     }
@@ -539,6 +652,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#get(int)
      */
     public int get(int x) {
+        ensureIndex();
         IntIntSortedMap index = (IntIntSortedMap)m_index;
         return index.get(x);
     }
@@ -547,6 +661,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#get(long)
      */
     public int get(long x) {
+        ensureIndex();
         LongIntSortedMap index = (LongIntSortedMap)m_index;
         return index.get(x);
     }
@@ -555,6 +670,7 @@ public class TreeIndex implements Index, ColumnListener, TableListener {
      * @see prefux.data.util.Index#get(java.lang.Object)
      */
     public int get(Object x) {
+        ensureIndex();
         ObjectIntSortedMap index = (ObjectIntSortedMap)m_index;
         return index.get(x);
     }
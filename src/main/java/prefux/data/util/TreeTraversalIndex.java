@@ -0,0 +1,340 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.data.util;
+
+import java.util.Arrays;
+
+import prefux.data.Graph;
+import prefux.data.Table;
+import prefux.data.Tree;
+import prefux.data.event.EventConstants;
+import prefux.data.event.GraphListener;
+import prefux.util.collections.IntIterator;
+
+/**
+ * Structure-of-arrays index over the nodes of a {@link Tree}, providing
+ * constant time access to the parent, depth, first child, next and previous
+ * siblings, pre- and post-order numbers and subtree size of each node.
+ * Ancestor and descendant checks reduce to comparisons of pre-order numbers
+ * and subtree sizes. The index is built lazily on first access and is
+ * invalidated by any change to the tree structure, as reported by the
+ * tree's {@link GraphListener} events. Nodes not reachable from the root
+ * are not indexed; see {@link #contains(int)}.
+ * 
+ * @see Tree#setTraversalIndexEnabled(boolean)
+ */
+public class TreeTraversalIndex implements GraphListener {
+
+    protected Tree m_tree;
+    protected boolean m_valid = false;
+    protected int m_count = 0;
+    
+    protected int[] m_parent = new int[0];
+    protected int[] m_depth = new int[0];
+    protected int[] m_firstChild = new int[0];
+    protected int[] m_nextSibling = new int[0];
+    protected int[] m_prevSibling = new int[0];
+    protected int[] m_preorder = new int[0];
+    protected int[] m_postorder = new int[0];
+    protected int[] m_size = new int[0];
+    protected int[] m_nodes = new int[0];
+    
+    /**
+     * Create a new TreeTraversalIndex, which listens for changes to the
+     * given tree.
+     * @param tree the Tree to index
+     */
+    public TreeTraversalIndex(Tree tree) {
+        m_tree = tree;
+        m_tree.addGraphModelListener(this);
+    }
+    
+    /**
+     * Stop listening to the tree and release the index arrays.
+     */
+    public void dispose() {
+        m_tree.removeGraphModelListener(this);
+        m_parent = m_depth = m_firstChild = m_nextSibling = m_prevSibling
+            = m_preorder = m_postorder = m_size = m_nodes = new int[0];
+        m_valid = false;
+    }
+    
+    /**
+     * Mark the index as stale, causing it to be rebuilt on next access.
+     */
+    public void invalidate() {
+        m_valid = false;
+    }
+    
+    /**
+     * Indicates if the index is up to date with the tree structure.
+     * @return true if the index is valid
+     */
+    public boolean isValid() {
+        return m_valid;
+    }
+    
+    /**
+     * @see prefux.data.event.GraphListener#graphChanged(prefux.data.Graph, java.lang.String, int, int, int, int)
+     */
+    public void graphChanged(Graph g, String table, 
+            int start, int end, int col, int type)
+    {
+        if ( !m_valid ) return;
+        if ( Graph.NODES.equals(table) ) {
+            // node data updates do not affect the structure
+            if ( type != EventConstants.UPDATE )
+                m_valid = false;
+        } else if ( type != EventConstants.UPDATE 
+                || col == EventConstants.ALL_COLUMNS )
+        {
+            m_valid = false;
+        } else {
+            Table edges = g.getEdgeTable();
+            if ( col == edges.getColumnNumber(g.getEdgeSourceField()) ||
+                 col == edges.getColumnNumber(g.getEdgeTargetField()) )
+                m_valid = false;
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Index Construction
+    
+    /**
+     * Rebuild the index if it is stale.
+     */
+    public void validate() {
+        if ( !m_valid ) build();
+    }
+    
+    /**
+     * Build the index by a depth-first traversal from the root, following
+     * first-child and next-sibling links as they are discovered.
+     */
+    protected void build() {
+        int n = m_tree.getNodeTable().getMaximumRow()+1;
+        if ( m_parent.length < n ) {
+            m_parent = new int[n];
+            m_depth = new int[n];
+            m_firstChild = new int[n];
+            m_nextSibling = new int[n];
+            m_prevSibling = new int[n];
+            m_preorder = new int[n];
+            m_postorder = new int[n];
+            m_size = new int[n];
+            m_nodes = new int[n];
+        }
+        Arrays.fill(m_parent, -1);
+        Arrays.fill(m_depth, -1);
+        Arrays.fill(m_firstChild, -1);
+        Arrays.fill(m_nextSibling, -1);
+        Arrays.fill(m_prevSibling, -1);
+        Arrays.fill(m_preorder, -1);
+        Arrays.fill(m_postorder, -1);
+        Arrays.fill(m_size, 0);
+        m_count = 0;
+        
+        int root = m_tree.getRootRow();
+        if ( root >= 0 && root < n && m_tree.getNodeTable().isValidRow(root) )
+            traverse(root);
+        m_valid = true;
+    }
+    
+    private void traverse(int root) {
+        int pre = 0, post = 0, depth = 0;
+        int v = root;
+        
+        while ( true ) {
+            // enter v and link up its children
+            m_preorder[v] = pre;
+            m_nodes[pre++] = v;
+            m_depth[v] = depth;
+            int prev = -1;
+            for ( IntIterator edges = m_tree.childEdgeRows(v); edges.hasNext(); ) {
+                int c = m_tree.getTargetNode(edges.nextInt());
+                // skip edges that would revisit a node in an invalid tree
+                if ( c < 0 || c == root || m_parent[c] >= 0 ) continue;
+                m_parent[c] = v;
+                if ( prev < 0 ) {
+                    m_firstChild[v] = c;
+                } else {
+                    m_nextSibling[prev] = c;
+                    m_prevSibling[c] = prev;
+                }
+                prev = c;
+            }
+            if ( m_firstChild[v] >= 0 ) {
+                v = m_firstChild[v];
+                ++depth;
+                continue;
+            }
+            
+            // exit v and any ancestors whose children are all visited
+            while ( true ) {
+                m_postorder[v] = post++;
+                m_size[v] = pre - m_preorder[v];
+                if ( v == root ) {
+                    m_count = pre;
+                    return;
+                }
+                if ( m_nextSibling[v] >= 0 ) {
+                    v = m_nextSibling[v];
+                    break;
+                }
+                v = m_parent[v];
+                --depth;
+            }
+        }
+    }
+    
+    // ------------------------------------------------------------------------
+    // Accessors
+    
+    /**
+     * Get the number of nodes reachable from the root.
+     * @return the number of indexed nodes
+     */
+    public int getNodeCount() {
+        validate();
+        return m_count;
+    }
+    
+    /**
+     * Indicates if the node is reachable from the root, and hence indexed.
+     * @param node a node id (node table row number)
+     * @return true if the node is indexed
+     */
+    public boolean contains(int node) {
+        validate();
+        return node >= 0 && node < m_preorder.length && m_preorder[node] >= 0;
+    }
+    
+    /**
+     * Get the parent of a node.
+     * @param node a node id (node table row number)
+     * @return the parent node id, or -1 for the root or unindexed nodes
+     */
+    public int getParent(int node) {
+        return contains(node) ? m_parent[node] : -1;
+    }
+    
+    /**
+     * Get the depth of a node, with the root at depth 0.
+     * @param node a node id (node table row number)
+     * @return the depth, or -1 for unindexed nodes
+     */
+    public int getDepth(int node) {
+        return contains(node) ? m_depth[node] : -1;
+    }
+    
+    /**
+     * Get the first child of a node.
+     * @param node a node id (node table row number)
+     * @return the first child node id, or -1 if there is none
+     */
+    public int getFirstChild(int node) {
+        return contains(node) ? m_firstChild[node] : -1;
+    }
+    
+    /**
+     * Get the next sibling of a node.
+     * @param node a node id (node table row number)
+     * @return the next sibling node id, or -1 if there is none
+     */
+    public int getNextSibling(int node) {
+        return contains(node) ? m_nextSibling[node] : -1;
+    }
+    
+    /**
+     * Get the previous sibling of a node.
+     * @param node a node id (node table row number)
+     * @return the previous sibling node id, or -1 if there is none
+     */
+    public int getPreviousSibling(int node) {
+        return contains(node) ? m_prevSibling[node] : -1;
+    }
+    
+    /**
+     * Get the pre-order number of a node.
+     * @param node a node id (node table row number)
+     * @return the pre-order number, or -1 for unindexed nodes
+     */
+    public int getPreOrder(int node) {
+        return contains(node) ? m_preorder[node] : -1;
+    }
+    
+    /**
+     * Get the post-order number of a node.
+     * @param node a node id (node table row number)
+     * @return the post-order number, or -1 for unindexed nodes
+     */
+    public int getPostOrder(int node) {
+        return contains(node) ? m_postorder[node] : -1;
+    }
+    
+    /**
+     * Get the number of nodes in the subtree rooted at a node, including
+     * the node itself.
+     * @param node a node id (node table row number)
+     * @return the subtree size, or 0 for unindexed nodes
+     */
+    public int getSubtreeSize(int node) {
+        return contains(node) ? m_size[node] : 0;
+    }
+    
+    /**
+     * Get the node with the given pre-order number. The subtree of a node
+     * occupies the pre-order numbers from its own up to, exclusively, its
+     * own plus its subtree size.
+     * @param preorder a pre-order number
+     * @return the node id (node table row number)
+     */
+    public int getNodeAt(int preorder) {
+        validate();
+        if ( preorder < 0 || preorder >= m_count )
+            throw new IndexOutOfBoundsException(String.valueOf(preorder));
+        return m_nodes[preorder];
+    }
+    
+    /**
+     * Indicates if a node is a descendant of another node. A node is
+     * considered a descendant of itself.
+     * @param node a node id (node table row number)
+     * @param ancestor the potential ancestor node id
+     * @return true if ancestor lies on the path from the root to node
+     */
+    public boolean isDescendant(int node, int ancestor) {
+        if ( !contains(node) || !contains(ancestor) ) return false;
+        int a = m_preorder[ancestor], p = m_preorder[node];
+        return a <= p && p < a + m_size[ancestor];
+    }
+    
+} // end of class TreeTraversalIndex
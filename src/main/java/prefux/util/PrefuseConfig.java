@@ -55,12 +55,35 @@ import prefux.util.io.IOLib;
  * <li><code>activity.threadPriority</code> - the thread priority of the
  * ActivityManager thread. The value should be between 1 and 10, with 5 being
  * the standard Java default. The default prefux setting is 6.</li>
+ * <li><code>activity.monitor</code> - if true, the run time and allocations
+ * of activity steps are recorded by the
+ * {@link prefux.activity.ActivityMonitor}, which is then registered as an
+ * MBean under <code>prefux:type=ActivityMonitor</code>. The default is
+ * false.</li>
+ * <li><code>activity.frameBudget</code> - the time in milliseconds that the
+ * ActivityManager may spend per frame when driven by a
+ * {@link prefux.activity.FrameDriver}, after which low priority activities
+ * are deferred to the next frame. The default is 10.</li>
  * <li><code>data.io.worker.threadPriority</code> - the thread priority of
  * asynchronous database worker threads. The default prefux setting is 5
  * (same as the Java thread default).</li>
  * <li><code>data.filter.optimizeThreshold</code> - the minimum number of items
  * that must be contained in a table for optimized query plans to be
  * considered. The default value is 300.</li>
+ * <li><code>data.filter.bitmapCacheSize</code> - the number of row bitmaps
+ * of evaluated predicates cached per table, see
+ * {@link prefux.data.util.RowBitmapCache}. Zero disables the cache. The
+ * default value is 16.</li>
+ * <li><code>data.column.dictionaryThreshold</code> - the maximum number of
+ * distinct values of a String column read from a text file for which the
+ * values are stored dictionary encoded. The default value is 10000.</li>
+ * <li><code>data.column.offHeap</code> - if true, new int, long, float and
+ * double columns store their values outside of the Java heap. Meant for
+ * very large tables, as each such column takes at least one segment of
+ * 65536 values. The default is false.</li>
+ * <li><code>data.index.sortedArray</code> - if true, indexes over numeric
+ * and Date columns are stored in sorted arrays rather than red-black
+ * trees. The default is false.</li>
  * <li><code>util.logdir</code> - the directory in which to write prefux log
  * files. The default is "null" which defaults logging output to standard
  * output.</li> 
@@ -221,6 +244,8 @@ public class PrefuseConfig extends Properties {
     private void setDefaults() {        
         setProperty("size.scale2D", "0.5");
         setProperty("activity.threadPriority", "6");
+        setProperty("activity.monitor", "false");
+        setProperty("activity.frameBudget", "10");
         setProperty("data.delimiter", ".");
         setProperty("data.graph.nodeGroup", "nodes");
         setProperty("data.graph.edgeGroup", "edges");
@@ -231,6 +256,13 @@ public class PrefuseConfig extends Properties {
         // prefux will only attempt to optimize filtering operations
         // on tables with more rows than this threshold value
         setProperty("data.filter.optimizeThreshold", "300");
+        setProperty("data.filter.bitmapCacheSize", "16");
+        
+        // text readers dictionary encode String columns with at most
+        // this many distinct values
+        setProperty("data.column.dictionaryThreshold", "10000");
+        setProperty("data.column.offHeap", "false");
+        setProperty("data.index.sortedArray", "false");
         
         // setProperty("data.graph.nodeKey", null); // intentionally null
         setProperty("data.graph.sourceKey", "source");
@@ -39,6 +39,7 @@ import prefux.Display;
 import prefux.data.Schema;
 import prefux.data.util.Rectangle2D;
 import prefux.visual.VisualItem;
+import prefux.visual.VisualTable;
 
 /**
  * General library routines used by the prefux toolkit.
@@ -304,6 +305,50 @@ public class PrefuseLib {
         item.setY(y);
     }
     
+    /**
+     * Update the x-coordinates of a number of items stored in the same
+     * table, like {@link #setX(VisualItem, VisualItem, double)} without a
+     * referrer. Each column is read or written with a single bulk access.
+     * @param table the VisualTable storing the items
+     * @param rows the table rows of the items
+     * @param x the x values to set, <code>x[i]</code> is set for
+     * <code>rows[i]</code>
+     * @param n the number of items to update
+     */
+    public static void setX(VisualTable table, int[] rows, double[] x, int n) {
+        setLocation(table, rows, x, n,
+                    VisualItem.X, VisualItem.STARTX, VisualItem.ENDX);
+    }
+    
+    /**
+     * Update the y-coordinates of a number of items stored in the same
+     * table, like {@link #setY(VisualItem, VisualItem, double)} without a
+     * referrer. Each column is read or written with a single bulk access.
+     * @param table the VisualTable storing the items
+     * @param rows the table rows of the items
+     * @param y the y values to set, <code>y[i]</code> is set for
+     * <code>rows[i]</code>
+     * @param n the number of items to update
+     */
+    public static void setY(VisualTable table, int[] rows, double[] y, int n) {
+        setLocation(table, rows, y, n,
+                    VisualItem.Y, VisualItem.STARTY, VisualItem.ENDY);
+    }
+    
+    private static void setLocation(VisualTable table, int[] rows,
+            double[] v, int n, String field, String start, String end)
+    {
+        double[] s = new double[n];
+        table.getDoubles(rows, field, s, n);
+        for ( int i=0; i<n; ++i ) {
+            if ( Double.isNaN(s[i]) )
+                s[i] = v[i];
+        }
+        table.setDoubles(rows, start, s, n);
+        table.setDoubles(rows, end, v, n);
+        table.setDoubles(rows, field, v, n);
+    }
+    
     // ------------------------------------------------------------------------
     // Group Name Methods
     
@@ -0,0 +1,546 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.util.collections;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * Abstract base class for sorted maps from a primitive key to an int value
+ * that store their entries in flat arrays rather than in tree nodes. The
+ * entries are held in a main array sorted by key and then by value, where
+ * removed entries are only marked in a bit set, plus a small sorted buffer
+ * of recent insertions. Once the buffer or the number of removed entries
+ * grows past the square root of the map size, both are merged into a new
+ * main array. Range queries are binary searches followed by a sequential
+ * scan of both arrays, and a map can be bulk loaded in O(n log n) time.
+ * 
+ * <p>Subclasses map their keys to long values whose natural order is the
+ * order of the {@link DefaultLiteralComparator}. Other comparators are not
+ * supported.</p>
+ */
+public abstract class AbstractSortedArrayMap implements IntSortedMap {
+
+    private static final int MIN_BUFFER = 64;
+    
+    protected boolean allowDuplicates;
+    protected int modCount = 0;
+    
+    // main entries, sorted by key and value
+    private long[] keys = new long[0];
+    private int[]  vals = new int[0];
+    private int    msize = 0;
+    private BitSet deleted = new BitSet();
+    private int    ndeleted = 0;
+    
+    // recently inserted entries, sorted by key and value
+    private long[] bkeys = new long[MIN_BUFFER];
+    private int[]  bvals = new int[MIN_BUFFER];
+    private int    bsize = 0;
+    
+    private int unique = -1;
+    
+    // ------------------------------------------------------------------------
+    // Constructors
+    
+    public AbstractSortedArrayMap(boolean allowDuplicates) {
+        this.allowDuplicates = allowDuplicates;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Accessor Methods
+    
+    public boolean isAllowDuplicates() {
+        return allowDuplicates;
+    }
+    
+    public int size() {
+        return msize - ndeleted + bsize;
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    public Comparator comparator() {
+        return DefaultLiteralComparator.getInstance();
+    }
+    
+    // ------------------------------------------------------------------------
+    // SortedMap Methods
+    
+    public void clear() {
+        ++modCount;
+        keys = new long[0];
+        vals = new int[0];
+        msize = 0;
+        deleted = new BitSet();
+        ndeleted = 0;
+        bsize = 0;
+        unique = -1;
+    }
+    
+    public int getMinimum() {
+        EntryIterator iter = new EntryIterator(true);
+        return iter.hasNext() ? iter.nextEntry() : Integer.MIN_VALUE;
+    }
+    
+    public int getMaximum() {
+        EntryIterator iter = new EntryIterator(false);
+        return iter.hasNext() ? iter.nextEntry() : Integer.MIN_VALUE;
+    }
+    
+    public int getMedian() {
+        if ( isEmpty() ) return Integer.MIN_VALUE;
+        merge();
+        return vals[msize/2];
+    }
+    
+    public int getUniqueCount() {
+        if ( unique < 0 ) {
+            merge();
+            int count = 0;
+            for ( int i=0; i<msize; ++i ) {
+                if ( i == 0 || keys[i] != keys[i-1] ) ++count;
+            }
+            unique = count;
+        }
+        return unique;
+    }
+    
+    public boolean containsValue(int value) {
+        for ( int i=0; i<bsize; ++i ) {
+            if ( bvals[i] == value ) return true;
+        }
+        for ( int i=0; i<msize; ++i ) {
+            if ( vals[i] == value && !deleted.get(i) ) return true;
+        }
+        return false;
+    }
+    
+    public IntIterator valueIterator(boolean ascend) {
+        return new ValueIterator(new EntryIterator(ascend));
+    }
+    
+    // ------------------------------------------------------------------------
+    // Internal update methods, on keys mapped to longs
+    
+    /**
+     * Replace the contents of this map with the given entries. If
+     * duplicates are not allowed, the last of the entries with the same key
+     * is kept, as if the entries were put one by one.
+     * @param k the keys, mapped to longs. The array is sorted in place.
+     * @param v the values. The array is sorted in place.
+     * @param n the number of entries
+     */
+    protected void loadEntries(long[] k, int[] v, int n) {
+        clear();
+        if ( allowDuplicates ) {
+            sort(k, v, n, true);
+        } else {
+            // the sort is stable, so equal keys stay in insertion order
+            sort(k, v, n, false);
+            int m = 0;
+            for ( int i=0; i<n; ++i ) {
+                if ( i+1 < n && k[i+1] == k[i] )
+                    continue;
+                k[m] = k[i];
+                v[m++] = v[i];
+            }
+            n = m;
+        }
+        keys = k;
+        vals = v;
+        msize = n;
+    }
+    
+    protected int putEntry(long k, int v) {
+        int prev = Integer.MIN_VALUE;
+        if ( !allowDuplicates ) {
+            // replace the value of an existing entry
+            prev = findFirst(k);
+            if ( prev != Integer.MIN_VALUE )
+                removeEntry(k, prev);
+        }
+        
+        int i = lowerBound(bkeys, bvals, bsize, k, v);
+        if ( bsize == bkeys.length ) {
+            int len = 2*bkeys.length;
+            long[] nk = new long[len];
+            int[] nv = new int[len];
+            System.arraycopy(bkeys, 0, nk, 0, bsize);
+            System.arraycopy(bvals, 0, nv, 0, bsize);
+            bkeys = nk;
+            bvals = nv;
+        }
+        System.arraycopy(bkeys, i, bkeys, i+1, bsize-i);
+        System.arraycopy(bvals, i, bvals, i+1, bsize-i);
+        bkeys[i] = k;
+        bvals[i] = v;
+        ++bsize;
+        
+        ++modCount;
+        unique = -1;
+        if ( bsize > limit() ) merge();
+        return prev;
+    }
+    
+    protected int removeEntry(long k, int v) {
+        int i = lowerBound(bkeys, bvals, bsize, k, v);
+        if ( i < bsize && bkeys[i] == k && bvals[i] == v ) {
+            System.arraycopy(bkeys, i+1, bkeys, i, bsize-i-1);
+            System.arraycopy(bvals, i+1, bvals, i, bsize-i-1);
+            --bsize;
+        } else {
+            i = lowerBound(keys, vals, msize, k, v);
+            for ( ; i<msize && keys[i]==k && vals[i]==v; ++i ) {
+                if ( !deleted.get(i) ) break;
+            }
+            if ( i == msize || keys[i] != k || vals[i] != v )
+                return Integer.MIN_VALUE;
+            deleted.set(i);
+            ++ndeleted;
+        }
+        ++modCount;
+        unique = -1;
+        if ( ndeleted > limit() ) merge();
+        return v;
+    }
+    
+    protected int removeLast(long k) {
+        int v = findLast(k);
+        return ( v == Integer.MIN_VALUE ? v : removeEntry(k, v) );
+    }
+    
+    protected boolean containsEntry(long k) {
+        return new EntryIterator(k, true, k, true).hasNext();
+    }
+    
+    protected int findFirst(long k) {
+        EntryIterator iter = new EntryIterator(k, true, k, true);
+        return iter.hasNext() ? iter.nextEntry() : Integer.MIN_VALUE;
+    }
+    
+    protected int findLast(long k) {
+        EntryIterator iter = new EntryIterator(k, true, k, true);
+        iter.reverse();
+        return iter.hasNext() ? iter.nextEntry() : Integer.MIN_VALUE;
+    }
+    
+    /**
+     * Get the value of the entry next to a given entry.
+     * @param k the key of the entry
+     * @param v the value of the entry
+     * @param ascend true for the next entry, false for the previous one
+     * @return the value of the neighboring entry, or Integer.MIN_VALUE if
+     * there is none
+     */
+    protected int neighborValue(long k, int v, boolean ascend) {
+        EntryIterator iter = new EntryIterator(ascend);
+        if ( ascend ) {
+            iter.mi = upperBound(keys, vals, msize, k, v);
+            iter.bi = upperBound(bkeys, bvals, bsize, k, v);
+        } else {
+            iter.mi = lowerBound(keys, vals, msize, k, v) - 1;
+            iter.bi = lowerBound(bkeys, bvals, bsize, k, v) - 1;
+        }
+        iter.skip();
+        return iter.hasNext() ? iter.nextEntry() : Integer.MIN_VALUE;
+    }
+    
+    protected long firstEntryKey() {
+        EntryIterator iter = new EntryIterator(true);
+        iter.nextEntry();
+        return iter.key;
+    }
+    
+    protected long lastEntryKey() {
+        EntryIterator iter = new EntryIterator(false);
+        iter.nextEntry();
+        return iter.key;
+    }
+    
+    // ------------------------------------------------------------------------
+    // Internal array methods
+    
+    private int limit() {
+        return Math.max(MIN_BUFFER, (int)Math.sqrt(msize));
+    }
+    
+    /**
+     * Merge the insertion buffer into the main arrays, dropping removed
+     * entries.
+     */
+    private void merge() {
+        if ( bsize == 0 && ndeleted == 0 ) return;
+        
+        int n = msize - ndeleted + bsize;
+        long[] nk = new long[n];
+        int[] nv = new int[n];
+        int i = 0, j = 0, p = 0;
+        while ( i < msize || j < bsize ) {
+            if ( i < msize && deleted.get(i) ) {
+                ++i;
+            } else if ( j == bsize || (i < msize && 
+                    compare(keys[i], vals[i], bkeys[j], bvals[j]) <= 0) )
+            {
+                nk[p] = keys[i]; nv[p++] = vals[i++];
+            } else {
+                nk[p] = bkeys[j]; nv[p++] = bvals[j++];
+            }
+        }
+        keys = nk;
+        vals = nv;
+        msize = n;
+        deleted = new BitSet();
+        ndeleted = 0;
+        bsize = 0;
+    }
+    
+    private static int compare(long k1, int v1, long k2, int v2) {
+        return k1 < k2 ? -1 : k1 > k2 ? 1 : v1 < v2 ? -1 : v1 > v2 ? 1 : 0;
+    }
+    
+    /** Index of the first entry not less than the given one. */
+    private static int lowerBound(long[] k, int[] v, int n, long key, int val) {
+        int lo = 0, hi = n;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( compare(k[mid], v[mid], key, val) < 0 )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    /** Index of the first entry greater than the given one. */
+    private static int upperBound(long[] k, int[] v, int n, long key, int val) {
+        int lo = 0, hi = n;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( compare(k[mid], v[mid], key, val) <= 0 )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    /** Index of the first entry with a key not less than (or, if not 
+     * inclusive, greater than) the given key. */
+    private static int keyBound(long[] k, int n, long key, boolean inc) {
+        int lo = 0, hi = n;
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( k[mid] < key || (!inc && k[mid] == key) )
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+    
+    /**
+     * Sort entries by key and value, or by key only, with a least
+     * significant digit radix sort. The sort is stable. Passes over a digit
+     * that is the same for all entries are skipped, so already sorted
+     * values cost little.
+     */
+    private static void sort(long[] k, int[] v, int n, boolean byValue) {
+        if ( n < 2 ) return;
+        long[] sk = k, tk = null;
+        int[] sv = v, tv = null;
+        int[] count = new int[257];
+        for ( int pass=byValue?0:4; pass<12; ++pass ) {
+            // first the four value bytes, then the eight key bytes
+            Arrays.fill(count, 0);
+            for ( int i=0; i<n; ++i )
+                ++count[digit(sk[i], sv[i], pass) + 1];
+            if ( count[digit(sk[0], sv[0], pass) + 1] == n )
+                continue; // all entries share this digit
+            for ( int d=0; d<256; ++d )
+                count[d+1] += count[d];
+            if ( tk == null ) {
+                tk = new long[n];
+                tv = new int[n];
+            }
+            for ( int i=0; i<n; ++i ) {
+                int p = count[digit(sk[i], sv[i], pass)]++;
+                tk[p] = sk[i];
+                tv[p] = sv[i];
+            }
+            long[] lt = sk; sk = tk; tk = lt;
+            int[] it = sv; sv = tv; tv = it;
+        }
+        if ( sk != k ) {
+            System.arraycopy(sk, 0, k, 0, n);
+            System.arraycopy(sv, 0, v, 0, n);
+        }
+    }
+    
+    private static int digit(long k, int v, int pass) {
+        if ( pass < 4 ) {
+            return ((v ^ Integer.MIN_VALUE) >>> (8*pass)) & 0xff;
+        } else {
+            return (int)((k ^ Long.MIN_VALUE) >>> (8*(pass-4))) & 0xff;
+        }
+    }
+    
+    // ========================================================================
+    // Inner classes
+    
+    // ------------------------------------------------------------------------
+    // Iterators
+    
+    protected class EntryIterator extends AbstractLiteralIterator {
+        private int expectedModCount = AbstractSortedArrayMap.this.modCount;
+        // merges replace the arrays, iterations keep the ones they began on
+        private final long[] ks = keys, bks = bkeys;
+        private final int[] vs = vals, bvs = bvals;
+        private final BitSet del = deleted;
+        private boolean ascend;
+        int mi, mend, bi, bend;
+        long key;
+        
+        EntryIterator(boolean ascend) {
+            this.ascend = ascend;
+            if ( ascend ) {
+                mi = bi = 0;
+                mend = msize;
+                bend = bsize;
+            } else {
+                mi = msize - 1;
+                bi = bsize - 1;
+                mend = bend = -1;
+            }
+            skip();
+        }
+        
+        EntryIterator(long from, boolean fromInc, long to, boolean toInc) {
+            this.ascend = from <= to;
+            if ( ascend ) {
+                mi = keyBound(keys, msize, from, fromInc);
+                bi = keyBound(bkeys, bsize, from, fromInc);
+                mend = Math.max(mi, keyBound(keys, msize, to, !toInc));
+                bend = Math.max(bi, keyBound(bkeys, bsize, to, !toInc));
+            } else {
+                mi = keyBound(keys, msize, from, !fromInc) - 1;
+                bi = keyBound(bkeys, bsize, from, !fromInc) - 1;
+                mend = Math.min(mi, keyBound(keys, msize, to, toInc) - 1);
+                bend = Math.min(bi, keyBound(bkeys, bsize, to, toInc) - 1);
+            }
+            skip();
+        }
+        
+        /**
+         * Reverse the direction of an iteration that has not started yet.
+         */
+        void reverse() {
+            int m = mi, b = bi;
+            int step = ascend ? 1 : -1;
+            mi = mend - step;
+            bi = bend - step;
+            mend = m - step;
+            bend = b - step;
+            ascend = !ascend;
+            skip();
+        }
+        
+        /** Move past removed entries of the main array. */
+        void skip() {
+            int step = ascend ? 1 : -1;
+            while ( mi != mend && del.get(mi) ) mi += step;
+        }
+        
+        public boolean hasNext() {
+            return mi != mend || bi != bend;
+        }
+        
+        /**
+         * Advance to the next entry, storing its key.
+         * @return the value of the entry
+         */
+        final int nextEntry() {
+            if ( !hasNext() )
+                throw new NoSuchElementException();
+            if ( modCount != expectedModCount )
+                throw new ConcurrentModificationException();
+            
+            boolean main = mi != mend;
+            if ( main && bi != bend ) {
+                int c = compare(ks[mi], vs[mi], bks[bi], bvs[bi]);
+                main = ascend ? c <= 0 : c >= 0;
+            }
+            int val;
+            if ( main ) {
+                key = ks[mi];
+                val = vs[mi];
+                mi += ascend ? 1 : -1;
+                skip();
+            } else {
+                key = bks[bi];
+                val = bvs[bi];
+                bi += ascend ? 1 : -1;
+            }
+            return val;
+        }
+        
+        public Object next() {
+            return Integer.valueOf(nextEntry());
+        }
+        
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    protected class ValueIterator extends IntIterator {
+        EntryIterator m_iter;
+        
+        public ValueIterator(EntryIterator iter) {
+            m_iter = iter;
+        }
+        public boolean hasNext() {
+            return m_iter.hasNext();
+        }
+        public int nextInt() {
+            return m_iter.nextEntry();
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+} // end of abstract class AbstractSortedArrayMap
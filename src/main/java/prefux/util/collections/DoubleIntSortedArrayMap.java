@@ -0,0 +1,170 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.util.collections;
+
+/**
+ * Sorted map implementation using sorted arrays to map from double keys to
+ * int values. Compared to the {@link DoubleIntTreeMap}, it needs much less
+ * memory and scans key ranges faster, at the cost of slower updates of
+ * large maps.
+ * @see AbstractSortedArrayMap
+ */
+public class DoubleIntSortedArrayMap extends AbstractSortedArrayMap
+    implements DoubleIntSortedMap
+{
+    
+    // ------------------------------------------------------------------------
+    // Constructors
+    
+    public DoubleIntSortedArrayMap() {
+        this(false);
+    }
+    
+    public DoubleIntSortedArrayMap(boolean allowDuplicates) {
+        super(allowDuplicates);
+    }
+    
+    // ------------------------------------------------------------------------
+    // SortedMap Methods
+    
+    /**
+     * Replace the contents of this map with the given entries, in
+     * O(n log n) time.
+     * @param keys the keys of the entries
+     * @param values the values of the entries
+     * @param n the number of entries
+     */
+    public void load(double[] keys, int[] values, int n) {
+        long[] k = new long[n];
+        int[] v = new int[n];
+        for ( int i=0; i<n; ++i )
+            k[i] = toLong(keys[i]);
+        System.arraycopy(values, 0, v, 0, n);
+        loadEntries(k, v, n);
+    }
+    
+    public boolean containsKey(double key) {
+        return containsEntry(toLong(key));
+    }
+    
+    public int get(double key) {
+        return findFirst(toLong(key));
+    }
+    
+    public int put(double key, int value) {
+        return putEntry(toLong(key), value);
+    }
+    
+    public int remove(double key) {
+        return removeLast(toLong(key));
+    }
+    
+    public int remove(double key, int value) {
+        return removeEntry(toLong(key), value);
+    }
+    
+    public double firstKey() {
+        return toKey(firstEntryKey());
+    }
+    
+    public double lastKey() {
+        return toKey(lastEntryKey());
+    }
+    
+    // -- Collection view methods ---------------------------------------------
+    
+    public LiteralIterator keyIterator() {
+        return new KeyIterator(new EntryIterator(true));
+    }
+    
+    public LiteralIterator keyRangeIterator(double fromKey, boolean fromInc, 
+                                            double toKey,   boolean toInc)
+    {
+        return new KeyIterator(rangeIterator(fromKey, fromInc, toKey, toInc));
+    }
+    
+    public IntIterator valueRangeIterator(double fromKey, boolean fromInc, 
+                                          double toKey,   boolean toInc)
+    {
+        return new ValueIterator(
+            rangeIterator(fromKey, fromInc, toKey, toInc));
+    }
+    
+    private EntryIterator rangeIterator(double fromKey, boolean fromInc, 
+                                        double toKey,   boolean toInc)
+    {
+        return new EntryIterator(toLong(fromKey), fromInc, 
+                                 toLong(toKey), toInc);
+    }
+    
+    // ------------------------------------------------------------------------
+    // Key mapping
+    
+    /**
+     * Map a double to a long with the same order as Double.compare.
+     */
+    private static long toLong(double key) {
+        long b = Double.doubleToLongBits(key);
+        return b ^ ((b >> 63) & 0x7fffffffffffffffL);
+    }
+    
+    private static double toKey(long k) {
+        return Double.longBitsToDouble(k ^ ((k >> 63) & 0x7fffffffffffffffL));
+    }
+    
+    // ========================================================================
+    // Inner classes
+    
+    private class KeyIterator extends AbstractLiteralIterator {
+        private EntryIterator m_iter;
+        
+        public KeyIterator(EntryIterator iter) {
+            m_iter = iter;
+        }
+        public boolean hasNext() {
+            return m_iter.hasNext();
+        }
+        public Object next() {
+            return Double.valueOf(nextDouble());
+        }
+        public boolean isDoubleSupported() {
+            return true;
+        }
+        public double nextDouble() {
+            m_iter.nextEntry();
+            return toKey(m_iter.key);
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+} // end of class DoubleIntSortedArrayMap
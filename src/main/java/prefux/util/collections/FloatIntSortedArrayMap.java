@@ -0,0 +1,172 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.util.collections;
+
+/**
+ * Sorted map implementation using sorted arrays to map from float keys to
+ * int values. Compared to the {@link FloatIntTreeMap}, it needs much less
+ * memory and scans key ranges faster, at the cost of slower updates of
+ * large maps.
+ * @see AbstractSortedArrayMap
+ */
+public class FloatIntSortedArrayMap extends AbstractSortedArrayMap
+    implements FloatIntSortedMap
+{
+    
+    // ------------------------------------------------------------------------
+    // Constructors
+    
+    public FloatIntSortedArrayMap() {
+        this(false);
+    }
+    
+    public FloatIntSortedArrayMap(boolean allowDuplicates) {
+        super(allowDuplicates);
+    }
+    
+    // ------------------------------------------------------------------------
+    // SortedMap Methods
+    
+    /**
+     * Replace the contents of this map with the given entries, in
+     * O(n log n) time.
+     * @param keys the keys of the entries
+     * @param values the values of the entries
+     * @param n the number of entries
+     */
+    public void load(float[] keys, int[] values, int n) {
+        long[] k = new long[n];
+        int[] v = new int[n];
+        for ( int i=0; i<n; ++i )
+            k[i] = toLong(keys[i]);
+        System.arraycopy(values, 0, v, 0, n);
+        loadEntries(k, v, n);
+    }
+    
+    public boolean containsKey(float key) {
+        return containsEntry(toLong(key));
+    }
+    
+    public int get(float key) {
+        return findFirst(toLong(key));
+    }
+    
+    public int put(float key, int value) {
+        return putEntry(toLong(key), value);
+    }
+    
+    public int remove(float key) {
+        return removeLast(toLong(key));
+    }
+    
+    public int remove(float key, int value) {
+        return removeEntry(toLong(key), value);
+    }
+    
+    public float firstKey() {
+        return toKey(firstEntryKey());
+    }
+    
+    public float lastKey() {
+        return toKey(lastEntryKey());
+    }
+    
+    // -- Collection view methods ---------------------------------------------
+    
+    public LiteralIterator keyIterator() {
+        return new KeyIterator(new EntryIterator(true));
+    }
+    
+    public LiteralIterator keyRangeIterator(float fromKey, boolean fromInc, 
+                                            float toKey,   boolean toInc)
+    {
+        return new KeyIterator(rangeIterator(fromKey, fromInc, toKey, toInc));
+    }
+    
+    public IntIterator valueRangeIterator(float fromKey, boolean fromInc, 
+                                          float toKey,   boolean toInc)
+    {
+        return new ValueIterator(
+            rangeIterator(fromKey, fromInc, toKey, toInc));
+    }
+    
+    private EntryIterator rangeIterator(float fromKey, boolean fromInc, 
+                                        float toKey,   boolean toInc)
+    {
+        return new EntryIterator(toLong(fromKey), fromInc, 
+                                 toLong(toKey), toInc);
+    }
+    
+    // ------------------------------------------------------------------------
+    // Key mapping
+    
+    /**
+     * Map a float to an int with the same order as Float.compare, widened
+     * to a long.
+     */
+    private static long toLong(float key) {
+        int b = Float.floatToIntBits(key);
+        return b ^ ((b >> 31) & 0x7fffffff);
+    }
+    
+    private static float toKey(long k) {
+        int b = (int)k;
+        return Float.intBitsToFloat(b ^ ((b >> 31) & 0x7fffffff));
+    }
+    
+    // ========================================================================
+    // Inner classes
+    
+    private class KeyIterator extends AbstractLiteralIterator {
+        private EntryIterator m_iter;
+        
+        public KeyIterator(EntryIterator iter) {
+            m_iter = iter;
+        }
+        public boolean hasNext() {
+            return m_iter.hasNext();
+        }
+        public Object next() {
+            return Float.valueOf(nextFloat());
+        }
+        public boolean isFloatSupported() {
+            return true;
+        }
+        public float nextFloat() {
+            m_iter.nextEntry();
+            return toKey(m_iter.key);
+        }
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+} // end of class FloatIntSortedArrayMap
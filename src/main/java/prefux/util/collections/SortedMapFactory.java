@@ -44,6 +44,43 @@ import prefux.data.DataTypeException;
  */
 public class SortedMapFactory {
 
+    /**
+     * Get a sorted map for the given key type, backed by sorted arrays if
+     * requested and available. Sorted array maps exist for int, long,
+     * float, double and Date keys with the default comparator, all other
+     * cases get a red-black tree map.
+     */
+    public static IntSortedMap getMap(
+            Class type, Comparator cmp, boolean unique, boolean sortedArray)
+        throws IncompatibleComparatorException
+    {
+        if ( !sortedArray || !(cmp == null
+                || cmp == DefaultLiteralComparator.getInstance()) )
+        {
+            return getMap(type, cmp, unique);
+        }
+        
+        if ( type.equals(int.class) || type.equals(byte.class) )
+        {
+            return new IntIntSortedArrayMap(!unique);
+        } 
+        else if ( type.equals(long.class) || Date.class.isAssignableFrom(type) )
+        {
+            return new LongIntSortedArrayMap(!unique);
+        }
+        else if ( type.equals(float.class) )
+        {
+            return new FloatIntSortedArrayMap(!unique);
+        }
+        else if ( type.equals(double.class) )
+        {
+            return new DoubleIntSortedArrayMap(!unique);
+        }
+        else {
+            return getMap(type, cmp, unique);
+        }
+    }
+    
     public static IntSortedMap getMap(
             Class type, Comparator cmp, boolean unique)
         throws IncompatibleComparatorException
@@ -56,7 +93,7 @@ public class SortedMapFactory {
         {
             return new IntIntTreeMap((LiteralComparator)cmp, !unique);
         } 
-        else if ( type.equals(long.class) || type.isAssignableFrom(Date.class) )
+        else if ( type.equals(long.class) || Date.class.isAssignableFrom(type) )
         {
             return new LongIntTreeMap((LiteralComparator)cmp, !unique);
         }
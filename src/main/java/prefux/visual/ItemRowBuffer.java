@@ -0,0 +1,158 @@
+/*  
+ * Copyright (c) 2004-2013 Regents of the University of California.
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ * notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ * notice, this list of conditions and the following disclaimer in the
+ * documentation and/or other materials provided with the distribution.
+ * 3.  Neither the name of the University nor the names of its contributors
+ * may be used to endorse or promote products derived from this software
+ * without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE REGENTS AND CONTRIBUTORS ``AS IS'' AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED.  IN NO EVENT SHALL THE REGENTS OR CONTRIBUTORS BE LIABLE
+ * FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+ * DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS
+ * OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT
+ * LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY
+ * OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF
+ * SUCH DAMAGE.
+ * 
+ * Copyright (c) 2014 Martin Stockhammer
+ */
+package prefux.visual;
+
+import prefux.data.Table;
+
+/**
+ * Collects the table rows of visual items, so that the values of items
+ * stored in the same {@link VisualTable} can be read and written through
+ * the bulk accessors of the table, such as
+ * {@link Table#setDoubles(int[], String, double[], int)}. Items are added
+ * one at a time, along with up to two values each. Whenever the buffer is
+ * full, or an item of another table is added, the buffered rows are handed
+ * to {@link #process(VisualTable, int[], double[], double[], int)}, so
+ * that items should be independent of each other. Call {@link #flush()}
+ * after adding the last item.
+ */
+public abstract class ItemRowBuffer {
+
+    /** The maximum number of rows processed at once. */
+    public static final int CAPACITY = 4096;
+
+    private VisualTable m_table;
+    private int[] m_rows = new int[64];
+    private double[] m_a = new double[64];
+    private double[] m_b = new double[64];
+    private int m_size;
+
+    /**
+     * Add an item without values.
+     * @param item the item to add
+     * @return true if the item was added, false if it is not stored in a
+     * VisualTable and so has to be processed on its own
+     */
+    public boolean add(VisualItem item) {
+        return add(item, 0, 0);
+    }
+
+    /**
+     * Add an item along with two values.
+     * @param item the item to add
+     * @param a the first value for the item
+     * @param b the second value for the item
+     * @return true if the item was added, false if it is not stored in a
+     * VisualTable and so has to be processed on its own
+     */
+    public boolean add(VisualItem item, double a, double b) {
+        Table t = item.getTable();
+        if ( !(t instanceof VisualTable) ) {
+            return false;
+        }
+        if ( t != m_table || m_size == CAPACITY ) {
+            flush();
+            m_table = (VisualTable)t;
+        }
+        if ( m_size == m_rows.length ) {
+            grow();
+        }
+        m_rows[m_size] = item.getRow();
+        m_a[m_size] = a;
+        m_b[m_size] = b;
+        ++m_size;
+        return true;
+    }
+
+    /**
+     * Process the buffered rows, if any, and empty the buffer.
+     */
+    public void flush() {
+        int n = m_size;
+        VisualTable t = m_table;
+        m_size = 0;
+        m_table = null;
+        if ( n > 0 ) {
+            process(t, m_rows, m_a, m_b, n);
+        }
+    }
+
+    /**
+     * Process a run of buffered items that are stored in the same table.
+     * @param table the table of the items
+     * @param rows the table rows of the items
+     * @param a the first values added with the items. The array may be
+     * overwritten, for example to hold values read from the table.
+     * @param b the second values added with the items. The array may be
+     * overwritten as well.
+     * @param n the number of items
+     */
+    protected abstract void process(VisualTable table, int[] rows,
+                                    double[] a, double[] b, int n);
+
+    /**
+     * Linearly interpolate between the values of a start and an end field,
+     * and set the results as the values of another field, for a number of
+     * rows of a table. Meant for use by animators within
+     * {@link #process(VisualTable, int[], double[], double[], int)}.
+     * @param table the table of the rows
+     * @param rows the rows to process
+     * @param a an array of at least n values to hold the start values
+     * @param b an array of at least n values to hold the end values
+     * @param n the number of rows
+     * @param start the data field holding the start values
+     * @param end the data field holding the end values
+     * @param field the data field to set
+     * @param frac the fraction to interpolate at, between 0 and 1
+     */
+    protected static void interpolate(VisualTable table, int[] rows,
+            double[] a, double[] b, int n, String start, String end,
+            String field, double frac)
+    {
+        table.getDoubles(rows, start, a, n);
+        table.getDoubles(rows, end, b, n);
+        for ( int i=0; i<n; ++i )
+            a[i] += frac*(b[i]-a[i]);
+        table.setDoubles(rows, field, a, n);
+    }
+
+    private void grow() {
+        int len = Math.min(2*m_rows.length, CAPACITY);
+        int[] rows = new int[len];
+        double[] a = new double[len], b = new double[len];
+        System.arraycopy(m_rows, 0, rows, 0, m_size);
+        System.arraycopy(m_a, 0, a, 0, m_size);
+        System.arraycopy(m_b, 0, b, 0, m_size);
+        m_rows = rows;
+        m_a = a;
+        m_b = b;
+    }
+
+} // end of class ItemRowBuffer
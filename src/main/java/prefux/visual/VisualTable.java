@@ -191,7 +191,9 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
 
     /**
      * Relay table events. Ensures that updated visual items are invalidated and
-     * that damage reports are issued for deleted items.
+     * that damage reports are issued for deleted items. Updates are also
+     * forwarded to the visual items of the updated rows, see
+     * {@link #fireItemUpdates(int, int, int)}.
      */
     protected void fireTableEvent(int row0, int row1, int col, int type) {
         // table attributes changed, so we invalidate the bounds
@@ -219,6 +221,27 @@ public class VisualTable extends CascadedTable implements VisualTupleSet {
         }
         // now propagate the change event
         super.fireTableEvent(row0, row1, col, type);
+        if (type == EventConstants.UPDATE
+                && col != EventConstants.ALL_COLUMNS) {
+            fireItemUpdates(row0, row1, col);
+        }
+    }
+
+    /**
+     * Forwards a cell update to the visual items of the updated rows, so
+     * that their properties follow the table. Items are looked up by row in
+     * the tuple manager, rather than being registered as table listeners,
+     * so that an update costs one call per updated row regardless of the
+     * number of items. Rows whose item was never created are skipped.
+     */
+    private void fireItemUpdates(int row0, int row1, int col) {
+        for (int r = row0; r <= row1; ++r) {
+            Tuple t = m_tuples.getCachedTuple(r);
+            if (t instanceof TableVisualItem) {
+                ((TableVisualItem) t).tableChanged(this, r, r, col,
+                        EventConstants.UPDATE);
+            }
+        }
     }
 
     // ------------------------------------------------------------------------
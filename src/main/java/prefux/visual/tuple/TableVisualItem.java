@@ -33,6 +33,7 @@ package prefux.visual.tuple;
 import javafx.application.Platform;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.Property;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ChangeListener;
@@ -57,7 +58,6 @@ import prefux.visual.VisualTable;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * VisualItem implementation that uses data values from a backing VisualTable.
@@ -67,34 +67,25 @@ import java.util.Map.Entry;
 public class TableVisualItem extends TableTuple<VisualTable> implements
         VisualItem, TableListener, ChangeListener<Number> {
     private static final Logger log = LogManager.getLogger(TableVisualItem.class);
-    private final DoubleProperty xProp = new SimpleDoubleProperty();
-    private final DoubleProperty yProp = new SimpleDoubleProperty();
-    private final DoubleProperty startXProp = new SimpleDoubleProperty();
-    private final DoubleProperty startYProp = new SimpleDoubleProperty();
-    private final DoubleProperty endXProp = new SimpleDoubleProperty();
-    private final DoubleProperty endYProp = new SimpleDoubleProperty();
-    private final DoubleProperty sizeProp = new SimpleDoubleProperty();
-    private final IntegerProperty fillColorProp = new SimpleIntegerProperty();
-    private final Map<String, DoubleProperty> DOUBLE_PROPERTIES = new HashMap<String, DoubleProperty>() {
-        private static final long serialVersionUID = -2801283956649359986L;
-
-        {
-            put(VisualItem.X, xProp);
-            put(VisualItem.Y, yProp);
-            put(VisualItem.STARTX, startXProp);
-            put(VisualItem.ENDX, endXProp);
-            put(VisualItem.STARTY, startYProp);
-            put(VisualItem.ENDY, endYProp);
-            put(VisualItem.SIZE, sizeProp);
-        }
-    };
-    private final Map<String, IntegerProperty> INT_PROPERTIES = new HashMap<String, IntegerProperty>() {
-        private static final long serialVersionUID = -9113767856174748105L;
 
-        {
-            put(VisualItem.FILLCOLOR, fillColorProp);
-        }
-    };
+    // Columns backing the JavaFX properties, in slot order. The double
+    // valued properties come first, followed by the int valued ones.
+    private static final String[] PROPERTY_COLUMNS = {
+            VisualItem.X, VisualItem.Y, VisualItem.STARTX, VisualItem.STARTY,
+            VisualItem.ENDX, VisualItem.ENDY, VisualItem.SIZE,
+            VisualItem.FILLCOLOR };
+    private static final int X_SLOT = 0, Y_SLOT = 1, STARTX_SLOT = 2,
+            STARTY_SLOT = 3, ENDX_SLOT = 4, ENDY_SLOT = 5, SIZE_SLOT = 6,
+            FILLCOLOR_SLOT = 7, FIRST_INT_SLOT = 7;
+    private static final Map<String, Integer> SLOTS = new HashMap<>();
+    static {
+        for (int i = 0; i < PROPERTY_COLUMNS.length; ++i)
+            SLOTS.put(PROPERTY_COLUMNS[i], i);
+    }
+
+    // Properties are created on first request, e.g. when a renderer binds
+    // them, so items that are never bound carry no property objects.
+    private Property<Number>[] m_props;
     private Node node;
     private boolean ignoreTableUpdate = false;
 
@@ -114,7 +105,8 @@ public class TableVisualItem extends TableTuple<VisualTable> implements
     protected void init(VisualTable table, Graph graph, int row) {
         m_table = table;
         m_row = m_table.isValidRow(row) ? row : -1;
-        m_table.addTableListener(this);
+        // updates are forwarded by the VisualTable, see
+        // VisualTable#fireTableEvent
         // PROPERTIES.entrySet().forEach(en -> {
         // en.getValue().addListener(this);
         // });
@@ -721,62 +713,112 @@ public class TableVisualItem extends TableTuple<VisualTable> implements
 
     @Override
     public DoubleProperty xProperty() {
-        return xProp;
+        return (DoubleProperty) property(X_SLOT);
     }
 
     @Override
     public DoubleProperty yProperty() {
-        return yProp;
+        return (DoubleProperty) property(Y_SLOT);
     }
 
     @Override
     public DoubleProperty startXProperty() {
-        return startXProp;
+        return (DoubleProperty) property(STARTX_SLOT);
     }
 
     @Override
     public DoubleProperty startYProperty() {
-        return startYProp;
+        return (DoubleProperty) property(STARTY_SLOT);
     }
 
     @Override
     public DoubleProperty endXProperty() {
-        return endXProp;
+        return (DoubleProperty) property(ENDX_SLOT);
     }
 
     @Override
     public DoubleProperty endYProperty() {
-        return endYProp;
+        return (DoubleProperty) property(ENDY_SLOT);
     }
 
     @Override
     public DoubleProperty sizeProperty() {
-        return sizeProp;
+        return (DoubleProperty) property(SIZE_SLOT);
     }
 
     @Override
     public IntegerProperty fillColorProperty() {
-        return fillColorProp;
+        return (IntegerProperty) property(FILLCOLOR_SLOT);
+    }
+
+    /**
+     * Returns the property of the given slot, creating it on first request.
+     * A new property starts out with the current value of its column.
+     */
+    private Property<Number> property(int slot) {
+        if (m_props == null)
+            m_props = newProperties(PROPERTY_COLUMNS.length);
+        Property<Number> p = m_props[slot];
+        if (p == null) {
+            String field = PROPERTY_COLUMNS[slot];
+            if (slot < FIRST_INT_SLOT) {
+                p = new SimpleDoubleProperty(this, field,
+                        isValid() && canGetDouble(field) ? getDouble(field) : 0);
+            } else {
+                p = new SimpleIntegerProperty(this, field,
+                        isValid() && canGetInt(field) ? getInt(field) : 0);
+            }
+            m_props[slot] = p;
+        }
+        return p;
+    }
+
+    /**
+     * Allocates the property slots; generic arrays cannot be created
+     * directly.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Property<Number>[] newProperties(int n) {
+        return new Property[n];
     }
 
     @Override
     public void tableChanged(Table t, int start, int end, int col, int type) {
-        if (!ignoreTableUpdate && type == EventConstants.UPDATE
+        if (m_props != null && !ignoreTableUpdate
+                && type == EventConstants.UPDATE
                 && (start == m_row) && (start == end)) {
-            String colName = getColumnName(col);
-            if (DOUBLE_PROPERTIES.containsKey(colName)) {
-                Platform.runLater(() -> {
-                    DOUBLE_PROPERTIES.get(colName).set(t.getDouble(m_row, col));
+            Integer slot = SLOTS.get(getColumnName(col));
+            if (slot == null || m_props[slot] == null) {
+                return;
+            } else if (slot < FIRST_INT_SLOT) {
+                DoubleProperty p = (DoubleProperty) m_props[slot];
+                runOnFxThread(() -> {
+                    p.set(t.getDouble(m_row, col));
                 });
-            } else if (INT_PROPERTIES.containsKey(colName)) {
-                Platform.runLater(() -> {
-                    INT_PROPERTIES.get(colName).set(t.getInt(m_row, col));
+            } else {
+                IntegerProperty p = (IntegerProperty) m_props[slot];
+                runOnFxThread(() -> {
+                    p.set(t.getInt(m_row, col));
                 });
             }
         }
 
     }
 
+    /**
+     * Runs the given update right away when called on the FX application
+     * thread, as is the case for activities driven by an
+     * {@link prefux.activity.FxFrameDriver}, so that the change shows in the
+     * frame being prepared. Otherwise the update is posted to the FX thread.
+     */
+    private static void runOnFxThread(Runnable r) {
+        if (Platform.isFxApplicationThread()) {
+            r.run();
+        } else {
+            Platform.runLater(r);
+        }
+    }
+
     @Override
     public void changed(ObservableValue<? extends Number> observable,
                         Number oldValue, Number newValue) {
@@ -784,27 +826,16 @@ public class TableVisualItem extends TableTuple<VisualTable> implements
         try {
             log.debug("Value changed " + observable + " / " + oldValue + " / "
                     + newValue);
-            boolean found = false;
-            for (Entry<String, DoubleProperty> en : DOUBLE_PROPERTIES
-                    .entrySet()) {
-                if (observable == en.getValue()) {
+            for (int i = 0; m_props != null && i < m_props.length; ++i) {
+                if (observable == m_props[i]) {
                     log.debug("Property found");
-                    setDouble(en.getKey(), newValue.doubleValue());
-                    found = true;
+                    if (i < FIRST_INT_SLOT)
+                        setDouble(PROPERTY_COLUMNS[i], newValue.doubleValue());
+                    else
+                        setInt(PROPERTY_COLUMNS[i], newValue.intValue());
                     break;
                 }
             }
-            if (!found) {
-                for (Entry<String, IntegerProperty> en : INT_PROPERTIES
-                        .entrySet()) {
-                    if (observable == en.getValue()) {
-                        log.debug("Property found");
-                        setInt(en.getKey(), newValue.intValue());
-                        found = true;
-                        break;
-                    }
-                }
-            }
         } finally {
             ignoreTableUpdate = false;
         }
@@ -46,6 +46,7 @@ public class ItemTransition extends Transition {
 		for (int j=0; j<num; ++j) {
 			interp.get(j).step(f, x, a, b);
 		}
+		x.modified(true); // flag the change for dirty-region repaint
 		boolean last = (dt-delay > dd);
 		if (last && x.zombie()) x.dead(true);
 		return last ? -1 : _pause;
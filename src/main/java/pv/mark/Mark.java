@@ -35,7 +35,8 @@ public class Mark {
 	// -- static --------------------------------------------------------------
 	
 	protected static Set<String> SET_LEVEL = new HashSet<String>(
-		Arrays.asList("data","datatype","depth","segmented","interpolate"));
+		Arrays.asList("data","datatype","depth","segmented","interpolate",
+			"incremental"));
 	protected static Set<String> KEY_LEVEL = new HashSet<String>(
 		Arrays.asList("key", "sourceNodes", "targetNodes",
 			"sourceNodeKey", "targetNodeKey", "sourceKey", "targetKey"));
@@ -363,6 +364,13 @@ public class Mark {
 	public Mark segmented(boolean b) { return set("segmented", constant(b, boolean.class)); }
 	public Mark segmented(String s) { return set("segmented", dynamic(s, boolean.class)); }
 	
+	/**
+	 * Sets whether items whose data, index and mark variables did not change
+	 * since the last update skip property evaluation. Only use this if the
+	 * mark's properties depend on nothing else.
+	 */
+	public Mark incremental(boolean b) { return set("incremental", constant(b, boolean.class)); }
+	
 	public Mark interpolate(Property p) { return set("interpolate", p); }
 	public Mark interpolate(String s) {
 		if (DynamicProperty.isDynamicProperty(s)) {
@@ -5,11 +5,13 @@ import pv.animate.Scheduler;
 import pv.animate.Transition;
 import pv.mark.update.MarkUpdater;
 import pv.scene.Item;
+import pv.scene.ItemPool;
 import pv.scene.PanelItem;
 
 public class Scene extends Panel {
 
 	private PanelItem _items = new PanelItem();
+	private ItemPool _pool = new ItemPool();
 	
 	public Scene() {
 		super();
@@ -26,6 +28,13 @@ public class Scene extends Panel {
 		_items.items.clear();
 	}
 	
+	/**
+	 * Returns the pool recycling the items removed from this scene.
+	 */
+	public ItemPool itemPool() {
+		return _pool;
+	}
+	
 	public void update() {
 		update(0);
 	}
@@ -46,6 +55,18 @@ public class Scene extends Panel {
 		return t;
 	}
 	
+	/**
+	 * Updates the scene on the calling thread, bypassing the scheduler.
+	 * Intended for headless rendering, where many independent scenes are
+	 * updated concurrently. Unlike scheduled updates, a failing update
+	 * throws its exception to the caller.
+	 */
+	public void updateNow() {
+		setTreeIndex(-1);
+		if (_items.size() == 0) _items.add(null);
+		MarkUpdater.instance().updateNow(this, null, _items, null);
+	}
+	
 	protected Transition buildItems(double duration) {
 		setTreeIndex(-1);
 		if (_items.size() == 0) _items.add(null);
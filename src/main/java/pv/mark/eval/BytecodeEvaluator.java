@@ -0,0 +1,392 @@
+package pv.mark.eval;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import pv.mark.Mark;
+import pv.mark.Mark.PropertySet;
+import pv.mark.property.AbstractProperty;
+import pv.mark.property.ConstantProperty;
+import pv.mark.property.DynamicProperty;
+import pv.mark.property.Property;
+import pv.scene.GroupItem;
+import pv.scene.Item;
+import pv.scene.LinkItem;
+import pv.style.Fill;
+import pv.style.Font;
+import pv.style.Stroke;
+import pv.util.ClassWriter;
+
+/**
+ * Evaluator backend that does not require the system Java compiler. The
+ * build and evaluation loops are shared with {@link StaticEvaluator}, while
+ * property assignments and item construction are emitted directly as
+ * bytecode, one small class per item field, instead of going through
+ * hand-written or reflective accessors. Classes are generated once per
+ * item type and field and shared by all marks.
+ * <p>
+ * Dynamic properties are Java source snippets and in general still need
+ * javac. Trivial snippets such as literals, <code>data</code> and
+ * <code>index</code> (which is what mark defaults use) are lowered to
+ * equivalent built-in properties; marks with any other dynamic property,
+ * dynamic event handlers or link marks are not supported, see
+ * {@link #supports(Mark)}.
+ */
+public class BytecodeEvaluator extends StaticEvaluator {
+
+	private static final String PKG = "pv/temp/";
+	private static final String PROPERTY = ClassWriter.internalName(Property.class);
+	private static final String ITEM = ClassWriter.internalName(Item.class);
+	private static final String EVAL = ClassWriter.internalName(PropertyEval.class);
+	private static final String FACTORY = ClassWriter.internalName(ItemFactory.class);
+
+	private static final Pattern NUMBER =
+		Pattern.compile("-?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?[dDfF]?");
+	private static final Pattern IDENTIFIER =
+		Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+	private static ClassWriter.Loader s_loader =
+		new ClassWriter.Loader(BytecodeEvaluator.class.getClassLoader());
+	private static Map<String,PropertyEval> s_evals =
+		new ConcurrentHashMap<String,PropertyEval>();
+	private static Map<Class<?>,ItemFactory> s_factories =
+		new ConcurrentHashMap<Class<?>,ItemFactory>();
+	private static int s_id = 0;
+
+	public BytecodeEvaluator(Mark mark) {
+		super(mark, lowered(mark));
+		ItemFactory f = factory(_itemtype);
+		if (f != null) _factory = f;
+	}
+	
+	private static PropertySet lowered(Mark mark) {
+		PropertySet pset = lower(mark.propertySet(), mark.itemType());
+		if (pset == null) {
+			throw new IllegalArgumentException(
+				"Mark requires compiled evaluation: "+mark.markType());
+		}
+		return pset;
+	}
+
+	/**
+	 * Indicates if the given mark can be evaluated without the Java compiler.
+	 * @param mark the mark to check
+	 * @return true if a BytecodeEvaluator can be built for the mark
+	 */
+	public static boolean supports(Mark mark) {
+		PropertySet pset = mark.propertySet();
+		if (mark.itemType() == null || mark.itemType() == LinkItem.class)
+			return false;
+		for (List<EventHandler> list : pset.handlers.values()) {
+			for (EventHandler h : list) {
+				if (h instanceof DynamicEventHandler) return false;
+			}
+		}
+		return lower(pset, mark.itemType()) != null;
+	}
+
+	@Override
+	protected PropertyEval resolve(Class<?> itype, String name) {
+		Field f;
+		try {
+			f = itype.getField(name);
+		} catch (NoSuchFieldException e) {
+			return null;
+		}
+		int mod = f.getModifiers();
+		if (Modifier.isStatic(mod) || Modifier.isFinal(mod)) return null;
+
+		String key = itype.getName() + "." + name;
+		PropertyEval pe = s_evals.get(key);
+		if (pe == null) {
+			synchronized (BytecodeEvaluator.class) {
+				pe = s_evals.get(key);
+				if (pe == null) {
+					pe = generate(itype, f);
+					s_evals.put(key, pe);
+				}
+			}
+		}
+		return pe;
+	}
+
+	// -- code generation -----------------------------------------------------
+
+	/**
+	 * Emits a PropertyEval subclass equivalent to
+	 * <code>((T)x).field = p.accessor(x)</code>.
+	 */
+	private static PropertyEval generate(Class<?> itype, Field f) {
+		String owner = ClassWriter.internalName(f.getDeclaringClass());
+		Class<?> ftype = f.getType();
+		String name = PKG + "PropertyEval_" + (s_id++);
+
+		ClassWriter cw = new ClassWriter(name, EVAL);
+		cw.defaultConstructor(EVAL);
+
+		ClassWriter.Code c = new ClassWriter.Code();
+		c.op(ClassWriter.ALOAD_1);
+		c.op(ClassWriter.CHECKCAST).u2(cw.type(owner));
+		c.op(ClassWriter.ALOAD_2);
+		c.op(ClassWriter.ALOAD_1);
+
+		Class<?> rtype = accessorType(ftype);
+		String desc = "(L" + ITEM + ";)" + ClassWriter.descriptor(rtype);
+		c.op(ClassWriter.INVOKEINTERFACE)
+			.u2(cw.interfaceMethod(PROPERTY, accessor(rtype), desc))
+			.u1(2).u1(0);
+
+		if (ftype == int.class || ftype == short.class
+			|| ftype == byte.class || ftype == char.class)
+		{
+			c.op(ClassWriter.D2I);
+			if (ftype == short.class) c.op(ClassWriter.I2S);
+			if (ftype == byte.class)  c.op(ClassWriter.I2B);
+			if (ftype == char.class)  c.op(ClassWriter.I2C);
+		} else if (ftype == long.class) {
+			c.op(ClassWriter.D2L);
+		} else if (ftype == float.class) {
+			c.op(ClassWriter.D2F);
+		} else if (rtype == Object.class && ftype != Object.class) {
+			c.op(ClassWriter.CHECKCAST)
+				.u2(cw.type(ClassWriter.internalName(ftype)));
+		}
+		c.op(ClassWriter.PUTFIELD).u2(cw.field(owner, f.getName(),
+			ClassWriter.descriptor(ftype)));
+		c.op(ClassWriter.RETURN);
+
+		cw.method(ClassWriter.ACC_PUBLIC, "eval",
+			"(L" + ITEM + ";L" + PROPERTY + ";)V", 3, 3, c.toByteArray());
+		return (PropertyEval) instance(name, cw);
+	}
+
+	/**
+	 * Emits an ItemFactory subclass equivalent to <code>new T()</code>, or
+	 * returns null if the item type has no public no-argument constructor.
+	 */
+	private static ItemFactory factory(Class<?> itype) {
+		if (itype == null) return null;
+		ItemFactory f = s_factories.get(itype);
+		if (f != null) return f;
+		try {
+			Constructor<?> ctor = itype.getConstructor();
+			if (!Modifier.isPublic(ctor.getModifiers())) return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		synchronized (BytecodeEvaluator.class) {
+			f = s_factories.get(itype);
+			if (f != null) return f;
+
+			String type = ClassWriter.internalName(itype);
+			String name = PKG + "ItemFactory_" + (s_id++);
+			ClassWriter cw = new ClassWriter(name, FACTORY);
+			cw.defaultConstructor(FACTORY);
+
+			ClassWriter.Code c = new ClassWriter.Code();
+			c.op(ClassWriter.NEW).u2(cw.type(type));
+			c.op(ClassWriter.DUP);
+			c.op(ClassWriter.INVOKESPECIAL).u2(cw.method(type, "<init>", "()V"));
+			c.op(ClassWriter.ARETURN);
+			cw.method(ClassWriter.ACC_PUBLIC, "create",
+				"()L" + ITEM + ";", 2, 1, c.toByteArray());
+
+			f = (ItemFactory) instance(name, cw);
+			s_factories.put(itype, f);
+			return f;
+		}
+	}
+
+	private static Object instance(String name, ClassWriter cw) {
+		try {
+			return s_loader.define(name.replace('/', '.'), cw.toByteArray())
+				.getDeclaredConstructor().newInstance();
+		} catch (Exception e) {
+			throw new IllegalStateException("Bytecode generation failed: "+name, e);
+		}
+	}
+
+	private static Class<?> accessorType(Class<?> ftype) {
+		if (ftype == boolean.class) return boolean.class;
+		if (ftype.isPrimitive()) return double.class;
+		if (ftype == String.class || ftype == Fill.class
+			|| ftype == Font.class || ftype == Stroke.class) return ftype;
+		return Object.class;
+	}
+
+	private static String accessor(Class<?> rtype) {
+		if (rtype == boolean.class) return "bool";
+		if (rtype == double.class) return "number";
+		if (rtype == String.class) return "string";
+		if (rtype == Fill.class) return "fill";
+		if (rtype == Font.class) return "font";
+		if (rtype == Stroke.class) return "stroke";
+		return "object";
+	}
+
+	// -- dynamic property lowering -------------------------------------------
+
+	/**
+	 * Returns a copy of the property set in which trivial dynamic properties
+	 * are replaced by equivalent built-in properties, or null if any dynamic
+	 * property remains that requires the Java compiler.
+	 */
+	private static PropertySet lower(PropertySet pset, Class<?> itype) {
+		PropertySet p = new PropertySet();
+		p.handlers = pset.handlers;
+		p.dirty = pset.dirty;
+		p.vars = pset.vars;
+		if ((p.data = lower(pset.data, true, GroupItem.class)) == null && pset.data != null)
+			return null;
+		if ((p.group = lower(pset.group, GroupItem.class)) == null && pset.group != null)
+			return null;
+		if ((p.instance = lower(pset.instance, itype)) == null && pset.instance != null)
+			return null;
+		if ((p.keys = lower(pset.keys, itype)) == null && pset.keys != null)
+			return null;
+		if ((p.enter = lower(pset.enter, itype)) == null && pset.enter != null)
+			return null;
+		if ((p.exit = lower(pset.exit, itype)) == null && pset.exit != null)
+			return null;
+		return p;
+	}
+
+	private static Map<String,Property> lower(Map<String,Property> props, Class<?> itype) {
+		if (props == null) return null;
+		Map<String,Property> map = new LinkedHashMap<String,Property>();
+		for (Map.Entry<String,Property> e : props.entrySet()) {
+			Property p = e.getValue();
+			if (p != null && (p = lower(p, false, itype)) == null) return null;
+			map.put(e.getKey(), p);
+		}
+		return map;
+	}
+
+	private static Property lower(Property p, boolean isData, Class<?> itype) {
+		if (p == null || p.type() != Property.Type.DYNAMIC) return p;
+		String[] lines = ((DynamicProperty)p).lines();
+		if (lines.length != 1) return null;
+		return lower(lines[0].trim(), p.returnType(), isData, itype);
+	}
+
+	/**
+	 * Lowers a single expression: a literal, <code>data</code>,
+	 * <code>index</code>, <code>item.field</code>, or one of
+	 * <code>Math.sqrt(expr)</code> and <code>String.valueOf(expr)</code>.
+	 */
+	private static Property lower(String code, Class<?> rtype, boolean isData, Class<?> itype) {
+		boolean prim = rtype != null && rtype.isPrimitive();
+
+		if ("data".equals(code)) {
+			return new Builtin(isData ? Builtin.PARENT_DATA : Builtin.DATA, rtype);
+		} else if ("index".equals(code)) {
+			return new Builtin(Builtin.INDEX, rtype);
+		} else if ("null".equals(code)) {
+			return prim ? null : ConstantProperty.create(null, rtype);
+		} else if ("true".equals(code) || "false".equals(code)) {
+			return ConstantProperty.create(Boolean.valueOf(code), boolean.class);
+		} else if (NUMBER.matcher(code).matches()) {
+			return ConstantProperty.create(Double.valueOf(code), double.class);
+		} else if (code.length() >= 2 && code.charAt(0) == '"'
+			&& code.indexOf('"', 1) == code.length()-1
+			&& code.indexOf('\\') < 0)
+		{
+			return ConstantProperty.create(
+				code.substring(1, code.length()-1), String.class);
+		} else if (code.startsWith("item.")) {
+			String name = code.substring(5);
+			if (!IDENTIFIER.matcher(name).matches()) return null;
+			try {
+				Field f = itype.getField(name);
+				return new Builtin(f, rtype);
+			} catch (NoSuchFieldException e) {
+				return null;
+			}
+		}
+		for (int kind=Builtin.SQRT; kind<=Builtin.VALUE_OF; ++kind) {
+			String fn = Builtin.FUNCTIONS[kind-Builtin.SQRT];
+			if (code.startsWith(fn) && code.endsWith(")")) {
+				String arg = code.substring(fn.length(), code.length()-1).trim();
+				Property a = lower(arg, Object.class, isData, itype);
+				return a == null ? null : new Builtin(kind, a, rtype);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Built-in replacements for the trivial expressions accepted by
+	 * {@link BytecodeEvaluator}, i.e. the variables available to dynamic
+	 * properties, public item fields and a few library functions.
+	 */
+	public static class Builtin extends AbstractProperty {
+		public static final int DATA = 0;
+		public static final int PARENT_DATA = 1;
+		public static final int INDEX = 2;
+		public static final int FIELD = 3;
+		public static final int SQRT = 4;
+		public static final int VALUE_OF = 5;
+
+		static final String[] FUNCTIONS = { "Math.sqrt(", "String.valueOf(" };
+
+		private int _kind;
+		private Property _arg;
+		private Field _field;
+
+		public Builtin(int kind, Class<?> rtype) {
+			super(rtype);
+			_kind = kind;
+		}
+
+		public Builtin(int kind, Property arg, Class<?> rtype) {
+			this(kind, rtype);
+			_arg = arg;
+		}
+
+		public Builtin(Field field, Class<?> rtype) {
+			this(FIELD, rtype);
+			_field = field;
+		}
+
+		public Object object(Item item) {
+			switch (_kind) {
+			case DATA:        return item.data;
+			case PARENT_DATA: return item.group.data;
+			case INDEX:       return item.index;
+			case FIELD:
+				try {
+					return _field.get(item);
+				} catch (IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			case SQRT:        return number(item);
+			default:          return string(item);
+			}
+		}
+
+		public double number(Item item) {
+			switch (_kind) {
+			case INDEX: return item.index;
+			case SQRT:  return Math.sqrt(_arg.number(item));
+			default:    return ((Number) object(item)).doubleValue();
+			}
+		}
+
+		public String string(Item item) {
+			return String.valueOf(_kind == VALUE_OF
+				? _arg.object(item) : object(item));
+		}
+
+		public boolean bool(Item item) { return (Boolean) object(item); }
+		public Fill fill(Item item) { return (Fill) object(item); }
+		public Font font(Item item) { return (Font) object(item); }
+		public Stroke stroke(Item item) { return (Stroke) object(item); }
+	}
+
+}
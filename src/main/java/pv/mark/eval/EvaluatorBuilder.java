@@ -39,21 +39,49 @@ public class EvaluatorBuilder implements TemplateConstants {
 	public boolean cache() { return _cache; }
 	public void cache(boolean b) { _cache = b; }
 	
+	/**
+	 * Indicates if marks that do not need the Java compiler are evaluated
+	 * by a {@link BytecodeEvaluator}. Regardless of this setting, the
+	 * bytecode backend is used whenever the Java compiler is unavailable.
+	 */
+	public boolean bytecode() { return _bytecode; }
+	public void bytecode(boolean b) { _bytecode = b; }
+	
 	private int _id = 0;
 	private boolean _printSource = false;
 	private boolean _compile = true;
 	private boolean _cache = true;
+	private boolean _bytecode = false;
 	private String _declStart = "\t";
 	private String _bodyStart = "\t\t\t";
 	private String _end = ";\n";
 	private String _pkg = "pv.temp";
 	
-	private RuntimeCompiler<?> compiler = RuntimeCompiler.instance();
+	private RuntimeCompiler<?> compiler = null;
 	private Map<String,Class<Evaluator>> cache = new HashMap<String,Class<Evaluator>>();
 	
-	public Evaluator build(Mark mark)
+	public synchronized Evaluator build(Mark mark)
+	{
+		if (!_compile) return instance(mark);
+		if ((_bytecode || !RuntimeCompiler.isAvailable())
+			&& BytecodeEvaluator.supports(mark))
+		{
+			return bytecode(mark);
+		}
+		return compile(mark);
+	}
+	
+	protected Evaluator bytecode(Mark mark)
 	{
-		return _compile ? compile(mark) : instance(mark);
+		BytecodeEvaluator eval = new BytecodeEvaluator(mark);
+		try {
+			Method m = mark.itemType().getDeclaredMethod("checkProperties", Map.class);
+			eval._props = (Integer) m.invoke(null, mark.propertySet().instance);
+		} catch (Exception ex) {
+			// every item type declares checkProperties
+			throw new IllegalStateException(ex);
+		}
+		return eval;
 	}
 	
 	protected Evaluator instance(Mark mark)
@@ -279,6 +307,7 @@ public class EvaluatorBuilder implements TemplateConstants {
 			
 			// compile
 			try {
+				if (compiler == null) compiler = RuntimeCompiler.instance();
 				evalClass = (Class<Evaluator>) compiler.compile(_pkg+"."+className, src);
 				eval = evalClass.newInstance();
 				if (_cache) cache.put(key, evalClass);
@@ -1,13 +1,18 @@
 package pv.mark.eval;
 
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import pv.animate.Animator;
 import pv.animate.GroupTransition;
 import pv.animate.Transition;
 import pv.mark.Mark;
+import pv.mark.property.Property;
+import pv.mark.property.VariableProperty;
 import pv.scene.GroupItem;
+import pv.scene.Item;
 import pv.util.Objects;
 
 public abstract class ItemEvaluator implements Evaluator {
@@ -26,13 +31,86 @@ public abstract class ItemEvaluator implements Evaluator {
 		return index;
 	}
 	
+	/**
+	 * Returns the key of an existing item, used when the group has no key
+	 * index retained from a previous build.
+	 */
+	protected Object itemKey(Item item) {
+		return key(item.data, item.index);
+	}
+	
+	/**
+	 * Returns the key index of the group's current items to join new data
+	 * against, or null if items are matched by position. The index is
+	 * retained by the group between keyed builds of the same evaluator, so
+	 * keys of existing items are not recomputed; it is rebuilt when the
+	 * group was last evaluated by another evaluator, whose key function may
+	 * differ. The index for this build is collected in
+	 * <code>group.keys</code>, and the returned map must be cleared once
+	 * the remaining items have been processed as zombies.
+	 */
+	protected Map<Object,Item> join(GroupItem group, boolean keyed) {
+		if (!keyed) {
+			group.keys = group.spareKeys = null;
+			return null;
+		}
+		Map<Object,Item> map = group.keys;
+		if (map == null || group.evaluator != this) {
+			map = new HashMap<Object,Item>();
+			for (int i=0; i<group.size(); ++i) {
+				Item item = group.item(i);
+				map.put(itemKey(item), item);
+			}
+		}
+		Map<Object,Item> next = group.spareKeys;
+		if (next == null || next == map) {
+			next = new HashMap<Object,Item>();
+		}
+		group.keys = next;
+		group.spareKeys = map;
+		group.items.clear();
+		return map;
+	}
+	
+	/**
+	 * Determines if items not modified by the last build may skip property
+	 * evaluation. This requires an incremental mark, a non-animated update,
+	 * and that neither the evaluator nor any mark variable changed since
+	 * the group was last evaluated.
+	 */
+	protected void prepare(GroupItem group, boolean animate) {
+		int version = version();
+		group.skip = group.incremental && !animate
+			&& group.evaluator == this && group.version == version;
+		group.evaluator = this;
+		group.version = version;
+	}
+	
+	private int version() {
+		int version = 0;
+		Map<String,Property> vars = mark.propertySet().vars;
+		if (vars != null) {
+			for (Property p : vars.values()) {
+				if (p instanceof VariableProperty)
+					version = 31*version + ((VariableProperty)p).value().version();
+			}
+		}
+		for (Property p : mark.propertySet().instance.values()) {
+			if (p instanceof VariableProperty)
+				version = 31*version + ((VariableProperty)p).value().version();
+		}
+		return version;
+	}
+	
 	protected static GroupItem getGroup(Mark mark, GroupItem proto, GroupItem layer)
 	{
 		int index = mark.treeIndex();
 		GroupItem group = (GroupItem) layer.items.get(index);
 		
 		if (group == null) {
-			group = new GroupItem(mark.markType());
+			group = (GroupItem) mark.scene().itemPool().poll(GroupItem.class);
+			if (group == null) group = new GroupItem();
+			group.type = mark.markType();
 			group.group = layer;
 			group.index = index;
 			layer.items.set(index, group);
@@ -9,7 +9,6 @@ import pv.mark.property.Property;
 import pv.scene.GroupItem;
 import pv.scene.Item;
 import pv.scene.LinkItem;
-import pv.util.Objects;
 
 public abstract class LinkEvaluator extends ItemEvaluator {
 
@@ -23,7 +22,6 @@ public abstract class LinkEvaluator extends ItemEvaluator {
 	public Object sourceNodes(GroupItem group) { return null; }
 	public Object targetNodes(GroupItem group) { return null; }
 	
-	@SuppressWarnings("unchecked")
 	public void buildGraph(GroupItem group)
 	{		
 		Object sn = sourceNodes(group);
@@ -60,8 +58,8 @@ public abstract class LinkEvaluator extends ItemEvaluator {
 		Property tk  = pset.keys.get("targetKey");
 
 		// get maps
-		Map<Object,Item> sourceMap = MapCache.get(snk, sources);
-		Map<Object,Item> targetMap = MapCache.get(tnk, targets);
+		Map<Object,Item> sourceMap = sources.nodeKeys(snk);
+		Map<Object,Item> targetMap = targets.nodeKeys(tnk);
 		
 		boolean buildSourceMap = (sourceMap==null || snk!=_snk || sources.modified());
 		boolean buildTargetMap = (targetMap==null || tnk!=_tnk || targets.modified());
@@ -76,8 +74,8 @@ public abstract class LinkEvaluator extends ItemEvaluator {
 			if (sourceMap != null) {
 				sourceMap.clear();
 			} else {
-				sourceMap = (HashMap<Object,Item>) Objects.Map.get();
-				MapCache.put(snk, sources, sourceMap);
+				sourceMap = new HashMap<Object,Item>();
+				sources.nodeKeys(snk, sourceMap);
 			}
 			for (Item node : sources.items()) {
 				sourceMap.put(sourceNodeKey(node), node);
@@ -92,12 +90,13 @@ public abstract class LinkEvaluator extends ItemEvaluator {
 			}
 			if (sources==targets && snk.equals(tnk)) {
 				targetMap = sourceMap;
+				targets.nodeKeys(tnk, targetMap);
 			} else {
 				if (targetMap != null) {
 					targetMap.clear();
 				} else {
-					targetMap = (HashMap<Object,Item>) Objects.Map.get();
-					MapCache.put(tnk, targets, targetMap);
+					targetMap = new HashMap<Object,Item>();
+					targets.nodeKeys(tnk, targetMap);
 				}
 				for (Item node : targets.items()) {
 					targetMap.put(targetNodeKey(node), node);
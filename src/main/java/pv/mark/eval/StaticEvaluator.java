@@ -22,7 +22,6 @@ import pv.scene.LinkItem;
 import pv.scene.RuleItem;
 import pv.scene.WedgeItem;
 import pv.style.Easing;
-import pv.util.Objects;
 
 public class StaticEvaluator extends ItemEvaluator {
 
@@ -41,46 +40,43 @@ public class StaticEvaluator extends ItemEvaluator {
 	public List<Pair> _pexit = new ArrayList<Pair>();
 	
 	public StaticEvaluator(Mark mark) {
+		this(mark, mark.propertySet());
+	}
+	
+	protected StaticEvaluator(Mark mark, PropertySet pset) {
 		this.mark = mark;
-		_pset = mark.propertySet();
+		_pset = pset;
 		_itemtype = mark.itemType();
 		_datatype = (Class<?>) getConstant(_pset, "datatype");
 		_factory = ItemFactory.get(mark.markType());
 		_hasKey = _pset.keys.containsKey("key");
-		init(mark.propertySet());
+		init(_pset);
 	}
 	
 	private void init(PropertySet pset) {
-		if (pset.group != null) {
-			for (Map.Entry<String,Property> e : pset.group.entrySet()) {
-				PropertyEval pe = PropertyEval.get(e.getKey());
-				if (pe == null || e.getValue() == null) continue;
-				_pgroup.add(new Pair(pe, e.getValue()));
-			}
-		}
-		if (pset.instance != null) {
-			for (Map.Entry<String,Property> e : pset.instance.entrySet()) {
-				PropertyEval pe = PropertyEval.get(e.getKey());
-				if (pe == null || e.getValue() == null) continue;
-				_pinstance.add(new Pair(pe, e.getValue()));
-			}
-		}
-		if (pset.enter != null) {
-			for (Map.Entry<String,Property> e : pset.enter.entrySet()) {
-				PropertyEval pe = PropertyEval.get(e.getKey());
-				if (pe == null || e.getValue() == null) continue;
-				_penter.add(new Pair(pe, e.getValue()));
-			}
-		}
-		if (pset.exit != null) {
-			for (Map.Entry<String,Property> e : pset.exit.entrySet()) {
-				PropertyEval pe = PropertyEval.get(e.getKey());
-				if (pe == null || e.getValue() == null) continue;
-				_pexit.add(new Pair(pe, e.getValue()));
-			}
+		init(_pgroup, pset.group, GroupItem.class);
+		init(_pinstance, pset.instance, _itemtype);
+		init(_penter, pset.enter, _itemtype);
+		init(_pexit, pset.exit, _itemtype);
+	}
+	
+	private void init(List<Pair> list, Map<String,Property> props, Class<?> itype) {
+		if (props == null) return;
+		for (Map.Entry<String,Property> e : props.entrySet()) {
+			PropertyEval pe = resolve(itype, e.getKey());
+			if (pe == null || e.getValue() == null) continue;
+			list.add(new Pair(pe, e.getValue()));
 		}
 	}
 	
+	/**
+	 * Returns the evaluator assigning the named property of the given item
+	 * type, or null if the item type has no such property.
+	 */
+	protected PropertyEval resolve(Class<?> itype, String name) {
+		return PropertyEval.get(name);
+	}
+	
 	public Class<?> datatype() {
 		return _datatype;
 	}
@@ -99,6 +95,15 @@ public class StaticEvaluator extends ItemEvaluator {
 		return _hasKey ? _pset.keys.get("key").object(item) : item.index;
 	}
 	
+	protected Object itemKey(Item item) {
+		return key(item);
+	}
+	
+	protected Item create() {
+		Item item = mark.scene().itemPool().poll(_itemtype);
+		return item != null ? item : _factory.create();
+	}
+	
 	private void evalItem(Item item, List<Pair> list) {
 		int len = list.size();
 		for (int i=0; i<len; ++i) {
@@ -112,16 +117,8 @@ public class StaticEvaluator extends ItemEvaluator {
 		group.modified(false);
 		Iterable<?> _data_ = data(group);
 				
-		// BUILD LOOKUP TABLE
-		Map<Object,Item> map = null;
-		if (animate && _hasKey) {
-			map = (Map<Object,Item>) Objects.Map.get();
-			for (int i=0; i<group.size(); ++i) {
-				Item item = group.item(i);
-				map.put(key(item), item);
-			}
-			group.items.clear();
-		}
+		// JOIN AGAINST KEY INDEX
+		Map<Object,Item> map = join(group, animate && _hasKey);
 	
 		// GENERATE ITEMS
 		int index = 0;
@@ -130,35 +127,42 @@ public class StaticEvaluator extends ItemEvaluator {
 			
 			// GET SCENEGRAPH ITEM
 			Item item = null;
+			Object key = null;
 			if (map != null) {
 				_dummy.data = data;
 				_dummy.index = index;
-				item = map.remove(key(_dummy));
+				item = map.remove(key = key(_dummy));
 			}
 			if (item != null) {
 				group.add(item);
+				item.modified(item.index != index);
 				item.index = index;
 			} else if (group.items.size() > index) {
 				item = group.item(index);
+				item.modified(false);
 			} else {
-				item = _factory.create();
+				item = create();
 				group.add(item);
 				item.group = group;
 				item.index = index;
 				item.born(true);
+				item.modified(true);
 			}
+			if (item.zombie()) item.modified(true);
 			item.zombie(false);
 			item.dead(false);
 			if (item.data != data) {
 				item.data = data;
+				item.modified(true);
 				group.modified(true);
 			}
+			if (map != null) group.keys.put(key, item);
 			
 			if (animate) {
 				Item prev = item.next, next;
 				if (prev == null) {
-					prev = (item.next = _factory.create()); prev.group = group;
-					next = (prev.next = _factory.create()); next.group = group;
+					prev = (item.next = create()); prev.group = group;
+					next = (prev.next = create()); next.group = group;
 					prev.data = data;
 					next.data = data;
 				} else {
@@ -187,27 +191,30 @@ public class StaticEvaluator extends ItemEvaluator {
 		// PROCESS ZOMBIE ITEMS
 		int idx = index;
 		if (map != null) {
-			for (Item item : map.values()) {
+			for (Map.Entry<Object,Item> e : map.entrySet()) {
+				Item item = e.getValue();
 				if (item.dead()) {
-					group.modified(true);
+					group.reclaim(item, mark.scene().itemPool());
 					continue;
 				}
 				item.zombie(true);
+				item.modified(true);
 				if (item.next == null) {
-					item.next = _factory.create();
-					item.next.next = _factory.create();
+					item.next = create();
+					item.next.next = create();
 					item.next.group = group;
 					item.next.next.group = group;
 				}
 				item.next.populate(item);
 				group.add(item);
+				group.keys.put(e.getKey(), item);
 				idx += 1;
 			}
-			Objects.Map.reclaim(map);
+			map.clear();
 		} 
 		
 		// remove extra items if length changes
-		group.discard(idx);
+		group.discard(idx, mark.scene().itemPool());
 		
 		// EVALUATE GROUP PROPERTIES
 		{
@@ -217,12 +224,16 @@ public class StaticEvaluator extends ItemEvaluator {
 			// FIRE BUILD EVENT
 			MarkEvent.fire(MarkEvent.create(Events.build), item, item);
 		}
+		prepare(group, animate);
 		return group;
 	}
 		
 	public void evaluate(GroupItem group, int start, int end, boolean animate) {
+		boolean skip = group.skip;
 		for (int i=start; i<end; ++i) {
 			Item item = group.item(i);
+			if (skip && !item.modified()) continue;
+			item.modified(true);
 			boolean zombie = item.zombie();
 			
 			// EVALUATE PROPERTIES
@@ -349,6 +360,7 @@ public class StaticEvaluator extends ItemEvaluator {
 			map.put("segmented", new SegmentedEval());
 			map.put("interpolate", new InterpolateEval());
 			map.put("depth", new DepthEval());
+			map.put("incremental", new IncrementalEval());
 		}
 		public static PropertyEval get(String name) {
 			return map.get(name);
@@ -457,6 +469,9 @@ public class StaticEvaluator extends ItemEvaluator {
 		public static class DepthEval extends PropertyEval {
 			public void eval(Item x, Property p) { ((GroupItem)x).depth = (int)p.number(x); }
 		}
+		public static class IncrementalEval extends PropertyEval {
+			public void eval(Item x, Property p) { ((GroupItem)x).incremental = p.bool(x); }
+		}
 		
 		// TODO LINK
 	}
@@ -15,6 +15,16 @@ public abstract class MarkUpdater {
 	
 	public abstract void update(Mark mark, GroupItem proto, PanelItem panel, Transition t);
 	
+	/**
+	 * Updates the mark like {@link #update}, but lets a failing build or
+	 * evaluation propagate to the caller instead of reporting it. Used by
+	 * {@link pv.mark.Scene#updateNow()}. Updaters that cannot propagate
+	 * failures fall back to {@link #update}.
+	 */
+	public void updateNow(Mark mark, GroupItem proto, PanelItem panel, Transition t) {
+		update(mark, proto, panel, t);
+	}
+	
 	public void submit(Mark mark, GroupItem proto, PanelItem panel, Transition t) {
 		if (Scheduler.isCurrentThread()) {
 			//long t0 = System.currentTimeMillis();
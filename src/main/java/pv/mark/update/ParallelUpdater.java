@@ -71,6 +71,7 @@ public class ParallelUpdater extends MarkUpdater {
 		evaluate(mark, g, t);
 		waitForFutures();
 //		evaluateSerial(mark, layer, t);
+		mark.scene().itemPool().release();
 		
 		//long t3 = System.currentTimeMillis();
 		//System.out.print("* "+(t1-t0)/1000f + "\t" + (t2-t1)/1000f + "\t" + (t3-t2)/1000f + "\t");
@@ -18,12 +18,21 @@ public class SerialUpdater extends MarkUpdater {
 	private EvaluatorBuilder _compiler = EvaluatorBuilder.instance();
 	
 	public void update(Mark mark, GroupItem proto, PanelItem panel, Transition t) {
+		try {
+			updateNow(mark, proto, panel, t);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+	
+	@Override
+	public void updateNow(Mark mark, GroupItem proto, PanelItem panel, Transition t) {
 		try {
 			build(mark, proto, panel, t);
 			MarkEvent.fire(MarkEvent.create(Events.update), mark.scene());
 			evaluate(mark, panel, t);
-		} catch (Exception e) {
-			e.printStackTrace();
+		} finally {
+			mark.scene().itemPool().release();
 		}
 	}
 	
@@ -0,0 +1,257 @@
+package pv.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import pv.mark.Scene;
+import pv.render.awt.java2D.Java2DRenderer;
+import pv.scene.GroupItem;
+import pv.scene.PanelItem;
+
+/**
+ * Headless pipeline exporting scenes as PNG images, without going through
+ * a {@link pv.render.Display} or the animation scheduler. Each scene is
+ * updated once on a render thread and drawn into a pooled image, which is
+ * then encoded on a separate encoder thread. Both stages run on bounded
+ * executors: when the encoder falls behind, render threads encode
+ * themselves, and when the renderers fall behind, the submitting thread
+ * renders itself. The number of images in flight, and thus memory use,
+ * stays bounded under load. A scene that fails to update or encode
+ * completes its future exceptionally, as does a scene submitted after
+ * {@link #shutdown()}, with a {@link RejectedExecutionException}.
+ */
+public class SceneExporter {
+
+	/**
+	 * Runs a task on the submitting thread when the queue is full, and
+	 * rejects it once the executor is shut down.
+	 */
+	private static final RejectedExecutionHandler s_callerRuns =
+		new RejectedExecutionHandler() {
+			public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
+				if (e.isShutdown())
+					throw new RejectedExecutionException("Exporter is shut down");
+				r.run();
+			}
+		};
+
+	private static final ThreadLocal<Java2DRenderer> s_renderers =
+		new ThreadLocal<Java2DRenderer>() {
+			protected Java2DRenderer initialValue() {
+				return new Java2DRenderer();
+			}
+		};
+
+	private final ExecutorService _render;
+	private final ExecutorService _encode;
+	private final Map<Long,ArrayDeque<BufferedImage>> _images =
+		new HashMap<Long,ArrayDeque<BufferedImage>>();
+	private final int _maxImages;
+	private int _pooled = 0;
+	private Color _background = Color.WHITE;
+
+	private final AtomicLong _count = new AtomicLong();
+	private volatile long _start = -1;
+
+	public SceneExporter() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	public SceneExporter(int threads) {
+		this(threads, Math.max(1, threads/2), 2*threads);
+	}
+
+	/**
+	 * Creates a new exporter.
+	 * @param renderThreads the number of threads updating and drawing scenes
+	 * @param encodeThreads the number of threads encoding images
+	 * @param queueSize the number of scenes waiting in each stage before
+	 * the submitting thread has to do the work itself
+	 */
+	public SceneExporter(int renderThreads, int encodeThreads, int queueSize) {
+		_render = executor("pv-render-", renderThreads, queueSize);
+		_encode = executor("pv-encode-", encodeThreads, queueSize);
+		_maxImages = renderThreads + encodeThreads + queueSize;
+		ImageIO.setUseCache(false); // encode in memory, not via temp files
+	}
+
+	private static ExecutorService executor(final String name, int threads, int queueSize) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(queueSize),
+			new ThreadFactory() {
+				private int id = 0;
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, name+(id++));
+					t.setDaemon(true);
+					return t;
+				}
+			},
+			s_callerRuns);
+	}
+
+	public Color background() { return _background; }
+	public void background(Color c) { _background = c; }
+
+	/**
+	 * Returns the number of scenes exported so far.
+	 */
+	public long count() {
+		return _count.get();
+	}
+
+	/**
+	 * Returns the export throughput, in scenes per second, since the first
+	 * scene was submitted.
+	 */
+	public double throughput() {
+		long t = System.nanoTime() - _start;
+		return _start < 0 || t <= 0 ? 0 : _count.get() / (t / 1e9);
+	}
+
+	// -- Export --------------------------------------------------------------
+
+	/**
+	 * Exports the scene, returning the encoded PNG image.
+	 */
+	public Future<byte[]> export(Scene scene) {
+		return submit(scene, new Encoder<byte[]>() {
+			public byte[] encode(BufferedImage img) throws IOException {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				ImageIO.write(img, "png", out);
+				return out.toByteArray();
+			}
+		});
+	}
+
+	/**
+	 * Exports the scene, writing the PNG image to the given stream. The
+	 * stream is not closed.
+	 */
+	public Future<Void> export(Scene scene, final OutputStream out) {
+		return submit(scene, new Encoder<Void>() {
+			public Void encode(BufferedImage img) throws IOException {
+				ImageIO.write(img, "png", out);
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * Stops accepting scenes and waits for the submitted ones to finish.
+	 */
+	public void shutdown() throws InterruptedException {
+		_render.shutdown();
+		_render.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		_encode.shutdown();
+		_encode.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+	}
+
+	private interface Encoder<T> {
+		T encode(BufferedImage img) throws IOException;
+	}
+
+	private <T> Future<T> submit(final Scene scene, final Encoder<T> encoder) {
+		final CompletableFuture<T> result = new CompletableFuture<T>();
+		if (_start < 0) _start = System.nanoTime();
+		try {
+			_render.execute(new Runnable() {
+				public void run() {
+					final BufferedImage img;
+					try {
+						img = render(scene);
+					} catch (Throwable t) {
+						result.completeExceptionally(t);
+						return;
+					}
+					try {
+						_encode.execute(new Runnable() {
+							public void run() {
+								try {
+									T value = encoder.encode(img);
+									_count.incrementAndGet();
+									result.complete(value);
+								} catch (Throwable t) {
+									result.completeExceptionally(t);
+								} finally {
+									release(img);
+								}
+							}
+						});
+					} catch (RejectedExecutionException ex) {
+						release(img);
+						result.completeExceptionally(ex);
+					}
+				}
+			});
+		} catch (RejectedExecutionException ex) {
+			result.completeExceptionally(ex);
+		}
+		return result;
+	}
+
+	/**
+	 * Updates the scene and draws it into a pooled image, sized to the
+	 * scene panel including its margins.
+	 */
+	protected BufferedImage render(Scene scene) {
+		scene.updateNow();
+		PanelItem root = (PanelItem) scene.items();
+		GroupItem group = (GroupItem) root.item(0);
+		PanelItem panel = (PanelItem) group.item(0);
+		int w = (int) Math.ceil(panel.left + panel.width + panel.right);
+		int h = (int) Math.ceil(panel.top + panel.height + panel.bottom);
+
+		BufferedImage img = acquire(Math.max(1, w), Math.max(1, h));
+		Graphics2D g = img.createGraphics();
+		g.setBackground(_background);
+		g.clearRect(0, 0, img.getWidth(), img.getHeight());
+		s_renderers.get().render(g, root);
+		g.dispose();
+		return img;
+	}
+
+	// -- Image Pool ----------------------------------------------------------
+
+	private BufferedImage acquire(int w, int h) {
+		Long key = ((long) w << 32) | h;
+		synchronized (_images) {
+			ArrayDeque<BufferedImage> q = _images.get(key);
+			if (q != null && !q.isEmpty()) {
+				--_pooled;
+				return q.poll();
+			}
+		}
+		return new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	private void release(BufferedImage img) {
+		Long key = ((long) img.getWidth() << 32) | img.getHeight();
+		synchronized (_images) {
+			if (_pooled >= _maxImages) return;
+			ArrayDeque<BufferedImage> q = _images.get(key);
+			if (q == null) _images.put(key, q = new ArrayDeque<BufferedImage>());
+			q.add(img);
+			++_pooled;
+		}
+	}
+
+}
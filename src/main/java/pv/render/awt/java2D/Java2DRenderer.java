@@ -33,6 +33,7 @@ import pv.style.Font;
 import pv.style.Stroke;
 import pv.style.Fill.Solid;
 import pv.util.Objects;
+import pv.util.Rect;
 
 public class Java2DRenderer extends AbstractRenderer {
 
@@ -51,6 +52,12 @@ public class Java2DRenderer extends AbstractRenderer {
 	private GeneralPath _path = new GeneralPath();
 	//private RoundRectangle2D _rrect = new RoundRectangle2D.Double();
 	
+	// culling rectangle, in the coordinates of the current panel
+	private Rect _clip = new Rect();
+	private Rect _bounds = new Rect();
+	private boolean _cull = false;
+	private boolean _computeBounds = true;
+	
 	public Java2DRenderer() {
 		_map.put(MarkType.Area,  new AreaRenderer());
 		_map.put(MarkType.Bar,   new BarRenderer());
@@ -76,6 +83,24 @@ public class Java2DRenderer extends AbstractRenderer {
 		renderPanel(g, panel);		
 	}
 	
+	/**
+	 * Sets the rectangle, in scene coordinates, outside of which items are
+	 * culled instead of drawn. A null value (the default) disables culling.
+	 */
+	public void clip(Rect clip) {
+		_cull = clip != null;
+		if (_cull) _clip.set(clip);
+	}
+	
+	/**
+	 * Sets whether group bounds are recomputed while rendering (the
+	 * default). Tile workers rendering the same scene in parallel turn this
+	 * off and leave the bounds to a single pass over the scene.
+	 */
+	public void computeBounds(boolean b) {
+		_computeBounds = b;
+	}
+	
 	public void renderPanel(Graphics2D g, PanelItem panel) {
 		// TODO set current color to null?
 		
@@ -83,6 +108,8 @@ public class Java2DRenderer extends AbstractRenderer {
 		boolean translate = panel.left != 0 || panel.top != 0;
 		if (translate) {
 			g.translate(panel.left, panel.top);
+			_clip.x -= panel.left;
+			_clip.y -= panel.top;
 		}
 		
 		// draw panel background / border
@@ -118,10 +145,10 @@ public class Java2DRenderer extends AbstractRenderer {
 					renderPanel(g, (PanelItem)item);
 				}
 				Objects.List.reclaim(layers);
-				group.computeBounds();
+				if (_computeBounds) group.computeBounds();
 			} else if (group.visible) {
 				gr.render(group, g);
-				group.computeBounds();
+				if (_computeBounds) group.computeBounds();
 			}
 		}
 		Objects.List.reclaim(items);
@@ -129,8 +156,76 @@ public class Java2DRenderer extends AbstractRenderer {
 		// translate origin back
 		if (translate) {
 			g.translate(-panel.left, -panel.top);
+			_clip.x += panel.left;
+			_clip.y += panel.top;
+		}
+		if (_computeBounds) panel.computeBounds();
+	}
+	
+	// -- Culling -------------------------------------------------------------
+	
+	/**
+	 * Computes a conservative estimate of the area covered by drawing the
+	 * item, in the coordinates of its enclosing panel.
+	 * @return false if the drawn area is unknown (images, rotated labels)
+	 */
+	public static boolean bounds(Item item, Rect r) {
+		double s = item.stroke==null ? 0 : item.stroke.width();
+		if (s > 1) s = s/2;
+		if (s < 1) s = 1;
+		
+		if (item instanceof LinkItem) {
+			LinkItem e = (LinkItem) item;
+			if (e.source == null || e.target == null) {
+				r.set(e.left, e.top, 0, 0);
+			} else {
+				double x = Math.min(e.source.left, e.target.left);
+				double y = Math.min(e.source.top, e.target.top);
+				r.set(x-s, y-s,
+					Math.abs(e.source.left-e.target.left)+s+s,
+					Math.abs(e.source.top-e.target.top)+s+s);
+			}
+		} else if (item instanceof WedgeItem) {
+			s += ((WedgeItem)item).outerRadius;
+			r.set(item.left-s, item.top-s, s+s, s+s);
+		} else if (item instanceof LabelItem) {
+			LabelItem l = (LabelItem) item;
+			if (l.textAngle != 0) return false;
+			if (l.font == null || l.text == null) {
+				r.set(l.left, l.top, 0, 0);
+			} else {
+				// glyphs are assumed to be no wider than the font size
+				double m = Math.abs(l.textMargin) + 1;
+				double w = l.font.size() * l.text.length() + m;
+				double h = 2 * l.font.size() + m;
+				r.set(l.left-w, l.top-h, w+w, h+h);
+			}
+		} else if (item instanceof ImageItem) {
+			return false;
+		} else {
+			item.bounds(r);
+		}
+		return true;
+	}
+	
+	private boolean cull(Item item) {
+		return _cull && bounds(item, _bounds) && !_clip.intersects(_bounds);
+	}
+	
+	private boolean cullGroup(Item group) {
+		if (!_cull) return false;
+		List<Item> items = group.items();
+		Rect b = Objects.Rect.get();
+		for (int i=0; i<items.size(); ++i) {
+			if (!bounds(items.get(i), _bounds)) {
+				Objects.Rect.reclaim(b);
+				return false;
+			}
+			if (i == 0) b.set(_bounds); else Rect.union(b, _bounds, b);
 		}
-		panel.computeBounds();
+		boolean cull = !_clip.intersects(b);
+		Objects.Rect.reclaim(b);
+		return cull;
 	}
 	
 	private void fill(Fill fill, double alpha, Graphics2D g) {
@@ -158,7 +253,7 @@ public class Java2DRenderer extends AbstractRenderer {
 	class AreaRenderer extends GroupRenderer {
 		public void render(Item group, Graphics2D g) {
 			List<Item> items = group.items();
-			if (items.size() == 0) return;
+			if (items.size() == 0 || cullGroup(group)) return;
 			
 			Item first = items.get(0);
 			if (!first.visible) return;
@@ -195,7 +290,7 @@ public class Java2DRenderer extends AbstractRenderer {
 			
 			for (int i=0; i<items.size(); ++i) {
 				Item item = items.get(i);
-				if (!item.visible) continue;
+				if (!item.visible || cull(item)) continue;
 				fb = item.fill != null;
 				sb = item.stroke != null;
 
@@ -222,7 +317,7 @@ public class Java2DRenderer extends AbstractRenderer {
 			
 			for (int i=0; i<items.size(); ++i) {
 				DotItem item = (DotItem) items.get(i);
-				if (!item.visible) continue;
+				if (!item.visible || cull(item)) continue;
 				fb = item.fill != null;
 				sb = item.stroke != null;
 				if (!(fb || sb) || item.shape==null) continue;
@@ -275,7 +370,7 @@ public class Java2DRenderer extends AbstractRenderer {
 			for (int i=0; i<items.size(); ++i) {
 				LabelItem item = (LabelItem) items.get(i);
 				if (!item.visible || item.fill == null || item.font == null ||
-					item.text == null || item.text.length()==0)
+					item.text == null || item.text.length()==0 || cull(item))
 					continue;
 				
 				fill(item.fill, item.alpha, g);
@@ -324,7 +419,7 @@ public class Java2DRenderer extends AbstractRenderer {
 			List<Item> items = group.items();
 			for (int i=0; i<items.size(); ++i) {
 				LinkItem edge = (LinkItem)items.get(i);
-				if (!edge.visible || edge.stroke==null) continue;
+				if (!edge.visible || edge.stroke==null || cull(edge)) continue;
 				
 				stroke(edge.stroke, edge.alpha, g);
 				_line.setLine(edge.source.left, edge.source.top,
@@ -336,7 +431,7 @@ public class Java2DRenderer extends AbstractRenderer {
 	class LineRenderer extends GroupRenderer {
 		public void render(Item group, Graphics2D g) {
 			List<Item> items = group.items();
-			if (items.size() == 0) return;
+			if (items.size() == 0 || cullGroup(group)) return;
 			
 			Item first = items.get(0);
 			boolean fb = first.fill != null;
@@ -377,6 +472,7 @@ public class Java2DRenderer extends AbstractRenderer {
 			
 			for (int i=0; i<items.size(); ++i) {
 				WedgeItem item = (WedgeItem) items.get(i);
+				if (cull(item)) continue;
 				fb = item.fill != null;
 				sb = item.stroke != null;
 
@@ -0,0 +1,401 @@
+package pv.render.awt.java2D;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import pv.mark.constants.MarkType;
+import pv.scene.GroupItem;
+import pv.scene.Item;
+import pv.scene.PanelItem;
+import pv.util.Rect;
+import pv.util.ThreadPool;
+
+/**
+ * Offscreen renderer for headless image generation. The canvas is split
+ * into square tiles, each a view onto the same backing image, which are
+ * rendered in parallel on the {@link ThreadPool} with items culled to the
+ * tile bounds. Between frames, the renderer tracks the drawn bounds of each
+ * item and repaints only the tiles touched by items flagged as
+ * {@link Item#MODIFIED} (by the evaluator or by a running transition), or
+ * by items that were added or removed. The MODIFIED flags of items are
+ * cleared once consumed, so a scene should be rendered by a single tile
+ * renderer at a time.
+ */
+public class Java2DTileRenderer {
+
+	public static final int DEFAULT_TILE_SIZE = 128;
+
+	private static final ThreadLocal<Java2DRenderer> s_renderers =
+		new ThreadLocal<Java2DRenderer>() {
+			protected Java2DRenderer initialValue() {
+				Java2DRenderer r = new Java2DRenderer();
+				r.computeBounds(false);
+				return r;
+			}
+		};
+
+	private final int _width, _height, _tileSize, _cols, _rows;
+	private final BufferedImage _image;
+	private final BufferedImage[] _tiles;
+	private final boolean[] _dirty;
+	private int _dirtyCount;
+
+	private Color _background = Color.WHITE;
+	private AffineTransform _transform = new AffineTransform();
+	private AffineTransform _itransform = new AffineTransform();
+	private boolean _invalid = true;
+
+	private final Map<GroupItem,GroupState> _states =
+		new IdentityHashMap<GroupItem,GroupState>();
+	private int _frame = 0;
+
+	private final Rect _rect = new Rect();
+	private final Rectangle2D _r2d = new Rectangle2D.Double();
+	private final List<Tile> _tasks = new ArrayList<Tile>();
+
+	private final double[] _frameTimes = new double[10];
+	private int _fpi = 0;
+
+	public Java2DTileRenderer(int width, int height) {
+		this(width, height, DEFAULT_TILE_SIZE);
+	}
+
+	public Java2DTileRenderer(int width, int height, int tileSize) {
+		_width = width;
+		_height = height;
+		_tileSize = tileSize;
+		_cols = (width + tileSize - 1) / tileSize;
+		_rows = (height + tileSize - 1) / tileSize;
+		_image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		_tiles = new BufferedImage[_cols * _rows];
+		_dirty = new boolean[_tiles.length];
+		for (int r=0, t=0; r<_rows; ++r) {
+			for (int c=0; c<_cols; ++c, ++t) {
+				int x = c*tileSize, y = r*tileSize;
+				_tiles[t] = _image.getSubimage(x, y,
+					Math.min(tileSize, width-x), Math.min(tileSize, height-y));
+			}
+		}
+	}
+
+	public int width() { return _width; }
+	public int height() { return _height; }
+	public int tileSize() { return _tileSize; }
+	public int tileCount() { return _tiles.length; }
+
+	/**
+	 * Returns the image holding the last rendered frame. The same image is
+	 * updated in place by subsequent frames.
+	 */
+	public BufferedImage image() { return _image; }
+
+	public Color background() { return _background; }
+	public void background(Color c) {
+		_background = c;
+		invalidate();
+	}
+
+	public AffineTransform transform() { return new AffineTransform(_transform); }
+	public void transform(AffineTransform at) {
+		try {
+			_itransform = at.createInverse();
+			_transform = new AffineTransform(at);
+		} catch (NoninvertibleTransformException e) {
+			throw new IllegalArgumentException(e);
+		}
+		invalidate();
+	}
+
+	/**
+	 * Forces a full repaint on the next frame, such as after scene changes
+	 * not reflected in item flags.
+	 */
+	public void invalidate() {
+		_invalid = true;
+	}
+
+	/**
+	 * Returns the number of tiles repainted by the last frame.
+	 */
+	public int dirtyTiles() { return _dirtyCount; }
+
+	/**
+	 * Returns the rendering throughput in frames per second, averaged over
+	 * the last frames.
+	 */
+	public double fps() {
+		int n = Math.min(_frame, _frameTimes.length);
+		double t = 0;
+		for (int i=0; i<n; ++i) t += _frameTimes[i];
+		return t > 0 ? n / t : 0;
+	}
+
+	/**
+	 * Renders a frame of the given scenes and returns the resulting image.
+	 */
+	public BufferedImage render(PanelItem... scenes) {
+		long t0 = System.nanoTime();
+		++_frame;
+
+		// collect dirty tiles and bounds, on the calling thread only
+		boolean full = _invalid;
+		for (PanelItem scene : scenes) {
+			full |= track(scene, 0, 0);
+		}
+		for (Iterator<GroupState> iter = _states.values().iterator(); iter.hasNext();) {
+			GroupState gs = iter.next();
+			if (gs.frame != _frame) {
+				full |= gs.panel || gs.dirty(this, 0, gs.size);
+				iter.remove();
+			}
+		}
+		_invalid = false;
+		_dirtyCount = 0;
+		for (int t=0; t<_tiles.length; ++t) {
+			if (full) _dirty[t] = true;
+			if (_dirty[t]) {
+				_tasks.add(new Tile(t, scenes));
+				_dirty[t] = false;
+				++_dirtyCount;
+			}
+		}
+
+		// render dirty tiles
+		if (_tasks.size() > 1 && ThreadPool.getThreadCount() > 1) {
+			try {
+				for (Future<Tile> f : ThreadPool.getThreadPool().invokeAll(_tasks)) {
+					f.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			}
+		} else {
+			for (Tile tile : _tasks) tile.call();
+		}
+		_tasks.clear();
+
+		_frameTimes[_fpi] = (System.nanoTime() - t0) / 1e9;
+		_fpi = (_fpi + 1) % _frameTimes.length;
+		return _image;
+	}
+
+	// -- Dirty Region Tracking -----------------------------------------------
+
+	/**
+	 * Traverses a panel in drawing order, computing group bounds and
+	 * marking the tiles touched by changed items.
+	 * @return true if the full canvas needs to be repainted
+	 */
+	private boolean track(PanelItem panel, double x, double y) {
+		x += panel.left;
+		y += panel.top;
+		boolean full = state(panel).panel(panel, x, y);
+		panel.modified(false);
+
+		List<Item> items = panel.items;
+		for (int i=0; i<items.size(); ++i) {
+			GroupItem group = (GroupItem) items.get(i);
+			if (group == null) continue;
+			if (group instanceof PanelItem) {
+				full |= track((PanelItem)group, x, y);
+			} else if (group.type == MarkType.Panel) {
+				for (Item layer : group.items) {
+					if (layer != null)
+						full |= track((PanelItem)layer, x, y);
+				}
+				group.computeBounds();
+			} else {
+				full |= track(group, x, y);
+				if (group.visible) group.computeBounds();
+			}
+		}
+		panel.computeBounds();
+		return full;
+	}
+
+	private GroupState state(GroupItem group) {
+		GroupState gs = _states.get(group);
+		if (gs == null) _states.put(group, gs = new GroupState());
+		gs.frame = _frame;
+		return gs;
+	}
+
+	private boolean track(GroupItem group, double x, double y) {
+		GroupState gs = state(group);
+		boolean born = gs.bounds == null;
+
+		List<Item> items = group.items;
+		int size = group.visible ? items.size() : 0;
+		int prev = gs.size;
+		boolean path = group.type == MarkType.Area || group.type == MarkType.Line;
+		boolean changed = born || size != prev;
+
+		double[] b = gs.spare == null || gs.spare.length < 4*size ? new double[4*size] : gs.spare;
+		boolean bounded = true;
+		double x1 = Double.MAX_VALUE, y1 = x1, x2 = -x1, y2 = x2;
+		for (int i=0; i<size; ++i) {
+			Item item = items.get(i);
+			if (item == null || !Java2DRenderer.bounds(item, _rect)) {
+				bounded = false;
+				_rect.set(0, 0, 0, 0);
+			}
+			int j = 4*i;
+			b[j]   = x + _rect.getMinX();
+			b[j+1] = y + _rect.getMinY();
+			b[j+2] = x + _rect.getMaxX();
+			b[j+3] = y + _rect.getMaxY();
+			x1 = Math.min(x1, b[j]);   y1 = Math.min(y1, b[j+1]);
+			x2 = Math.max(x2, b[j+2]); y2 = Math.max(y2, b[j+3]);
+
+			// an item changed if flagged or moved (e.g., link end points)
+			boolean mod = i >= prev || (item != null && item.modified());
+			if (!mod) {
+				double[] o = gs.bounds;
+				mod = o[j] != b[j] || o[j+1] != b[j+1]
+				   || o[j+2] != b[j+2] || o[j+3] != b[j+3];
+			}
+			if (item != null) item.modified(false);
+			if (mod) {
+				changed = true;
+				if (!path && bounded && !born) {
+					dirty(b[j], b[j+1], b[j+2], b[j+3]);
+					if (i < prev) dirty(gs.bounds, i);
+				}
+			}
+		}
+
+		boolean full = false;
+		if (changed) {
+			if (!bounded || !gs.bounded) {
+				full = true;
+			} else if (born || path) {
+				if (size > 0) dirty(x1, y1, x2, y2);
+				full = gs.dirty(this, 0, prev);
+			} else {
+				full = gs.dirty(this, size, prev);
+			}
+		}
+
+		gs.spare = gs.bounds;
+		gs.bounds = b;
+		gs.size = size;
+		gs.bounded = bounded;
+		gs.x1 = x1; gs.y1 = y1; gs.x2 = x2; gs.y2 = y2;
+		return full;
+	}
+
+	private void dirty(double[] b, int i) {
+		int j = 4*i;
+		dirty(b[j], b[j+1], b[j+2], b[j+3]);
+	}
+
+	/**
+	 * Marks the tiles overlapping the given rectangle in scene coordinates.
+	 */
+	private void dirty(double x1, double y1, double x2, double y2) {
+		_r2d.setRect(x1, y1, x2-x1, y2-y1);
+		Rectangle2D r = _transform.createTransformedShape(_r2d).getBounds2D();
+		int c1 = Math.max(0, (int)Math.floor(r.getMinX()-1) / _tileSize);
+		int r1 = Math.max(0, (int)Math.floor(r.getMinY()-1) / _tileSize);
+		int c2 = Math.min(_cols-1, (int)Math.ceil(r.getMaxX()+1) / _tileSize);
+		int r2 = Math.min(_rows-1, (int)Math.ceil(r.getMaxY()+1) / _tileSize);
+		for (int row=r1; row<=r2; ++row) {
+			for (int col=c1; col<=c2; ++col) {
+				_dirty[row*_cols + col] = true;
+			}
+		}
+	}
+
+	/**
+	 * Item bounds of a group as of the last rendered frame, in scene
+	 * coordinates. For panels, the origin, size and background instead.
+	 */
+	private static class GroupState {
+		int frame, size;
+		boolean bounded = true;
+		double[] bounds, spare;
+		double x1, y1, x2, y2;
+
+		boolean panel;
+		Object fill, stroke;
+		double alpha;
+
+		/** Records the panel state, returning true if it changed. */
+		boolean panel(PanelItem p, double x, double y) {
+			boolean changed = !panel || x != x1 || y != y1
+				|| p.width != x2 || p.height != y2 || p.alpha != alpha
+				|| p.fill != fill || p.stroke != stroke;
+			panel = true;
+			x1 = x; y1 = y; x2 = p.width; y2 = p.height;
+			alpha = p.alpha; fill = p.fill; stroke = p.stroke;
+			return changed;
+		}
+
+		/** Marks the tiles covered by items [start, end) in the last frame. */
+		boolean dirty(Java2DTileRenderer r, int start, int end) {
+			if (end <= start) return false;
+			if (!bounded) return true;
+			if (start == 0) {
+				r.dirty(x1, y1, x2, y2);
+			} else {
+				for (int i=start; i<end; ++i) r.dirty(bounds, i);
+			}
+			return false;
+		}
+	}
+
+	// -- Tile Rendering ------------------------------------------------------
+
+	private class Tile implements Callable<Tile> {
+		final int index;
+		final PanelItem[] scenes;
+
+		Tile(int index, PanelItem[] scenes) {
+			this.index = index;
+			this.scenes = scenes;
+		}
+
+		public Tile call() {
+			BufferedImage img = _tiles[index];
+			int tx = (index % _cols) * _tileSize;
+			int ty = (index / _cols) * _tileSize;
+			int tw = img.getWidth(), th = img.getHeight();
+
+			Graphics2D g = img.createGraphics();
+			g.setBackground(_background);
+			g.clearRect(0, 0, tw, th);
+			g.clipRect(0, 0, tw, th);
+			g.translate(-tx, -ty);
+			g.transform(_transform);
+
+			// cull to the tile bounds in scene coordinates, plus a pixel
+			Rectangle2D r = new Rectangle2D.Double(tx-1, ty-1, tw+2, th+2);
+			r = _itransform.createTransformedShape(r).getBounds2D();
+			Rect clip = new Rect(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+
+			Java2DRenderer renderer = s_renderers.get();
+			renderer.clip(clip);
+			for (PanelItem scene : scenes) {
+				renderer.render(g, scene);
+			}
+			renderer.clip(null);
+			g.dispose();
+			return this;
+		}
+	}
+
+}
@@ -31,6 +31,13 @@ public class DotItem extends Item {
 		return (dx*dx + dy*dy) <= (size+s);
 	}
 	
+	public void reset() {
+		shape = null;
+		size = 0;
+		radius = 0;
+		super.reset();
+	}
+	
 	public void populate(Item item) {
 		DotItem ditem = (DotItem) item;
 		shape = ditem.shape;
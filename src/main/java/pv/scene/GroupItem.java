@@ -1,11 +1,14 @@
 package pv.scene;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
 import pv.mark.constants.MarkType;
+import pv.mark.eval.Evaluator;
 import pv.mark.eval.EventHandler;
+import pv.mark.property.Property;
 import pv.util.Objects;
 import pv.util.Rect;
 
@@ -21,6 +24,17 @@ public class GroupItem extends Item {
 	public boolean segmented;
 	public String interpolate;
 	public int depth = 0;
+	public boolean incremental;
+	
+	// keyed join state, retained between builds of this group
+	public Map<Object,Item> keys;
+	public Map<Object,Item> spareKeys;
+	private Map<Property,Map<Object,Item>> _nodeKeys;
+	
+	// incremental evaluation state
+	public Evaluator evaluator;
+	public int version;
+	public boolean skip;
 
 	public GroupItem() {
 	}
@@ -35,6 +49,20 @@ public class GroupItem extends Item {
 	public List<Item> items() { return items; }
 	public int size() { return items.size(); }
 	
+	/**
+	 * Returns the items of this group indexed by the given node key property,
+	 * as used to resolve link sources and targets, or null if none is set.
+	 */
+	public Map<Object,Item> nodeKeys(Property key) {
+		return _nodeKeys==null ? null : _nodeKeys.get(key);
+	}
+	
+	public void nodeKeys(Property key, Map<Object,Item> map) {
+		if (_nodeKeys == null)
+			_nodeKeys = new IdentityHashMap<Property,Map<Object,Item>>(2);
+		_nodeKeys.put(key, map);
+	}
+	
 	public List<EventHandler> handlers(String type) {
 		return handlers==null ? null : handlers.get(type);
 	}
@@ -45,15 +73,61 @@ public class GroupItem extends Item {
 	
 	@Override
 	public void discard(int index) {
+		discard(index, null);
+	}
+	
+	/**
+	 * Removes the items from the given index on, returning them to the
+	 * pool if one is given, or else discarding them along with their own
+	 * items.
+	 */
+	public void discard(int index, ItemPool pool) {
 		if (index < 0) {
 			super.discard(-1);
 			index = 0;
+			keys = spareKeys = null;
+			_nodeKeys = null;
+			evaluator = null;
 		}
 		for (int i=items.size(); --i >= index;) {
-			items.remove(i).discard(-1);
+			Item item = items.remove(i);
+			if (item != null) reclaim(item, pool);
 		}
 	}
 	
+	/**
+	 * Returns an item removed from this group to the pool, which resets it
+	 * and its items once they are released, or discards it right away if no
+	 * pool is given. The node key indices may still reference the item, so
+	 * they are dropped and the group is flagged as modified, which makes link
+	 * marks rebuild them and resolve their endpoints again.
+	 */
+	public void reclaim(Item item, ItemPool pool) {
+		modified(true);
+		_nodeKeys = null;
+		if (pool != null) pool.reclaim(item);
+		else item.discard(-1);
+	}
+	
+	public void reset() {
+		type = null;
+		items.clear();
+		handlers = null;
+		proto = null;
+		bounds.set(0, 0, 0, 0);
+		props = 0;
+		segmented = false;
+		interpolate = null;
+		depth = 0;
+		incremental = false;
+		keys = spareKeys = null;
+		_nodeKeys = null;
+		evaluator = null;
+		version = 0;
+		skip = false;
+		super.reset();
+	}
+	
 	public Rect bounds(Rect b)
 	{
 		b.set(bounds);
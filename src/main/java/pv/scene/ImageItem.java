@@ -8,6 +8,11 @@ public class ImageItem extends Item {
 
 	public String url;
 	
+	public void reset() {
+		url = null;
+		super.reset();
+	}
+	
 	public void populate(Item item) {
 		ImageItem iitem = (ImageItem) item;
 		url = iitem.url;
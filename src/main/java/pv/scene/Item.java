@@ -114,6 +114,25 @@ public class Item implements PropertyCodes {
 		visible = false;
 	}
 	
+	/**
+	 * Restores the initial state of a newly created item, so that the item
+	 * can be recycled through the {@link ItemPool}.
+	 */
+	public void reset() {
+		flags = DIRTY;
+		index = 0;
+		visible = true;
+		data = null;
+		group = null;
+		next = null;
+		ease = null;
+		delay = 0;
+		left = right = top = bottom = width = height = 0;
+		alpha = 1;
+		stroke = null;
+		fill = null;
+	}
+	
 	// -- Geometry Management -------------------------------------------------
 	
 	public Rect bounds(Rect bounds)
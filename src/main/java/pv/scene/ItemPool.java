@@ -0,0 +1,157 @@
+package pv.scene;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recycled scenegraph items of a single scene, kept in one free list per
+ * item type (and thus per mark type). Items are returned once they are
+ * removed from the scenegraph: zombie items after their exit transition has
+ * set the DEAD flag, and items discarded when a group shrinks. Unlike
+ * {@link pv.util.ObjectPool}, free lists are backed by plain arrays, so a
+ * steady stream of entering and exiting items does not allocate.
+ * <p>
+ * Reclaimed items are not reused right away. A renderer may still be
+ * painting the previous frame, and link items and node key indices built
+ * in the previous update may still reference them. They are therefore
+ * held back until the end of the following scene update, by which time
+ * links have been resolved against the new scenegraph, and only then
+ * reset and made available to {@link #poll(Class)}.
+ */
+public class ItemPool {
+
+	private static int s_capacity = 1 << 16;
+
+	private final Map<Class<?>, Items> _free =
+		new ConcurrentHashMap<Class<?>, Items>();
+	private List<Item> _pending = new ArrayList<Item>();
+	private List<Item> _retired = new ArrayList<Item>();
+	private int _capacity = s_capacity;
+
+	/**
+	 * Sets the maximum number of items retained per item type by newly
+	 * created pools.
+	 */
+	public static void setDefaultCapacity(int capacity) {
+		s_capacity = capacity;
+	}
+
+	public static int getDefaultCapacity() {
+		return s_capacity;
+	}
+
+	/**
+	 * Sets the maximum number of items retained per item type.
+	 */
+	public void setCapacity(int capacity) {
+		_capacity = capacity;
+	}
+
+	public int getCapacity() {
+		return _capacity;
+	}
+
+	/**
+	 * Returns a recycled item of the given type, or null if none is pooled,
+	 * in which case the caller should create a new item.
+	 */
+	public Item poll(Class<?> type) {
+		Items items = _free.get(type);
+		return items == null ? null : items.poll();
+	}
+
+	/**
+	 * Returns an item, along with its animation states, to the pool. The
+	 * item must no longer be part of the scenegraph; it becomes available
+	 * once {@link #release()} has been called twice.
+	 */
+	public synchronized void reclaim(Item item) {
+		_pending.add(item);
+	}
+
+	/**
+	 * Ends a scene update: resets the items reclaimed during the previous
+	 * update and moves them to the free lists, and holds back the items
+	 * reclaimed during this one until the next call.
+	 */
+	public void release() {
+		List<Item> retired;
+		synchronized (this) {
+			retired = _retired;
+			_retired = _pending;
+			_pending = new ArrayList<Item>();
+		}
+		for (int i=retired.size(); --i >= 0;) {
+			free(retired.get(i));
+		}
+	}
+
+	/**
+	 * Returns the number of pooled items of the given type.
+	 */
+	public int size(Class<?> type) {
+		Items items = _free.get(type);
+		return items == null ? 0 : items._size;
+	}
+
+	public synchronized void clear() {
+		_free.clear();
+		_pending.clear();
+		_retired.clear();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void free(Item item) {
+		Item a = item.next, b = a==null ? null : a.next;
+		if (a != null) { a.next = null; add(a); }
+		if (b != null && b != item) { b.next = null; add(b); }
+		add(item);
+	}
+
+	private void add(Item item) {
+		if (item instanceof GroupItem) {
+			// children were only reachable through the retired group
+			GroupItem group = (GroupItem) item;
+			for (int i=group.size(); --i >= 0;) {
+				Item child = group.item(i);
+				if (child != null) free(child);
+			}
+		}
+		item.reset();
+		if (_capacity <= 0) return;
+		Items items = _free.get(item.getClass());
+		if (items == null) {
+			Items prev = _free.putIfAbsent(item.getClass(), items = new Items());
+			if (prev != null) items = prev;
+		}
+		items.add(item, _capacity);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static class Items {
+		private Item[] _items = new Item[16];
+		private int _size = 0;
+
+		synchronized Item poll() {
+			if (_size == 0) return null;
+			Item item = _items[--_size];
+			_items[_size] = null;
+			return item;
+		}
+
+		synchronized void add(Item item, int capacity) {
+			if (_size >= capacity) return;
+			if (_size == _items.length) {
+				Item[] items = new Item[Math.min(capacity, 2*_size)];
+				System.arraycopy(_items, 0, items, 0, _size);
+				_items = items;
+			}
+			_items[_size++] = item;
+		}
+	}
+
+}
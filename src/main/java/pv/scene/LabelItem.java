@@ -14,6 +14,16 @@ public class LabelItem extends Item {
 	public double textAngle;
 	public double textMargin;
 	
+	public void reset() {
+		font = null;
+		text = null;
+		textBaseline = null;
+		textAlign = null;
+		textAngle = 0;
+		textMargin = 0;
+		super.reset();
+	}
+	
 	public void populate(Item item) {
 		LabelItem litem = (LabelItem) item;
 		font = litem.font;
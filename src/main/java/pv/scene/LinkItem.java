@@ -14,6 +14,12 @@ public class LinkItem extends Item {
 	public double targetX;
 	public double targetY;
 	
+	public void reset() {
+		source = target = null;
+		sourceX = sourceY = targetX = targetY = 0;
+		super.reset();
+	}
+	
 	public void populate(Item item) {
 		LinkItem litem = (LinkItem) item;
 		source = litem.source;
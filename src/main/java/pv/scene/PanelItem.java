@@ -11,6 +11,12 @@ public class PanelItem extends GroupItem {
 
 	// TODO populate cache info?
 	
+	public void reset() {
+		cache = false;
+		cacheData = null;
+		super.reset();
+	}
+	
 	public static int checkProperties(Map<String,Property> props) {
 		return Item.checkProperties(props);
 	}
@@ -24,6 +24,12 @@ public class WedgeItem extends Item {
 		return bounds;
 	}
 
+	public void reset() {
+		angle = startAngle = endAngle = 0;
+		innerRadius = outerRadius = 0;
+		super.reset();
+	}
+	
 	public void populate(Item item) {
 		WedgeItem witem = (WedgeItem) item;
 		angle = witem.angle;
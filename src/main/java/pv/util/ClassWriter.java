@@ -0,0 +1,231 @@
+package pv.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal writer for Java class files. Supports a constant pool, a single
+ * superclass and methods with straight-line code, which is all the
+ * generated evaluator classes need. Branch-free code does not require a
+ * StackMapTable, so classes are written with major version 52 (Java 8).
+ */
+public class ClassWriter {
+
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_FINAL  = 0x0010;
+	public static final int ACC_SUPER  = 0x0020;
+
+	// -- opcodes used by generated code --------------------------------------
+
+	public static final int ALOAD_0 = 0x2a;
+	public static final int ALOAD_1 = 0x2b;
+	public static final int ALOAD_2 = 0x2c;
+	public static final int DUP = 0x59;
+	public static final int I2B = 0x91;
+	public static final int I2C = 0x92;
+	public static final int I2S = 0x93;
+	public static final int D2I = 0x8e;
+	public static final int D2L = 0x8f;
+	public static final int D2F = 0x90;
+	public static final int ARETURN = 0xb0;
+	public static final int RETURN = 0xb1;
+	public static final int PUTFIELD = 0xb5;
+	public static final int INVOKEVIRTUAL = 0xb6;
+	public static final int INVOKESPECIAL = 0xb7;
+	public static final int INVOKEINTERFACE = 0xb9;
+	public static final int NEW = 0xbb;
+	public static final int CHECKCAST = 0xc0;
+
+	private static final int MAGIC = 0xCAFEBABE;
+	private static final int VERSION = 52;
+
+	private ByteArrayOutputStream _pool = new ByteArrayOutputStream();
+	private DataOutputStream _poolOut = new DataOutputStream(_pool);
+	private Map<String,Integer> _entries = new HashMap<String,Integer>();
+	private int _count = 1;
+
+	private ByteArrayOutputStream _methods = new ByteArrayOutputStream();
+	private DataOutputStream _methodsOut = new DataOutputStream(_methods);
+	private int _methodCount = 0;
+
+	private int _access;
+	private int _this;
+	private int _super;
+	private int _code;
+
+	public ClassWriter(String name, String superName) {
+		_access = ACC_PUBLIC | ACC_FINAL | ACC_SUPER;
+		_this = type(name);
+		_super = type(superName);
+		_code = utf8("Code");
+	}
+
+	// -- constant pool -------------------------------------------------------
+
+	public int utf8(String s) {
+		Integer idx = _entries.get("U"+s);
+		if (idx != null) return idx;
+		try {
+			_poolOut.writeByte(1);
+			_poolOut.writeUTF(s);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return entry("U"+s, 1);
+	}
+
+	public int type(String internalName) {
+		return ref("C"+internalName, 7, utf8(internalName), -1);
+	}
+
+	public int nameAndType(String name, String desc) {
+		return ref("N"+name+" "+desc, 12, utf8(name), utf8(desc));
+	}
+
+	public int field(String owner, String name, String desc) {
+		return ref("F"+owner+"."+name+desc, 9, type(owner), nameAndType(name, desc));
+	}
+
+	public int method(String owner, String name, String desc) {
+		return ref("M"+owner+"."+name+desc, 10, type(owner), nameAndType(name, desc));
+	}
+
+	public int interfaceMethod(String owner, String name, String desc) {
+		return ref("I"+owner+"."+name+desc, 11, type(owner), nameAndType(name, desc));
+	}
+
+	private int ref(String key, int tag, int a, int b) {
+		Integer idx = _entries.get(key);
+		if (idx != null) return idx;
+		try {
+			_poolOut.writeByte(tag);
+			_poolOut.writeShort(a);
+			if (b >= 0) _poolOut.writeShort(b);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return entry(key, 1);
+	}
+
+	private int entry(String key, int slots) {
+		int idx = _count;
+		_count += slots;
+		_entries.put(key, idx);
+		return idx;
+	}
+
+	// -- methods -------------------------------------------------------------
+
+	/**
+	 * Adds a method with the given straight-line bytecode.
+	 * @param access the access flags
+	 * @param name the method name
+	 * @param desc the method descriptor
+	 * @param maxStack the maximum operand stack depth
+	 * @param maxLocals the number of local variable slots
+	 * @param code the method bytecode
+	 */
+	public void method(int access, String name, String desc,
+		int maxStack, int maxLocals, byte[] code)
+	{
+		try {
+			_methodsOut.writeShort(access);
+			_methodsOut.writeShort(utf8(name));
+			_methodsOut.writeShort(utf8(desc));
+			_methodsOut.writeShort(1);
+			_methodsOut.writeShort(_code);
+			_methodsOut.writeInt(12 + code.length);
+			_methodsOut.writeShort(maxStack);
+			_methodsOut.writeShort(maxLocals);
+			_methodsOut.writeInt(code.length);
+			_methodsOut.write(code);
+			_methodsOut.writeShort(0); // exception table
+			_methodsOut.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		_methodCount++;
+	}
+
+	/**
+	 * Adds a public no-argument constructor calling the superclass one.
+	 * @param superName the internal name of the superclass
+	 */
+	public void defaultConstructor(String superName) {
+		Code c = new Code();
+		c.op(ALOAD_0);
+		c.op(INVOKESPECIAL).u2(method(superName, "<init>", "()V"));
+		c.op(RETURN);
+		method(ACC_PUBLIC, "<init>", "()V", 1, 1, c.toByteArray());
+	}
+
+	public byte[] toByteArray() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(_count);
+			_pool.writeTo(out);
+			out.writeShort(_access);
+			out.writeShort(_this);
+			out.writeShort(_super);
+			out.writeShort(0); // interfaces
+			out.writeShort(0); // fields
+			out.writeShort(_methodCount);
+			_methods.writeTo(out);
+			out.writeShort(0); // attributes
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	// -- descriptors ---------------------------------------------------------
+
+	public static String internalName(Class<?> type) {
+		return type.getName().replace('.', '/');
+	}
+
+	public static String descriptor(Class<?> type) {
+		if (type == Void.TYPE)      return "V";
+		if (type == Boolean.TYPE)   return "Z";
+		if (type == Byte.TYPE)      return "B";
+		if (type == Character.TYPE) return "C";
+		if (type == Short.TYPE)     return "S";
+		if (type == Integer.TYPE)   return "I";
+		if (type == Long.TYPE)      return "J";
+		if (type == Float.TYPE)     return "F";
+		if (type == Double.TYPE)    return "D";
+		if (type.isArray())         return internalName(type);
+		return "L" + internalName(type) + ";";
+	}
+
+	/**
+	 * Buffer for the bytecode of a single method.
+	 */
+	public static class Code {
+		private ByteArrayOutputStream _buf = new ByteArrayOutputStream();
+		public Code op(int opcode) { _buf.write(opcode); return this; }
+		public Code u1(int v) { _buf.write(v); return this; }
+		public Code u2(int v) { _buf.write(v >>> 8); _buf.write(v); return this; }
+		public byte[] toByteArray() { return _buf.toByteArray(); }
+	}
+
+	/**
+	 * Class loader defining generated classes on top of a parent loader.
+	 */
+	public static class Loader extends ClassLoader {
+		public Loader(ClassLoader parent) {
+			super(parent);
+		}
+		public Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
@@ -73,6 +73,14 @@ public class RuntimeCompiler<T> {
 		return s_instance;
 	}
 	
+	/**
+	 * Indicates if the system Java compiler is available, which is not the
+	 * case when running on a JRE without the compiler module.
+	 */
+	public static boolean isAvailable() {
+		return ToolProvider.getSystemJavaCompiler() != null;
+	}
+	
    // Compiler requires source files with a ".java" extension:
    static final String JAVA_EXTENSION = ".java";
 
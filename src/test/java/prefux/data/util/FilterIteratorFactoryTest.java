@@ -0,0 +1,213 @@
+package prefux.data.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.BitSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import prefux.data.Table;
+import prefux.data.expression.ColumnExpression;
+import prefux.data.expression.ComparisonPredicate;
+import prefux.data.expression.Expression;
+import prefux.data.expression.NumericLiteral;
+import prefux.data.expression.Predicate;
+import prefux.data.expression.RangePredicate;
+import prefux.util.collections.IntIterator;
+
+/**
+ * Checks that comparisons and ranges answered through an index return the
+ * same rows as a scan of the table, for literals of other types than the
+ * indexed column.
+ */
+public class FilterIteratorFactoryTest {
+
+    private static final int ROWS = 400;
+
+    private static final String[] COLUMNS = { "i", "l", "f", "d" };
+
+    private static final int[] OPERATIONS = {
+        ComparisonPredicate.LT, ComparisonPredicate.GT,
+        ComparisonPredicate.EQ, ComparisonPredicate.LTEQ,
+        ComparisonPredicate.GTEQ
+    };
+
+    private static final Number[] LITERALS = {
+        -1, 0, 2, 3, Integer.MIN_VALUE, Integer.MAX_VALUE,
+        2L, 1L << 40, -(1L << 40), Long.MAX_VALUE,
+        2f, 2.5f, 0.1f, Float.POSITIVE_INFINITY, Float.NaN,
+        2.0, 2.5, -0.0, 0.1, 1e30, 0x1p63,
+        Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NaN
+    };
+
+    private Table m_table;
+
+    @Before
+    public void setUp() {
+        m_table = new Table();
+        m_table.addColumn("i", int.class);
+        m_table.addColumn("l", long.class);
+        m_table.addColumn("f", float.class);
+        m_table.addColumn("d", double.class);
+        m_table.addRows(ROWS);
+        for ( int r=0; r<ROWS; ++r ) {
+            int v = r % 4;
+            m_table.setInt(r, "i", v);
+            m_table.setLong(r, "l", v);
+            m_table.setFloat(r, "f", v);
+            m_table.setDouble(r, "d", v);
+        }
+        m_table.setFloat(0, "f", Float.NEGATIVE_INFINITY);
+        m_table.setFloat(1, "f", Float.POSITIVE_INFINITY);
+        m_table.setFloat(2, "f", Float.NaN);
+        m_table.setDouble(0, "d", Double.NEGATIVE_INFINITY);
+        m_table.setDouble(1, "d", Double.POSITIVE_INFINITY);
+        m_table.setDouble(2, "d", Double.NaN);
+        for ( String col : COLUMNS )
+            m_table.index(col);
+    }
+
+    // ------------------------------------------------------------------------
+
+    @Test
+    public void fractionalLiteralOnIntColumn() {
+        assertEquals(300, count(m_table.rows(
+                compare("i", ComparisonPredicate.LT, 2.5))));
+        assertEquals(0, count(m_table.rows(
+                compare("i", ComparisonPredicate.EQ, 2.5))));
+        assertEquals(300, count(m_table.rows(
+                compare("l", ComparisonPredicate.LTEQ, 2.5))));
+    }
+
+    @Test
+    public void infiniteValuesInOpenBounds() {
+        // all rows but those of +Infinity and NaN
+        assertEquals(ROWS - 2, count(m_table.rows(
+                compare("d", ComparisonPredicate.LT, 3.5))));
+        assertEquals(ROWS - 2, count(m_table.rows(
+                compare("f", ComparisonPredicate.LT, 3.5f))));
+        // all rows but the one of -Infinity
+        assertEquals(ROWS - 1, count(m_table.rows(
+                compare("d", ComparisonPredicate.GT, -1e300))));
+    }
+
+    @Test
+    public void comparisonsMatchScan() {
+        for ( String col : COLUMNS ) {
+            for ( int op : OPERATIONS ) {
+                for ( Number val : LITERALS ) {
+                    checkComparison(compare(col, op, val));
+                    checkComparison(new ComparisonPredicate(op,
+                            new NumericLiteral(val), new ColumnExpression(col)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void exactLiteralsUseIndex() {
+        assertNotNull(FilterIteratorFactory.getComparisonIterator(m_table,
+                compare("i", ComparisonPredicate.LT, 2L)));
+        assertNotNull(FilterIteratorFactory.getComparisonIterator(m_table,
+                compare("l", ComparisonPredicate.GT, 2.0)));
+        assertNotNull(FilterIteratorFactory.getComparisonIterator(m_table,
+                compare("f", ComparisonPredicate.GTEQ, 2.5)));
+        assertNotNull(FilterIteratorFactory.getComparisonIterator(m_table,
+                compare("d", ComparisonPredicate.LTEQ, 2)));
+    }
+
+    @Test
+    public void rangesMatchScan() {
+        for ( String col : COLUMNS ) {
+            for ( Number lo : LITERALS ) {
+                for ( Number hi : LITERALS ) {
+                    // a range predicate needs bounds of the same type
+                    if ( lo.getClass() == hi.getClass() )
+                        checkRange(range(col, lo, hi));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rangeDeltasCoverChangedRows() {
+        for ( String col : COLUMNS ) {
+            for ( Number lo : LITERALS ) {
+                for ( Number hi : LITERALS ) {
+                    if ( lo.getClass() == hi.getClass() )
+                        checkRangeDelta(col, lo, hi);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private void checkRangeDelta(String col, Number lo, Number hi) {
+        for ( Number val : LITERALS ) {
+            if ( val.getClass() != lo.getClass() )
+                continue;
+            // move the lower bound
+            RangePredicate prev = range(col, lo, hi);
+            RangePredicate next = range(col, val, hi);
+            IntIterator rows = FilterIteratorFactory.getRangeDeltaIterator(
+                    m_table, next, prev.getLeftExpression(),
+                    prev.getRightExpression());
+            if ( rows == null )
+                continue; // the table is filtered again
+            BitSet delta = new BitSet();
+            while ( rows.hasNext() )
+                delta.set(rows.nextInt());
+            for ( int r=0; r<ROWS; ++r ) {
+                if ( prev.getBoolean(m_table.getTuple(r)) !=
+                     next.getBoolean(m_table.getTuple(r)) )
+                {
+                    assertTrue(next + " row " + r, delta.get(r));
+                }
+            }
+        }
+    }
+
+    private static ComparisonPredicate compare(String col, int op, Number val) {
+        return new ComparisonPredicate(op, new ColumnExpression(col),
+                new NumericLiteral(val));
+    }
+
+    private static RangePredicate range(String col, Number lo, Number hi) {
+        Expression l = new NumericLiteral(lo), r = new NumericLiteral(hi);
+        return new RangePredicate(new ColumnExpression(col), l, r);
+    }
+
+    private void checkComparison(ComparisonPredicate p) {
+        IntIterator rows = FilterIteratorFactory.getComparisonIterator(
+                m_table, p);
+        if ( rows != null )
+            assertEquals(p.toString(), scan(p), count(rows));
+    }
+
+    private void checkRange(RangePredicate p) {
+        IntIterator rows = FilterIteratorFactory.getRangeIterator(m_table, p);
+        if ( rows != null )
+            assertEquals(p.toString(), scan(p), count(rows));
+    }
+
+    private int scan(Predicate p) {
+        int n = 0;
+        for ( int r=0; r<ROWS; ++r ) {
+            if ( p.getBoolean(m_table.getTuple(r)) )
+                ++n;
+        }
+        return n;
+    }
+
+    private static int count(IntIterator rows) {
+        int n = 0;
+        for ( ; rows.hasNext(); rows.nextInt() )
+            ++n;
+        return n;
+    }
+
+} // end of class FilterIteratorFactoryTest
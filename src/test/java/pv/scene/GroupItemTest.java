@@ -0,0 +1,67 @@
+package pv.scene;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class GroupItemTest {
+
+	private GroupItem _root, _panel, _dots;
+	private DotItem _dot;
+
+	@Before
+	public void setUp() {
+		_dot = new DotItem();
+		_dots = new GroupItem("dot");
+		_dots.add(_dot);
+		_dots.keys = new HashMap<Object,Item>();
+		_dots.keys.put("a", _dot);
+		_panel = new GroupItem("panel");
+		_panel.add(_dots);
+		_panel.keys = new HashMap<Object,Item>();
+		_panel.keys.put("b", _dots);
+		_root = new GroupItem("panel");
+		_root.add(_panel);
+	}
+
+	@Test
+	public void discardNestedGroups() {
+		_root.discard(-1);
+		assertEquals(0, _root.size());
+		assertEquals(0, _panel.size());
+		assertEquals(0, _dots.size());
+		assertNull(_panel.keys);
+		assertNull(_dots.keys);
+		assertFalse(_panel.visible);
+		assertFalse(_dots.visible);
+		assertFalse(_dot.visible);
+	}
+
+	@Test
+	public void reclaimNestedGroups() {
+		ItemPool pool = new ItemPool();
+		_root.discard(0, pool);
+		assertEquals(0, _root.size());
+
+		// held back until the end of the following update
+		pool.release();
+		assertEquals(0, pool.size(GroupItem.class));
+		assertEquals(1, _panel.size());
+
+		pool.release();
+		assertEquals(2, pool.size(GroupItem.class));
+		assertEquals(1, pool.size(DotItem.class));
+		assertEquals(0, _panel.size());
+		assertEquals(0, _dots.size());
+		assertNull(_panel.keys);
+		assertNull(_dots.keys);
+		assertSame(_dot, pool.poll(DotItem.class));
+	}
+
+}